@@ -0,0 +1,70 @@
+package org.opentripplanner.transit.raptor.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoComparator;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoSet;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link ParetoSet#add(Object)} with three criteria, the same number of criteria as
+ * used for the stop arrivals in the multi-criteria search. The vectors are random, but the
+ * random generator use a fixed seed, so the sequence is the same for every run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParetoSetBenchmark {
+    private static final int N_VECTORS = 4096;
+
+    private static final ParetoComparator<Criteria> COMPARATOR =
+            (l, r) -> l.time < r.time || l.round < r.round || l.cost < r.cost;
+
+    private final Criteria[] vectors = new Criteria[N_VECTORS];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticTransitNetwork.DEFAULT_SEED);
+        for (int i = 0; i < N_VECTORS; ++i) {
+            // Make the values decrease over time, like the arrivals at a stop in a search
+            int time = 3600 + random.nextInt(7200) - i / 2;
+            vectors[i] = new Criteria(time, random.nextInt(8), random.nextInt(100_000) - i * 10);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VECTORS)
+    public int add() {
+        ParetoSet<Criteria> set = new ParetoSet<>(COMPARATOR);
+        for (Criteria it : vectors) {
+            set.add(it);
+        }
+        return set.size();
+    }
+
+    private static final class Criteria {
+        final int time;
+        final int round;
+        final int cost;
+
+        Criteria(int time, int round, int cost) {
+            this.time = time;
+            this.round = round;
+            this.cost = cost;
+        }
+    }
+}
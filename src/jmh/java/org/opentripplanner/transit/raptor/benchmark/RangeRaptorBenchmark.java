@@ -0,0 +1,86 @@
+package org.opentripplanner.transit.raptor.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.transit.raptor.RaptorService;
+import org.opentripplanner.transit.raptor._data.transit.TestTransitData;
+import org.opentripplanner.transit.raptor._data.transit.TestTripSchedule;
+import org.opentripplanner.transit.raptor.api.path.Path;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.opentripplanner.transit.raptor._data.transit.TestTransfer.walk;
+import static org.opentripplanner.util.time.TimeUtils.hm2time;
+
+/**
+ * Benchmark a complete Raptor search, from one corner of the {@link SyntheticTransitNetwork}
+ * to the opposite corner. This cover the {@code RangeRaptorWorker}, and the standard and
+ * multi-criteria transit workers and states, including the heuristic searches done before the
+ * multi-criteria search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RangeRaptorBenchmark {
+
+    @Param({ "STANDARD", "MULTI_CRITERIA" })
+    public RaptorProfile profile;
+
+    @Param({ "20" })
+    public int gridSize;
+
+    @Param({ "3600" })
+    public int searchWindowInSeconds;
+
+    private RaptorService<TestTripSchedule> service;
+    private TestTransitData transitData;
+    private RaptorRequest<TestTripSchedule> request;
+
+    @Setup
+    public void setup() {
+        SyntheticTransitNetwork network = new SyntheticTransitNetwork(
+                gridSize,
+                SyntheticTransitNetwork.DEFAULT_SEED
+        );
+        transitData = network.transitData();
+        service = new RaptorService<>(RaptorConfig.defaultConfigForTest());
+
+        RaptorRequestBuilder<TestTripSchedule> builder = new RaptorRequestBuilder<>();
+        builder.profile(profile)
+                .searchParams()
+                .addAccessPaths(walk(network.stopIndex(0, 0), 120))
+                .addEgressPaths(walk(network.stopIndex(gridSize - 1, gridSize - 1), 120))
+                .earliestDepartureTime(hm2time(8, 0))
+                .searchWindowInSeconds(searchWindowInSeconds)
+                .timetableEnabled(true);
+        request = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public Collection<Path<TestTripSchedule>> route() {
+        return service.route(request, transitData).paths();
+    }
+}
@@ -0,0 +1,149 @@
+package org.opentripplanner.transit.raptor.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.TransitMode;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitTuningParameters;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
+import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerMapper;
+import org.opentripplanner.routing.algorithm.raptor.transit.request.RaptorRoutingRequestTransitData;
+import org.opentripplanner.routing.algorithm.raptor.transit.request.RoutingRequestTransitDataProviderFilter;
+import org.opentripplanner.routing.algorithm.raptor.transit.request.TransitDataProviderFilter;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SerializedGraphObject;
+import org.opentripplanner.transit.raptor.RaptorService;
+import org.opentripplanner.transit.raptor.api.path.Path;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.opentripplanner.transit.raptor._data.transit.TestTransfer.walk;
+import static org.opentripplanner.util.time.TimeUtils.hm2time;
+
+/**
+ * Benchmark the Raptor transit data creation and Raptor searches on a real network. The network
+ * is loaded from a serialized graph ({@code graph.obj}), and the {@link TransitLayer} is mapped
+ * from the graph once, before the benchmark starts.
+ * <p>
+ * The graph file and the service date are passed in as parameters, for example:
+ * <pre>
+ * mvn -P benchmark verify -Djmh.include=RecordedNetwork \
+ *     -Djmh.args="-p graph=/otp/norway/graph.obj -p date=2020-10-20"
+ * </pre>
+ * The searches are done between stop pairs drawn with a fixed seed, so the same graph always
+ * give the same set of searches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8G", "--add-opens", "java.base/java.lang=ALL-UNNAMED" })
+public class RecordedNetworkBenchmark {
+    private static final int N_SEARCHES = 64;
+
+    @Param({ "" })
+    public String graph;
+
+    @Param({ "" })
+    public String date;
+
+    @Param({ "MULTI_CRITERIA" })
+    public RaptorProfile profile;
+
+    private TransitLayer transitLayer;
+    private Instant departureTime;
+    private TransitDataProviderFilter filter;
+    private RaptorRoutingRequestTransitData transitData;
+    private RaptorService<TripSchedule> service;
+    private final List<RaptorRequest<TripSchedule>> requests = new ArrayList<>();
+    private int nextRequest = 0;
+
+    @Setup
+    public void setup() {
+        if(graph.isEmpty() || date.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "The 'graph' and 'date' parameters are required. Example: "
+                            + "-p graph=/otp/graph.obj -p date=2020-10-20"
+            );
+        }
+        Graph g = SerializedGraphObject.load(new File(graph));
+        if(g == null) {
+            throw new IllegalArgumentException("Unable to load graph: " + graph);
+        }
+        g.index();
+        transitLayer = TransitLayerMapper.map(TransitTuningParameters.FOR_TEST, g);
+        departureTime = LocalDate.parse(date)
+                .atStartOfDay(transitLayer.getTransitDataZoneId())
+                .toInstant();
+        filter = new RoutingRequestTransitDataProviderFilter(
+                false,
+                false,
+                false,
+                EnumSet.allOf(TransitMode.class),
+                Set.<FeedScopedId>of()
+        );
+        transitData = createTransitData();
+        service = new RaptorService<>(RaptorConfig.defaultConfigForTest());
+
+        Random random = new Random(SyntheticTransitNetwork.DEFAULT_SEED);
+        int nStops = transitLayer.getStopCount();
+
+        for (int i = 0; i < N_SEARCHES; ++i) {
+            RaptorRequestBuilder<TripSchedule> builder = new RaptorRequestBuilder<>();
+            builder.profile(profile)
+                    .searchParams()
+                    .addAccessPaths(walk(random.nextInt(nStops), 120))
+                    .addEgressPaths(walk(random.nextInt(nStops), 120))
+                    .earliestDepartureTime(hm2time(8, 0))
+                    .searchWindowInSeconds(3600)
+                    .timetableEnabled(true);
+            requests.add(builder.build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    /**
+     * Create the request scoped transit data. The pattern index is cached in the transit layer,
+     * so this measure the request specific filtering, not the index creation.
+     */
+    @Benchmark
+    public RaptorRoutingRequestTransitData createTransitData() {
+        return new RaptorRoutingRequestTransitData(transitLayer, departureTime, 1, filter, 1.33);
+    }
+
+    @Benchmark
+    public Collection<Path<TripSchedule>> route() {
+        RaptorRequest<TripSchedule> request = requests.get(nextRequest);
+        nextRequest = (nextRequest + 1) % requests.size();
+        return service.route(request, transitData).paths();
+    }
+}
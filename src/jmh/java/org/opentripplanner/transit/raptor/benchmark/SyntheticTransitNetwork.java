@@ -0,0 +1,107 @@
+package org.opentripplanner.transit.raptor.benchmark;
+
+import org.opentripplanner.transit.raptor._data.transit.TestRoute;
+import org.opentripplanner.transit.raptor._data.transit.TestTransitData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.opentripplanner.transit.raptor._data.transit.TestTransfer.walk;
+import static org.opentripplanner.transit.raptor._data.transit.TestTripPattern.pattern;
+import static org.opentripplanner.transit.raptor._data.transit.TestTripSchedule.schedule;
+import static org.opentripplanner.util.time.TimeUtils.hm2time;
+
+/**
+ * A deterministic synthetic transit network used by the benchmarks. The stops are laid out in a
+ * square grid, with one route in each direction along every row and column of the grid. Each
+ * stop has a walking transfer to the diagonal neighbour stops.
+ * <p>
+ * All travel times, headways and transfer durations are drawn from a {@link Random} with a
+ * fixed seed, so the same grid size and seed always produce the same network.
+ */
+public class SyntheticTransitNetwork {
+    public static final long DEFAULT_SEED = 2020;
+
+    private static final int START_OF_SERVICE = hm2time(5, 0);
+    private static final int END_OF_SERVICE = hm2time(24, 0);
+
+    private final int gridSize;
+    private final Random random;
+    private final TestTransitData transitData = new TestTransitData();
+    private final List<TestRoute> routes = new ArrayList<>();
+
+    public SyntheticTransitNetwork(int gridSize, long seed) {
+        this.gridSize = gridSize;
+        this.random = new Random(seed);
+
+        for (int i = 0; i < gridSize; ++i) {
+            int[] row = new int[gridSize];
+            int[] column = new int[gridSize];
+            for (int j = 0; j < gridSize; ++j) {
+                row[j] = stopIndex(i, j);
+                column[j] = stopIndex(j, i);
+            }
+            addRoute("R" + i, row);
+            addRoute("R" + i + "'", reverse(row));
+            addRoute("C" + i, column);
+            addRoute("C" + i + "'", reverse(column));
+        }
+        addDiagonalTransfers();
+    }
+
+    public int stopIndex(int row, int column) {
+        return row * gridSize + column;
+    }
+
+    public int numberOfStops() {
+        return gridSize * gridSize;
+    }
+
+    public TestTransitData transitData() {
+        return transitData;
+    }
+
+    public List<TestRoute> routes() {
+        return routes;
+    }
+
+    private void addRoute(String name, int[] stops) {
+        int headway = 300 + 150 * random.nextInt(4);
+        int[] hopTimes = new int[stops.length];
+        for (int i = 1; i < stops.length; ++i) {
+            hopTimes[i] = hopTimes[i-1] + 60 + random.nextInt(121);
+        }
+
+        TestRoute route = TestRoute.route(pattern(name, stops));
+        for (int dep = START_OF_SERVICE + random.nextInt(headway); dep < END_OF_SERVICE; dep += headway) {
+            int[] times = new int[stops.length];
+            for (int i = 0; i < stops.length; ++i) {
+                times[i] = dep + hopTimes[i];
+            }
+            route.withTimetable(schedule().times(times));
+        }
+        transitData.add(route);
+        routes.add(route);
+    }
+
+    private void addDiagonalTransfers() {
+        for (int row = 0; row + 1 < gridSize; ++row) {
+            for (int col = 0; col + 1 < gridSize; ++col) {
+                int duration = 180 + random.nextInt(121);
+                int from = stopIndex(row, col);
+                int to = stopIndex(row + 1, col + 1);
+                transitData.add(from, walk(to, duration));
+                transitData.add(to, walk(from, duration));
+            }
+        }
+    }
+
+    private static int[] reverse(int[] stops) {
+        int[] result = new int[stops.length];
+        for (int i = 0; i < stops.length; ++i) {
+            result[i] = stops[stops.length - 1 - i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,74 @@
+package org.opentripplanner.transit.raptor.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.transit.raptor._data.transit.TestRoute;
+import org.opentripplanner.transit.raptor._data.transit.TestTripSchedule;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TransitCalculator;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TripScheduleSearch;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.opentripplanner.util.time.TimeUtils.hm2time;
+
+/**
+ * Benchmark the trip search used to find the first trip to board at a given stop and time. The
+ * timetables are taken from the {@link SyntheticTransitNetwork}, and the search is created by
+ * the forward {@link TransitCalculator} used in the tests (binary search threshold is 10 trips).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripScheduleBoardSearchBenchmark {
+    private static final int N_SEARCHES = 1024;
+
+    private final TransitCalculator calculator = TransitCalculator.testDummyCalculator(true);
+
+    private List<TestRoute> routes;
+    private final int[] routeIndexes = new int[N_SEARCHES];
+    private final int[] stopPositions = new int[N_SEARCHES];
+    private final int[] earliestBoardTimes = new int[N_SEARCHES];
+
+    @Setup
+    public void setup() {
+        routes = new SyntheticTransitNetwork(20, SyntheticTransitNetwork.DEFAULT_SEED).routes();
+        Random random = new Random(SyntheticTransitNetwork.DEFAULT_SEED);
+
+        for (int i = 0; i < N_SEARCHES; ++i) {
+            routeIndexes[i] = random.nextInt(routes.size());
+            stopPositions[i] = random.nextInt(
+                    routes.get(routeIndexes[i]).pattern().numberOfStopsInPattern() - 1
+            );
+            earliestBoardTimes[i] = hm2time(6, 0) + random.nextInt(16 * 3600);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_SEARCHES)
+    public int search() {
+        int found = 0;
+        for (int i = 0; i < N_SEARCHES; ++i) {
+            TripScheduleSearch<TestTripSchedule> search = calculator.createTripSearch(
+                    routes.get(routeIndexes[i]).timetable()
+            );
+            if(search.search(earliestBoardTimes[i], stopPositions[i])) {
+                found += search.getCandidateTripIndex();
+            }
+        }
+        return found;
+    }
+}
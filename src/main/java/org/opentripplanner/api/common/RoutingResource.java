@@ -542,6 +542,13 @@ public abstract class RoutingResource {
     @QueryParam("disableRemainingWeightHeuristic")
     protected Boolean disableRemainingWeightHeuristic;
 
+    /**
+     * If true, a street search between one origin and one destination is done as a bidirectional
+     * A* search, from both ends at the same time.
+     */
+    @QueryParam("bidirectionalStreetSearch")
+    protected Boolean bidirectionalStreetSearch;
+
     /**
      * @deprecated TODO OTP2 This is not useful as a search parameter, but could be used as a
      *                       post search filter to reduce number of itineraries down to an
@@ -793,6 +800,9 @@ public abstract class RoutingResource {
         if (disableRemainingWeightHeuristic != null)
             request.disableRemainingWeightHeuristic = disableRemainingWeightHeuristic;
 
+        if (bidirectionalStreetSearch != null)
+            request.bidirectionalStreetSearch = bidirectionalStreetSearch;
+
         if (maxHours != null)
             request.maxHours = maxHours;
 
@@ -1,8 +1,8 @@
 package org.opentripplanner.common.geometry;
 
 import java.io.ByteArrayOutputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Variable-length integer encoding. This optimize integer storage when most of the values are
@@ -64,46 +64,52 @@ public class DlugoszVarLenIntPacker {
     public static int[] unpack(byte[] arr) {
         if (arr == null)
             return null;
-        List<Integer> retval = new ArrayList<Integer>(arr.length);
-        int i = 0;
-        while (i < arr.length) {
-            int v1 = arr[i] & 0xFF;
+        return unpack(ByteBuffer.wrap(arr), 0, arr.length);
+    }
+
+    /**
+     * Unpack the values stored in the given part of the buffer. The buffer is read with absolute
+     * gets, so its position is not changed, and several threads can read the same buffer.
+     */
+    public static int[] unpack(ByteBuffer buf, int offset, int length) {
+        // Each value takes at least one byte
+        int[] retval = new int[length];
+        int n = 0;
+        int i = offset;
+        int end = offset + length;
+        while (i < end) {
+            int v1 = buf.get(i) & 0xFF;
             i++;
             if ((v1 & 0x80) == 0x00) {
                 // 0xxx xxxx -> 7 bits value
                 int sv = (v1 & 0x7F) - 64;
-                retval.add(sv);
+                retval[n++] = sv;
             } else if ((v1 & 0xC0) == 0x80) {
                 // 10xx xxxx + 8 -> 14 bits value
-                int sv = ((v1 & 0x3F) << 8) + (arr[i] & 0xFF) - 8192;
+                int sv = ((v1 & 0x3F) << 8) + (buf.get(i) & 0xFF) - 8192;
                 i++;
-                retval.add(sv);
+                retval[n++] = sv;
             } else if ((v1 & 0xE0) == 0xC0) {
                 // 110 xxxx + 2x8 -> 21 bits value
-                int sv = ((v1 & 0x1F) << 16) + ((arr[i] & 0xFF) << 8) + (arr[i + 1] & 0xFF)
+                int sv = ((v1 & 0x1F) << 16) + ((buf.get(i) & 0xFF) << 8) + (buf.get(i + 1) & 0xFF)
                         - 1048576;
                 i += 2;
-                retval.add(sv);
+                retval[n++] = sv;
             } else if ((v1 & 0xF8) == 0xE0) {
                 // 1110 0xxx + 3x8 -> 27 bits value
-                int sv = ((v1 & 0x1F) << 24) + ((arr[i] & 0xFF) << 16) + ((arr[i + 1] & 0xFF) << 8)
-                        + (arr[i + 2] & 0xFF) - 67108864;
+                int sv = ((v1 & 0x1F) << 24) + ((buf.get(i) & 0xFF) << 16) + ((buf.get(i + 1) & 0xFF) << 8)
+                        + (buf.get(i + 2) & 0xFF) - 67108864;
                 i += 3;
-                retval.add(sv);
+                retval[n++] = sv;
             } else {
                 // 1110 1xxx + 4x8 -> 35 bits value
-                long sv = (((long) v1 & 0x1F) << 32) + ((arr[i] & 0xFF) << 24)
-                        + ((arr[i + 1] & 0xFF) << 16) + ((arr[i + 2] & 0xFF) << 8)
-                        + (arr[i + 3] & 0xFF) - 2147483648L;
+                long sv = (((long) v1 & 0x1F) << 32) + ((buf.get(i) & 0xFF) << 24)
+                        + ((buf.get(i + 1) & 0xFF) << 16) + ((buf.get(i + 2) & 0xFF) << 8)
+                        + (buf.get(i + 3) & 0xFF) - 2147483648L;
                 i += 4;
-                retval.add((int) sv);
+                retval[n++] = (int) sv;
             }
         }
-        int[] bufret = new int[retval.size()];
-        i = 0;
-        for (int v : retval) {
-            bufret[i++] = v;
-        }
-        return bufret;
+        return n == retval.length ? retval : Arrays.copyOf(retval, n);
     }
 }
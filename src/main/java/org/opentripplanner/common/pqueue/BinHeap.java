@@ -2,7 +2,7 @@ package org.opentripplanner.common.pqueue;
 
 import java.util.Arrays;
 
-public class BinHeap<T> {
+public class BinHeap<T> implements OTPPriorityQueue<T> {
     
     private static final double GROW_FACTOR = 2.0;
     
@@ -25,14 +25,17 @@ public class BinHeap<T> {
         prio[0] = Double.NEGATIVE_INFINITY;    // set sentinel
     }
     
+    @Override
     public int size() {
     	return size;
     }
     
+    @Override
     public boolean empty() {
     	return size <= 0;
     }
 
+    @Override
     public double peek_min_key() {
     	if (size > 0) 
     		return prio[1];
@@ -40,6 +43,7 @@ public class BinHeap<T> {
     		throw new IllegalStateException("An empty queue does not have a minimum key.");
    	}
     
+    @Override
     public T peek_min() {
     	if (size > 0)
     		return elem[1];
@@ -99,11 +103,13 @@ public class BinHeap<T> {
     	System.out.printf("-----------------------\n");
     }
     
+    @Override
     public void reset() {
     	// empties the queue in one operation
     	size=0;
     } 
 
+    @Override
     public void insert(T e, double p) {
         int i;
         size += 1;
@@ -117,6 +123,7 @@ public class BinHeap<T> {
         prio[i] = p;
     }    
     
+    @Override
     public T extract_min() {
         int    i, child;
         T      minElem  = elem[1];
@@ -0,0 +1,165 @@
+package org.opentripplanner.common.pqueue;
+
+import org.opentripplanner.util.PagedArrays;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * A 4-ary heap where each element may have an integer index, given by a function of the element.
+ * Inserting an element with the same index as an element already in the queue replaces that
+ * element and changes its key, instead of adding a new entry. Elements with a negative index are
+ * always added.
+ * <p>
+ * The searches use this to keep at most one entry per vertex in the queue, instead of leaving
+ * the dominated states in the queue until they are extracted. A 4-ary heap is less deep than a
+ * binary heap, and the children of a node are next to each other in memory.
+ * <p>
+ * The positions of the indexed elements are kept in a {@link PagedArrays.OfInt}, so the memory
+ * used depends on the indices used, not on the largest index.
+ */
+public class IndexedFourAryHeap<T> implements OTPPriorityQueue<T> {
+
+    private final ToIntFunction<? super T> indexOf;
+
+    private double[] prio;
+    private T[] elem;
+    /** The index of the element at each heap position, -1 if the element has no index. */
+    private int[] index;
+    private int size = 0;
+
+    /** The heap position of each index in the queue, -1 if the index is not in the queue. */
+    private final PagedArrays.OfInt positions = new PagedArrays.OfInt(0, -1);
+
+    @SuppressWarnings("unchecked")
+    public IndexedFourAryHeap(int capacity, ToIntFunction<? super T> indexOf) {
+        if (capacity < 10) capacity = 10;
+        this.indexOf = indexOf;
+        this.prio = new double[capacity];
+        this.elem = (T[]) new Object[capacity];
+        this.index = new int[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean empty() {
+        return size <= 0;
+    }
+
+    @Override
+    public double peek_min_key() {
+        if (size > 0)
+            return prio[0];
+        else
+            throw new IllegalStateException("An empty queue does not have a minimum key.");
+    }
+
+    @Override
+    public T peek_min() {
+        return size > 0 ? elem[0] : null;
+    }
+
+    /**
+     * Insert the element, or if an element with the same index is already in the queue, replace
+     * it with the given element and key. The new key may be lower or higher than the old one.
+     */
+    @Override
+    public void insert(T e, double p) {
+        int i = indexOf.applyAsInt(e);
+        if (i >= 0) {
+            int pos = positions.get(i);
+            if (pos >= 0) {
+                double oldPrio = prio[pos];
+                elem[pos] = e;
+                if (p < oldPrio) {
+                    siftUp(pos, e, p, i);
+                } else {
+                    siftDown(pos, e, p, i);
+                }
+                return;
+            }
+        }
+        if (size == elem.length) {
+            resize(elem.length * 2);
+        }
+        siftUp(size++, e, p, i);
+    }
+
+    @Override
+    public T extract_min() {
+        if (size <= 0)
+            return null;
+        T minElem = elem[0];
+        setPosition(index[0], -1);
+        size -= 1;
+        if (size > 0) {
+            siftDown(0, elem[size], prio[size], index[size]);
+        }
+        elem[size] = null;
+        return minElem;
+    }
+
+    @Override
+    public void reset() {
+        for (int pos = 0; pos < size; ++pos) {
+            setPosition(index[pos], -1);
+            elem[pos] = null;
+        }
+        size = 0;
+    }
+
+    /** Move the element up from the given position until its parent has a lower or equal key. */
+    private void siftUp(int pos, T e, double p, int i) {
+        while (pos > 0) {
+            int parent = (pos - 1) >> 2;
+            if (prio[parent] <= p) break;
+            move(parent, pos);
+            pos = parent;
+        }
+        set(pos, e, p, i);
+    }
+
+    /** Move the element down from the given position until its children have higher or equal keys. */
+    private void siftDown(int pos, T e, double p, int i) {
+        while (true) {
+            int first = (pos << 2) + 1;
+            if (first >= size) break;
+            int last = Math.min(first + 4, size);
+            int child = first;
+            for (int c = first + 1; c < last; ++c) {
+                if (prio[c] < prio[child]) child = c;
+            }
+            if (prio[child] >= p) break;
+            move(child, pos);
+            pos = child;
+        }
+        set(pos, e, p, i);
+    }
+
+    private void move(int from, int to) {
+        set(to, elem[from], prio[from], index[from]);
+    }
+
+    private void set(int pos, T e, double p, int i) {
+        elem[pos] = e;
+        prio[pos] = p;
+        index[pos] = i;
+        setPosition(i, pos);
+    }
+
+    private void setPosition(int i, int pos) {
+        if (i >= 0) {
+            positions.set(i, pos);
+        }
+    }
+
+    private void resize(int capacity) {
+        prio = Arrays.copyOf(prio, capacity);
+        elem = Arrays.copyOf(elem, capacity);
+        index = Arrays.copyOf(index, capacity);
+    }
+}
@@ -0,0 +1,27 @@
+package org.opentripplanner.common.pqueue;
+
+/**
+ * A priority queue of elements with double keys, the element with the lowest key is extracted
+ * first. The implementations differ in which operations they support efficiently, see
+ * {@link BinHeap}, {@link IndexedFourAryHeap} and {@link RadixHeap}.
+ */
+public interface OTPPriorityQueue<T> {
+
+    int size();
+
+    boolean empty();
+
+    /** The key of the element with the lowest key, the queue must not be empty. */
+    double peek_min_key();
+
+    /** The element with the lowest key, or {@code null} if the queue is empty. */
+    T peek_min();
+
+    void insert(T e, double p);
+
+    /** Remove and return the element with the lowest key, or {@code null} if the queue is empty. */
+    T extract_min();
+
+    /** Remove all elements. */
+    void reset();
+}
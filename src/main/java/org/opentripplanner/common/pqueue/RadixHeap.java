@@ -0,0 +1,148 @@
+package org.opentripplanner.common.pqueue;
+
+import java.util.Arrays;
+
+/**
+ * A monotone priority queue: a key inserted must not be lower than the key of the last element
+ * extracted, unless the queue is empty. This is the case in a Dijkstra search with non-negative
+ * edge weights, where the weight of a new state is never lower than the weight of the state it
+ * was created from.
+ * <p>
+ * The elements are kept in buckets by the highest bit where their key differs from the last key
+ * extracted. Only the elements in the lowest non-empty bucket are compared, and each element
+ * moves to a lower bucket at most 64 times, so inserting and extracting an element takes
+ * constant amortized time. The non-negative double keys are compared by their bit patterns,
+ * which have the same order as the numbers, so this works with any non-negative weight, not only
+ * integer seconds.
+ */
+public class RadixHeap<T> implements OTPPriorityQueue<T> {
+
+    private static final int BUCKETS = 65;
+
+    private final long[][] keys = new long[BUCKETS][];
+    private final Object[][] elems = new Object[BUCKETS][];
+    private final int[] sizes = new int[BUCKETS];
+    private int size = 0;
+
+    /** The bits of the key of the last element extracted, all elements in bucket 0 have this key. */
+    private long last = 0;
+
+    public RadixHeap() {
+        for (int b = 0; b < BUCKETS; ++b) {
+            keys[b] = new long[4];
+            elems[b] = new Object[4];
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean empty() {
+        return size <= 0;
+    }
+
+    @Override
+    public double peek_min_key() {
+        if (size <= 0)
+            throw new IllegalStateException("An empty queue does not have a minimum key.");
+        pull();
+        return Double.longBitsToDouble(last);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek_min() {
+        if (size <= 0)
+            return null;
+        pull();
+        return (T) elems[0][sizes[0] - 1];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is negative, NaN or lower than the key of the
+     *                                  last element extracted while the queue is not empty.
+     */
+    @Override
+    public void insert(T e, double p) {
+        if (!(p >= 0)) {
+            throw new IllegalArgumentException("A radix heap key must be non-negative: " + p);
+        }
+        // Adding zero turns -0.0 into 0.0
+        long key = Double.doubleToLongBits(p + 0.0);
+        if (size == 0) {
+            last = 0;
+        }
+        if (key < last) {
+            throw new IllegalArgumentException(
+                "A radix heap key must not be lower than the last key extracted: " + p
+            );
+        }
+        add(bucket(key), key, e);
+        size += 1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T extract_min() {
+        if (size <= 0)
+            return null;
+        pull();
+        int i = --sizes[0];
+        T e = (T) elems[0][i];
+        elems[0][i] = null;
+        size -= 1;
+        return e;
+    }
+
+    @Override
+    public void reset() {
+        for (int b = 0; b < BUCKETS; ++b) {
+            Arrays.fill(elems[b], 0, sizes[b], null);
+            sizes[b] = 0;
+        }
+        size = 0;
+        last = 0;
+    }
+
+    /**
+     * Make sure bucket 0 is not empty: find the lowest non-empty bucket, make its lowest key the
+     * last key, and move its elements to the lower buckets.
+     */
+    private void pull() {
+        if (sizes[0] > 0) return;
+        int b = 1;
+        while (sizes[b] == 0) ++b;
+
+        long[] bucketKeys = keys[b];
+        Object[] bucketElems = elems[b];
+        int n = sizes[b];
+        long min = bucketKeys[0];
+        for (int i = 1; i < n; ++i) {
+            min = Math.min(min, bucketKeys[i]);
+        }
+        last = min;
+        sizes[b] = 0;
+        for (int i = 0; i < n; ++i) {
+            add(bucket(bucketKeys[i]), bucketKeys[i], bucketElems[i]);
+            bucketElems[i] = null;
+        }
+    }
+
+    private int bucket(long key) {
+        return key == last ? 0 : 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void add(int b, long key, Object e) {
+        int n = sizes[b];
+        if (n == keys[b].length) {
+            keys[b] = Arrays.copyOf(keys[b], n * 2);
+            elems[b] = Arrays.copyOf(elems[b], n * 2);
+        }
+        keys[b][n] = key;
+        elems[b][n] = e;
+        sizes[b] = n + 1;
+    }
+}
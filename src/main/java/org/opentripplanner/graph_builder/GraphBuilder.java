@@ -6,7 +6,9 @@ import org.opentripplanner.datastore.DataSource;
 import org.opentripplanner.ext.transferanalyzer.DirectTransferAnalyzer;
 import org.opentripplanner.graph_builder.model.GtfsBundle;
 import org.opentripplanner.graph_builder.module.DirectTransferGenerator;
+import org.opentripplanner.graph_builder.module.ContractionHierarchyModule;
 import org.opentripplanner.graph_builder.module.GtfsModule;
+import org.opentripplanner.graph_builder.module.LandmarkModule;
 import org.opentripplanner.ext.flex.FlexLocationsToStreetEdgesMapper;
 import org.opentripplanner.graph_builder.module.PruneFloatingIslands;
 import org.opentripplanner.graph_builder.module.StreetLinkerModule;
@@ -108,7 +110,11 @@ public class GraphBuilder implements Runnable {
             List<BinaryOpenStreetMapProvider> osmProviders = Lists.newArrayList();
             for (DataSource osmFile : dataSources.get(OSM)) {
                 osmProviders.add(
-                        new BinaryOpenStreetMapProvider(osmFile, config.osmCacheDataInMem)
+                        new BinaryOpenStreetMapProvider(
+                                osmFile,
+                                config.osmCacheDataInMem,
+                                config.osmParserThreads
+                        )
                 );
             }
             OpenStreetMapModule osmModule = new OpenStreetMapModule(osmProviders);
@@ -224,6 +230,14 @@ public class GraphBuilder implements Runnable {
             }
         }
 
+        // The landmarks and hierarchies must be created after all modules changing the street network
+        if ((hasOsm || graphBuilder.graph.hasStreets) && config.landmarks > 0) {
+            graphBuilder.addModule(new LandmarkModule(config.landmarks));
+        }
+        if ((hasOsm || graphBuilder.graph.hasStreets) && config.contractionHierarchies) {
+            graphBuilder.addModule(new ContractionHierarchyModule());
+        }
+
         if (config.dataImportReport) {
             graphBuilder.addModule(
                     new DataImportIssuesToHTML(
@@ -9,6 +9,7 @@ import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.index.SpatialIndex;
 import org.locationtech.jts.linearref.LinearLocation;
 import org.locationtech.jts.linearref.LocationIndexedLine;
+import org.opentripplanner.common.TurnRestriction;
 import org.opentripplanner.common.geometry.GeometryUtils;
 import org.opentripplanner.common.geometry.HashGridSpatialIndex;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
@@ -60,6 +61,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
@@ -237,64 +239,25 @@ public class SimpleStreetSplitter {
 
     public boolean linkToStreetEdges (Vertex vertex, TraverseMode traverseMode, RoutingRequest options, int radiusMeters) {
 
-        final double radiusDeg = SphericalDistanceLibrary.metersToDegrees(radiusMeters);
-
-        Envelope env = new Envelope(vertex.getCoordinate());
-
         // Perform a simple local equirectangular projection, so distances are expressed in degrees latitude.
         final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
 
-        // Expand more in the longitude direction than the latitude direction to account for converging meridians.
-        env.expandBy(radiusDeg / xscale, radiusDeg);
+        List<DistanceTo<StreetEdge>> closestEdges = findClosestEdges(vertex, traverseMode, radiusMeters);
+        if (!closestEdges.isEmpty()) {
+            // There is at least one appropriate edge within range.
+            closestEdges.forEach(ce -> link(vertex, ce.item, xscale, options));
 
-        final double DUPLICATE_WAY_EPSILON_DEGREES = SphericalDistanceLibrary.metersToDegrees(DUPLICATE_WAY_EPSILON_METERS);
-
-        final TraverseModeSet traverseModeSet = new TraverseModeSet(traverseMode);
-        if (traverseMode == TraverseMode.BICYCLE) {
-            traverseModeSet.setWalk(true);
-        }
-        // Scope block to avoid confusing edge-related local variables with stop-related variables below.
-        {
-            // Perform several transformations at once on the edges returned by the index.
-            // Only consider street edges traversable by the given mode and still present in the graph.
-            // Calculate a distance to each of those edges, and keep only the ones within the search radius.
-            List<DistanceTo<StreetEdge>> candidateEdges = idx.query(env).stream()
-                    .filter(StreetEdge.class::isInstance)
-                    .map(StreetEdge.class::cast)
-                    .filter(e -> e.canTraverse(traverseModeSet) && edgeReachableFromGraph(e))
-                    .map(e -> new DistanceTo<>(e, distance(vertex, e, xscale)))
-                    .filter(ead -> ead.distanceDegreesLat < radiusDeg)
-                    .collect(Collectors.toList());
-
-            // The following logic has gone through several different versions using different approaches.
-            // The core idea is to find all edges that are roughly the same distance from the given vertex, which will
-            // catch things like superimposed edges going in opposite directions.
-            // First, all edges within DUPLICATE_WAY_EPSILON_METERS of of the best distance were selected.
-            // More recently, the edges were sorted in order of increasing distance, and all edges in the list were selected
-            // up to the point where a distance increase of DUPLICATE_WAY_EPSILON_DEGREES from one edge to the next.
-            // This was in response to concerns about arbitrary cutoff distances: at any distance, it's always possible
-            // one half of a dual carriageway (or any other pair of edges in opposite directions) will be caught and the
-            // other half lost. It seems like this was based on some incorrect premises about floating point calculations
-            // being non-deterministic.
-            if (!candidateEdges.isEmpty()) {
-                // There is at least one appropriate edge within range.
-                double closestDistance = candidateEdges.stream()
+            // Warn if a linkage was made for a transit stop, but the linkage was suspiciously long.
+            if (vertex instanceof TransitStopVertex) {
+                double closestDistance = closestEdges.stream()
                         .mapToDouble(ce -> ce.distanceDegreesLat)
                         .min().getAsDouble();
-
-                candidateEdges.stream()
-                        .filter(ce -> ce.distanceDegreesLat <= closestDistance + DUPLICATE_WAY_EPSILON_DEGREES)
-                        .forEach(ce -> link(vertex, ce.item, xscale, options));
-
-                // Warn if a linkage was made for a transit stop, but the linkage was suspiciously long.
-                if (vertex instanceof TransitStopVertex) {
-                    int distanceMeters = (int)SphericalDistanceLibrary.degreesLatitudeToMeters(closestDistance);
-                    if (distanceMeters > WARNING_DISTANCE_METERS) {
-                        issueStore.add(new StopLinkedTooFar((TransitStopVertex)vertex, distanceMeters));
-                    }
+                int distanceMeters = (int)SphericalDistanceLibrary.degreesLatitudeToMeters(closestDistance);
+                if (distanceMeters > WARNING_DISTANCE_METERS) {
+                    issueStore.add(new StopLinkedTooFar((TransitStopVertex)vertex, distanceMeters));
                 }
-                return true;
             }
+            return true;
         }
         if (radiusMeters >= MAX_SEARCH_RADIUS_METERS) {
             // There were no candidate edges within the max linking distance, fall back on finding transit stops.
@@ -303,34 +266,105 @@ public class SimpleStreetSplitter {
                 return false;
             }
             LOG.debug("No street edge was found for {}, checking transit stop vertices.", vertex);
-            List<TransitStopVertex> transitStopVertices = transitStopIndex.query(env);
-            List<DistanceTo<TransitStopVertex>> candidateStops = transitStopVertices.stream()
-                    .map(tsv -> new DistanceTo<>(tsv, distance(vertex, tsv, xscale)))
-                    .filter(dts -> dts.distanceDegreesLat <= radiusDeg)
-                    .collect(Collectors.toList());
-
-            if (candidateStops.isEmpty()) {
+            List<TransitStopVertex> closestStops = findClosestStops(vertex, radiusMeters);
+            if (closestStops.isEmpty()) {
                 LOG.debug("No stops nearby.");
                 return false;
             }
-            // There is at least one stop within range.
-            double closestDistance = candidateStops.stream()
-                    .mapToDouble(c -> c.distanceDegreesLat)
-                    .min().getAsDouble();
-
-            candidateStops.stream()
-                    .filter(dts -> dts.distanceDegreesLat <= closestDistance + DUPLICATE_WAY_EPSILON_DEGREES)
-                    .map(dts -> dts.item)
-                    .forEach(sv -> {
-                        LOG.debug("Linking vertex to stop: {}", sv.getName());
-                        makeTemporaryEdges((TemporaryStreetLocation)vertex, sv);
-                    });
-
+            closestStops.forEach(sv -> {
+                LOG.debug("Linking vertex to stop: {}", sv.getName());
+                makeTemporaryEdges((TemporaryStreetLocation)vertex, sv);
+            });
             return true;
         }
         return false;
     }
 
+    /**
+     * Find the street edges traversable by the given mode closest to the vertex, within the radius. Several edges are
+     * returned if they are roughly the same distance from the vertex.
+     */
+    private List<DistanceTo<StreetEdge>> findClosestEdges(Vertex vertex, TraverseMode traverseMode, int radiusMeters) {
+
+        final double radiusDeg = SphericalDistanceLibrary.metersToDegrees(radiusMeters);
+
+        Envelope env = new Envelope(vertex.getCoordinate());
+
+        // Perform a simple local equirectangular projection, so distances are expressed in degrees latitude.
+        final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
+
+        // Expand more in the longitude direction than the latitude direction to account for converging meridians.
+        env.expandBy(radiusDeg / xscale, radiusDeg);
+
+        final double DUPLICATE_WAY_EPSILON_DEGREES = SphericalDistanceLibrary.metersToDegrees(DUPLICATE_WAY_EPSILON_METERS);
+
+        final TraverseModeSet traverseModeSet = new TraverseModeSet(traverseMode);
+        if (traverseMode == TraverseMode.BICYCLE) {
+            traverseModeSet.setWalk(true);
+        }
+        // Perform several transformations at once on the edges returned by the index.
+        // Only consider street edges traversable by the given mode and still present in the graph.
+        // Calculate a distance to each of those edges, and keep only the ones within the search radius.
+        List<DistanceTo<StreetEdge>> candidateEdges = idx.query(env).stream()
+                .filter(StreetEdge.class::isInstance)
+                .map(StreetEdge.class::cast)
+                .filter(e -> e.canTraverse(traverseModeSet) && edgeReachableFromGraph(e))
+                .map(e -> new DistanceTo<>(e, distance(vertex, e, xscale)))
+                .filter(ead -> ead.distanceDegreesLat < radiusDeg)
+                .collect(Collectors.toList());
+
+        if (candidateEdges.isEmpty()) {
+            return candidateEdges;
+        }
+
+        // The following logic has gone through several different versions using different approaches.
+        // The core idea is to find all edges that are roughly the same distance from the given vertex, which will
+        // catch things like superimposed edges going in opposite directions.
+        // First, all edges within DUPLICATE_WAY_EPSILON_METERS of of the best distance were selected.
+        // More recently, the edges were sorted in order of increasing distance, and all edges in the list were selected
+        // up to the point where a distance increase of DUPLICATE_WAY_EPSILON_DEGREES from one edge to the next.
+        // This was in response to concerns about arbitrary cutoff distances: at any distance, it's always possible
+        // one half of a dual carriageway (or any other pair of edges in opposite directions) will be caught and the
+        // other half lost. It seems like this was based on some incorrect premises about floating point calculations
+        // being non-deterministic.
+        double closestDistance = candidateEdges.stream()
+                .mapToDouble(ce -> ce.distanceDegreesLat)
+                .min().getAsDouble();
+
+        return candidateEdges.stream()
+                .filter(ce -> ce.distanceDegreesLat <= closestDistance + DUPLICATE_WAY_EPSILON_DEGREES)
+                .collect(Collectors.toList());
+    }
+
+    /** Find the transit stops closest to the vertex, within the radius. */
+    private List<TransitStopVertex> findClosestStops(Vertex vertex, int radiusMeters) {
+        final double radiusDeg = SphericalDistanceLibrary.metersToDegrees(radiusMeters);
+        final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
+        final double DUPLICATE_WAY_EPSILON_DEGREES = SphericalDistanceLibrary.metersToDegrees(DUPLICATE_WAY_EPSILON_METERS);
+
+        Envelope env = new Envelope(vertex.getCoordinate());
+        env.expandBy(radiusDeg / xscale, radiusDeg);
+
+        List<TransitStopVertex> transitStopVertices = transitStopIndex.query(env);
+        List<DistanceTo<TransitStopVertex>> candidateStops = transitStopVertices.stream()
+                .map(tsv -> new DistanceTo<>(tsv, distance(vertex, tsv, xscale)))
+                .filter(dts -> dts.distanceDegreesLat <= radiusDeg)
+                .collect(Collectors.toList());
+
+        if (candidateStops.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // There is at least one stop within range.
+        double closestDistance = candidateStops.stream()
+                .mapToDouble(c -> c.distanceDegreesLat)
+                .min().getAsDouble();
+
+        return candidateStops.stream()
+                .filter(dts -> dts.distanceDegreesLat <= closestDistance + DUPLICATE_WAY_EPSILON_DEGREES)
+                .map(dts -> dts.item)
+                .collect(Collectors.toList());
+    }
+
     /**
      * While in destructive splitting mode (during graph construction rather than handling routing requests), we remove
      * edges that have been split and may then re-split the resulting segments recursively, so parts of them are also
@@ -375,11 +409,20 @@ public class SimpleStreetSplitter {
 
     /** split the edge and link in the transit stop */
     private void link(Vertex tstop, StreetEdge edge, double xscale, RoutingRequest options) {
+        linkToEdge(tstop, edge, project(tstop, edge, xscale));
+    }
+
+    /** The location on the edge closest to the vertex */
+    private static LinearLocation project(Vertex vertex, StreetEdge edge, double xscale) {
         // TODO: we've already built this line string, we should save it
-        LineString orig = edge.getGeometry();
-        LineString transformed = equirectangularProject(orig, xscale);
+        LineString transformed = equirectangularProject(edge.getGeometry(), xscale);
         LocationIndexedLine il = new LocationIndexedLine(transformed);
-        LinearLocation ll = il.project(new Coordinate(tstop.getLon() * xscale, tstop.getLat()));
+        return il.project(new Coordinate(vertex.getLon() * xscale, vertex.getLat()));
+    }
+
+    /** link the vertex to the given location on the edge, splitting the edge unless the location is at one of its ends */
+    private void linkToEdge(Vertex tstop, StreetEdge edge, LinearLocation ll) {
+        LineString orig = edge.getGeometry();
 
         // if we're very close to one end of the line or the other, or endwise, don't bother to split,
         // cut to the chase and link directly
@@ -470,6 +513,8 @@ public class SimpleStreetSplitter {
             idx.insert(edges.first.getGeometry(), edges.first);
             idx.insert(edges.second.getGeometry(), edges.second);
 
+            moveTurnRestrictions(edge, edges.first, edges.second);
+
             // remove original edge from the graph
             edge.getToVertex().removeIncoming(edge);
             edge.getFromVertex().removeOutgoing(edge);
@@ -483,6 +528,24 @@ public class SimpleStreetSplitter {
         return v;
     }
 
+    /**
+     * Move the turn restrictions of a split edge to the edges it is split into. The restrictions
+     * from the edge start at the second edge, and the restrictions to the edge end at the first.
+     */
+    private static void moveTurnRestrictions(StreetEdge edge, StreetEdge first, StreetEdge second) {
+        for (TurnRestriction turnRestriction : edge.getTurnRestrictions()) {
+            turnRestriction.from = second;
+            second.addTurnRestriction(turnRestriction);
+        }
+        for (StreetEdge incoming : Iterables.filter(edge.getFromVertex().getIncoming(), StreetEdge.class)) {
+            for (TurnRestriction turnRestriction : incoming.getTurnRestrictions()) {
+                if (turnRestriction.to == edge) {
+                    turnRestriction.to = first;
+                }
+            }
+        }
+    }
+
     /** Make the appropriate type of link edges from a vertex */
     private void makeLinkEdges(Vertex from, StreetVertex to) {
         if (from instanceof TemporaryStreetLocation) {
@@ -659,13 +722,60 @@ public class SimpleStreetSplitter {
                 nonTransitMode = TraverseMode.BICYCLE;
         }
 
-        if(!link(closest, nonTransitMode, options)) {
+        SnappingCache snappingCache = graph.getSnappingCache();
+        boolean linked = snappingCache == null
+            ? link(closest, nonTransitMode, options)
+            : linkWithSnappingCache(snappingCache, closest, nonTransitMode);
+        if(!linked) {
             LOG.warn("Couldn't link {}", location);
         }
         return closest;
 
     }
 
+    /**
+     * Link the origin or destination like {@link #link(Vertex, TraverseMode, RoutingRequest)} does, but look up the
+     * edges or stops to link to in the cache first, and only search for them if they are not cached.
+     */
+    private boolean linkWithSnappingCache(SnappingCache cache, TemporaryStreetLocation location, TraverseMode mode) {
+        List<Object> key = SnappingCache.key(location.getCoordinate(), mode);
+        List<SnappingCache.Link> links = cache.get(key);
+        if (links == null) {
+            links = findLinks(location, mode);
+            cache.put(key, links);
+        }
+        for (SnappingCache.Link link : links) {
+            if (link.stop != null) {
+                makeTemporaryEdges(location, link.stop);
+            } else {
+                linkToEdge(location, link.edge, link.location);
+            }
+        }
+        return !links.isEmpty();
+    }
+
+    /**
+     * Find the edges or stops to link an origin or destination to, with the same expanding search as
+     * {@link #link(Vertex, TraverseMode, RoutingRequest)}, without linking it.
+     */
+    private List<SnappingCache.Link> findLinks(Vertex vertex, TraverseMode mode) {
+        final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
+        for (int radiusMeters : new int[] { INITIAL_SEARCH_RADIUS_METERS, MAX_SEARCH_RADIUS_METERS }) {
+            List<DistanceTo<StreetEdge>> closestEdges = findClosestEdges(vertex, mode, radiusMeters);
+            if (!closestEdges.isEmpty()) {
+                return closestEdges.stream()
+                        .map(ce -> SnappingCache.Link.toEdge(ce.item, project(vertex, ce.item, xscale)))
+                        .collect(Collectors.toList());
+            }
+        }
+        if (transitStopIndex == null) {
+            return Collections.emptyList();
+        }
+        return findClosestStops(vertex, MAX_SEARCH_RADIUS_METERS).stream()
+                .map(SnappingCache.Link::toStop)
+                .collect(Collectors.toList());
+    }
+
     public void setAddExtraEdgesToAreas(Boolean addExtraEdgesToAreas) {
         this.addExtraEdgesToAreas = addExtraEdgesToAreas;
     }
@@ -0,0 +1,118 @@
+package org.opentripplanner.graph_builder.linking;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.linearref.LinearLocation;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cache where the origin and destination coordinates of the requests are linked to the street
+ * network. Popular origins and destinations are linked over and over again, and finding the edges
+ * to link to needs spatial index queries and distance calculations for each candidate edge.
+ * <p>
+ * The cache key is the coordinate, rounded to about 10 cm, and the mode used to link it. The
+ * cached value is an immutable description of the links: the edges and the locations along them,
+ * or the stops linked to if there is no street nearby. The temporary vertices and edges of a
+ * request are still created for each request, by {@link SimpleStreetSplitter}, but directly from
+ * this description. An entry is dropped if one of its edges is no longer in the graph.
+ * <p>
+ * The cache is owned by the graph, so it is dropped when a new graph is loaded.
+ * <p>
+ * THIS CLASS IS THREAD-SAFE.
+ */
+public class SnappingCache {
+
+    /** The coordinates are rounded to 1e-6 degrees, about 10 cm. */
+    private static final double ROUNDING = 1e6;
+
+    private final Cache<List<Object>, List<Link>> cache;
+
+    /**
+     * @param maxSize the maximum number of locations kept in the cache, the least recently used
+     *                entries are evicted first.
+     */
+    public SnappingCache(int maxSize) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+    }
+
+    static List<Object> key(Coordinate coordinate, TraverseMode mode) {
+        return Arrays.asList(
+            Math.round(coordinate.x * ROUNDING),
+            Math.round(coordinate.y * ROUNDING),
+            mode
+        );
+    }
+
+    /**
+     * Return the cached links for the given key, or {@code null} if not in the cache or if any of
+     * the edges linked to is no longer in the graph. An empty list means that the location could
+     * not be linked.
+     */
+    List<Link> get(List<Object> key) {
+        List<Link> links = cache.getIfPresent(key);
+        if (links == null) {
+            return null;
+        }
+        for (Link link : links) {
+            if (link.edge != null && !link.edge.getToVertex().getIncoming().contains(link.edge)) {
+                cache.invalidate(key);
+                return null;
+            }
+        }
+        return links;
+    }
+
+    void put(List<Object> key, List<Link> links) {
+        cache.put(key, List.copyOf(links));
+    }
+
+    /** The hit/miss and eviction statistics since the cache was created. */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * A link from a location to a street edge, at a location along the edge, or to a stop. The
+     * location is never modified.
+     */
+    static final class Link {
+
+        final StreetEdge edge;
+
+        final LinearLocation location;
+
+        final TransitStopVertex stop;
+
+        private Link(StreetEdge edge, LinearLocation location, TransitStopVertex stop) {
+            this.edge = edge;
+            this.location = location;
+            this.stop = stop;
+        }
+
+        static Link toEdge(StreetEdge edge, LinearLocation location) {
+            return new Link(edge, location, null);
+        }
+
+        static Link toStop(TransitStopVertex stop) {
+            return new Link(null, null, stop);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.opentripplanner.graph_builder.module;
+
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchies;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchies.Profile;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchy;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchyBuilder;
+import org.opentripplanner.routing.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+
+/**
+ * Create a {@link ContractionHierarchy} for each {@link Profile}, used to speed up direct car and
+ * bike routing. This module should run after all other modules changing the street network.
+ */
+public class ContractionHierarchyModule implements GraphBuilderModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContractionHierarchyModule.class);
+
+    @Override
+    public void buildGraph(
+            Graph graph,
+            HashMap<Class<?>, Object> extra,
+            DataImportIssueStore issueStore
+    ) {
+        ContractionHierarchy[] hierarchies = new ContractionHierarchy[Profile.values().length];
+        for (Profile profile : Profile.values()) {
+            LOG.info("Creating contraction hierarchy for {}...", profile);
+            ContractionHierarchy ch = new ContractionHierarchyBuilder(graph, profile).build();
+            if (ch.numberOfVertices() > 0) {
+                hierarchies[profile.ordinal()] = ch;
+            }
+        }
+        graph.setContractionHierarchies(new ContractionHierarchies(hierarchies));
+    }
+
+    @Override
+    public void checkInputs() {
+        // no inputs
+    }
+}
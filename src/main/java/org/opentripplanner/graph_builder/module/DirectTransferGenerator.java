@@ -1,6 +1,7 @@
 package org.opentripplanner.graph_builder.module;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.graph_builder.issues.StopNotLinkedForTransfers;
 import org.opentripplanner.graph_builder.services.GraphBuilderModule;
@@ -15,6 +16,7 @@ import org.opentripplanner.util.ProgressTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -65,49 +67,65 @@ public class DirectTransferGenerator implements GraphBuilderModule {
             LOG.info("Creating direct transfer edges between stops using straight line distance (not streets)...");
         }
 
-        Iterable<TransitStopVertex> stops = Iterables.filter(graph.getVertices(), TransitStopVertex.class);
+        List<TransitStopVertex> stops = Lists.newArrayList(
+                Iterables.filter(graph.getVertices(), TransitStopVertex.class)
+        );
+        boolean flex = OTPFeature.FlexRouting.isOn();
 
         ProgressTracker progress = ProgressTracker.track(
-                "Create transfer edges", 1000, Iterables.size(stops)
+                "Create transfer edges", 1000, (flex ? 2L : 1L) * stops.size()
         );
         int nTransfersTotal = 0;
         int nLinkableStops = 0;
 
-        // This could be multi-threaded, in which case we'd need to be careful about the lifecycle of NearbyStopFinder instances.
-        for (TransitStopVertex ts0 : stops) {
-            Stop stop = ts0.getStop();
-            LOG.debug("Linking stop '{}' {}", stop, ts0);
+        // The street searches run in parallel, the transfers are added to the graph afterwards.
+        NearbyStopMatrix matrix = new NearbyStopMatrix(nearbyStopFinder);
 
-            /* Make transfers to each nearby stop that is the closest stop on some trip pattern. */
-            int n = 0;
-            for (NearbyStop sd : nearbyStopFinder.findNearbyStopsConsideringPatterns(ts0, false)) {
+        /* Make transfers to each nearby stop that is the closest stop on some trip pattern. */
+        List<List<SimpleTransfer>> transfers = matrix.mapRows(stops, false, (ts0, nearbyStops) -> {
+            Stop stop = ts0.getStop();
+            List<SimpleTransfer> result = new ArrayList<>();
+            for (NearbyStop sd : nearbyStops) {
                 // Skip the origin stop, loop transfers are not needed.
                 if (sd.stop == stop) { continue; }
-                graph.transfersByStop.put(
-                    stop,
-                    new SimpleTransfer(stop, sd.stop, sd.distance, sd.edges)
-                );
-                n += 1;
+                result.add(new SimpleTransfer(stop, sd.stop, sd.distance, sd.edges));
             }
-            if (OTPFeature.FlexRouting.isOn()) {
-                // This code is for finding transfers from FlexStopLocations to Stops, transfers
-                // from Stops to FlexStopLocations and between Stops are already covered above.
-                for (NearbyStop sd : nearbyStopFinder.findNearbyStopsConsideringPatterns(ts0,  true)) {
+            return result;
+        }, progress);
+
+        List<List<SimpleTransfer>> flexTransfers = null;
+        if (flex) {
+            // This code is for finding transfers from FlexStopLocations to Stops, transfers
+            // from Stops to FlexStopLocations and between Stops are already covered above.
+            flexTransfers = matrix.mapRows(stops, true, (ts0, nearbyStops) -> {
+                List<SimpleTransfer> result = new ArrayList<>();
+                for (NearbyStop sd : nearbyStops) {
                     // Skip the origin stop, loop transfers are not needed.
                     if (sd.stop == ts0.getStop()) { continue; }
                     if (sd.stop instanceof Stop) { continue; }
-                    graph.transfersByStop.put(sd.stop,
-                        new SimpleTransfer(sd.stop, ts0.getStop(), sd.distance, sd.edges)
-                    );
+                    result.add(new SimpleTransfer(sd.stop, ts0.getStop(), sd.distance, sd.edges));
+                }
+                return result;
+            }, progress);
+        }
+
+        for (int i = 0; i < stops.size(); ++i) {
+            TransitStopVertex ts0 = stops.get(i);
+            int n = 0;
+            for (SimpleTransfer transfer : transfers.get(i)) {
+                graph.transfersByStop.put(transfer.from, transfer);
+                n += 1;
+            }
+            if (flexTransfers != null) {
+                for (SimpleTransfer transfer : flexTransfers.get(i)) {
+                    graph.transfersByStop.put(transfer.from, transfer);
                     n += 1;
                 }
             }
-            LOG.debug("Linked stop {} to {} nearby stops on other patterns.", stop, n);
+            LOG.debug("Linked stop {} to {} nearby stops on other patterns.", ts0.getStop(), n);
             if (n == 0) {
                 issueStore.add(new StopNotLinkedForTransfers(ts0));
             }
-            //Keep lambda! A method-ref would causes incorrect class and line number to be logged
-            progress.step(m -> LOG.info(m));
             nTransfersTotal += n;
         }
         LOG.info(progress.completeMessage());
@@ -0,0 +1,43 @@
+package org.opentripplanner.graph_builder.module;
+
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTablesBuilder;
+import org.opentripplanner.routing.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+
+/**
+ * Precompute the street distances to and from a set of landmarks, used by the
+ * {@link org.opentripplanner.routing.algorithm.astar.strategies.LandmarkRemainingWeightHeuristic}
+ * to speed up long street searches. This module should run after all other modules changing the
+ * street network.
+ */
+public class LandmarkModule implements GraphBuilderModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LandmarkModule.class);
+
+    private final int numberOfLandmarks;
+
+    public LandmarkModule(int numberOfLandmarks) {
+        this.numberOfLandmarks = numberOfLandmarks;
+    }
+
+    @Override
+    public void buildGraph(
+            Graph graph,
+            HashMap<Class<?>, Object> extra,
+            DataImportIssueStore issueStore
+    ) {
+        LOG.info("Creating street landmark tables...");
+        graph.setLandmarkTables(new LandmarkTablesBuilder(graph, numberOfLandmarks).build());
+        LOG.info("Creating street landmark tables done.");
+    }
+
+    @Override
+    public void checkInputs() {
+        // no inputs
+    }
+}
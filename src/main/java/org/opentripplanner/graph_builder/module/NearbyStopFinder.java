@@ -15,6 +15,8 @@ import org.opentripplanner.model.StopLocation;
 import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.routing.algorithm.astar.AStar;
 import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.csr.CompactStreetGraph;
+import org.opentripplanner.routing.algorithm.csr.CompactStreetSearch;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.core.State;
 import org.opentripplanner.routing.core.TraverseMode;
@@ -39,7 +41,8 @@ import java.util.Set;
  * These library functions are used by the streetless and streetful stop linkers, and in profile transfer generation.
  * TODO OTP2 Fold these into org.opentripplanner.routing.graphfinder.StreetGraphFinder
  *           These are not library functions, this is instantiated as an object. Define lifecycle of the object (reuse?).
- *           Because AStar instances should only be used once, NearbyStopFinder should only be used once.
+ * A new AStar instance is used for each search, so one NearbyStopFinder can be used for many searches, also from
+ * several threads at the same time, see {@link NearbyStopMatrix}.
  * Ideally they could also be used in long distance mode and profile routing for the street segments.
  * For each stop, it finds the closest stops on all other patterns. This reduces the number of transfer edges
  * significantly compared to simple radius-constrained all-to-all stop linkage.
@@ -53,9 +56,6 @@ public class NearbyStopFinder {
     private Graph graph;
     private double radiusMeters;
 
-    /* Fields used when finding stops via the street network. */
-    private AStar astar;
-
     private DirectGraphFinder directGraphFinder;
 
     /**
@@ -74,12 +74,10 @@ public class NearbyStopFinder {
         this.graph = graph;
         this.useStreets = useStreets;
         this.radiusMeters = radiusMeters;
-        if (useStreets) {
-            astar = new AStar();
-            // We need to accommodate straight line distance (in meters) but when streets are present we use an
-            // earliest arrival search, which optimizes on time. Ideally we'd specify in meters,
-            // but we don't have much of a choice here. Use the default walking speed to convert.
-        } else {
+        // We need to accommodate straight line distance (in meters) but when streets are present we use an
+        // earliest arrival search, which optimizes on time. Ideally we'd specify in meters,
+        // but we don't have much of a choice here. Use the default walking speed to convert.
+        if (!useStreets) {
             this.directGraphFinder = new DirectGraphFinder(graph);
         }
     }
@@ -168,15 +166,19 @@ public class NearbyStopFinder {
         routingRequest.disableRemainingWeightHeuristic = true;
         routingRequest.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
         routingRequest.dominanceFunction = new DominanceFunction.MinimumWeight();
-        ShortestPathTree spt = astar.getShortestPathTree(routingRequest);
+        Collection<State> states = findStatesViaCompactStreetGraph(routingRequest);
+        if (states == null) {
+            ShortestPathTree spt = new AStar().getShortestPathTree(routingRequest);
+            states = spt == null ? null : spt.getAllStates();
+        }
 
         List<NearbyStop> stopsFound = Lists.newArrayList();
 
         Multimap<FlexStopLocation, State> locationsMap = ArrayListMultimap.create();
 
-        if (spt != null) {
+        if (states != null) {
             // TODO use GenericAStar and a traverseVisitor? Add an earliestArrival switch to genericAStar?
-            for (State state : spt.getAllStates()) {
+            for (State state : states) {
                 Vertex targetVertex = state.getVertex();
                 if (originVertices.contains(targetVertex)) continue;
                 if (targetVertex instanceof TransitStopVertex && state.isFinal()) {
@@ -196,10 +198,11 @@ public class NearbyStopFinder {
 
         for (var locationStates : locationsMap.asMap().entrySet()) {
             FlexStopLocation flexStopLocation = locationStates.getKey();
-            Collection<State> states = locationStates.getValue();
             // Select the vertex from all vertices that are reachable per FlexStopLocation by taking
             // the minimum walking distance
-            State min = Collections.min(states, (s1, s2) -> (int) (s1.walkDistance - s2.walkDistance));
+            State min = Collections.min(
+                locationStates.getValue(), (s1, s2) -> (int) (s1.walkDistance - s2.walkDistance)
+            );
 
             stopsFound.add(NearbyStop.nearbyStopForState(min, flexStopLocation));
         }
@@ -224,6 +227,22 @@ public class NearbyStopFinder {
 
     }
 
+    /**
+     * Find the states at the stops using the compact street graph, if the graph has one and it
+     * supports the request. Return {@code null} if the normal A* search must be used.
+     */
+    private Collection<State> findStatesViaCompactStreetGraph(RoutingRequest routingRequest) {
+        CompactStreetGraph compactStreetGraph = graph.getCompactStreetGraph();
+        if (compactStreetGraph == null || !CompactStreetSearch.supports(routingRequest)) {
+            return null;
+        }
+        boolean flex = OTPFeature.FlexRouting.isOn();
+        return new CompactStreetSearch(compactStreetGraph, routingRequest).findStates(
+            v -> v instanceof TransitStopVertex
+                || (flex && v instanceof StreetVertex && ((StreetVertex) v).flexStopLocations != null)
+        );
+    }
+
     public List<NearbyStop> findNearbyStopsViaStreets (
         Set<Vertex> originVertices,
         boolean reverseDirection,
@@ -0,0 +1,70 @@
+package org.opentripplanner.graph_builder.module;
+
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graphfinder.NearbyStop;
+import org.opentripplanner.util.ProgressTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The street distances from many origins to the stops around them, found with one one-to-many
+ * street search per origin. The searches only read the graph, so they run in parallel on all
+ * cores, sharing one {@link NearbyStopFinder}.
+ * <p>
+ * Each row of the matrix, the stops near one origin, holds the states of a street search. So the
+ * rows are not kept: each row is mapped to the result the caller needs, like the transfers from
+ * the origin, by the thread computing it, and only these results are returned.
+ */
+public class NearbyStopMatrix {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NearbyStopMatrix.class);
+
+    private final NearbyStopFinder nearbyStopFinder;
+
+    private final boolean parallel;
+
+    public NearbyStopMatrix(NearbyStopFinder nearbyStopFinder) {
+        this(nearbyStopFinder, true);
+    }
+
+    /**
+     * @param parallel if false, the searches run one after the other in the calling thread
+     */
+    public NearbyStopMatrix(NearbyStopFinder nearbyStopFinder, boolean parallel) {
+        this.nearbyStopFinder = nearbyStopFinder;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Find the stops near each origin that are the closest stop on some trip pattern or flex trip,
+     * see {@link NearbyStopFinder#findNearbyStopsConsideringPatterns}, and map them to a result.
+     *
+     * @param reverseDirection if true the distances are from the nearby stops to the origin
+     * @param mapper called with each origin and its nearby stops, from any of the worker threads
+     * @param progress stepped once for each origin
+     * @return the results, in the order of the origins
+     */
+    public <V extends Vertex, R> List<R> mapRows(
+            List<V> origins,
+            boolean reverseDirection,
+            BiFunction<V, Set<NearbyStop>, R> mapper,
+            ProgressTracker progress
+    ) {
+        Stream<V> stream = parallel ? origins.parallelStream() : origins.stream();
+        return stream.map(origin -> {
+            R result = mapper.apply(
+                    origin,
+                    nearbyStopFinder.findNearbyStopsConsideringPatterns(origin, reverseDirection)
+            );
+            //Keep lambda! A method-ref would causes incorrect class and line number to be logged
+            progress.step(m -> LOG.info(m));
+            return result;
+        }).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,259 @@
+package org.opentripplanner.openstreetmap;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import gnu.trove.list.array.TByteArrayList;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read the blocks of an OpenStreetMap PBF file, and decompress and parse them on a pool of
+ * worker threads. The blocks are read from the file, and the parsed entities are added to the
+ * {@link OSMDatabase}, in the order of the file on the calling thread, so the OSM database do
+ * not need to be thread-safe.
+ * <p>
+ * The same file is read once for each {@link OsmParserPhase}. The entity types in each block are
+ * recorded the first time the file is read, and later phases skip the blocks without entities of
+ * the phase, without decompressing them. In a file sorted by type, most blocks contain only nodes,
+ * so this skips most of the file when reading the ways, and the other way around.
+ * <p>
+ * This class is NOT THREAD-SAFE, the phases must be read one at a time.
+ */
+class BinaryOpenStreetMapBlockReader implements Closeable {
+
+    /* The entity types in a block, used as bit flags. */
+    private static final byte NODES = 1;
+    private static final byte WAYS = 2;
+    private static final byte RELATIONS = 4;
+
+    /* The limits in the PBF specification. */
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    private final ExecutorService executor;
+
+    private final int maxPendingBlocks;
+
+    private final Map<String, String> stringTable = new ConcurrentHashMap<>();
+
+    /** The entity types in each block, by the index of the block in the file. */
+    private final TByteArrayList blockContents = new TByteArrayList();
+
+    BinaryOpenStreetMapBlockReader(int nThreads) {
+        this.executor = Executors.newFixedThreadPool(
+            nThreads,
+            new ThreadFactoryBuilder().setNameFormat("OsmParser-%d").setDaemon(true).build()
+        );
+        this.maxPendingBlocks = 2 * nThreads;
+    }
+
+    /**
+     * Read the entities of the given phase from the PBF file, and add them to the OSM database.
+     *
+     * @return the number of blocks decompressed and parsed, the rest are skipped.
+     */
+    int readPhase(InputStream inputStream, OsmParserPhase phase, OSMDatabase osmdb)
+            throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        Deque<Future<ParsedBlock>> pendingBlocks = new ArrayDeque<>();
+        byte phaseType = entityType(phase);
+        int blockIndex = 0;
+        int blocksParsed = 0;
+        boolean endOfFile = false;
+
+        while (true) {
+            // Read ahead, so the workers are busy while the entities are added to the database
+            while (!endOfFile && pendingBlocks.size() < maxPendingBlocks) {
+                Fileformat.BlobHeader header = readBlobHeader(in);
+                if (header == null) {
+                    endOfFile = true;
+                    break;
+                }
+                int index = blockIndex++;
+                if (index < blockContents.size() && (blockContents.get(index) & phaseType) == 0) {
+                    skipFully(in, header.getDatasize());
+                    continue;
+                }
+                byte[] blob = new byte[header.getDatasize()];
+                in.readFully(blob);
+                String type = header.getType();
+                pendingBlocks.add(executor.submit(() -> parseBlock(index, type, blob, phase)));
+            }
+            if (pendingBlocks.isEmpty()) {
+                return blocksParsed;
+            }
+
+            ParsedBlock block = nextBlock(pendingBlocks);
+            ++blocksParsed;
+            if (block.index == blockContents.size()) {
+                blockContents.add(block.contents);
+            }
+            if (block.parser != null) {
+                block.parser.addTo(osmdb);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the header of the next blob, or {@code null} at the end of the file.
+     */
+    private static Fileformat.BlobHeader readBlobHeader(DataInputStream in) throws IOException {
+        int headerSize;
+        try {
+            headerSize = in.readInt();
+        }
+        catch (EOFException e) {
+            return null;
+        }
+        if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+            throw new IOException("Invalid PBF blob header size: " + headerSize);
+        }
+        byte[] header = new byte[headerSize];
+        in.readFully(header);
+        Fileformat.BlobHeader blobHeader = Fileformat.BlobHeader.parseFrom(header);
+        if (blobHeader.getDatasize() < 0 || blobHeader.getDatasize() > MAX_BLOB_SIZE) {
+            throw new IOException("Invalid PBF blob size: " + blobHeader.getDatasize());
+        }
+        return blobHeader;
+    }
+
+    /**
+     * Skip exactly {@code n} bytes of the stream.
+     *
+     * @throws EOFException if the stream ends first.
+     */
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped > 0) {
+                n -= skipped;
+            }
+            // skip() may return 0 before the end of the stream, read a byte to tell the difference
+            else if (in.read() == -1) {
+                throw new EOFException("The PBF file ends in the middle of a blob.");
+            }
+            else {
+                --n;
+            }
+        }
+    }
+
+    private static ParsedBlock nextBlock(Deque<Future<ParsedBlock>> pendingBlocks)
+            throws IOException {
+        try {
+            return pendingBlocks.removeFirst().get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing OSM data.", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** This is run on the worker threads. */
+    private ParsedBlock parseBlock(int index, String type, byte[] blob, OsmParserPhase phase)
+            throws IOException {
+        byte[] data = blobData(Fileformat.Blob.parseFrom(blob));
+
+        if (type.equals("OSMHeader")) {
+            new BinaryOpenStreetMapParser(phase, stringTable).parse(Osmformat.HeaderBlock.parseFrom(data));
+            return new ParsedBlock(index, (byte) 0, null);
+        }
+        if (!type.equals("OSMData")) {
+            // Unknown blob types should be skipped, according to the PBF specification
+            return new ParsedBlock(index, (byte) 0, null);
+        }
+
+        Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(data);
+        byte contents = 0;
+        for (Osmformat.PrimitiveGroup group : block.getPrimitivegroupList()) {
+            if (group.getNodesCount() > 0 || group.hasDense()) { contents |= NODES; }
+            if (group.getWaysCount() > 0) { contents |= WAYS; }
+            if (group.getRelationsCount() > 0) { contents |= RELATIONS; }
+        }
+        if ((contents & entityType(phase)) == 0) {
+            return new ParsedBlock(index, contents, null);
+        }
+        BinaryOpenStreetMapParser parser = new BinaryOpenStreetMapParser(phase, stringTable);
+        parser.parse(block);
+        return new ParsedBlock(index, contents, parser);
+    }
+
+    private static byte[] blobData(Fileformat.Blob blob) throws IOException {
+        if (blob.hasRaw()) {
+            return blob.getRaw().toByteArray();
+        }
+        if (!blob.hasZlibData()) {
+            throw new IOException("Unsupported PBF blob compression, only zlib is supported.");
+        }
+        byte[] data = new byte[blob.getRawSize()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob.getZlibData().toByteArray());
+            int n = 0;
+            while (n < data.length && !inflater.finished() && !inflater.needsInput()) {
+                n += inflater.inflate(data, n, data.length - n);
+            }
+            if (n != data.length) {
+                throw new IOException("Corrupt PBF blob, the size do not match.");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Corrupt PBF blob: " + e.getMessage(), e);
+        }
+        finally {
+            inflater.end();
+        }
+        return data;
+    }
+
+    private static byte entityType(OsmParserPhase phase) {
+        switch (phase) {
+            case Relations: return RELATIONS;
+            case Ways: return WAYS;
+            case Nodes: return NODES;
+            default: throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+    }
+
+    private static class ParsedBlock {
+        private final int index;
+        private final byte contents;
+        private final BinaryOpenStreetMapParser parser;
+
+        private ParsedBlock(int index, byte contents, BinaryOpenStreetMapParser parser) {
+            this.index = index;
+            this.contents = contents;
+            this.parser = parser;
+        }
+    }
+}
@@ -10,23 +10,32 @@ import org.opentripplanner.openstreetmap.model.OSMRelationMember;
 import org.opentripplanner.openstreetmap.model.OSMTag;
 import org.opentripplanner.openstreetmap.model.OSMWay;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Parser for the OpenStreetMap PBF Format.
+ * Parser for the OpenStreetMap PBF Format. A parser is created for each block, so the blocks
+ * can be parsed in parallel, and collects the entities of the phase parsed. The entities are
+ * added to the {@link OSMDatabase} afterwards, in the order of the blocks in the file.
  *
  * @since 0.4
  */
 public class BinaryOpenStreetMapParser extends BinaryParser {
 
-    private OSMDatabase osmdb;
-    private OsmParserPhase parsePhase;
-    private Map<String, String> stringTable = new HashMap<String, String>();
+    private final OsmParserPhase parsePhase;
+    private final Map<String, String> stringTable;
+    private final List<OSMNode> parsedNodes = new ArrayList<>();
+    private final List<OSMWay> parsedWays = new ArrayList<>();
+    private final List<OSMRelation> parsedRelations = new ArrayList<>();
 
-    public BinaryOpenStreetMapParser(OSMDatabase osmdb) {
-        this.osmdb = osmdb;
+    /**
+     * @param stringTable the strings used so far, shared by all parsers. It must be thread-safe
+     *                    if the blocks are parsed in parallel.
+     */
+    BinaryOpenStreetMapParser(OsmParserPhase parsePhase, Map<String, String> stringTable) {
+        this.parsePhase = parsePhase;
+        this.stringTable = stringTable;
     }
 
     // The strings are already being pulled from a string table in the PBF file,
@@ -34,12 +43,17 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
     // String.intern grinds to a halt on large PBF files (as it did on GTFS import), so 
     // we implement our own. 
     public String internalize(String s) {
-        String fromTable = stringTable.get(s);
-        if (fromTable == null) {
-            stringTable.put(s, s);
-            return s;
-        } 
-        return fromTable;
+        String fromTable = stringTable.putIfAbsent(s, s);
+        return fromTable == null ? s : fromTable;
+    }
+
+    /**
+     * Add the entities parsed to the OSM database.
+     */
+    void addTo(OSMDatabase osmdb) {
+        parsedRelations.forEach(osmdb::addRelation);
+        parsedWays.forEach(osmdb::addWay);
+        parsedNodes.forEach(osmdb::addNode);
     }
 
     @Override
@@ -67,7 +81,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 tmp.addTag(tag);
             }
 
-            osmdb.addNode(tmp);
+            parsedNodes.add(tmp);
         }
     }
 
@@ -109,7 +123,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 j++; // Skip over the '0' delimiter.
             }
 
-            osmdb.addNode(tmp);
+            parsedNodes.add(tmp);
         }
     }
 
@@ -139,7 +153,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 lastId = j + lastId;
             }
 
-            osmdb.addWay(tmp);
+            parsedWays.add(tmp);
         }
     }
 
@@ -183,7 +197,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 tmp.addMember(relMember);
             }
 
-            osmdb.addRelation(tmp);
+            parsedRelations.add(tmp);
         }
     }
 
@@ -199,11 +213,4 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
             throw new IllegalStateException("File requires unknown feature: " + s);
         }
     }
-
-    /**
-     * Set the phase to be parsed
-     */
-    public void setPhase(OsmParserPhase phase) {
-        this.parsePhase = phase;
-    }
 }
@@ -1,6 +1,5 @@
 package org.opentripplanner.openstreetmap;
 
-import org.openstreetmap.osmosis.osmbinary.file.BlockInputStream;
 import org.opentripplanner.datastore.DataSource;
 import org.opentripplanner.datastore.FileType;
 import org.opentripplanner.datastore.file.FileDataSource;
@@ -16,13 +15,15 @@ import java.io.InputStream;
 
 /**
  * Parser for the OpenStreetMap PBF format. Parses files in three passes:
- * First the relations, then the ways, then the nodes are also loaded.
+ * First the relations, then the ways, then the nodes are also loaded. The blocks of the file are
+ * decompressed and parsed in parallel, see {@link BinaryOpenStreetMapBlockReader}.
  */
 public class BinaryOpenStreetMapProvider {
     private static final Logger LOG = LoggerFactory.getLogger(BinaryOpenStreetMapProvider.class);
 
     private final DataSource source;
     private final boolean cacheDataImMem;
+    private final int nThreads;
     private byte[] cachedBytes = null;
 
 
@@ -32,21 +33,29 @@ public class BinaryOpenStreetMapProvider {
     }
 
     public BinaryOpenStreetMapProvider(DataSource source, boolean cacheDataImMem) {
+        this(source, cacheDataImMem, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param nThreads the number of threads used to decompress and parse the blocks of the file.
+     */
+    public BinaryOpenStreetMapProvider(DataSource source, boolean cacheDataImMem, int nThreads) {
         this.source = source;
         this.cacheDataImMem = cacheDataImMem;
+        this.nThreads = nThreads;
     }
 
     public void readOSM(OSMDatabase osmdb) {
-        try {
-            BinaryOpenStreetMapParser parser = new BinaryOpenStreetMapParser(osmdb);
-
-            parsePhase(parser, OsmParserPhase.Relations);
+        try (
+            BinaryOpenStreetMapBlockReader reader = new BinaryOpenStreetMapBlockReader(nThreads)
+        ) {
+            parsePhase(reader, OsmParserPhase.Relations, osmdb);
             osmdb.doneFirstPhaseRelations();
 
-            parsePhase(parser, OsmParserPhase.Ways);
+            parsePhase(reader, OsmParserPhase.Ways, osmdb);
             osmdb.doneSecondPhaseWays();
 
-            parsePhase(parser, OsmParserPhase.Nodes);
+            parsePhase(reader, OsmParserPhase.Nodes, osmdb);
             osmdb.doneThirdPhaseNodes();
         }
         catch (Exception ex) {
@@ -54,17 +63,14 @@ public class BinaryOpenStreetMapProvider {
         }
     }
 
-    private void parsePhase(BinaryOpenStreetMapParser parser, OsmParserPhase phase) throws IOException {
-        parser.setPhase(phase);
-        BlockInputStream in = null;
-        try {
-            in = new BlockInputStream(createInputStream(phase), parser);
-            in.process();
-        }
-        finally {
-            // Close
-            try { if(in != null) { in.close(); } }
-            catch (Exception e) { LOG.error(e.getMessage(), e); }
+    private void parsePhase(
+            BinaryOpenStreetMapBlockReader reader,
+            OsmParserPhase phase,
+            OSMDatabase osmdb
+    ) throws IOException {
+        try (InputStream in = createInputStream(phase)) {
+            int blocksParsed = reader.readPhase(in, phase, osmdb);
+            LOG.debug("Parsed {} PBF blocks in phase {}", blocksParsed, phase);
         }
     }
 
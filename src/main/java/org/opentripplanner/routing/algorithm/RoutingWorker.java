@@ -28,7 +28,6 @@ import org.opentripplanner.routing.api.response.RoutingResponse;
 import org.opentripplanner.routing.api.response.TripSearchMetadata;
 import org.opentripplanner.routing.error.RoutingValidationException;
 import org.opentripplanner.routing.framework.DebugAggregator;
-import org.opentripplanner.routing.graphfinder.NearbyStop;
 import org.opentripplanner.routing.services.FareService;
 import org.opentripplanner.standalone.server.Router;
 import org.opentripplanner.transit.raptor.RaptorService;
@@ -45,10 +44,24 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 /**
  * Does a complete transit search, including access and egress legs.
  * <p>
+ * The direct street search, the direct flex search and the access and egress searches are
+ * independent of each other, and run in parallel in the router street routing thread pool, if
+ * the pool is configured. The transit data filtering and the Raptor search run in the request
+ * thread. The access and egress searches are joined before the Raptor search, and the direct
+ * searches are joined after the transit routing is done. If a phase fails, the phases still
+ * running are cancelled or waited for, so no search uses the routing context after the request
+ * is done.
+ * <p>
  * This class has a request scope, hence the "Worker" name.
  */
 public class RoutingWorker {
@@ -84,33 +97,52 @@ public class RoutingWorker {
 
         this.debugAggregator.finishedPrecalculating();
 
-        // Direct street routing
+        Executor streetRoutingExecutor = streetRoutingExecutor(router);
+        RoutingPhase<List<Itinerary>> directStreetItineraries = RoutingPhase.completed(List.of());
+        RoutingPhase<List<Itinerary>> directFlexItineraries = RoutingPhase.completed(List.of());
+
+        // The routing context is shared by all searches, so it must be created before any of
+        // the searches are started
         try {
-            itineraries.addAll(DirectStreetRouter.route(router, request));
+            request.setRoutingContext(router.graph);
+
+            // Direct street routing
+            directStreetItineraries = RoutingPhase.start(
+                () -> DirectStreetRouter.route(router, request),
+                streetRoutingExecutor,
+                debugAggregator::finishedDirectStreetRouter
+            );
         } catch (RoutingValidationException e) {
             routingErrors.addAll(e.getRoutingErrors());
         }
 
         // Direct flex routing
         if (OTPFeature.FlexRouting.isOn()) {
-            try {
-                itineraries.addAll(DirectFlexRouter.route(request));
-            }
-            catch (RoutingValidationException e) {
-                routingErrors.addAll(e.getRoutingErrors());
-            }
+            directFlexItineraries = RoutingPhase.start(
+                () -> DirectFlexRouter.route(request),
+                streetRoutingExecutor,
+                debugAggregator::finishedDirectStreetRouter
+            );
         }
 
-        this.debugAggregator.finishedDirectStreetRouter();
+        // Transit routing, in this thread while the direct searches run
+        RoutingPhase<Collection<Itinerary>> transitItineraries = RoutingPhase.start(
+            () -> routeTransit(router, streetRoutingExecutor),
+            Runnable::run,
+            startedAt -> debugAggregator.finishedTransitRouter()
+        );
 
-        // Transit routing
         try {
-            itineraries.addAll(routeTransit(router));
-        } catch (RoutingValidationException e) {
-            routingErrors.addAll(e.getRoutingErrors());
+            collect(directStreetItineraries, itineraries, routingErrors);
+            collect(directFlexItineraries, itineraries, routingErrors);
+            collect(transitItineraries, itineraries, routingErrors);
+        }
+        catch (RuntimeException | Error e) {
+            // Make sure no search is using the routing context when the request is cleaned up
+            directStreetItineraries.cancelAndAwait();
+            directFlexItineraries.cancelAndAwait();
+            throw e;
         }
-
-        this.debugAggregator.finishedTransitRouter();
 
         // Filter itineraries
         itineraries = filterItineraries(itineraries);
@@ -129,7 +161,8 @@ public class RoutingWorker {
         );
     }
 
-    private Collection<Itinerary> routeTransit(Router router) {
+    private Collection<Itinerary> routeTransit(Router router, Executor streetRoutingExecutor) {
+        this.debugAggregator.startedTransitRouter();
         request.setRoutingContext(router.graph);
         if (request.modes.transitModes.isEmpty()) { return Collections.emptyList(); }
 
@@ -143,61 +176,42 @@ public class RoutingWorker {
             ? router.graph.getTransitLayer()
             : router.graph.getRealtimeTransitLayer();
 
-        RaptorRoutingRequestTransitData requestTransitDataProvider = createRequestTransitDataProvider(transitLayer);
+        AccessEgressMapper accessEgressMapper = new AccessEgressMapper(transitLayer.getStopIndex());
 
-        this.debugAggregator.finishedPatternFiltering();
+        // Prepare access/egress lists, the searches run while the patterns are filtered
+        RoutingPhase<Collection<AccessEgress>> accessPhase = RoutingPhase.start(
+            () -> routeAccessEgress(accessEgressMapper, false),
+            streetRoutingExecutor,
+            debugAggregator::finishedAccessEgress
+        );
+        RoutingPhase<Collection<AccessEgress>> egressPhase = RoutingPhase.start(
+            () -> routeAccessEgress(accessEgressMapper, true),
+            streetRoutingExecutor,
+            debugAggregator::finishedAccessEgress
+        );
 
-        AccessEgressMapper accessEgressMapper = new AccessEgressMapper(transitLayer.getStopIndex());
+        RaptorRoutingRequestTransitData requestTransitDataProvider;
         Collection<AccessEgress> accessList;
         Collection<AccessEgress> egressList;
+        try {
+            requestTransitDataProvider = createRequestTransitDataProvider(transitLayer);
 
-        // Prepare access/egress lists
+            this.debugAggregator.finishedPatternFiltering();
 
-        // Special handling of flex accesses
-        if (OTPFeature.FlexRouting.isOn() && request.modes.accessMode.equals(StreetMode.FLEXIBLE)) {
-            Collection<FlexAccessEgress> flexAccessList = FlexAccessEgressRouter.routeAccessEgress(
-                request,
-                false
-            );
-            accessList = accessEgressMapper.mapFlexAccessEgresses(flexAccessList);
-        }
-        // Regular access routing
-        else {
-            Collection<NearbyStop> accessStops = AccessEgressRouter.streetSearch(
-                request,
-                request.modes.accessMode,
-                false,
-                2000
-            );
-            accessList = accessEgressMapper.mapNearbyStops(accessStops, false);
-        }
-
-        // Special handling of flex egresses
-        if (OTPFeature.FlexRouting.isOn() && request.modes.egressMode.equals(StreetMode.FLEXIBLE)) {
-            Collection<FlexAccessEgress> flexEgressList = FlexAccessEgressRouter.routeAccessEgress(
-                request,
-                true
-            );
-            egressList = accessEgressMapper.mapFlexAccessEgresses(flexEgressList);
+            accessList = accessPhase.join();
+            egressList = egressPhase.join();
         }
-        // Regular egress routing
-        else {
-            // Prepare access/egress transfers
-            Collection<NearbyStop> accessStops = AccessEgressRouter.streetSearch(
-                request,
-                request.modes.egressMode,
-                true,
-                2000
-            );
-            egressList = accessEgressMapper.mapNearbyStops(accessStops, true);
+        catch (RuntimeException | Error e) {
+            // Make sure no search is using the routing context when the request is cleaned up
+            accessPhase.cancelAndAwait();
+            egressPhase.cancelAndAwait();
+            throw e;
         }
 
         verifyEgressAccess(accessList, egressList);
 
         List<Itinerary> itineraries = new ArrayList<>();
 
-        this.debugAggregator.finishedAccessEgress();
-
         // Prepare transit search
         RaptorRequest<TripSchedule> raptorRequest = RaptorRequestMapper.mapRequest(
                 request,
@@ -253,6 +267,30 @@ public class RoutingWorker {
         return itineraries;
     }
 
+    private Collection<AccessEgress> routeAccessEgress(
+        AccessEgressMapper accessEgressMapper,
+        boolean isEgress
+    ) {
+        StreetMode streetMode = isEgress ? request.modes.egressMode : request.modes.accessMode;
+
+        // Special handling of flex access/egress
+        if (OTPFeature.FlexRouting.isOn() && streetMode.equals(StreetMode.FLEXIBLE)) {
+            Collection<FlexAccessEgress> flexAccessEgressList = FlexAccessEgressRouter.routeAccessEgress(
+                request,
+                isEgress
+            );
+            return accessEgressMapper.mapFlexAccessEgresses(flexAccessEgressList);
+        }
+        // Regular access/egress routing
+        return AccessEgressRouter.routeAccessEgress(
+            request,
+            streetMode,
+            isEgress,
+            2000,
+            accessEgressMapper
+        );
+    }
+
     private RaptorRoutingRequestTransitData createRequestTransitDataProvider(
         TransitLayer transitLayer
     ) {
@@ -311,6 +349,28 @@ public class RoutingWorker {
         }
     }
 
+    private static Executor streetRoutingExecutor(Router router) {
+        return router.streetRoutingThreadPool == null
+            ? Runnable::run
+            : router.streetRoutingThreadPool;
+    }
+
+    /**
+     * Wait for the phase to complete and add the itineraries found to the result. Routing
+     * validation errors are added to the list of errors, any other exception is re-thrown.
+     */
+    private static void collect(
+        RoutingPhase<? extends Collection<Itinerary>> phase,
+        List<Itinerary> itineraries,
+        List<RoutingError> routingErrors
+    ) {
+        try {
+            itineraries.addAll(phase.join());
+        } catch (RoutingValidationException e) {
+            routingErrors.addAll(e.getRoutingErrors());
+        }
+    }
+
     private TripSearchMetadata createTripSearchMetadata() {
         if(searchWindowUsedInSeconds == NOT_SET) { return null; }
 
@@ -335,4 +395,75 @@ public class RoutingWorker {
             );
         }
     }
+
+    /**
+     * A routing phase running in the given executor. A phase not needed anymore can be
+     * cancelled, the phase is then skipped if it is not started yet.
+     */
+    private static class RoutingPhase<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private RoutingPhase() {}
+
+        static <T> RoutingPhase<T> completed(T value) {
+            RoutingPhase<T> phase = new RoutingPhase<>();
+            phase.result.complete(value);
+            phase.done.countDown();
+            return phase;
+        }
+
+        /**
+         * Start the phase using the given executor. The {@code finished} callback is called with
+         * the time the phase started, in the thread running the phase, when it is done. It is
+         * also called if the phase fails, but not if it is cancelled before it starts.
+         */
+        static <T> RoutingPhase<T> start(Supplier<T> phase, Executor executor, LongConsumer finished) {
+            RoutingPhase<T> routingPhase = new RoutingPhase<>();
+            executor.execute(() -> routingPhase.run(phase, finished));
+            return routingPhase;
+        }
+
+        /**
+         * Wait for the phase to complete and return the result. If the phase failed, the
+         * exception thrown by the phase is re-thrown.
+         */
+        T join() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) { throw (RuntimeException) e.getCause(); }
+                if (e.getCause() instanceof Error) { throw (Error) e.getCause(); }
+                throw e;
+            }
+        }
+
+        /**
+         * Cancel the phase if it is not started, or wait for it to finish if it is running.
+         */
+        void cancelAndAwait() {
+            result.cancel(false);
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run(Supplier<T> phase, LongConsumer finished) {
+            try {
+                if (result.isDone()) { return; }
+                long startedAt = System.currentTimeMillis();
+                try {
+                    result.complete(phase.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    finished.accept(startedAt);
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+    }
 }
@@ -1,10 +1,11 @@
 package org.opentripplanner.routing.algorithm.astar;
 
 import com.beust.jcommander.internal.Lists;
-import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.common.pqueue.OTPPriorityQueue;
 import org.opentripplanner.routing.algorithm.astar.strategies.RemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.astar.strategies.SearchTerminationStrategy;
 import org.opentripplanner.routing.algorithm.astar.strategies.SkipEdgeStrategy;
+import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
 import org.opentripplanner.routing.core.RoutingContext;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.core.State;
@@ -52,7 +53,7 @@ public class AStar {
 
         public State u;
         public ShortestPathTree spt;
-        BinHeap<State> pq;
+        OTPPriorityQueue<State> pq;
         RemainingWeightHeuristic heuristic;
         public RoutingContext rctx;
         public int nVisited;
@@ -119,7 +120,9 @@ public class AStar {
         // before reaching its target.
         int initialSize = runState.rctx.graph.getVertices().size();
         initialSize = (int) Math.ceil(2 * (Math.sqrt((double) initialSize + 1)));
-        runState.pq = new BinHeap<>(initialSize);
+        // Without a heuristic the keys are the state weights, which never decrease along a path
+        boolean monotoneKeys = addToQueue && runState.heuristic instanceof TrivialRemainingWeightHeuristic;
+        runState.pq = options.dominanceFunction.getNewPriorityQueue(runState.spt, monotoneKeys, initialSize);
         runState.nVisited = 0;
         runState.targetAcceptedStates = Lists.newArrayList();
         
@@ -358,6 +361,11 @@ public class AStar {
         return ret;
     }
 
+    /** The number of vertices settled by the last search, to compare with other search algorithms. */
+    public int getSettledVertexCount() {
+        return runState == null ? 0 : runState.nVisited;
+    }
+
     public void setSkipEdgeStrategy(SkipEdgeStrategy skipEdgeStrategy) {
         this.skipEdgeStrategy = skipEdgeStrategy;
     }
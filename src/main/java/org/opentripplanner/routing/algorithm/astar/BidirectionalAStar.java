@@ -0,0 +1,271 @@
+package org.opentripplanner.routing.algorithm.astar;
+
+import org.opentripplanner.common.pqueue.OTPPriorityQueue;
+import org.opentripplanner.routing.algorithm.astar.strategies.RemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.RoutingContext;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.util.time.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Find the shortest street path between one origin and one destination using two A* searches,
+ * one from the origin and one backwards from the destination, taking turns to settle the state
+ * with the lowest key. For long trips the two searches together settle far fewer vertices than a
+ * single {@link AStar} search.
+ * <p>
+ * The searches meet on edges, not vertices: when one search reaches a vertex already reached by
+ * the other, the edges of the other search's path from that vertex are traversed from the state
+ * just reached, with the request of the main search. This adds the turn cost at the meeting vertex
+ * and checks its turn restrictions, and gives the full path as one chain of states, the same way
+ * the {@link AStar} search would create it. The shortest of these paths is kept.
+ * <p>
+ * Only the {@link DominanceFunction.MinimumWeight} function is supported, so a state can only be
+ * replaced by one with a lower weight. With a consistent remaining weight heuristic no path
+ * shorter than the best path found is left when the lowest key in either queue is at least its
+ * weight. Without a heuristic the keys are the state weights, and the search can stop as soon as
+ * the sum of the lowest keys is at least that weight. As in the {@link AStar} search, the turn
+ * costs are not part of the vertex labels, but since every pair of states meeting at a vertex is
+ * joined, the path found is never worse than the one found by the {@link AStar} search.
+ * <p>
+ * One instance of this class should be used per request.
+ */
+public class BidirectionalAStar {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BidirectionalAStar.class);
+
+    private final RoutingRequest options;
+
+    private final Search forward;
+
+    private final Search reverse;
+
+    /** The last state of the shortest path found so far, in the direction of the main search. */
+    private State best = null;
+
+    private double bestWeight = Double.POSITIVE_INFINITY;
+
+    /**
+     * @param options the request, with a routing context and a remaining weight heuristic
+     * @param reverseHeuristic the heuristic to use in the search in the opposite direction, an
+     *                         instance of the same type as the heuristic of the request
+     */
+    public BidirectionalAStar(RoutingRequest options, RemainingWeightHeuristic reverseHeuristic) {
+        this.options = options;
+        RoutingRequest reverseOptions = options.reversedClone();
+        reverseOptions.rctx = options.rctx.createReverseContext(reverseOptions);
+        reverseOptions.rctx.remainingWeightHeuristic = reverseHeuristic;
+        this.forward = new Search(options, true);
+        this.reverse = new Search(reverseOptions, false);
+    }
+
+    /**
+     * Return true if this can be used instead of {@link AStar} for the request: a street search
+     * between one origin and one destination, without any of the rental, parking or pickup modes
+     * that change the state of the search along the path.
+     */
+    public static boolean supports(RoutingRequest options) {
+        RoutingContext rctx = options.rctx;
+        return rctx != null
+                && rctx.fromVertices != null && rctx.fromVertices.size() == 1
+                && rctx.toVertices != null && rctx.toVertices.size() == 1
+                && options.dominanceFunction instanceof DominanceFunction.MinimumWeight
+                && !options.oneToMany
+                && !options.streetSubRequestModes.isTransit()
+                && !options.bikeRental
+                && !options.bikeParkAndRide
+                && !options.parkAndRide
+                && !options.carPickup;
+    }
+
+    /** @return the shortest path, or {@code null} if none is found */
+    public GraphPath findPath(double relTimeoutSeconds) {
+        long abortTime = DateUtils.absoluteTimeout(relTimeoutSeconds);
+        if (!forward.start(abortTime) || !reverse.start(abortTime)) {
+            LOG.warn("Timeout during initialization of goal direction heuristic.");
+            options.rctx.aborted = true;
+            return null;
+        }
+        for (State s : forward.spt.getAllStates()) {
+            forward.meet(s);
+        }
+        boolean dijkstra = forward.heuristic instanceof TrivialRemainingWeightHeuristic
+                && reverse.heuristic instanceof TrivialRemainingWeightHeuristic;
+
+        while (!forward.pq.empty() || !reverse.pq.empty()) {
+            if (abortTime < Long.MAX_VALUE && System.currentTimeMillis() > abortTime) {
+                LOG.warn("Search timeout. origin={} target={}", options.rctx.fromVertices, options.rctx.toVertices);
+                options.rctx.aborted = true;
+                break;
+            }
+            double forwardKey = forward.minKey();
+            double reverseKey = reverse.minKey();
+            if (forwardKey >= bestWeight || reverseKey >= bestWeight) {
+                break;
+            }
+            if (dijkstra && forwardKey + reverseKey >= bestWeight) {
+                break;
+            }
+            if (forwardKey <= reverseKey) {
+                forward.iterate();
+            } else {
+                reverse.iterate();
+            }
+        }
+        LOG.debug("Settled {} vertices forward and {} vertices backward", forward.nSettled, reverse.nSettled);
+        return best == null ? null : new GraphPath(best, true);
+    }
+
+    /** The number of vertices settled by the search from the origin of the request. */
+    public int getForwardSettledVertexCount() {
+        return forward.nSettled;
+    }
+
+    /** The number of vertices settled by the search in the opposite direction, from the target. */
+    public int getReverseSettledVertexCount() {
+        return reverse.nSettled;
+    }
+
+    public int getSettledVertexCount() {
+        return forward.nSettled + reverse.nSettled;
+    }
+
+    /**
+     * Join a state of the main search with a state of the reverse search at the same vertex, by
+     * traversing the edges of the reverse path from the state of the main search.
+     */
+    private void join(State state, State reverseState) {
+        if (state.getWeight() + reverseState.getWeight() >= bestWeight) {
+            return;
+        }
+        State s = state;
+        for (State r = reverseState; r.getBackState() != null; r = r.getBackState()) {
+            s = traverse(r.getBackEdge(), s);
+            if (s == null || s.getWeight() >= bestWeight) {
+                return;
+            }
+        }
+        if (s.isFinal() && !isWorstTimeExceeded(s, options)) {
+            best = s;
+            bestWeight = s.getWeight();
+        }
+    }
+
+    /** Traverse the edge, returning the result with the lowest weight or {@code null}. */
+    private static State traverse(Edge edge, State state) {
+        State best = null;
+        for (State next = edge.traverse(state); next != null; next = next.getNextResult()) {
+            if (best == null || next.getWeight() < best.getWeight()) {
+                best = next;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isWorstTimeExceeded(State v, RoutingRequest opt) {
+        if (opt.arriveBy)
+            return v.getTimeSeconds() < opt.worstTime;
+        else
+            return v.getTimeSeconds() > opt.worstTime;
+    }
+
+    /** One of the two searches. */
+    private class Search {
+
+        private final RoutingRequest options;
+
+        /** True for the search in the direction of the request. */
+        private final boolean main;
+
+        private final RemainingWeightHeuristic heuristic;
+
+        private ShortestPathTree spt;
+
+        private OTPPriorityQueue<State> pq;
+
+        private int nSettled = 0;
+
+        Search(RoutingRequest options, boolean main) {
+            this.options = options;
+            this.main = main;
+            this.heuristic = options.rctx.remainingWeightHeuristic;
+        }
+
+        /** Initialize the heuristic and queue the initial states, return false on timeout. */
+        boolean start(long abortTime) {
+            heuristic.initialize(options, abortTime);
+            if (abortTime < Long.MAX_VALUE && System.currentTimeMillis() > abortTime) {
+                return false;
+            }
+            spt = options.getNewShortestPathTree();
+            int initialSize = options.rctx.graph.getVertices().size();
+            initialSize = (int) Math.ceil(2 * (Math.sqrt((double) initialSize + 1)));
+            boolean monotoneKeys = heuristic instanceof TrivialRemainingWeightHeuristic;
+            pq = options.dominanceFunction.getNewPriorityQueue(spt, monotoneKeys, initialSize);
+            for (State initialState : State.getStates(options)) {
+                spt.add(initialState);
+                pq.insert(initialState, 0);
+            }
+            return true;
+        }
+
+        double minKey() {
+            return pq.empty() ? Double.POSITIVE_INFINITY : pq.peek_min_key();
+        }
+
+        /** Settle the state with the lowest key, and join the states it reaches with the other search. */
+        void iterate() {
+            State u = pq.extract_min();
+            if (!spt.visit(u)) {
+                return;
+            }
+            nSettled += 1;
+
+            Vertex u_vertex = u.getVertex();
+            for (Edge edge : options.arriveBy ? u_vertex.getIncoming() : u_vertex.getOutgoing()) {
+                for (State v = edge.traverse(u); v != null; v = v.getNextResult()) {
+                    double remaining_w = heuristic.estimateRemainingWeight(v);
+                    if (remaining_w < 0 || Double.isInfinite(remaining_w)) {
+                        continue;
+                    }
+                    double estimate = v.getWeight() + remaining_w;
+                    if (estimate > options.maxWeight) {
+                        continue;
+                    }
+                    if (main && isWorstTimeExceeded(v, options)) {
+                        continue;
+                    }
+                    if (spt.add(v)) {
+                        pq.insert(v, estimate);
+                        meet(v);
+                    }
+                }
+            }
+        }
+
+        /** Join the state with the states of the other search at the same vertex. */
+        void meet(State state) {
+            Search other = main ? reverse : forward;
+            List<State> others = other.spt.getStates(state.getVertex());
+            if (others == null) {
+                return;
+            }
+            for (State o : others) {
+                if (main) {
+                    join(state, o);
+                } else {
+                    join(o, state);
+                }
+            }
+        }
+    }
+}
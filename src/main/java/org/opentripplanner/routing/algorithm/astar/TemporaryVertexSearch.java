@@ -0,0 +1,85 @@
+package org.opentripplanner.routing.algorithm.astar;
+
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A small Dijkstra search through the vertices around an origin or destination, to find the
+ * vertices where a search over a precomputed structure, like the landmark tables, a contraction
+ * hierarchy or a compact street graph, can start. The structure is created when the graph is
+ * built, so it does not contain the temporary vertices created for each request.
+ * <p>
+ * The search does not continue from the vertices in the structure, and gives up if more than
+ * {@link #MAX_TEMPORARY_VERTICES} other vertices are settled: the origin is then not close to the
+ * street network in the structure, and the caller should fall back to the normal search.
+ */
+public class TemporaryVertexSearch {
+
+    public static final int MAX_TEMPORARY_VERTICES = 100;
+
+    /** Create the labels of the vertices next to the vertex of a settled label. */
+    public interface Expander<L> {
+        void expand(L label, Consumer<L> next);
+    }
+
+    /** A search label for the searches not using the {@link org.opentripplanner.routing.core.State}. */
+    public static class Label {
+        public final Vertex vertex;
+        public final double weight;
+        /** The edge the vertex was reached by, {@code null} for the start vertices. */
+        public final Edge edge;
+
+        public Label(Vertex vertex, double weight, Edge edge) {
+            this.vertex = vertex;
+            this.weight = weight;
+            this.edge = edge;
+        }
+    }
+
+    private TemporaryVertexSearch() {}
+
+    /**
+     * Search from the start labels until all vertices reached are settled or in the structure.
+     *
+     * @return the best label at each vertex reached, including the vertices in the structure, or
+     * {@code null} if too many vertices not in the structure are settled.
+     */
+    public static <L> Map<Vertex, L> search(
+            Collection<L> start,
+            Function<L, Vertex> vertexOf,
+            ToDoubleFunction<L> weightOf,
+            Predicate<Vertex> inStructure,
+            Expander<L> expander
+    ) {
+        Map<Vertex, L> best = new IdentityHashMap<>();
+        BinHeap<L> queue = new BinHeap<>();
+        Consumer<L> offer = label -> {
+            Vertex v = vertexOf.apply(label);
+            L old = best.get(v);
+            if (old == null || weightOf.applyAsDouble(label) < weightOf.applyAsDouble(old)) {
+                best.put(v, label);
+                queue.insert(label, weightOf.applyAsDouble(label));
+            }
+        };
+        start.forEach(offer);
+
+        int settled = 0;
+        while (!queue.empty()) {
+            L label = queue.extract_min();
+            Vertex v = vertexOf.apply(label);
+            if (best.get(v) != label || inStructure.test(v)) { continue; }
+            if (++settled > MAX_TEMPORARY_VERTICES) { return null; }
+            expander.expand(label, offer);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,162 @@
+package org.opentripplanner.routing.algorithm.astar.landmark;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.io.Serializable;
+
+/**
+ * Precomputed street network distances to and from a small set of landmark vertices, used by the
+ * {@link org.opentripplanner.routing.algorithm.astar.strategies.LandmarkRemainingWeightHeuristic}
+ * to find a lower bound on the remaining distance of a street search (the ALT algorithm: A*,
+ * Landmarks and the Triangle inequality).
+ * <p>
+ * There is one {@link Table} for each {@link Profile}, since each street mode can use a
+ * different part of the street network. The distances are stored in units of
+ * {@link #RESOLUTION_METERS} as {@code char}s, so each landmark cost 4 bytes per vertex and
+ * profile. The tables are built by the {@link LandmarkTablesBuilder} at graph build time and
+ * serialized with the graph.
+ * <p>
+ * Vertices added to the graph after the tables are built, like the temporary vertices created for
+ * the origin and destination of a request, are not in the tables.
+ */
+public class LandmarkTables implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The distances are rounded down to a multiple of this. */
+    public static final int RESOLUTION_METERS = 10;
+
+    /**
+     * Used for vertices not reachable from/to a landmark, and for distances too long to be
+     * stored in a {@code char} (more than 655 km).
+     */
+    public static final char UNREACHABLE = Character.MAX_VALUE;
+
+    /**
+     * The street modes we build tables for. A table can be used for a search if the search
+     * modes is a subset of the profile modes.
+     */
+    public enum Profile {
+        WALK(TraverseMode.WALK),
+        BICYCLE(TraverseMode.BICYCLE, TraverseMode.WALK),
+        CAR(TraverseMode.CAR);
+
+        public final TraverseModeSet modes;
+
+        Profile(TraverseMode... modes) {
+            this.modes = new TraverseModeSet(modes);
+        }
+
+        boolean includes(TraverseModeSet searchModes) {
+            return (!searchModes.getWalk() || modes.getWalk())
+                && (!searchModes.getBicycle() || modes.getBicycle())
+                && (!searchModes.getCar() || modes.getCar());
+        }
+    }
+
+    /** The vertices in the tables, the position in this array is the vertex index. */
+    private final Vertex[] vertices;
+
+    /** Indexed by {@link Profile#ordinal()}. */
+    private final Table[] tables;
+
+    private transient TObjectIntMap<Vertex> indexByVertex;
+
+    LandmarkTables(Vertex[] vertices, Table[] tables) {
+        this.vertices = vertices;
+        this.tables = tables;
+        index();
+    }
+
+    /**
+     * Return the table to use for a street search with the given modes, or {@code null} if no
+     * table cover all the modes.
+     */
+    public Table tableFor(TraverseModeSet searchModes) {
+        for (Profile profile : Profile.values()) {
+            if (profile.includes(searchModes) && tables[profile.ordinal()] != null) {
+                return tables[profile.ordinal()];
+            }
+        }
+        return null;
+    }
+
+    public Table table(Profile profile) {
+        return tables[profile.ordinal()];
+    }
+
+    /** Return the index of the given vertex, or {@code -1} if the vertex is not in the tables. */
+    public int indexOf(Vertex vertex) {
+        return indexByVertex.get(vertex);
+    }
+
+    public int numberOfVertices() {
+        return vertices.length;
+    }
+
+    /**
+     * Create the vertex index. The index is not serialized, so this must be called after the
+     * tables are loaded, see {@link org.opentripplanner.routing.graph.Graph#index()}.
+     */
+    public void index() {
+        TObjectIntMap<Vertex> index = new TObjectIntHashMap<>(vertices.length, 0.5f, -1);
+        for (int i = 0; i < vertices.length; ++i) {
+            index.put(vertices[i], i);
+        }
+        this.indexByVertex = index;
+    }
+
+    /**
+     * The distances to and from the landmarks for one {@link Profile}. The distance for vertex
+     * {@code v} and landmark {@code l} is stored at position {@code v * numberOfLandmarks() + l},
+     * so all landmarks for a vertex is stored together.
+     */
+    public static class Table implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Profile profile;
+        private final Vertex[] landmarks;
+        private final char[] fromLandmark;
+        private final char[] toLandmark;
+
+        Table(Profile profile, Vertex[] landmarks, char[] fromLandmark, char[] toLandmark) {
+            this.profile = profile;
+            this.landmarks = landmarks;
+            this.fromLandmark = fromLandmark;
+            this.toLandmark = toLandmark;
+        }
+
+        public Profile profile() {
+            return profile;
+        }
+
+        public int numberOfLandmarks() {
+            return landmarks.length;
+        }
+
+        public Vertex landmark(int landmarkIndex) {
+            return landmarks[landmarkIndex];
+        }
+
+        /**
+         * The distance from the landmark to the vertex in units of {@link #RESOLUTION_METERS},
+         * rounded down, or {@link #UNREACHABLE}.
+         */
+        public char fromLandmark(int vertexIndex, int landmarkIndex) {
+            return fromLandmark[vertexIndex * landmarks.length + landmarkIndex];
+        }
+
+        /**
+         * The distance from the vertex to the landmark in units of {@link #RESOLUTION_METERS},
+         * rounded down, or {@link #UNREACHABLE}.
+         */
+        public char toLandmark(int vertexIndex, int landmarkIndex) {
+            return toLandmark[vertexIndex * landmarks.length + landmarkIndex];
+        }
+    }
+}
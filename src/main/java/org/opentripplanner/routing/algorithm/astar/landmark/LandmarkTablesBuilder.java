@@ -0,0 +1,221 @@
+package org.opentripplanner.routing.algorithm.astar.landmark;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables.Profile;
+import org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables.Table;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables.RESOLUTION_METERS;
+import static org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables.UNREACHABLE;
+
+/**
+ * Build the {@link LandmarkTables} for a graph.
+ * <p>
+ * The landmarks are selected with the "farthest" heuristic: the first landmark is the vertex
+ * farthest away from a vertex close to the center of the graph, and each of the next landmarks is
+ * the vertex farthest away from all landmarks already selected. This place the landmarks on the
+ * edge of the network, which give the best lower bounds.
+ * <p>
+ * For the lower bound to be valid the table distances must never be longer than the distances
+ * the street search can find. So a street edge is included if any of the profile modes is allowed
+ * on it, ignoring barriers, wheelchair access and other restrictions, and all other edges, like
+ * links to stops, are included with zero length.
+ */
+public class LandmarkTablesBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LandmarkTablesBuilder.class);
+
+    private final Vertex[] vertices;
+    private final TObjectIntMap<Vertex> indexByVertex;
+    private final int numberOfLandmarks;
+
+    public LandmarkTablesBuilder(Graph graph, int numberOfLandmarks) {
+        this.vertices = graph.getVertices().toArray(new Vertex[0]);
+        // Sort the vertices to make the landmark selection deterministic
+        Arrays.sort(this.vertices, Comparator.comparing(Vertex::getLabel));
+        this.indexByVertex = new TObjectIntHashMap<>(vertices.length, 0.5f, -1);
+        for (int i = 0; i < vertices.length; ++i) {
+            indexByVertex.put(vertices[i], i);
+        }
+        this.numberOfLandmarks = numberOfLandmarks;
+    }
+
+    public LandmarkTables build() {
+        Table[] tables = new Table[Profile.values().length];
+        for (Profile profile : Profile.values()) {
+            tables[profile.ordinal()] = buildTable(profile);
+        }
+        return new LandmarkTables(vertices, tables);
+    }
+
+    /**
+     * Return {@code null} if the profile modes are not allowed on any street.
+     */
+    Table buildTable(Profile profile) {
+        int start = findStartVertex(profile);
+        if (start < 0) {
+            LOG.info("No streets found for {}, no landmarks are created.", profile);
+            return null;
+        }
+
+        int n = vertices.length;
+        int k = numberOfLandmarks;
+        char[] fromLandmark = new char[n * k];
+        char[] toLandmark = new char[n * k];
+        Arrays.fill(fromLandmark, UNREACHABLE);
+        Arrays.fill(toLandmark, UNREACHABLE);
+
+        // The distance to the closest landmark, used to select the next landmark
+        double[] minDistance = dijkstra(profile, start, false);
+        List<Vertex> landmarks = new ArrayList<>();
+
+        for (int l = 0; l < k; ++l) {
+            int landmark = farthestVertex(minDistance);
+            if (landmark < 0) { break; }
+            landmarks.add(vertices[landmark]);
+
+            double[] from = dijkstra(profile, landmark, false);
+            double[] to = dijkstra(profile, landmark, true);
+
+            for (int v = 0; v < n; ++v) {
+                fromLandmark[v * k + l] = toTableUnits(from[v]);
+                toLandmark[v * k + l] = toTableUnits(to[v]);
+                if (l == 0 || from[v] < minDistance[v]) {
+                    minDistance[v] = from[v];
+                }
+            }
+        }
+
+        // Compact the tables if fewer landmarks than requested are found
+        int m = landmarks.size();
+        if (m < k) {
+            fromLandmark = compact(fromLandmark, k, m);
+            toLandmark = compact(toLandmark, k, m);
+        }
+        LOG.info("Created {} landmarks for {}.", m, profile);
+        return new Table(profile, landmarks.toArray(new Vertex[0]), fromLandmark, toLandmark);
+    }
+
+    /**
+     * Find the vertex closest to the center of the graph with a street the profile can use.
+     */
+    private int findStartVertex(Profile profile) {
+        double lat = 0, lon = 0;
+        for (Vertex v : vertices) {
+            lat += v.getLat();
+            lon += v.getLon();
+        }
+        lat /= vertices.length;
+        lon /= vertices.length;
+
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < vertices.length; ++i) {
+            Vertex v = vertices[i];
+            boolean hasStreet = false;
+            for (Edge e : v.getOutgoing()) {
+                if (e instanceof StreetEdge && edgeLength(e, profile) >= 0) {
+                    hasStreet = true;
+                    break;
+                }
+            }
+            if (!hasStreet) { continue; }
+            double dLat = v.getLat() - lat;
+            double dLon = v.getLon() - lon;
+            double d = dLat * dLat + dLon * dLon;
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return the reachable vertex with the longest distance, or {@code -1} if all reachable
+     * vertices are landmarks already (distance zero).
+     */
+    private static int farthestVertex(double[] distance) {
+        int best = -1;
+        double bestDistance = 0;
+        for (int i = 0; i < distance.length; ++i) {
+            if (distance[i] != Double.POSITIVE_INFINITY && distance[i] > bestDistance) {
+                bestDistance = distance[i];
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Compute the shortest distance in meters from the source to all vertices, or from all
+     * vertices to the source if {@code reverse} is set.
+     */
+    private double[] dijkstra(Profile profile, int source, boolean reverse) {
+        double[] distance = new double[vertices.length];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[vertices.length];
+
+        BinHeap<Integer> queue = new BinHeap<>();
+        distance[source] = 0;
+        queue.insert(source, 0);
+
+        while (!queue.empty()) {
+            int v = queue.extract_min();
+            if (settled[v]) { continue; }
+            settled[v] = true;
+
+            Vertex vertex = vertices[v];
+            for (Edge e : reverse ? vertex.getIncoming() : vertex.getOutgoing()) {
+                double length = edgeLength(e, profile);
+                if (length < 0) { continue; }
+                int u = indexByVertex.get(reverse ? e.getFromVertex() : e.getToVertex());
+                if (u < 0 || settled[u]) { continue; }
+                double d = distance[v] + length;
+                if (d < distance[u]) {
+                    distance[u] = d;
+                    queue.insert(u, d);
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * The length of the edge in meters, or {@code -1} if the edge can not be used by the profile.
+     */
+    private static double edgeLength(Edge edge, Profile profile) {
+        if (edge instanceof StreetEdge) {
+            StreetEdge streetEdge = (StreetEdge) edge;
+            return streetEdge.canTraverse(profile.modes) ? streetEdge.getDistanceMeters() : -1;
+        }
+        return 0;
+    }
+
+    private static char toTableUnits(double meters) {
+        if (meters == Double.POSITIVE_INFINITY) { return UNREACHABLE; }
+        long units = (long) (meters / RESOLUTION_METERS);
+        return units >= UNREACHABLE ? UNREACHABLE : (char) units;
+    }
+
+    private static char[] compact(char[] table, int oldStride, int newStride) {
+        int n = table.length / oldStride;
+        char[] result = new char[n * newStride];
+        for (int v = 0; v < n; ++v) {
+            System.arraycopy(table, v * oldStride, result, v * newStride, newStride);
+        }
+        return result;
+    }
+}
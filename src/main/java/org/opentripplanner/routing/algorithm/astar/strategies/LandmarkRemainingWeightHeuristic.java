@@ -0,0 +1,175 @@
+package org.opentripplanner.routing.algorithm.astar.strategies;
+
+import org.opentripplanner.routing.algorithm.astar.TemporaryVertexSearch;
+import org.opentripplanner.routing.algorithm.astar.TemporaryVertexSearch.Label;
+import org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables.RESOLUTION_METERS;
+import static org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables.UNREACHABLE;
+
+/**
+ * A remaining weight heuristic using precomputed distances to and from a set of landmarks (ALT).
+ * By the triangle inequality the street distance from a vertex {@code v} to the target {@code t}
+ * is at least {@code d(L,t) - d(L,v)} and {@code d(v,L) - d(t,L)} for any landmark {@code L}. The
+ * largest of these lower bounds is divided by the maximum street speed, like the
+ * {@link EuclideanRemainingWeightHeuristic} does with the straight line distance, and the
+ * largest of the two estimates is used.
+ * <p>
+ * The target is usually a temporary vertex not in the landmark tables, so the bounds are computed
+ * for the set of vertices in the tables next to the targets instead: any path to the target must
+ * pass through one of them. The Euclidean estimate is used for vertices not in the tables, if no
+ * table exist for the search modes, and if the targets are not close to a table vertex.
+ */
+public class LandmarkRemainingWeightHeuristic implements RemainingWeightHeuristic {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SKIP = -1;
+
+    private final LandmarkTables landmarks;
+
+    private final EuclideanRemainingWeightHeuristic euclidean =
+            new EuclideanRemainingWeightHeuristic();
+
+    private LandmarkTables.Table table;
+
+    private boolean arriveBy;
+
+    private double maxStreetSpeed;
+
+    /**
+     * For each landmark, a lower bound on the distance from the landmark to the targets, in
+     * table units, or {@link #SKIP}.
+     */
+    private int[] fromLandmarkToTarget;
+
+    /**
+     * For each landmark, an upper bound on the distance from the targets to the landmark, in
+     * table units, or {@link #SKIP}.
+     */
+    private int[] fromTargetToLandmark;
+
+    public LandmarkRemainingWeightHeuristic(LandmarkTables landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    @Override
+    public void initialize(RoutingRequest options, long abortTime) {
+        euclidean.initialize(options, abortTime);
+        maxStreetSpeed = options.getStreetSpeedUpperBound();
+        arriveBy = options.arriveBy;
+        table = landmarks.tableFor(options.streetSubRequestModes);
+
+        Set<Vertex> targets = table == null ? null : tableVerticesAround(options.rctx.toVertices);
+        if (targets == null || targets.isEmpty()) {
+            table = null;
+            return;
+        }
+
+        int k = table.numberOfLandmarks();
+        fromLandmarkToTarget = new int[k];
+        fromTargetToLandmark = new int[k];
+
+        for (int l = 0; l < k; ++l) {
+            int min = Integer.MAX_VALUE;
+            int max = 0;
+            for (Vertex target : targets) {
+                int t = landmarks.indexOf(target);
+                int fromLandmark = fromLandmark(t, l);
+                int toLandmark = toLandmark(t, l);
+                if (fromLandmark != UNREACHABLE) { min = Math.min(min, fromLandmark); }
+                max = Math.max(max, toLandmark);
+            }
+            fromLandmarkToTarget[l] = min == Integer.MAX_VALUE ? SKIP : min;
+            fromTargetToLandmark[l] = max == UNREACHABLE ? SKIP : max;
+        }
+    }
+
+    @Override
+    public double estimateRemainingWeight(State s) {
+        double estimate = euclidean.estimateRemainingWeight(s);
+        if (table == null) {
+            return estimate;
+        }
+        int v = landmarks.indexOf(s.getVertex());
+        if (v < 0) {
+            return estimate;
+        }
+
+        // The distances are rounded down, so subtract one unit to get a lower bound
+        int best = 0;
+        for (int l = 0; l < fromLandmarkToTarget.length; ++l) {
+            int fromLandmark = fromLandmark(v, l);
+            if (fromLandmark != UNREACHABLE && fromLandmarkToTarget[l] != SKIP) {
+                best = Math.max(best, fromLandmarkToTarget[l] - fromLandmark - 1);
+            }
+            int toLandmark = toLandmark(v, l);
+            if (toLandmark != UNREACHABLE && fromTargetToLandmark[l] != SKIP) {
+                best = Math.max(best, toLandmark - fromTargetToLandmark[l] - 1);
+            }
+        }
+        return Math.max(estimate, (double) best * RESOLUTION_METERS / maxStreetSpeed);
+    }
+
+    @Override
+    public void reset() {}
+
+    @Override
+    public void doSomeWork() {}
+
+    /**
+     * The distance from the landmark to the vertex in the search direction. An arrive-by search
+     * traverse the edges backwards, so the table directions are swapped.
+     */
+    private int fromLandmark(int vertex, int landmark) {
+        return arriveBy ? table.toLandmark(vertex, landmark) : table.fromLandmark(vertex, landmark);
+    }
+
+    private int toLandmark(int vertex, int landmark) {
+        return arriveBy ? table.fromLandmark(vertex, landmark) : table.toLandmark(vertex, landmark);
+    }
+
+    /**
+     * Find the table vertices next to the targets, searching through the temporary vertices
+     * around them in both directions. Return {@code null} if the area of vertices not in the
+     * tables is too big.
+     */
+    private Set<Vertex> tableVerticesAround(Collection<Vertex> targets) {
+        List<Label> start = new ArrayList<>();
+        for (Vertex target : targets) {
+            start.add(new Label(target, 0, null));
+        }
+        Map<Vertex, Label> reached = TemporaryVertexSearch.search(
+                start,
+                l -> l.vertex,
+                l -> l.weight,
+                v -> landmarks.indexOf(v) >= 0,
+                (l, next) -> {
+                    for (Edge e : l.vertex.getIncoming()) {
+                        next.accept(new Label(e.getFromVertex(), l.weight + 1, e));
+                    }
+                    for (Edge e : l.vertex.getOutgoing()) {
+                        next.accept(new Label(e.getToVertex(), l.weight + 1, e));
+                    }
+                }
+        );
+        if (reached == null) { return null; }
+
+        Set<Vertex> result = new HashSet<>();
+        for (Vertex v : reached.keySet()) {
+            if (landmarks.indexOf(v) >= 0) { result.add(v); }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@link ContractionHierarchy} for each {@link Profile}, owned by the graph.
+ * <p>
+ * A hierarchy is only valid for requests with the same street parameters as the default request
+ * used to build it, other requests must use the A* search.
+ * <p>
+ * The arc weights do not include turn costs, since they depend on the pair of edges traversed.
+ * The turn costs are added when the unpacked path is traversed with the request, so the weight of
+ * the path is correct, but the path is the shortest path without turn costs. A* may find a path
+ * with fewer or cheaper turns.
+ */
+public class ContractionHierarchies implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The mode profiles we build a contraction hierarchy for. */
+    public enum Profile {
+        CAR(TraverseMode.CAR),
+        BICYCLE(TraverseMode.BICYCLE);
+
+        public final TraverseMode mode;
+
+        Profile(TraverseMode mode) {
+            this.mode = mode;
+        }
+
+        /** The default direct street search request for the mode. */
+        public RoutingRequest defaultRequest() {
+            RoutingRequest request = new RoutingRequest();
+            request.streetSubRequestModes = new TraverseModeSet(mode);
+            return request;
+        }
+    }
+
+    /** Indexed by {@link Profile#ordinal()}. */
+    private final ContractionHierarchy[] hierarchies;
+
+    public ContractionHierarchies(ContractionHierarchy[] hierarchies) {
+        this.hierarchies = hierarchies;
+    }
+
+    public ContractionHierarchy get(Profile profile) {
+        return hierarchies[profile.ordinal()];
+    }
+
+    /**
+     * Return the hierarchy to use for the given street search request, or {@code null} if the
+     * request does not match the parameters of any of the hierarchies.
+     */
+    public ContractionHierarchy forRequest(RoutingRequest request) {
+        if (request.oneToMany || request.bikeRental || request.bikeParkAndRide
+                || request.parkAndRide || request.carPickup) {
+            return null;
+        }
+        for (ContractionHierarchy ch : hierarchies) {
+            if (ch != null
+                    && request.streetSubRequestModes.equals(new TraverseModeSet(ch.profile().mode))
+                    && ch.parameters().equals(parameters(request))) {
+                return ch;
+            }
+        }
+        return null;
+    }
+
+    /** Create the vertex indexes, must be called after the graph is loaded. */
+    public void index() {
+        for (ContractionHierarchy ch : hierarchies) {
+            if (ch != null) { ch.index(); }
+        }
+    }
+
+    /** The request parameters used to compute the street edge weights. */
+    static List<Object> parameters(RoutingRequest rr) {
+        return Arrays.asList(
+            rr.wheelchairAccessible,
+            rr.maxWheelchairSlope,
+            rr.walkSpeed,
+            rr.bikeSpeed,
+            rr.walkReluctance,
+            rr.stairsReluctance,
+            rr.optimize,
+            rr.bikeTriangleSafetyFactor,
+            rr.bikeTriangleSlopeFactor,
+            rr.bikeTriangleTimeFactor,
+            rr.bikeSwitchTime,
+            rr.bikeSwitchCost,
+            rr.elevatorBoardTime,
+            rr.elevatorBoardCost,
+            rr.elevatorHopTime,
+            rr.elevatorHopCost
+        );
+    }
+}
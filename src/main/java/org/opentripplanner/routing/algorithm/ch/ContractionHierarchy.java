@@ -0,0 +1,298 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.iterator.TIntDoubleIterator;
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchies.Profile;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A contraction hierarchy (CH) over the street network for one {@link Profile}. Each vertex is
+ * given a rank, and shortcut arcs are added so that the shortest path between any two vertices
+ * can be found by searching only "upwards" to vertices with a higher rank, from both ends. The
+ * searches settle a few hundred vertices even for long trips, compared with hundreds of thousands
+ * for a plain A* search.
+ * <p>
+ * The arc weights are the {@link StreetEdge} weights for the default request of the profile,
+ * without turn costs, see {@link #weight(Edge, RoutingRequest)}. Arc {@code a} is an original
+ * street edge if {@code a < numberOfEdges()}, otherwise a shortcut for two other arcs.
+ * <p>
+ * The hierarchy is created by the {@link ContractionHierarchyBuilder}, and serialized with the
+ * graph.
+ * <p>
+ * THIS CLASS IS THREAD-SAFE.
+ */
+public class ContractionHierarchy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int NONE = -1;
+
+    private final Profile profile;
+
+    /** The request parameters used to compute the weights, see {@link ContractionHierarchies}. */
+    private final ArrayList<Object> parameters;
+
+    private final Vertex[] vertices;
+
+    private final StreetEdge[] edges;
+
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final double[] arcWeight;
+
+    /** The two arcs a shortcut is replacing, indexed by {@code arc - numberOfEdges()}. */
+    private final int[] shortcutFirst;
+    private final int[] shortcutSecond;
+
+    /** For each vertex, the outgoing arcs to vertices with a higher rank. */
+    private final int[] upwardsOffsets;
+    private final int[] upwardsArcs;
+
+    /** For each vertex, the incoming arcs from vertices with a higher rank. */
+    private final int[] downwardsOffsets;
+    private final int[] downwardsArcs;
+
+    private transient TObjectIntMap<Vertex> indexByVertex;
+
+    ContractionHierarchy(
+            Profile profile,
+            List<Object> parameters,
+            Vertex[] vertices,
+            StreetEdge[] edges,
+            int[] arcFrom,
+            int[] arcTo,
+            double[] arcWeight,
+            int[] shortcutFirst,
+            int[] shortcutSecond,
+            int[] rank
+    ) {
+        this.profile = profile;
+        this.parameters = new ArrayList<>(parameters);
+        this.vertices = vertices;
+        this.edges = edges;
+        this.arcFrom = arcFrom;
+        this.arcTo = arcTo;
+        this.arcWeight = arcWeight;
+        this.shortcutFirst = shortcutFirst;
+        this.shortcutSecond = shortcutSecond;
+
+        int n = vertices.length;
+        this.upwardsOffsets = new int[n + 1];
+        this.downwardsOffsets = new int[n + 1];
+        for (int a = 0; a < arcFrom.length; ++a) {
+            if (rank[arcTo[a]] > rank[arcFrom[a]]) { ++upwardsOffsets[arcFrom[a] + 1]; }
+            else { ++downwardsOffsets[arcTo[a] + 1]; }
+        }
+        for (int v = 0; v < n; ++v) {
+            upwardsOffsets[v + 1] += upwardsOffsets[v];
+            downwardsOffsets[v + 1] += downwardsOffsets[v];
+        }
+        this.upwardsArcs = new int[upwardsOffsets[n]];
+        this.downwardsArcs = new int[downwardsOffsets[n]];
+        int[] upwardsNext = upwardsOffsets.clone();
+        int[] downwardsNext = downwardsOffsets.clone();
+        for (int a = 0; a < arcFrom.length; ++a) {
+            if (rank[arcTo[a]] > rank[arcFrom[a]]) { upwardsArcs[upwardsNext[arcFrom[a]]++] = a; }
+            else { downwardsArcs[downwardsNext[arcTo[a]]++] = a; }
+        }
+        index();
+    }
+
+    public Profile profile() {
+        return profile;
+    }
+
+    List<Object> parameters() {
+        return parameters;
+    }
+
+    public int numberOfVertices() {
+        return vertices.length;
+    }
+
+    public int numberOfEdges() {
+        return edges.length;
+    }
+
+    public int numberOfShortcuts() {
+        return shortcutFirst.length;
+    }
+
+    /** Return the index of the vertex, or {@code -1} if the vertex is not in the hierarchy. */
+    public int indexOf(Vertex vertex) {
+        return indexByVertex.get(vertex);
+    }
+
+    public Vertex vertex(int index) {
+        return vertices[index];
+    }
+
+    /**
+     * Create the vertex index. The index is not serialized, so this must be called after the
+     * hierarchy is loaded, see {@link org.opentripplanner.routing.graph.Graph#index()}.
+     */
+    void index() {
+        TObjectIntMap<Vertex> index = new TObjectIntHashMap<>(vertices.length, 0.5f, NONE);
+        for (int i = 0; i < vertices.length; ++i) {
+            index.put(vertices[i], i);
+        }
+        this.indexByVertex = index;
+    }
+
+    /**
+     * Find the shortest path from any of the sources to any of the targets. The maps contain the
+     * initial weight for each source and the remaining weight from each target. Return
+     * {@code null} if no path exist.
+     */
+    public Path route(TIntDoubleMap sources, TIntDoubleMap targets) {
+        Search forward = new Search(sources, true);
+        Search backward = new Search(targets, false);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = NONE;
+
+        while (!forward.done(best) || !backward.done(best)) {
+            boolean stepForward = backward.done(best)
+                    || (!forward.done(best) && forward.minKey() <= backward.minKey());
+            Search search = stepForward ? forward : backward;
+            Search other = stepForward ? backward : forward;
+
+            int v = search.settleNext();
+            if (v == NONE) { continue; }
+            if (other.weight.containsKey(v)) {
+                double w = search.weight.get(v) + other.weight.get(v);
+                if (w < best) {
+                    best = w;
+                    meeting = v;
+                }
+            }
+        }
+        if (meeting == NONE) { return null; }
+
+        List<StreetEdge> path = new ArrayList<>();
+        Deque<Integer> arcs = new ArrayDeque<>();
+        for (int v = meeting, a; (a = forward.parentArc.get(v)) != NONE; v = arcFrom[a]) {
+            arcs.push(a);
+        }
+        int source = arcs.isEmpty() ? meeting : arcFrom[arcs.peek()];
+        for (int a : arcs) { unpack(a, path); }
+
+        int target = meeting;
+        for (int a; (a = backward.parentArc.get(target)) != NONE; target = arcTo[a]) {
+            unpack(a, path);
+        }
+        return new Path(vertices[source], vertices[target], path, best);
+    }
+
+    private void unpack(int arc, List<StreetEdge> path) {
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(arc);
+        while (!stack.isEmpty()) {
+            int a = stack.pop();
+            if (a < edges.length) {
+                path.add(edges[a]);
+            }
+            else {
+                stack.push(shortcutSecond[a - edges.length]);
+                stack.push(shortcutFirst[a - edges.length]);
+            }
+        }
+    }
+
+    /**
+     * The weight of traversing the edge without a back edge, so no turn costs are included.
+     * Return {@link Double#POSITIVE_INFINITY} if the edge can not be traversed.
+     */
+    static double weight(Edge edge, RoutingRequest request) {
+        State s0 = new State(edge.getFromVertex(), request);
+        double weight = Double.POSITIVE_INFINITY;
+        for (State s1 = edge.traverse(s0); s1 != null; s1 = s1.getNextResult()) {
+            weight = Math.min(weight, s1.getWeight());
+        }
+        return weight;
+    }
+
+    /** The result of a search, the unpacked street edges from source to target. */
+    public static class Path {
+        public final Vertex source;
+        public final Vertex target;
+        public final List<StreetEdge> edges;
+        public final double weight;
+
+        Path(Vertex source, Vertex target, List<StreetEdge> edges, double weight) {
+            this.source = source;
+            this.target = target;
+            this.edges = edges;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * One direction of the bidirectional search. The searches settle few vertices, so the state
+     * is kept in hash maps to avoid allocating arrays for all vertices.
+     */
+    private class Search {
+        private final boolean forward;
+        private final TIntDoubleMap weight = new TIntDoubleHashMap();
+        private final TIntIntMap parentArc = new TIntIntHashMap(16, 0.5f, NONE, NONE);
+        private final BinHeap<Integer> queue = new BinHeap<>();
+
+        Search(TIntDoubleMap start, boolean forward) {
+            this.forward = forward;
+            for (TIntDoubleIterator it = start.iterator(); it.hasNext(); ) {
+                it.advance();
+                weight.put(it.key(), it.value());
+                queue.insert(it.key(), it.value());
+            }
+        }
+
+        /**
+         * A direction is done when the queue is empty or no shorter path than the best found
+         * can be found.
+         */
+        boolean done(double best) {
+            return queue.empty() || queue.peek_min_key() >= best;
+        }
+
+        double minKey() {
+            return queue.peek_min_key();
+        }
+
+        /** Settle the next vertex, return {@link #NONE} if it is already settled. */
+        int settleNext() {
+            double w = queue.peek_min_key();
+            int v = queue.extract_min();
+            if (w > weight.get(v)) { return NONE; }
+
+            int[] offsets = forward ? upwardsOffsets : downwardsOffsets;
+            int[] arcs = forward ? upwardsArcs : downwardsArcs;
+            for (int i = offsets[v]; i < offsets[v + 1]; ++i) {
+                int a = arcs[i];
+                int u = forward ? arcTo[a] : arcFrom[a];
+                double uw = w + arcWeight[a];
+                if (!weight.containsKey(u) || uw < weight.get(u)) {
+                    weight.put(u, uw);
+                    parentArc.put(u, a);
+                    queue.insert(u, uw);
+                }
+            }
+            return v;
+        }
+    }
+}
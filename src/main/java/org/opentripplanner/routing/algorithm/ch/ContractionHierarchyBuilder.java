@@ -0,0 +1,275 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchies.Profile;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.TemporaryEdge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Build a {@link ContractionHierarchy} for the street network of a graph.
+ * <p>
+ * The vertices are contracted one by one, in the order given by a priority: the number of
+ * shortcuts needed minus the number of arcs removed (the edge difference), plus the number of
+ * neighbours already contracted (to contract the network evenly). The priorities change when
+ * neighbours are contracted, so they are updated lazily: the priority of the next vertex is
+ * computed again before it is contracted, and the vertex is put back into the queue if it is no
+ * longer the smallest.
+ * <p>
+ * When a vertex {@code v} is contracted a shortcut {@code u -> x} is added for each pair of
+ * neighbours, unless a local "witness" search finds a path from {@code u} to {@code x} not
+ * through {@code v} with the same or lower weight. The witness search is limited, so some
+ * unnecessary shortcuts are added, but no shortest path is lost.
+ */
+public class ContractionHierarchyBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContractionHierarchyBuilder.class);
+
+    private static final int MAX_WITNESS_SEARCH_SETTLED_VERTICES = 500;
+
+    private final Profile profile;
+    private final RoutingRequest request;
+
+    private final Vertex[] vertices;
+    private final List<StreetEdge> edges = new ArrayList<>();
+
+    private final TIntArrayList arcFrom = new TIntArrayList();
+    private final TIntArrayList arcTo = new TIntArrayList();
+    private final TDoubleArrayList arcWeight = new TDoubleArrayList();
+    private final TIntArrayList shortcutFirst = new TIntArrayList();
+    private final TIntArrayList shortcutSecond = new TIntArrayList();
+
+    private final TIntArrayList[] outgoing;
+    private final TIntArrayList[] incoming;
+    private final boolean[] contracted;
+    private final int[] contractedNeighbours;
+
+    private final double[] witnessWeight;
+    private final TIntArrayList witnessTouched = new TIntArrayList();
+    private final BinHeap<Integer> witnessQueue = new BinHeap<>();
+
+    public ContractionHierarchyBuilder(Graph graph, Profile profile) {
+        this.profile = profile;
+        this.request = profile.defaultRequest();
+
+        // Collect the street edges the profile can traverse, and the vertices they connect
+        List<StreetEdge> streetEdges = new ArrayList<>(graph.getStreetEdges());
+        streetEdges.removeIf(e -> e instanceof TemporaryEdge);
+        List<Vertex> streetVertices = new ArrayList<>();
+        TObjectIntMap<Vertex> index = new TObjectIntHashMap<>(16, 0.5f, -1);
+        TDoubleArrayList weights = new TDoubleArrayList();
+
+        for (StreetEdge e : streetEdges) {
+            double w = ContractionHierarchy.weight(e, request);
+            if (w == Double.POSITIVE_INFINITY) { continue; }
+            edges.add(e);
+            weights.add(w);
+            for (Vertex v : List.of(e.getFromVertex(), e.getToVertex())) {
+                if (!index.containsKey(v)) {
+                    index.put(v, streetVertices.size());
+                    streetVertices.add(v);
+                }
+            }
+        }
+        // Sort the vertices to make the contraction order deterministic
+        streetVertices.sort(Comparator.comparing(Vertex::getLabel));
+        this.vertices = streetVertices.toArray(new Vertex[0]);
+        index.clear();
+        for (int i = 0; i < vertices.length; ++i) {
+            index.put(vertices[i], i);
+        }
+
+        int n = vertices.length;
+        this.outgoing = new TIntArrayList[n];
+        this.incoming = new TIntArrayList[n];
+        for (int i = 0; i < n; ++i) {
+            outgoing[i] = new TIntArrayList(4);
+            incoming[i] = new TIntArrayList(4);
+        }
+        this.contracted = new boolean[n];
+        this.contractedNeighbours = new int[n];
+        this.witnessWeight = new double[n];
+        Arrays.fill(witnessWeight, Double.POSITIVE_INFINITY);
+
+        for (int i = 0; i < edges.size(); ++i) {
+            StreetEdge e = edges.get(i);
+            addArc(index.get(e.getFromVertex()), index.get(e.getToVertex()), weights.get(i));
+        }
+    }
+
+    public ContractionHierarchy build() {
+        int n = vertices.length;
+        BinHeap<Integer> order = new BinHeap<>(n);
+        for (int v = 0; v < n; ++v) {
+            order.insert(v, priority(v));
+        }
+
+        int[] rank = new int[n];
+        int nextRank = 0;
+        while (!order.empty()) {
+            int v = order.extract_min();
+            double priority = priority(v);
+            if (!order.empty() && priority > order.peek_min_key()) {
+                order.insert(v, priority);
+                continue;
+            }
+            contract(v, false);
+            contracted[v] = true;
+            rank[v] = nextRank++;
+            forEachNeighbour(v, u -> ++contractedNeighbours[u]);
+
+            if (nextRank % 100_000 == 0) {
+                LOG.info("Contracted {} of {} vertices for {}.", nextRank, n, profile);
+            }
+        }
+        LOG.info(
+            "Contraction hierarchy for {} created, {} vertices, {} edges and {} shortcuts.",
+            profile, n, edges.size(), shortcutFirst.size()
+        );
+
+        return new ContractionHierarchy(
+            profile,
+            ContractionHierarchies.parameters(request),
+            vertices,
+            edges.toArray(new StreetEdge[0]),
+            arcFrom.toArray(),
+            arcTo.toArray(),
+            arcWeight.toArray(),
+            shortcutFirst.toArray(),
+            shortcutSecond.toArray(),
+            rank
+        );
+    }
+
+    private double priority(int v) {
+        int shortcuts = contract(v, true);
+        int arcsRemoved = minimumArcs(incoming[v], false, v).size()
+            + minimumArcs(outgoing[v], true, v).size();
+        return shortcuts - arcsRemoved + contractedNeighbours[v];
+    }
+
+    /**
+     * Add the shortcuts needed to contract the vertex, or only count them if {@code simulate} is
+     * set. Return the number of shortcuts.
+     */
+    private int contract(int v, boolean simulate) {
+        TIntIntMap in = minimumArcs(incoming[v], false, v);
+        TIntIntMap out = minimumArcs(outgoing[v], true, v);
+        if (in.isEmpty() || out.isEmpty()) { return 0; }
+
+        double maxOut = 0;
+        for (int a : out.values()) {
+            maxOut = Math.max(maxOut, arcWeight.get(a));
+        }
+
+        int shortcuts = 0;
+        for (int u : in.keys()) {
+            int inArc = in.get(u);
+            double inWeight = arcWeight.get(inArc);
+            witnessSearch(u, v, inWeight + maxOut);
+
+            for (int x : out.keys()) {
+                if (x == u) { continue; }
+                int outArc = out.get(x);
+                double w = inWeight + arcWeight.get(outArc);
+                if (witnessWeight[x] <= w) { continue; }
+                ++shortcuts;
+                if (!simulate) {
+                    addArc(u, x, w);
+                    shortcutFirst.add(inArc);
+                    shortcutSecond.add(outArc);
+                }
+            }
+            resetWitnessSearch();
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Find the arc with the lowest weight to each not contracted neighbour, ignoring loops.
+     * The result is a map from neighbour to arc.
+     */
+    private TIntIntMap minimumArcs(TIntArrayList arcs, boolean outgoing, int v) {
+        TIntIntMap result = new TIntIntHashMap(8, 0.5f, -1, -1);
+        for (int i = 0; i < arcs.size(); ++i) {
+            int a = arcs.get(i);
+            int u = outgoing ? arcTo.get(a) : arcFrom.get(a);
+            if (u == v || contracted[u]) { continue; }
+            int existing = result.get(u);
+            if (existing == -1 || arcWeight.get(a) < arcWeight.get(existing)) {
+                result.put(u, a);
+            }
+        }
+        return result;
+    }
+
+    private void forEachNeighbour(int v, IntConsumer body) {
+        for (int u : minimumArcs(incoming[v], false, v).keys()) { body.accept(u); }
+        for (int u : minimumArcs(outgoing[v], true, v).keys()) { body.accept(u); }
+    }
+
+    /**
+     * A limited Dijkstra search from the source among the not contracted vertices, not passing
+     * through the excluded vertex. The result is left in {@link #witnessWeight}.
+     */
+    private void witnessSearch(int source, int excluded, double maxWeight) {
+        witnessWeight[source] = 0;
+        witnessTouched.add(source);
+        witnessQueue.reset();
+        witnessQueue.insert(source, 0);
+        int settled = 0;
+
+        while (!witnessQueue.empty() && settled < MAX_WITNESS_SEARCH_SETTLED_VERTICES) {
+            double w = witnessQueue.peek_min_key();
+            int v = witnessQueue.extract_min();
+            if (w > witnessWeight[v]) { continue; }
+            if (w > maxWeight) { break; }
+            ++settled;
+
+            TIntArrayList arcs = outgoing[v];
+            for (int i = 0; i < arcs.size(); ++i) {
+                int a = arcs.get(i);
+                int u = arcTo.get(a);
+                if (u == excluded || contracted[u]) { continue; }
+                double uw = w + arcWeight.get(a);
+                if (uw < witnessWeight[u]) {
+                    if (witnessWeight[u] == Double.POSITIVE_INFINITY) { witnessTouched.add(u); }
+                    witnessWeight[u] = uw;
+                    witnessQueue.insert(u, uw);
+                }
+            }
+        }
+    }
+
+    private void resetWitnessSearch() {
+        for (int i = 0; i < witnessTouched.size(); ++i) {
+            witnessWeight[witnessTouched.get(i)] = Double.POSITIVE_INFINITY;
+        }
+        witnessTouched.resetQuick();
+    }
+
+    private void addArc(int from, int to, double weight) {
+        int a = arcFrom.size();
+        arcFrom.add(from);
+        arcTo.add(to);
+        arcWeight.add(weight);
+        outgoing[from].add(a);
+        incoming[to].add(a);
+    }
+}
@@ -0,0 +1,145 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import org.opentripplanner.routing.algorithm.astar.TemporaryVertexSearch;
+import org.opentripplanner.routing.algorithm.astar.TemporaryVertexSearch.Label;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.GraphPath;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Find a street path using a {@link ContractionHierarchy} instead of an A* search.
+ * <p>
+ * The origin and destination are usually temporary vertices, not in the hierarchy, so a small
+ * search through the temporary vertices around them is done first to find the hierarchy
+ * vertices to start and end the hierarchy search at. The edges of the path found are then
+ * traversed with the request, like the A* search would, to create the {@link GraphPath}. This
+ * adds the turn costs and turn restrictions not included in the hierarchy, so the path is not
+ * always exactly the path the A* search would find.
+ * <p>
+ * {@code null} is returned if no path is found, or if the path can not be traversed. The caller
+ * should then fall back to an A* search.
+ */
+public class ContractionHierarchyPathFinder {
+
+    private final ContractionHierarchy ch;
+    private final RoutingRequest options;
+    private final RoutingRequest weightRequest;
+
+    public ContractionHierarchyPathFinder(ContractionHierarchy ch, RoutingRequest options) {
+        this.ch = ch;
+        this.options = options;
+        this.weightRequest = ch.profile().defaultRequest();
+    }
+
+    public GraphPath findPath() {
+        // An arrive-by search is done backwards, from the "from" vertices in the routing context
+        boolean arriveBy = options.arriveBy;
+        Collection<Vertex> origins = arriveBy ? options.rctx.toVertices : options.rctx.fromVertices;
+        Collection<Vertex> destinations = arriveBy ? options.rctx.fromVertices : options.rctx.toVertices;
+
+        LocalSearch start = new LocalSearch(origins, false);
+        LocalSearch end = new LocalSearch(destinations, true);
+        if (start.failed || end.failed) { return null; }
+
+        // The origin and destination is on the same street, this is left to the A* search
+        for (Vertex v : destinations) {
+            if (start.reached(v)) { return null; }
+        }
+
+        ContractionHierarchy.Path path = ch.route(start.chVertices, end.chVertices);
+        if (path == null) { return null; }
+
+        List<Edge> edges = new ArrayList<>(start.pathTo(path.source));
+        edges.addAll(path.edges);
+        edges.addAll(end.pathTo(path.target));
+        Vertex origin = edges.isEmpty() ? path.source : edges.get(0).getFromVertex();
+        Vertex destination = edges.isEmpty() ? path.target : edges.get(edges.size() - 1).getToVertex();
+
+        if (arriveBy) {
+            Collections.reverse(edges);
+            return traverse(destination, edges);
+        }
+        return traverse(origin, edges);
+    }
+
+    /**
+     * Traverse the edges with the request. Return {@code null} if any of the edges can not be
+     * traversed, or is removed from the graph after the hierarchy was built.
+     */
+    private GraphPath traverse(Vertex start, List<Edge> edges) {
+        State s = new State(start, options.rctx.originBackEdge, options.getSecondsSinceEpoch(), options);
+        for (Edge e : edges) {
+            if (!e.getFromVertex().getOutgoing().contains(e)) { return null; }
+            State best = null;
+            for (State next = e.traverse(s); next != null; next = next.getNextResult()) {
+                if (best == null || next.getWeight() < best.getWeight()) { best = next; }
+            }
+            if (best == null) { return null; }
+            s = best;
+        }
+        return s.isFinal() ? new GraphPath(s, true) : null;
+    }
+
+    /**
+     * A small Dijkstra search from the origins (or to the destinations if {@code reverse} is set)
+     * through the vertices not in the hierarchy, using the same edge weights as the hierarchy.
+     */
+    private class LocalSearch {
+        private final boolean reverse;
+        private final Map<Vertex, Label> labels;
+        private final TIntDoubleMap chVertices = new TIntDoubleHashMap();
+        private final boolean failed;
+
+        LocalSearch(Collection<Vertex> start, boolean reverse) {
+            this.reverse = reverse;
+            List<Label> startLabels = new ArrayList<>();
+            for (Vertex v : start) {
+                startLabels.add(new Label(v, 0, null));
+            }
+            this.labels = TemporaryVertexSearch.search(
+                    startLabels,
+                    l -> l.vertex,
+                    l -> l.weight,
+                    v -> ch.indexOf(v) >= 0,
+                    (l, next) -> {
+                        for (Edge e : reverse ? l.vertex.getIncoming() : l.vertex.getOutgoing()) {
+                            Vertex u = reverse ? e.getFromVertex() : e.getToVertex();
+                            next.accept(new Label(u, l.weight + ContractionHierarchy.weight(e, weightRequest), e));
+                        }
+                    }
+            );
+            if (labels != null) {
+                for (Label l : labels.values()) {
+                    int index = ch.indexOf(l.vertex);
+                    if (index >= 0) { chVertices.put(index, l.weight); }
+                }
+            }
+            this.failed = chVertices.isEmpty();
+        }
+
+        boolean reached(Vertex v) {
+            return labels.containsKey(v);
+        }
+
+        /** The edges between the start vertices and the given vertex, in street order. */
+        List<Edge> pathTo(Vertex v) {
+            List<Edge> path = new ArrayList<>();
+            for (Edge e = labels.get(v).edge; e != null; e = labels.get(v).edge) {
+                path.add(e);
+                v = reverse ? e.getToVertex() : e.getFromVertex();
+            }
+            if (!reverse) { Collections.reverse(path); }
+            return path;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.opentripplanner.routing.algorithm.csr;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.ParkAndRideLinkEdge;
+import org.opentripplanner.routing.edgetype.StreetBikeParkLink;
+import org.opentripplanner.routing.edgetype.StreetBikeRentalLink;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTransitLink;
+import org.opentripplanner.routing.edgetype.TemporaryEdge;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+
+/**
+ * A read-only compressed sparse row (CSR) view of the street network, used by
+ * {@link CompactStreetSearch}. The vertices are numbered by {@link Vertex#getIndex()}, so the
+ * graph must be indexed before this is created. The arcs are the {@link StreetEdge}s and
+ * {@link StreetTransitLink}s between these vertices, sorted by from vertex, and the attributes
+ * used to compute the edge weights are kept in primitive arrays indexed by arc.
+ * <p>
+ * Changes to the street network after this is created, like vertices and edges added by the
+ * real-time updaters, are not included. The vertices with other edges, like elevators and
+ * pathways, are marked, so the search can fall back to the normal A* search when it reaches them.
+ * The links to bike rental stations and parkings are left out, as the search does not support
+ * the requests which can traverse them.
+ */
+public class CompactStreetGraph {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompactStreetGraph.class);
+
+    /* Arc flags, the first three are the modes allowed on the arc, including barriers. */
+    static final byte WALK = 1;
+    static final byte BICYCLE = 2;
+    static final byte CAR = 4;
+    static final byte STAIRS = 8;
+    static final byte LINK = 16;
+
+    private final Vertex[] vertices;
+
+    /** The arcs out of vertex v are {@code firstOut[v]} to {@code firstOut[v + 1] - 1}. */
+    final int[] firstOut;
+    final int[] tail;
+    final int[] head;
+
+    /** The arcs into vertex v are {@code inArc[firstIn[v]]} to {@code inArc[firstIn[v + 1] - 1]}. */
+    final int[] firstIn;
+    final int[] inArc;
+
+    final Edge[] edges;
+    final byte[] flags;
+    final float[] walkLength;
+    final float[] bikeLength;
+    final float[] bikeWorkCost;
+    final float[] length;
+    final float[] bicycleSafety;
+    final float[] carSpeed;
+
+    /** The street to stop time of each {@link StreetTransitLink} arc. */
+    final TIntIntMap linkTime = new TIntIntHashMap();
+
+    /** The vertices with outgoing edges which are not arcs. */
+    private final BitSet otherOutgoing = new BitSet();
+
+    /** The vertices with incoming edges which are not arcs. */
+    private final BitSet otherIncoming = new BitSet();
+
+    public CompactStreetGraph(Graph graph) {
+        int n = graph.getVertexIndexSize();
+        vertices = new Vertex[n];
+        for (Vertex v : graph.getVertices()) {
+            if (v.getIndex() >= 0 && v.getIndex() < n) {
+                vertices[v.getIndex()] = v;
+            }
+        }
+
+        // Count the arcs out of each vertex, and mark the vertices with other edges
+        firstOut = new int[n + 1];
+        firstIn = new int[n + 1];
+        for (int v = 0; v < n; ++v) {
+            if (vertices[v] == null) continue;
+            for (Edge e : vertices[v].getOutgoing()) {
+                if (isArc(e)) {
+                    ++firstOut[v + 1];
+                    ++firstIn[e.getToVertex().getIndex() + 1];
+                } else if (!isRentalOrParkingLink(e)) {
+                    otherOutgoing.set(v);
+                }
+            }
+            for (Edge e : vertices[v].getIncoming()) {
+                if (!isArc(e) && !isRentalOrParkingLink(e)) {
+                    otherIncoming.set(v);
+                }
+            }
+        }
+        for (int v = 0; v < n; ++v) {
+            firstOut[v + 1] += firstOut[v];
+            firstIn[v + 1] += firstIn[v];
+        }
+
+        int m = firstOut[n];
+        tail = new int[m];
+        head = new int[m];
+        inArc = new int[m];
+        edges = new Edge[m];
+        flags = new byte[m];
+        walkLength = new float[m];
+        bikeLength = new float[m];
+        bikeWorkCost = new float[m];
+        length = new float[m];
+        bicycleSafety = new float[m];
+        carSpeed = new float[m];
+
+        int[] nextIn = new int[n];
+        int a = 0;
+        for (int v = 0; v < n; ++v) {
+            if (vertices[v] == null) continue;
+            for (Edge e : vertices[v].getOutgoing()) {
+                if (!isArc(e)) continue;
+                int u = e.getToVertex().getIndex();
+                tail[a] = v;
+                head[a] = u;
+                inArc[firstIn[u] + nextIn[u]++] = a;
+                edges[a] = e;
+                setAttributes(a, e);
+                ++a;
+            }
+        }
+        LOG.info("Compact street graph created, {} vertices and {} arcs.", n, m);
+    }
+
+    /** The number of vertex indices, all vertices in this graph have an index smaller than this. */
+    public int numberOfVertices() {
+        return vertices.length;
+    }
+
+    public int numberOfArcs() {
+        return edges.length;
+    }
+
+    /** Return {@code true} if the vertex is in this graph. */
+    public boolean contains(Vertex vertex) {
+        int index = vertex.getIndex();
+        return index >= 0 && index < vertices.length && vertices[index] == vertex;
+    }
+
+    Vertex vertex(int index) {
+        return vertices[index];
+    }
+
+    /** Return {@code true} if the vertex has edges in the given direction which are not arcs. */
+    boolean hasOtherEdges(int v, boolean reverse) {
+        return reverse ? otherIncoming.get(v) : otherOutgoing.get(v);
+    }
+
+    private boolean isArc(Edge e) {
+        if (e instanceof TemporaryEdge) {
+            return false;
+        }
+        if (!(e instanceof StreetEdge || e instanceof StreetTransitLink)) {
+            return false;
+        }
+        return contains(e.getFromVertex()) && contains(e.getToVertex());
+    }
+
+    /**
+     * The links to bike rental stations and parkings can only be traversed with the rental and
+     * parking options of the request, which the {@link CompactStreetSearch} does not support. They
+     * are left out, without marking the vertex, so the search does not fall back to the A* search
+     * at every street vertex next to a rental station or parking.
+     */
+    private static boolean isRentalOrParkingLink(Edge e) {
+        return e instanceof StreetBikeRentalLink
+            || e instanceof StreetBikeParkLink
+            || e instanceof ParkAndRideLinkEdge;
+    }
+
+    private void setAttributes(int a, Edge e) {
+        if (e instanceof StreetTransitLink) {
+            TransitStopVertex stop = (TransitStopVertex) (
+                e.getToVertex() instanceof TransitStopVertex ? e.getToVertex() : e.getFromVertex()
+            );
+            flags[a] = LINK;
+            linkTime.put(a, stop.hasPathways() ? 0 : stop.getStreetToStopTime());
+            return;
+        }
+        StreetEdge se = (StreetEdge) e;
+        byte f = 0;
+        if (se.canTraverseIncludingBarrier(TraverseMode.WALK)) f |= WALK;
+        if (se.canTraverseIncludingBarrier(TraverseMode.BICYCLE)) f |= BICYCLE;
+        if (se.canTraverseIncludingBarrier(TraverseMode.CAR)) f |= CAR;
+        if (se.isStairs()) f |= STAIRS;
+        flags[a] = f;
+        walkLength[a] = (float) se.getEffectiveWalkDistance();
+        bikeLength[a] = (float) se.getEffectiveBikeDistance();
+        bikeWorkCost[a] = (float) se.getEffectiveBikeWorkCost();
+        length[a] = (float) se.getDistanceMeters();
+        bicycleSafety[a] = se.getBicycleSafetyFactor();
+        carSpeed[a] = se.getCarSpeed();
+    }
+}
@@ -0,0 +1,310 @@
+package org.opentripplanner.routing.algorithm.csr;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.opentripplanner.common.pqueue.IndexedFourAryHeap;
+import org.opentripplanner.routing.algorithm.astar.TemporaryVertexSearch;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTransitLink;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.util.PagedArrays;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A one-to-many street search over a {@link CompactStreetGraph}, used instead of the A* search
+ * to find the states at the stops around an origin.
+ * <p>
+ * The origin is usually a temporary vertex, so a small search with the normal edge traversal is
+ * done first, to find the states at the first vertices in the compact graph. Then a Dijkstra
+ * search runs over the arcs, with the edge weights computed from the arc attributes. The turn
+ * costs, turn restrictions and the cost of switching between riding and walking a bike are not
+ * included. The states at the target vertices are then created by traversing the edges of the
+ * search tree with the request, which adds these costs, like the A* search would. So the states
+ * found are not always exactly the states the A* search would find.
+ * <p>
+ * {@code null} is returned if the search reaches a vertex with edges not in the compact graph,
+ * or if an edge of the search tree can not be traversed. The caller should then fall back to the
+ * A* search.
+ */
+public class CompactStreetSearch {
+
+    private final CompactStreetGraph g;
+    private final RoutingRequest options;
+    private final boolean reverse;
+    private final TraverseMode mode;
+    private final byte modeFlag;
+    private final int maxDuration;
+
+    /* Labels of the vertices, in pages allocated when first used */
+    private final PagedArrays.OfDouble weights;
+    private final PagedArrays.OfInt times;
+    /** The arc the vertex was reached by, -1 for the vertices reached by the first search. */
+    private final PagedArrays.OfInt parents;
+    private final BitSet settled = new BitSet();
+
+    /** The states created, by vertex index. */
+    private final TIntObjectMap<State> states = new TIntObjectHashMap<>();
+
+    /* The result of evaluate(arc) */
+    private double arcWeight;
+    private int arcTime;
+
+    public CompactStreetSearch(CompactStreetGraph graph, RoutingRequest options) {
+        this.g = graph;
+        this.options = options;
+        this.reverse = options.arriveBy;
+        this.mode = mode(options);
+        this.modeFlag = mode == TraverseMode.CAR ? CompactStreetGraph.CAR
+            : mode == TraverseMode.BICYCLE ? CompactStreetGraph.BICYCLE : CompactStreetGraph.WALK;
+
+        long duration = reverse
+            ? options.getSecondsSinceEpoch() - options.worstTime
+            : options.worstTime - options.getSecondsSinceEpoch();
+        boolean unbounded = options.worstTime == Long.MAX_VALUE || options.worstTime == Long.MIN_VALUE;
+        this.maxDuration = unbounded || duration > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) duration;
+
+        int n = graph.numberOfVertices();
+        this.weights = new PagedArrays.OfDouble(n, Double.POSITIVE_INFINITY);
+        this.times = new PagedArrays.OfInt(n, 0);
+        this.parents = new PagedArrays.OfInt(n, -1);
+    }
+
+    /**
+     * Return {@code true} if the request can be handled by this search: a minimum weight search
+     * for walking, cycling or driving without any vehicle rental, parking or wheelchair options.
+     */
+    public static boolean supports(RoutingRequest options) {
+        return options.rctx != null
+            && mode(options) != null
+            && options.dominanceFunction instanceof DominanceFunction.MinimumWeight
+            && !options.wheelchairAccessible
+            && !options.walkingBike
+            && !options.bikeRental
+            && !options.parkAndRide
+            && !options.bikeParkAndRide
+            && !options.carPickup;
+    }
+
+    /**
+     * Find the states at the target vertices within the time limit of the request, or
+     * {@code null} if the A* search must be used instead.
+     */
+    public List<State> findStates(Predicate<Vertex> isTarget) {
+        if (!seed()) { return null; }
+
+        IndexedFourAryHeap<Integer> queue = new IndexedFourAryHeap<>(1000, i -> i);
+        for (int v : states.keys()) {
+            queue.insert(v, weight(v));
+        }
+
+        TIntArrayList targets = new TIntArrayList();
+        while (!queue.empty()) {
+            int v = queue.extract_min();
+            settled.set(v);
+            if (g.hasOtherEdges(v, reverse)) { return null; }
+            if (isTarget.test(g.vertex(v))) { targets.add(v); }
+
+            // Going through a stop, from one link edge to another, is not allowed
+            int parent = parent(v);
+            boolean reachedByLink = parent >= 0 && (g.flags[parent] & CompactStreetGraph.LINK) != 0;
+
+            double w = weight(v);
+            int t = time(v);
+            int first = reverse ? g.firstIn[v] : g.firstOut[v];
+            int last = reverse ? g.firstIn[v + 1] : g.firstOut[v + 1];
+            for (int i = first; i < last; ++i) {
+                int a = reverse ? g.inArc[i] : i;
+                int u = reverse ? g.tail[a] : g.head[a];
+                if (settled.get(u)) { continue; }
+                if (reachedByLink && (g.flags[a] & CompactStreetGraph.LINK) != 0) { continue; }
+                if (!evaluate(a)) { continue; }
+                int ut = t + arcTime;
+                double uw = w + arcWeight;
+                if (ut > maxDuration || uw > options.maxWeight) { continue; }
+                if (uw < weight(u)) {
+                    setLabel(u, uw, ut, a);
+                    states.remove(u);
+                    queue.insert(u, uw);
+                }
+            }
+        }
+
+        List<State> result = new ArrayList<>();
+        for (int i = 0; i < targets.size(); ++i) {
+            State s = state(targets.get(i));
+            if (s == null) { return null; }
+            if (!isWorstTimeExceeded(s)) { result.add(s); }
+        }
+        return result;
+    }
+
+    /**
+     * Search from the origin through the vertices not in the compact graph, with the normal edge
+     * traversal, to find the states to start the compact graph search at.
+     */
+    private boolean seed() {
+        Map<Vertex, State> best = TemporaryVertexSearch.search(
+            State.getStates(options),
+            State::getVertex,
+            State::getWeight,
+            g::contains,
+            (s, next) -> {
+                Vertex v = s.getVertex();
+                for (Edge e : reverse ? v.getIncoming() : v.getOutgoing()) {
+                    for (State r = e.traverse(s); r != null; r = r.getNextResult()) {
+                        if (!isWorstTimeExceeded(r)) { next.accept(r); }
+                    }
+                }
+            }
+        );
+        if (best == null) { return false; }
+
+        for (State s : best.values()) {
+            if (g.contains(s.getVertex())) {
+                int v = s.getVertex().getIndex();
+                setLabel(v, s.getWeight(), (int) s.getElapsedTimeSeconds(), -1);
+                states.put(v, s);
+            }
+        }
+        return !states.isEmpty();
+    }
+
+    /**
+     * Compute the weight and time of the arc into {@link #arcWeight} and {@link #arcTime}, the
+     * same way as {@link StreetEdge#traverse} and {@link StreetTransitLink#traverse}, but without
+     * turn costs. Return {@code false} if the arc can not be traversed.
+     */
+    private boolean evaluate(int a) {
+        byte flags = g.flags[a];
+        if ((flags & CompactStreetGraph.LINK) != 0) {
+            if (mode == TraverseMode.CAR) { return false; }
+            int time = g.linkTime.get(a);
+            arcTime = time;
+            arcWeight = StreetTransitLink.STL_TRAVERSE_COST + time;
+            return true;
+        }
+
+        RoutingRequest o = options;
+        TraverseMode m = mode;
+        if ((flags & modeFlag) == 0) {
+            // Walk the bike where cycling is not allowed
+            if (mode != TraverseMode.BICYCLE || (flags & CompactStreetGraph.WALK) == 0) {
+                return false;
+            }
+            o = options.bikeWalkingOptions;
+            m = TraverseMode.WALK;
+        }
+
+        double time;
+        double weight;
+        if (m == TraverseMode.CAR) {
+            time = g.walkLength[a] / g.carSpeed[a];
+            weight = time;
+        } else if (m == TraverseMode.BICYCLE) {
+            double speed = o.bikeSpeed;
+            time = g.bikeLength[a] / speed;
+            weight = bicycleWeight(a, o, speed);
+        } else {
+            time = g.walkLength[a] / o.walkSpeed;
+            weight = time;
+        }
+        weight *= (flags & CompactStreetGraph.STAIRS) != 0 ? o.stairsReluctance : o.walkReluctance;
+
+        arcTime = (int) Math.ceil(time);
+        arcWeight = weight;
+        return true;
+    }
+
+    private double bicycleWeight(int a, RoutingRequest o, double speed) {
+        double safety = g.bicycleSafety[a] * g.length[a];
+        switch (o.optimize) {
+            case SAFE:
+                return safety / speed;
+            case GREENWAYS:
+                double weight = safety / speed;
+                return g.bicycleSafety[a] <= StreetEdge.GREENWAY_SAFETY_FACTOR ? weight * 0.66 : weight;
+            case FLAT:
+                return g.length[a] / speed + g.bikeWorkCost[a];
+            case QUICK:
+                return g.bikeLength[a] / speed;
+            case TRIANGLE:
+                return (g.bikeLength[a] * o.bikeTriangleTimeFactor
+                    + g.bikeWorkCost[a] * o.bikeTriangleSlopeFactor
+                    + safety * o.bikeTriangleSafetyFactor) / speed;
+            default:
+                return g.length[a] / speed;
+        }
+    }
+
+    /**
+     * Create the state at the vertex by traversing the edges of the search tree from the closest
+     * vertex with a state. Return {@code null} if any of the edges can not be traversed, or is
+     * removed from the graph after the compact graph was created.
+     */
+    private State state(int v) {
+        TIntArrayList path = new TIntArrayList();
+        int x = v;
+        State s;
+        while ((s = states.get(x)) == null) {
+            path.add(x);
+            int a = parent(x);
+            x = reverse ? g.head[a] : g.tail[a];
+        }
+        for (int i = path.size() - 1; i >= 0; --i) {
+            int y = path.get(i);
+            Edge e = g.edges[parent(y)];
+            if (!e.getFromVertex().getOutgoing().contains(e)) { return null; }
+            State next = null;
+            for (State r = e.traverse(s); r != null; r = r.getNextResult()) {
+                if (next == null || r.getWeight() < next.getWeight()) { next = r; }
+            }
+            if (next == null) { return null; }
+            states.put(y, next);
+            s = next;
+        }
+        return s;
+    }
+
+    private boolean isWorstTimeExceeded(State s) {
+        return reverse ? s.getTimeSeconds() < options.worstTime : s.getTimeSeconds() > options.worstTime;
+    }
+
+    private double weight(int v) {
+        return weights.get(v);
+    }
+
+    private int time(int v) {
+        return times.get(v);
+    }
+
+    private int parent(int v) {
+        return parents.get(v);
+    }
+
+    private void setLabel(int v, double weight, int time, int parent) {
+        weights.set(v, weight);
+        times.set(v, time);
+        parents.set(v, parent);
+    }
+
+    /** The mode of the initial state of the search, see {@link org.opentripplanner.routing.core.StateData}. */
+    private static TraverseMode mode(RoutingRequest options) {
+        TraverseModeSet modes = options.streetSubRequestModes;
+        if (modes.getCar()) return TraverseMode.CAR;
+        if (modes.getWalk()) return TraverseMode.WALK;
+        if (modes.getBicycle()) return TraverseMode.BICYCLE;
+        return null;
+    }
+}
@@ -0,0 +1,166 @@
+package org.opentripplanner.routing.algorithm.raptor.router.street;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.opentripplanner.model.StopLocation;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graphfinder.NearbyStop;
+import org.opentripplanner.routing.vertextype.TemporaryVertex;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cache the stops found by the access/egress street search. Popular origins and destinations,
+ * like major stations and airports, are routed over and over again, and the street search is
+ * often the most expensive part of the routing.
+ * <p>
+ * Only the stop and the duration of each access/egress is cached, this is all Raptor needs. The
+ * street search states are not cached, since they reference the temporary vertices and the
+ * routing context of the request doing the search. The states of the access/egress used in the
+ * itineraries returned are found again, see {@link AccessEgressRouter}.
+ * <p>
+ * The cache key is the search origin, the street mode, the search direction and the request
+ * parameters used by the street search. The temporary vertex created for a coordinate is new for
+ * each request, so temporary vertices are identified by the coordinate and name instead.
+ * <p>
+ * Street modes depending on realtime data - rental and park-and-ride - are not cached. The other
+ * entries expire after a fixed time to live. The cache is owned by the graph, so it is dropped
+ * when a new graph is loaded, and it is cleared when the transit layers or the graph is changed
+ * by the realtime updaters.
+ * <p>
+ * THIS CLASS IS THREAD-SAFE.
+ */
+public class AccessEgressCache {
+
+    private static final Set<StreetMode> NOT_CACHED_MODES = EnumSet.of(
+        StreetMode.BIKE_TO_PARK,
+        StreetMode.BIKE_RENTAL,
+        StreetMode.CAR_TO_PARK,
+        StreetMode.CAR_RENTAL
+    );
+
+    private final Cache<List<Object>, List<CachedStop>> cache;
+
+    /**
+     * @param maxSize the maximum number of stop sets kept in the cache, the least recently used
+     *                entries are evicted first.
+     * @param timeToLiveSeconds the time an entry is kept in the cache after it is added.
+     */
+    public AccessEgressCache(int maxSize, int timeToLiveSeconds) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Return {@code true} if the result of a street search with the given mode can be cached.
+     */
+    public static boolean isCacheable(StreetMode streetMode) {
+        return !NOT_CACHED_MODES.contains(streetMode);
+    }
+
+    /**
+     * Create the cache key for a street search from the given vertices, see
+     * {@link AccessEgressRouter#streetSearch(RoutingRequest, StreetMode, boolean, int)}.
+     */
+    static List<Object> key(
+        RoutingRequest rr,
+        Set<Vertex> vertices,
+        StreetMode streetMode,
+        boolean fromTarget,
+        int distanceMeters
+    ) {
+        return Arrays.asList(
+            vertices.stream().map(AccessEgressCache::vertexKey).collect(Collectors.toSet()),
+            streetMode,
+            fromTarget,
+            distanceMeters,
+            // Request parameters used by the street search
+            rr.arriveBy,
+            rr.wheelchairAccessible,
+            rr.maxWheelchairSlope,
+            rr.walkSpeed,
+            rr.bikeSpeed,
+            rr.carSpeed,
+            rr.carAccelerationSpeed,
+            rr.carDecelerationSpeed,
+            rr.carDropoffTime,
+            rr.walkReluctance,
+            rr.stairsReluctance,
+            rr.turnReluctance,
+            rr.driveOnRight,
+            rr.optimize,
+            rr.bikeTriangleSafetyFactor,
+            rr.bikeTriangleSlopeFactor,
+            rr.bikeTriangleTimeFactor,
+            rr.bikeSwitchTime,
+            rr.bikeSwitchCost,
+            rr.elevatorBoardTime,
+            rr.elevatorBoardCost,
+            rr.elevatorHopTime,
+            rr.elevatorHopCost,
+            rr.geoidElevation
+        );
+    }
+
+    /**
+     * Return the cached stops for the given key, or {@code null} if not in the cache. Each call
+     * is counted as a hit or a miss in the {@link #stats()}.
+     */
+    List<CachedStop> get(List<Object> key) {
+        return cache.getIfPresent(key);
+    }
+
+    void put(List<Object> key, Collection<NearbyStop> stops) {
+        cache.put(
+            key,
+            stops.stream()
+                .map(it -> new CachedStop(it.stop, (int) it.state.getElapsedTimeSeconds()))
+                .collect(Collectors.toUnmodifiableList())
+        );
+    }
+
+    /** The hit/miss and eviction statistics since the cache was created. */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * An access/egress stop and the duration of the street search to reach it.
+     */
+    public static class CachedStop {
+        public final StopLocation stop;
+        public final int durationSeconds;
+
+        CachedStop(StopLocation stop, int durationSeconds) {
+            this.stop = stop;
+            this.durationSeconds = durationSeconds;
+        }
+    }
+
+    private static Object vertexKey(Vertex v) {
+        if (v instanceof TemporaryVertex) {
+            return Arrays.asList(v.getCoordinate(), v.getName(), ((TemporaryVertex) v).isEndVertex());
+        }
+        return v;
+    }
+}
@@ -1,23 +1,37 @@
 package org.opentripplanner.routing.algorithm.raptor.router.street;
 
 import org.opentripplanner.graph_builder.module.NearbyStopFinder;
+import org.opentripplanner.model.StopLocation;
+import org.opentripplanner.routing.algorithm.raptor.transit.AccessEgress;
+import org.opentripplanner.routing.algorithm.raptor.transit.mappers.AccessEgressMapper;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.core.State;
 import org.opentripplanner.routing.graph.Vertex;
 import org.opentripplanner.routing.graphfinder.NearbyStop;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
- * This uses a street search to find paths to all the access/egress stop within range
+ * This uses a street search to find paths to all the access/egress stop within range. The stops
+ * found are cached in the graph {@link AccessEgressCache}, if the graph has one.
  */
 public class AccessEgressRouter {
     private static Logger LOG = LoggerFactory.getLogger(AccessEgressRouter.class);
 
+    /**
+     * The street search finding the states of cached stops search this much longer than the
+     * duration of the stop, so the other stops with a similar duration are found by the same
+     * search.
+     */
+    private static final int CACHED_STOP_SEARCH_MARGIN_SECONDS = 120;
+
     private AccessEgressRouter() {}
 
     /**
@@ -34,20 +48,67 @@ public class AccessEgressRouter {
         boolean fromTarget,
         int distanceMeters
     ) {
-        // TODO OTP2 This has to be done because we have not separated the main RoutingRequest from
-        //      the subrequest for street searches. From/to vertices are already set based on the main
-        //      request being arriveBy or not, but here we are actually setting arriveBy based on
-        //      whether we are doing an access or egress search, regardless of the direction of the
-        //      main request.
-        Set<Vertex> vertices = fromTarget ^ rr.arriveBy ? rr.rctx.toVertices : rr.rctx.fromVertices;
+        RoutingRequest nonTransitRoutingRequest = rr.getStreetSearchRequest(streetMode);
+        return streetSearch(rr, nonTransitRoutingRequest, fromTarget, distanceMeters);
+    }
+
+    /**
+     * Find the access/egress stops within range, and map them to Raptor access/egress. If the
+     * graph has an {@link AccessEgressCache}, the stops and durations are looked up in the cache
+     * first. The cache do not keep the street search states, so the state of a cached stop is
+     * found by a new street search the first time it is used by an itinerary. This search is
+     * limited by the duration of the stop, which is usually far less than the full range.
+     */
+    public static Collection<AccessEgress> routeAccessEgress(
+        RoutingRequest rr,
+        StreetMode streetMode,
+        boolean fromTarget,
+        int distanceMeters,
+        AccessEgressMapper mapper
+    ) {
+        AccessEgressCache cache = rr.rctx.graph.getAccessEgressCache();
+
+        if (cache == null || !AccessEgressCache.isCacheable(streetMode)) {
+            return mapper.mapNearbyStops(
+                streetSearch(rr, streetMode, fromTarget, distanceMeters),
+                fromTarget
+            );
+        }
+
+        List<Object> cacheKey = AccessEgressCache.key(
+            rr, searchVertices(rr, fromTarget), streetMode, fromTarget, distanceMeters
+        );
+        List<AccessEgressCache.CachedStop> cachedStops = cache.get(cacheKey);
+
+        if (cachedStops != null) {
+            LOG.debug("Found {} {} stops in cache", cachedStops.size(), fromTarget ? "egress" : "access");
+            CachedStopStates states = new CachedStopStates(rr, streetMode, fromTarget, distanceMeters);
+            return mapper.mapCachedStops(cachedStops, fromTarget, states::stateFor);
+        }
 
         RoutingRequest nonTransitRoutingRequest = rr.getStreetSearchRequest(streetMode);
+        Collection<NearbyStop> nearbyStops = streetSearch(
+            rr, nonTransitRoutingRequest, fromTarget, distanceMeters
+        );
 
+        // Do not cache the result of an aborted search, it might be incomplete
+        if (!nonTransitRoutingRequest.rctx.aborted) {
+            cache.put(cacheKey, nearbyStops);
+        }
+        return mapper.mapNearbyStops(nearbyStops, fromTarget);
+    }
+
+    private static List<NearbyStop> streetSearch(
+        RoutingRequest rr,
+        RoutingRequest nonTransitRoutingRequest,
+        boolean fromTarget,
+        int distanceMeters
+    ) {
         NearbyStopFinder nearbyStopFinder = new NearbyStopFinder(rr.rctx.graph, distanceMeters, true);
         // We set removeTempEdges to false because this is a sub-request - the temporary edges for the origin and
         // target vertex will be cleaned up at the end of the super-request, and we don't want that to happen twice.
         List<NearbyStop> nearbyStopList = nearbyStopFinder.findNearbyStopsViaStreets(
-            vertices,
+            searchVertices(rr, fromTarget),
             fromTarget,
             false,
             nonTransitRoutingRequest
@@ -57,4 +118,69 @@ public class AccessEgressRouter {
 
         return nearbyStopList;
     }
+
+    private static Set<Vertex> searchVertices(RoutingRequest rr, boolean fromTarget) {
+        // TODO OTP2 This has to be done because we have not separated the main RoutingRequest from
+        //      the subrequest for street searches. From/to vertices are already set based on the main
+        //      request being arriveBy or not, but here we are actually setting arriveBy based on
+        //      whether we are doing an access or egress search, regardless of the direction of the
+        //      main request.
+        return fromTarget ^ rr.arriveBy ? rr.rctx.toVertices : rr.rctx.fromVertices;
+    }
+
+    /**
+     * Find the street search states of cached stops. The states are found by a street search
+     * limited by the duration of the stop, and the states of all stops found are kept for the
+     * next stop. If a stop with a longer duration is requested, a new longer search is done.
+     * <p>
+     * THIS CLASS IS NOT THREAD-SAFE, it is used in the thread mapping the itineraries.
+     */
+    private static class CachedStopStates {
+        private final RoutingRequest rr;
+        private final StreetMode streetMode;
+        private final boolean fromTarget;
+        private final int distanceMeters;
+
+        private Map<StopLocation, State> states = Map.of();
+        private int searchedDurationSeconds = -1;
+
+        private CachedStopStates(
+            RoutingRequest rr,
+            StreetMode streetMode,
+            boolean fromTarget,
+            int distanceMeters
+        ) {
+            this.rr = rr;
+            this.streetMode = streetMode;
+            this.fromTarget = fromTarget;
+            this.distanceMeters = distanceMeters;
+        }
+
+        State stateFor(AccessEgressCache.CachedStop stop) {
+            if (stop.durationSeconds > searchedDurationSeconds) {
+                search(stop.durationSeconds + CACHED_STOP_SEARCH_MARGIN_SECONDS);
+            }
+            State state = states.get(stop.stop);
+            if (state == null) {
+                throw new IllegalStateException(
+                    "The cached access/egress stop is not found by the street search: " + stop.stop
+                );
+            }
+            return state;
+        }
+
+        private void search(int durationSeconds) {
+            // The street search is limited by the time it takes to walk the search distance, see
+            // NearbyStopFinder. The distance is never longer than the range of the original search.
+            double walkSpeed = new RoutingRequest().walkSpeed;
+            int distance = (int) Math.min(distanceMeters, Math.ceil(durationSeconds * walkSpeed));
+
+            Map<StopLocation, State> result = new HashMap<>();
+            for (NearbyStop it : streetSearch(rr, rr.getStreetSearchRequest(streetMode), fromTarget, distance)) {
+                result.putIfAbsent(it.stop, it.state);
+            }
+            states = result;
+            searchedDurationSeconds = distance == distanceMeters ? Integer.MAX_VALUE : durationSeconds;
+        }
+    }
 }
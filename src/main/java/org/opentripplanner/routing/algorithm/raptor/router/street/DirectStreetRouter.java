@@ -36,6 +36,10 @@ public class DirectStreetRouter {
       if(!streetDistanceIsReasonable(request)) { return Collections.emptyList(); }
 
       RoutingRequest nonTransitRequest = request.getStreetSearchRequest(request.modes.directMode);
+      if (router.routerConfig.bidirectionalDirectStreetSearch()) {
+        // Only used if there is one origin and one destination vertex, see GraphPathFinder
+        nonTransitRequest.bidirectionalStreetSearch = true;
+      }
 
       // we could also get a persistent router-scoped GraphPathFinder but there's no setup cost here
       GraphPathFinder gpFinder = new GraphPathFinder(router);
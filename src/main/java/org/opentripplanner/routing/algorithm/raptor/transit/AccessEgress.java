@@ -4,6 +4,8 @@ import org.opentripplanner.model.base.ToStringBuilder;
 import org.opentripplanner.routing.core.State;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
 
+import java.util.function.Supplier;
+
 public class AccessEgress implements RaptorTransfer {
 
   /**
@@ -16,7 +18,13 @@ public class AccessEgress implements RaptorTransfer {
   /**
    * This should be the last state both in the case of access and egress.
    */
-  private final State lastState;
+  private State lastState;
+
+  /**
+   * Used to find the {@link #lastState} the first time it is needed, if it is not known when
+   * this is created. This is {@code null} if the state is known.
+   */
+  private Supplier<State> lastStateSupplier;
 
   public AccessEgress(int toFromStop, int durationInSeconds, State lastState) {
     this.toFromStop = toFromStop;
@@ -24,6 +32,18 @@ public class AccessEgress implements RaptorTransfer {
     this.lastState = lastState;
   }
 
+  /**
+   * Create an access/egress where the last state is found by the given supplier the first time
+   * it is needed. This is used when the stop and duration are known without the street search
+   * state, like for cached access/egress stops. The supplier is called in the thread mapping the
+   * itineraries, while the routing context of the request is still available.
+   */
+  public AccessEgress(int toFromStop, int durationInSeconds, Supplier<State> lastStateSupplier) {
+    this.toFromStop = toFromStop;
+    this.durationInSeconds = durationInSeconds;
+    this.lastStateSupplier = lastStateSupplier;
+  }
+
   @Override
   public int stop() {
     return toFromStop;
@@ -35,6 +55,10 @@ public class AccessEgress implements RaptorTransfer {
   }
 
   public State getLastState() {
+    if (lastStateSupplier != null) {
+      lastState = lastStateSupplier.get();
+      lastStateSupplier = null;
+    }
     return lastState;
   }
 
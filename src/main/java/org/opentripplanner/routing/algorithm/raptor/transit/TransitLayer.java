@@ -1,6 +1,7 @@
 package org.opentripplanner.routing.algorithm.raptor.transit;
 
 import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.algorithm.raptor.transit.request.TripPatternForDatesIndex;
 
 import javax.annotation.Nullable;
 import java.time.LocalDate;
@@ -10,15 +11,26 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class TransitLayer {
 
+  /**
+   * The maximum number of {@link TripPatternForDatesIndex} to keep in the cache. Most requests
+   * search today or tomorrow, so only a few indexes are in use at any time.
+   */
+  private static final int MAX_CACHED_TRIP_PATTERN_INDEXES = 8;
+
   /**
    * Transit data required for routing, indexed by each local date(Graph TimeZone) it runs through.
    * A Trip "runs through" a date if any of its arrivals or departures is happening on that date.
+   * If only a window of dates is mapped up front, this holds the dates in the window and the dates
+   * updated in realtime.
    */
-  private final HashMap<LocalDate, List<TripPatternForDate>> tripPatternsRunningOnDate;
+  private final HashMap<LocalDate, Collection<TripPatternForDate>> tripPatternsRunningOnDate;
 
   /**
    * Index of outer list is from stop index, inner list index has no specific meaning. To stop index
@@ -33,30 +45,89 @@ public class TransitLayer {
 
   private final ZoneId transitDataZoneId;
 
+  /**
+   * Maps the trip patterns running on the dates outside the window on demand, or {@code null} if
+   * all dates are in {@link #tripPatternsRunningOnDate}.
+   */
+  @Nullable
+  private final Function<LocalDate, Collection<TripPatternForDate>> tripPatternsOutsideWindow;
+
+  /**
+   * The first and last date of the window of dates in {@link #tripPatternsRunningOnDate}, if
+   * only a window of the service period is mapped up front.
+   */
+  private final LocalDate firstDateInWindow;
+  private final LocalDate lastDateInWindow;
+
+  /**
+   * Immutable indexes of the trip patterns running in a date range, shared between all
+   * requests searching the same dates. The indexes are created on demand, carried over when
+   * the TransitLayer is copied, and dropped when the patterns for one of their dates are
+   * replaced.
+   */
+  private final ConcurrentHashMap<IndexKey, TripPatternForDatesIndex> tripPatternForDatesIndexes =
+      new ConcurrentHashMap<>();
+
   /**
    * Makes a shallow copy of the TransitLayer, except for the tripPatternsForDate, where a shallow
    * copy of the HashMap is made. This is sufficient, as the TransitLayerUpdater will replace
-   * entire keys and their values in the map.
+   * entire keys and their values in the map. The cached trip pattern indexes are also copied,
+   * they are immutable and are dropped from the copy if any of their dates are replaced.
    */
   public TransitLayer(TransitLayer transitLayer) {
     this(
         transitLayer.tripPatternsRunningOnDate,
         transitLayer.transferByStopIndex,
         transitLayer.stopIndex,
-        transitLayer.transitDataZoneId
+        transitLayer.transitDataZoneId,
+        transitLayer.tripPatternsOutsideWindow,
+        transitLayer.firstDateInWindow,
+        transitLayer.lastDateInWindow
     );
+    this.tripPatternForDatesIndexes.putAll(transitLayer.tripPatternForDatesIndexes);
   }
 
   public TransitLayer(
-      Map<LocalDate, List<TripPatternForDate>> tripPatternsRunningOnDate,
+      Map<LocalDate, ? extends Collection<TripPatternForDate>> tripPatternsRunningOnDate,
       List<List<Transfer>> transferByStopIndex,
       StopIndexForRaptor stopIndex,
       ZoneId transitDataZoneId
+  ) {
+    this(tripPatternsRunningOnDate, transferByStopIndex, stopIndex, transitDataZoneId, null, null, null);
+  }
+
+  /**
+   * Create a TransitLayer with only the dates from {@code firstDateInWindow} to
+   * {@code lastDateInWindow} mapped, the trip patterns running on any other date are mapped by
+   * {@code tripPatternsOutsideWindow} when searched. The function must be thread-safe, and
+   * should cache its results.
+   */
+  public TransitLayer(
+      Map<LocalDate, ? extends Collection<TripPatternForDate>> tripPatternsRunningOnDate,
+      List<List<Transfer>> transferByStopIndex,
+      StopIndexForRaptor stopIndex,
+      ZoneId transitDataZoneId,
+      @Nullable Function<LocalDate, Collection<TripPatternForDate>> tripPatternsOutsideWindow,
+      LocalDate firstDateInWindow,
+      LocalDate lastDateInWindow
   ) {
     this.tripPatternsRunningOnDate = new HashMap<>(tripPatternsRunningOnDate);
     this.transferByStopIndex = transferByStopIndex;
     this.stopIndex = stopIndex;
     this.transitDataZoneId = transitDataZoneId;
+    this.tripPatternsOutsideWindow = tripPatternsOutsideWindow;
+    this.firstDateInWindow = firstDateInWindow;
+    this.lastDateInWindow = lastDateInWindow;
+  }
+
+  /** The first date in the window of a TransitLayer created on the given date: yesterday. */
+  public static LocalDate firstDateInWindow(LocalDate today) {
+    return today.minusDays(1);
+  }
+
+  /** The last date in the window of a TransitLayer created on the given date. */
+  public static LocalDate lastDateInWindow(LocalDate today, int windowDays) {
+    return today.plusDays(windowDays);
   }
 
   public int getIndexByStop(Stop stop) {
@@ -73,7 +144,32 @@ public class TransitLayer {
   }
 
   public Collection<TripPatternForDate> getTripPatternsForDate(LocalDate date) {
-    return tripPatternsRunningOnDate.getOrDefault(date, List.of());
+    Collection<TripPatternForDate> tripPatterns = getTripPatternsRunningOnDate(date);
+    return tripPatterns != null ? tripPatterns : List.of();
+  }
+
+  /**
+   * Get the index of all trip patterns running on the given departure date and the
+   * {@code additionalFutureSearchDays} following it. The index is created the first time it is
+   * requested, and then reused by all later requests for the same dates.
+   * <p>
+   * This method is THREAD SAFE.
+   */
+  public TripPatternForDatesIndex getTripPatternForDatesIndex(
+      LocalDate departureDate,
+      int additionalFutureSearchDays
+  ) {
+    IndexKey key = new IndexKey(departureDate, additionalFutureSearchDays);
+    TripPatternForDatesIndex index = tripPatternForDatesIndexes.get(key);
+
+    if (index == null) {
+      index = tripPatternForDatesIndexes.computeIfAbsent(
+          key,
+          k -> TripPatternForDatesIndex.create(this, departureDate, additionalFutureSearchDays)
+      );
+      evictTripPatternForDatesIndexes(departureDate);
+    }
+    return index;
   }
 
   /**
@@ -92,12 +188,17 @@ public class TransitLayer {
   }
 
   public List<TripPatternForDate> getTripPatternsRunningOnDateCopy(LocalDate runningPeriodDate) {
-    List<TripPatternForDate> tripPatternForDate = tripPatternsRunningOnDate.get(runningPeriodDate);
+    Collection<TripPatternForDate> tripPatternForDate = getTripPatternsRunningOnDate(runningPeriodDate);
     return tripPatternForDate != null ? new ArrayList<>(tripPatternForDate) : null;
   }
 
+  /**
+   * The patterns are filtered without copying all patterns running on the date first. For a date
+   * outside the window the patterns running on it are mapped, unless they are cached, see
+   * {@link org.opentripplanner.routing.algorithm.raptor.transit.mappers.TripPatternForDateCache}.
+   */
   public List<TripPatternForDate> getTripPatternsStartingOnDateCopy(LocalDate date) {
-    List<TripPatternForDate> tripPatternsRunningOnDate = getTripPatternsRunningOnDateCopy(date);
+    Collection<TripPatternForDate> tripPatternsRunningOnDate = getTripPatternsRunningOnDate(date);
     return tripPatternsRunningOnDate != null ? tripPatternsRunningOnDate
         .stream()
         .filter(t -> t.getLocalDate().equals(date))
@@ -110,12 +211,116 @@ public class TransitLayer {
 
   /**
    * Replaces all the TripPatternForDates for a single date. This is an atomic operation according
-   * to the HashMap implementation.
+   * to the HashMap implementation. The collection must not be changed after it is passed in, use
+   * an immutable collection like {@link TripPatternsRunningOnDate}. A date outside the window is
+   * added, so the patterns are no longer mapped on demand for that date.
    */
   public void replaceTripPatternsForDate(
       LocalDate date,
-      List<TripPatternForDate> tripPatternForDates
+      Collection<TripPatternForDate> tripPatternForDates
   ) {
-    this.tripPatternsRunningOnDate.replace(date, tripPatternForDates);
+    if (isOutsideWindow(date)) {
+      this.tripPatternsRunningOnDate.put(date, tripPatternForDates);
+    }
+    else {
+      this.tripPatternsRunningOnDate.replace(date, tripPatternForDates);
+    }
+    this.tripPatternForDatesIndexes.values().removeIf(it -> it.includesDate(date));
+  }
+
+  /**
+   * Make a copy of this TransitLayer with the window moved to the given dates. The dates before
+   * the new window are dropped, and the dates in the new window that are not already mapped are
+   * mapped. Dates updated in realtime are kept, also if they are after the window. If all dates
+   * are mapped, this TransitLayer is returned.
+   */
+  public TransitLayer withWindow(LocalDate firstDateInWindow, LocalDate lastDateInWindow) {
+    if (tripPatternsOutsideWindow == null) { return this; }
+
+    TransitLayer copy = new TransitLayer(
+        tripPatternsRunningOnDate,
+        transferByStopIndex,
+        stopIndex,
+        transitDataZoneId,
+        tripPatternsOutsideWindow,
+        firstDateInWindow,
+        lastDateInWindow
+    );
+    copy.tripPatternsRunningOnDate.keySet().removeIf(date -> date.isBefore(firstDateInWindow));
+
+    LocalDate end = lastDateInWindow.plusDays(1);
+    for (LocalDate date = firstDateInWindow; date.isBefore(end); date = date.plusDays(1)) {
+      if (!copy.tripPatternsRunningOnDate.containsKey(date)) {
+        copy.tripPatternsRunningOnDate.put(
+            date,
+            TripPatternsRunningOnDate.of(tripPatternsOutsideWindow.apply(date))
+        );
+      }
+    }
+
+    // The cached indexes are still valid, but drop the ones for dates before the window
+    for (Map.Entry<IndexKey, TripPatternForDatesIndex> it : tripPatternForDatesIndexes.entrySet()) {
+      if (!it.getKey().departureDate.isBefore(firstDateInWindow)) {
+        copy.tripPatternForDatesIndexes.put(it.getKey(), it.getValue());
+      }
+    }
+    return copy;
+  }
+
+  @Nullable
+  private Collection<TripPatternForDate> getTripPatternsRunningOnDate(LocalDate date) {
+    Collection<TripPatternForDate> tripPatterns = tripPatternsRunningOnDate.get(date);
+    if (tripPatterns == null && isOutsideWindow(date)) {
+      return tripPatternsOutsideWindow.apply(date);
+    }
+    return tripPatterns;
+  }
+
+  private boolean isOutsideWindow(LocalDate date) {
+    return tripPatternsOutsideWindow != null
+        && (date.isBefore(firstDateInWindow) || date.isAfter(lastDateInWindow));
+  }
+
+  /**
+   * Keep the index cache bounded by removing the indexes for the earliest dates first, these
+   * are the least likely to be searched again. The index for the given date is kept.
+   */
+  private void evictTripPatternForDatesIndexes(LocalDate keep) {
+    while (tripPatternForDatesIndexes.size() > MAX_CACHED_TRIP_PATTERN_INDEXES) {
+      IndexKey earliest = tripPatternForDatesIndexes
+          .keySet()
+          .stream()
+          .filter(k -> !k.departureDate.equals(keep))
+          .min((a, b) -> a.departureDate.compareTo(b.departureDate))
+          .orElse(null);
+
+      if (earliest == null) { return; }
+
+      tripPatternForDatesIndexes.remove(earliest);
+    }
+  }
+
+  private static final class IndexKey {
+    private final LocalDate departureDate;
+    private final int additionalFutureSearchDays;
+
+    private IndexKey(LocalDate departureDate, int additionalFutureSearchDays) {
+      this.departureDate = departureDate;
+      this.additionalFutureSearchDays = additionalFutureSearchDays;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) { return true; }
+      if (o == null || getClass() != o.getClass()) { return false; }
+      IndexKey that = (IndexKey) o;
+      return additionalFutureSearchDays == that.additionalFutureSearchDays
+          && departureDate.equals(that.departureDate);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(departureDate, additionalFutureSearchDays);
+    }
   }
 }
@@ -39,4 +39,13 @@ public interface TransitTuningParameters {
    * boarding and alighting all stops with the given priority.
    */
   Integer stopTransferCost(TransferPriority key);
+
+  /**
+   * The number of days after today to map when the transit layer is created, in addition to
+   * yesterday and today. The other dates are mapped when searched, and the window is moved
+   * forward every night. If 0, all dates in the service period are mapped up front.
+   */
+  default int transitLayerWindowDays() {
+    return 0;
+  }
 }
@@ -44,6 +44,16 @@ public class TripPatternForDate {
      */
     private final LocalDateTime endOfRunningPeriod;
 
+    /**
+     * The departure times of all trips, followed by the arrival times. The times are stored by
+     * stop position first, so the times for all trips at a given stop are contiguous. This is
+     * created the first time it is used, and then shared by all the
+     * {@link org.opentripplanner.routing.algorithm.raptor.transit.request.TripPatternForDates}
+     * this is part of. If two threads create it at the same time, one of the identical arrays
+     * is discarded.
+     */
+    private volatile int[] stopTimes;
+
     public TripPatternForDate(
         TripPatternWithRaptorStopIndexes tripPattern,
         List<TripTimes> tripTimes,
@@ -80,6 +90,23 @@ public class TripPatternForDate {
         return tripTimes.get(i);
     }
 
+    /**
+     * The departure time of the given trip at the given stop position, in seconds since the
+     * start of the service day.
+     */
+    public int departure(int tripIndex, int stopPosInPattern) {
+        return stopTimes()[stopPosInPattern * tripTimes.size() + tripIndex];
+    }
+
+    /**
+     * The arrival time of the given trip at the given stop position, in seconds since the
+     * start of the service day.
+     */
+    public int arrival(int tripIndex, int stopPosInPattern) {
+        int[] times = stopTimes();
+        return times[times.length / 2 + stopPosInPattern * tripTimes.size() + tripIndex];
+    }
+
     public LocalDate getLocalDate() {
         return localDate;
     }
@@ -100,6 +127,27 @@ public class TripPatternForDate {
             .collect(Collectors.toList());
     }
 
+    private int[] stopTimes() {
+        int[] times = stopTimes;
+        if (times == null) {
+            int numberOfTrips = tripTimes.size();
+            int numberOfStops = tripTimes.get(0).getNumStops();
+            int arrivals = numberOfStops * numberOfTrips;
+            times = new int[2 * arrivals];
+
+            for (int t = 0; t < numberOfTrips; t++) {
+                TripTimes trip = tripTimes.get(t);
+                for (int stopPos = 0; stopPos < numberOfStops; stopPos++) {
+                    int i = stopPos * numberOfTrips + t;
+                    times[i] = trip.getDepartureTime(stopPos);
+                    times[arrivals + i] = trip.getArrivalTime(stopPos);
+                }
+            }
+            stopTimes = times;
+        }
+        return times;
+    }
+
     public int hashCode() {
         return Objects.hash(tripPattern, tripTimes, localDate);
     }
@@ -0,0 +1,204 @@
+package org.opentripplanner.routing.algorithm.raptor.transit;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable collection of the {@link TripPatternForDate}s running on a date. The elements are
+ * stored in fixed size chunks, and a new version of the collection is created with an
+ * {@link Editor}. The new version share all unchanged chunks with the previous version, so an
+ * update only copy the chunks changed and the (small) array of chunks, not all elements.
+ * <p>
+ * The order of the elements is not defined.
+ * <p>
+ * THIS CLASS IS IMMUTABLE AND THREAD-SAFE.
+ */
+public final class TripPatternsRunningOnDate extends AbstractCollection<TripPatternForDate> {
+
+  static final int CHUNK_SIZE = 64;
+
+  private static final TripPatternForDate[][] NO_CHUNKS = new TripPatternForDate[0][];
+
+  /** Removed elements leave a {@code null} hole in the chunk, until the slot is reused. */
+  private final TripPatternForDate[][] chunks;
+  private final int size;
+
+  private TripPatternsRunningOnDate(TripPatternForDate[][] chunks, int size) {
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  public static TripPatternsRunningOnDate of(Collection<TripPatternForDate> tripPatterns) {
+    if (tripPatterns instanceof TripPatternsRunningOnDate) {
+      return (TripPatternsRunningOnDate) tripPatterns;
+    }
+    Editor editor = new Editor(new TripPatternsRunningOnDate(NO_CHUNKS, 0));
+    tripPatterns.forEach(editor::add);
+    return editor.publish();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<TripPatternForDate> iterator() {
+    return new Iterator<>() {
+      private int chunkIndex = 0;
+      private int index = -1;
+      private TripPatternForDate next = findNext();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public TripPatternForDate next() {
+        if (next == null) { throw new NoSuchElementException(); }
+        TripPatternForDate it = next;
+        next = findNext();
+        return it;
+      }
+
+      private TripPatternForDate findNext() {
+        while (chunkIndex < chunks.length) {
+          TripPatternForDate[] chunk = chunks[chunkIndex];
+          while (++index < CHUNK_SIZE) {
+            if (chunk[index] != null) { return chunk[index]; }
+          }
+          ++chunkIndex;
+          index = -1;
+        }
+        return null;
+      }
+    };
+  }
+
+  /** Used by unit tests to verify that unchanged chunks are shared between versions. */
+  TripPatternForDate[] chunk(int index) {
+    return chunks[index];
+  }
+
+  int numberOfChunks() {
+    return chunks.length;
+  }
+
+  /**
+   * Create new versions of a {@link TripPatternsRunningOnDate} by adding and removing elements.
+   * The editor keep an index of where each element is stored, so it should be kept and reused
+   * for all updates of the same date. Call {@link #publish()} to get the new version; chunks
+   * are copied the first time they are changed after a publish, so a published version is never
+   * changed.
+   * <p>
+   * Elements are matched by identity, not by {@code equals()}, except in
+   * {@link #removeSameTripPatternAndDate(TripPatternForDate)}.
+   * <p>
+   * THIS CLASS IS NOT THREAD-SAFE.
+   */
+  public static final class Editor {
+    private final Map<TripPatternForDate, Integer> slotByElement = new IdentityHashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet copiedChunks = new BitSet();
+
+    private TripPatternForDate[][] chunks;
+    private boolean chunksCopied = false;
+    private int numberOfSlotsUsed = 0;
+
+    public Editor(TripPatternsRunningOnDate initialVersion) {
+      this.chunks = initialVersion.chunks;
+
+      for (int i = 0; i < chunks.length; ++i) {
+        for (int j = 0; j < CHUNK_SIZE; ++j) {
+          int slot = i * CHUNK_SIZE + j;
+          if (chunks[i][j] == null) {
+            freeSlots.push(slot);
+          }
+          else {
+            slotByElement.put(chunks[i][j], slot);
+          }
+        }
+      }
+      this.numberOfSlotsUsed = chunks.length * CHUNK_SIZE;
+    }
+
+    /** Add the element, if it is not already added. */
+    public void add(TripPatternForDate element) {
+      if (slotByElement.containsKey(element)) { return; }
+
+      int slot = freeSlots.isEmpty() ? numberOfSlotsUsed++ : freeSlots.pop();
+      set(slot, element);
+      slotByElement.put(element, slot);
+    }
+
+    /** Remove the element, return {@code false} if the element is not found. */
+    public boolean remove(TripPatternForDate element) {
+      Integer slot = slotByElement.remove(element);
+      if (slot == null) { return false; }
+      set(slot, null);
+      freeSlots.push(slot);
+      return true;
+    }
+
+    /**
+     * Remove the element with the same trip pattern and service date as the given element, which
+     * does not need to be the same instance. Return {@code false} if no such element is found.
+     * <p>
+     * The patterns of the dates outside the window of the transit layer are mapped on demand,
+     * and mapped again if they are evicted from the cache, so an editor created later may hold
+     * another instance than the one the caller has. The element is looked up by identity first,
+     * the elements are only scanned if it is not found.
+     */
+    public boolean removeSameTripPatternAndDate(TripPatternForDate element) {
+      if (remove(element)) { return true; }
+
+      for (TripPatternForDate it : slotByElement.keySet()) {
+        if (it.getTripPattern().getPattern() == element.getTripPattern().getPattern()
+            && it.getLocalDate().equals(element.getLocalDate())) {
+          return remove(it);
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Create a new version with all changes done since the last publish.
+     */
+    public TripPatternsRunningOnDate publish() {
+      chunksCopied = false;
+      copiedChunks.clear();
+      return new TripPatternsRunningOnDate(chunks, slotByElement.size());
+    }
+
+    private void set(int slot, TripPatternForDate element) {
+      int chunkIndex = slot / CHUNK_SIZE;
+
+      if (!chunksCopied) {
+        chunks = Arrays.copyOf(chunks, Math.max(chunks.length, chunkIndex + 1));
+        chunksCopied = true;
+      }
+      else if (chunkIndex >= chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunkIndex + 1);
+      }
+
+      if (chunks[chunkIndex] == null) {
+        chunks[chunkIndex] = new TripPatternForDate[CHUNK_SIZE];
+        copiedChunks.set(chunkIndex);
+      }
+      else if (!copiedChunks.get(chunkIndex)) {
+        chunks[chunkIndex] = chunks[chunkIndex].clone();
+        copiedChunks.set(chunkIndex);
+      }
+      chunks[chunkIndex][slot % CHUNK_SIZE] = element;
+    }
+  }
+}
@@ -2,14 +2,17 @@ package org.opentripplanner.routing.algorithm.raptor.transit.mappers;
 
 import org.opentripplanner.ext.flex.FlexAccessEgress;
 import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache;
 import org.opentripplanner.routing.algorithm.raptor.transit.AccessEgress;
 import org.opentripplanner.routing.algorithm.raptor.transit.FlexAccessEgressAdapter;
 import org.opentripplanner.routing.algorithm.raptor.transit.StopIndexForRaptor;
+import org.opentripplanner.routing.core.State;
 import org.opentripplanner.routing.graphfinder.NearbyStop;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class AccessEgressMapper {
@@ -29,6 +32,26 @@ public class AccessEgressMapper {
     );
   }
 
+  /**
+   * Map the cached stops. The street search state of each stop is found by the given function
+   * the first time it is used.
+   */
+  public List<AccessEgress> mapCachedStops(
+      Collection<AccessEgressCache.CachedStop> cachedStops,
+      boolean isEgress,
+      Function<AccessEgressCache.CachedStop, State> stateForStop
+  ) {
+    return cachedStops
+        .stream()
+        .filter(it -> it.stop instanceof Stop)
+        .map(it -> new AccessEgress(
+            stopIndex.indexByStop.get(it.stop),
+            it.durationSeconds,
+            () -> isEgress ? stateForStop.apply(it).reverse() : stateForStop.apply(it)
+        ))
+        .collect(Collectors.toList());
+  }
+
   public List<AccessEgress> mapNearbyStops(Collection<NearbyStop> accessStops, boolean isEgress) {
     return accessStops
         .stream()
@@ -3,7 +3,6 @@ package org.opentripplanner.routing.algorithm.raptor.transit.mappers;
 import com.google.common.collect.ArrayListMultimap;
 import org.opentripplanner.model.Timetable;
 import org.opentripplanner.model.TripPattern;
-import org.opentripplanner.model.calendar.ServiceDate;
 import org.opentripplanner.routing.algorithm.raptor.transit.StopIndexForRaptor;
 import org.opentripplanner.routing.algorithm.raptor.transit.Transfer;
 import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
@@ -16,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,6 +34,11 @@ import static org.opentripplanner.routing.algorithm.raptor.transit.mappers.TripP
  * with service days at the top level, which contains TripPatternForDate objects that contain
  * only TripSchedules running on that particular date. This makes it faster to filter out
  * TripSchedules when doing Range Raptor searches.
+ * <p>
+ * If {@link TransitTuningParameters#transitLayerWindowDays()} is set, only the dates in a window
+ * starting yesterday are mapped, the other dates are mapped when searched by a
+ * {@link TripPatternForDateCache}. This keeps the startup time and memory use proportional to
+ * the window, not the length of the service period.
  *
  * CONCURRENCY: This mapper run part of the mapping in parallel using parallel streams. This
  *              improve startup time on the Norwegian graph by 20 seconds; reducing the this
@@ -56,69 +61,104 @@ public class TransitLayerMapper {
 
     private TransitLayer map(TransitTuningParameters tuningParameters) {
         StopIndexForRaptor stopIndex;
+        TripPatternForDateCache tripPatternForDateCache;
         HashMap<LocalDate, List<TripPatternForDate>> tripPatternsByStopByDate;
         List<List<Transfer>> transferByStopIndex;
+        ZoneId zoneId = graph.getTimeZone().toZoneId();
 
         LOG.info("Mapping transitLayer from Graph...");
 
         stopIndex =  new StopIndexForRaptor(graph.index.getAllStops(), tuningParameters);
-        tripPatternsByStopByDate = mapTripPatterns(stopIndex);
+        tripPatternForDateCache = createTripPatternForDateCache(stopIndex);
         transferByStopIndex = mapTransfers(stopIndex, graph.transfersByStop);
 
-        LOG.info("Mapping complete.");
+        if (tuningParameters.transitLayerWindowDays() <= 0) {
+            tripPatternsByStopByDate = mapTripPatterns(
+                tripPatternForDateCache,
+                graph.index.getServiceCodesRunningForDate().keySet()
+                    .stream()
+                    .map(ServiceCalendarMapper::localDateFromServiceDate)
+                    .collect(Collectors.toSet())
+            );
+            LOG.info("Mapping complete.");
+
+            return new TransitLayer(
+                tripPatternsByStopByDate,
+                transferByStopIndex,
+                stopIndex,
+                zoneId
+            );
+        }
+
+        LocalDate today = LocalDate.now(zoneId);
+        LocalDate firstDateInWindow = TransitLayer.firstDateInWindow(today);
+        LocalDate lastDateInWindow = TransitLayer.lastDateInWindow(
+            today,
+            tuningParameters.transitLayerWindowDays()
+        );
+
+        tripPatternsByStopByDate = mapTripPatterns(
+            tripPatternForDateCache,
+            tripPatternForDateCache
+                .firstServiceDateRunningOn(firstDateInWindow)
+                .datesUntil(tripPatternForDateCache.lastServiceDateRunningOn(lastDateInWindow).plusDays(1))
+                .collect(Collectors.toSet())
+        );
+        tripPatternsByStopByDate.keySet().removeIf(
+            date -> date.isBefore(firstDateInWindow) || date.isAfter(lastDateInWindow)
+        );
+        LOG.info("Mapping complete, mapped {} to {}.", firstDateInWindow, lastDateInWindow);
 
         return new TransitLayer(
             tripPatternsByStopByDate,
             transferByStopIndex,
             stopIndex,
-            graph.getTimeZone().toZoneId()
+            zoneId,
+            tripPatternForDateCache::getTripPatternsRunningOnDate,
+            firstDateInWindow,
+            lastDateInWindow
         );
     }
 
     /**
-     * Map pre-Raptor TripPatterns and Trips to the corresponding Raptor classes.
-     * <p>
-     * Part of this method runs IN PARALLEL.
-     * <p>
+     * Map pre-Raptor TripPatterns to the corresponding Raptor classes, and create the cache used
+     * to map their trips for a service date.
      */
-    private HashMap<LocalDate, List<TripPatternForDate>> mapTripPatterns (
-        StopIndexForRaptor stopIndex
-    ) {
+    private TripPatternForDateCache createTripPatternForDateCache(StopIndexForRaptor stopIndex) {
         Collection<TripPattern> allTripPatterns = graph.tripPatternForId.values();
 
         final Map<TripPattern, TripPatternWithRaptorStopIndexes> newTripPatternForOld;
 
         newTripPatternForOld = mapOldTripPatternToRaptorTripPattern(stopIndex, allTripPatterns);
 
-        TripPatternForDateMapper tripPatternForDateMapper = new TripPatternForDateMapper(
+        return new TripPatternForDateCache(
+            allTripPatterns,
             graph.index.getServiceCodesRunningForDate(),
             newTripPatternForOld
         );
+    }
 
-        Set<ServiceDate> allServiceDates = graph.index.getServiceCodesRunningForDate().keySet();
-
+    /**
+     * Map the Trips running on the given service dates to the corresponding Raptor classes.
+     * <p>
+     * Part of this method runs IN PARALLEL.
+     * <p>
+     */
+    private HashMap<LocalDate, List<TripPatternForDate>> mapTripPatterns (
+        TripPatternForDateCache tripPatternForDateCache,
+        Set<LocalDate> serviceDates
+    ) {
         List<TripPatternForDate> tripPatternForDates = Collections.synchronizedList(new ArrayList<>());
 
         // THIS CODE RUNS IN PARALLEL
-        allServiceDates
+        serviceDates
             .parallelStream()
             .forEach(serviceDate -> {
                 // Create a List to hold the values for this iteration. The results are then added
                 // to the common synchronized list at the end.
-                List<TripPatternForDate> values = new ArrayList<>();
-
-                // This nested loop could be quite inefficient.
-                // Maybe determine in advance which patterns are running on each service and day.
-                for (org.opentripplanner.model.TripPattern oldTripPattern : allTripPatterns) {
-                    TripPatternForDate tripPatternForDate =
-                        tripPatternForDateMapper.map(
-                            oldTripPattern.scheduledTimetable,
-                            serviceDate
-                    );
-                    if (tripPatternForDate != null) {
-                        values.add(tripPatternForDate);
-                    }
-                }
+                List<TripPatternForDate> values =
+                    tripPatternForDateCache.mapTripPatternsForServiceDate(serviceDate);
+
                 if (!values.isEmpty()) {
                     tripPatternForDates.addAll(values);
                 }
@@ -7,12 +7,12 @@ import org.opentripplanner.model.calendar.ServiceDate;
 import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternWithRaptorStopIndexes;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternForDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternsRunningOnDate;
 import org.opentripplanner.routing.graph.Graph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -24,7 +24,9 @@ import static org.opentripplanner.routing.algorithm.raptor.transit.mappers.TripP
 /**
  * Update the TransitLayer from a set of TimeTables. A shallow copy is made of the TransitLayer
  * (this also includes a shallow copy of the TripPatternsForDate map). TripPatterns are matched on
- * id and replaced by their updated versions. The realtime TransitLayer is then switched out with
+ * id and replaced by their updated versions. The TripPatternForDates running on each date are
+ * kept in a {@link TripPatternsRunningOnDate}, and a new version sharing all unchanged parts with
+ * the previous version is created for each updated date. The realtime TransitLayer is then switched out with
  * the updated copy in an atomic operation. This ensures that any TransitLayer that is referenced
  * from the Graph is never changed.
  */
@@ -42,7 +44,12 @@ public class TransitLayerUpdater {
    */
   private final Map<LocalDate, Map<TripPattern, TripPatternForDate>> tripPatternsStartingOnDateMapCache = new HashMap<>();
 
-  private final Map<LocalDate, Set<TripPatternForDate>> tripPatternsRunningOnDateMapCache = new HashMap<>();
+  /**
+   * The editors used to create new versions of the TripPatternForDates running on each date. An
+   * editor is created the first time a date is updated, and then reused, so the cost of an update
+   * is proportional to the number of patterns changed, not the number of patterns running.
+   */
+  private final Map<LocalDate, TripPatternsRunningOnDate.Editor> tripPatternsRunningOnDateEditors = new HashMap<>();
 
   public TransitLayerUpdater(
       Graph graph,
@@ -76,10 +83,10 @@ public class TransitLayerUpdater {
     );
 
     Set<LocalDate> datesToBeUpdated = new HashSet<>();
-    Map<TripPattern, TripPatternForDate> newTripPatternsForDate = new HashMap<>();
-    Map<TripPattern, TripPatternForDate> oldTripPatternsForDate = new HashMap<>();
 
-    // Map new TriPatternForDate and index for old and new TripPatternsForDate on service date
+    // Map new TriPatternForDate and replace the old TripPatternForDate on all dates it runs. The
+    // changes are applied in order, so a pattern updated twice in the same batch end up with the
+    // last version.
     for (Timetable timetable : updatedTimetables) {
       @SuppressWarnings("ConstantConditions")
       LocalDate date = ServiceCalendarMapper.localDateFromServiceDate(timetable.serviceDate);
@@ -96,10 +103,23 @@ public class TransitLayerUpdater {
           .get(date)
           .get(timetable.pattern);
 
+      // Remove old TripPatternForDate from all dates it was valid on
       if (oldTripPatternForDate != null) {
         tripPatternsStartingOnDateMapCache.get(date).remove(timetable.pattern, oldTripPatternForDate);
-        oldTripPatternsForDate.put(timetable.pattern, oldTripPatternForDate);
-        datesToBeUpdated.addAll(oldTripPatternForDate.getRunningPeriodDates());
+        for (LocalDate runningDate : oldTripPatternForDate.getRunningPeriodDates()) {
+          boolean removed = editorForDate(realtimeTransitLayer, runningDate)
+              .removeSameTripPatternAndDate(oldTripPatternForDate);
+          if (!removed) {
+            LOG.warn(
+                "The trip pattern {} on service date {} is not found on {}, the date may "
+                    + "contain both the old and the updated trips.",
+                timetable.pattern.getId(),
+                date,
+                runningDate
+            );
+          }
+          datesToBeUpdated.add(runningDate);
+        }
       }
 
       TripPatternForDate newTripPatternForDate = tripPatternForDateMapper.map(
@@ -107,46 +127,23 @@ public class TransitLayerUpdater {
           timetable.serviceDate
       );
 
+      // Add new TripPatternForDate to all dates it is valid on, if it mapped correctly
       if (newTripPatternForDate != null) {
         tripPatternsStartingOnDateMapCache.get(date).put(timetable.pattern, newTripPatternForDate);
-        newTripPatternsForDate.put(timetable.pattern, newTripPatternForDate);
-        datesToBeUpdated.addAll(newTripPatternForDate.getRunningPeriodDates());
+        for (LocalDate runningDate : newTripPatternForDate.getRunningPeriodDates()) {
+          editorForDate(realtimeTransitLayer, runningDate).add(newTripPatternForDate);
+          datesToBeUpdated.add(runningDate);
+        }
       }
     }
 
-    // Now loop through all running period dates of old and new TripPatternsForDate and update
-    // the tripPatternsByRunningPeriodDate accordingly
+    // Publish a new version of the patterns for each date updated. The new versions share all
+    // unchanged parts with the previous versions, so this only copy the parts changed.
     for (LocalDate date : datesToBeUpdated) {
-      tripPatternsRunningOnDateMapCache.computeIfAbsent(date,
-          p -> new HashSet<>(realtimeTransitLayer.getTripPatternsStartingOnDateCopy(date))
+      realtimeTransitLayer.replaceTripPatternsForDate(
+          date,
+          tripPatternsRunningOnDateEditors.get(date).publish()
       );
-
-      Set<TripPatternForDate> patternsForDate = tripPatternsRunningOnDateMapCache.get(date);
-
-      for (Map.Entry<TripPattern, TripPatternForDate> entry : oldTripPatternsForDate.entrySet()) {
-        TripPattern tripPattern = entry.getKey();
-        TripPatternForDate oldTripPatternForDate = oldTripPatternsForDate.get(tripPattern);
-
-        // Remove old TripPatternForDate for this date if it was valid on this date
-        if (oldTripPatternForDate != null) {
-          if (oldTripPatternForDate.getRunningPeriodDates().contains(date)) {
-            patternsForDate.remove(oldTripPatternForDate);
-          }
-        }
-      }
-
-      for (Map.Entry<TripPattern, TripPatternForDate> entry : newTripPatternsForDate.entrySet()) {
-        TripPatternForDate newTripPatternForDate = entry.getValue();
-
-        // Add new TripPatternForDate for this date if it mapped correctly and is valid on this date
-        if (newTripPatternForDate != null) {
-          if (newTripPatternForDate.getRunningPeriodDates().contains(date)) {
-            patternsForDate.add(newTripPatternForDate);
-          }
-        }
-      }
-
-      realtimeTransitLayer.replaceTripPatternsForDate(date, new ArrayList<>(patternsForDate));
     }
 
     // Switch out the reference with the updated realtimeTransitLayer. This is synchronized to
@@ -159,4 +156,24 @@ public class TransitLayerUpdater {
         System.currentTimeMillis() - startTime
     );
   }
+
+  /**
+   * Drop the cached patterns and editors for the dates before the given date. This is called when
+   * the window of the transit layers is moved, since the transit layers drop the dates before the
+   * window, see {@link TransitLayer#withWindow(LocalDate, LocalDate)}. Without this the caches
+   * would grow with one date every day. This must not be called while an update is in progress.
+   */
+  public void removeDatesBefore(LocalDate firstDateInWindow) {
+    tripPatternsStartingOnDateMapCache.keySet().removeIf(d -> d.isBefore(firstDateInWindow));
+    tripPatternsRunningOnDateEditors.keySet().removeIf(d -> d.isBefore(firstDateInWindow));
+  }
+
+  private TripPatternsRunningOnDate.Editor editorForDate(TransitLayer transitLayer, LocalDate date) {
+    return tripPatternsRunningOnDateEditors.computeIfAbsent(
+        date,
+        d -> new TripPatternsRunningOnDate.Editor(
+            TripPatternsRunningOnDate.of(transitLayer.getTripPatternsForDate(d))
+        )
+    );
+  }
 }
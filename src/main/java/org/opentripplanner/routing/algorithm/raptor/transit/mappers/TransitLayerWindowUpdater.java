@@ -0,0 +1,121 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.mappers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
+import org.opentripplanner.routing.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move the window of dates mapped in the transit layers of the graph forward every night, see
+ * {@link org.opentripplanner.routing.algorithm.raptor.transit.TransitTuningParameters#transitLayerWindowDays()}.
+ * The task runs just after midnight in the time zone of the transit data, and replaces the
+ * scheduled and realtime transit layers with copies where the window starts yesterday.
+ * <p>
+ * The realtime transit layer is replaced by a graph writer runnable if the graph has realtime
+ * updaters, so it is never replaced while the {@link TransitLayerUpdater} is updating it. The
+ * caches of the TransitLayerUpdater for the dates before the window are dropped at the same time.
+ */
+public class TransitLayerWindowUpdater {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TransitLayerWindowUpdater.class);
+
+  /** Wait a little after midnight, so the date has changed also if the clock is a bit off. */
+  private static final Duration DELAY_AFTER_MIDNIGHT = Duration.ofMinutes(1);
+
+  private final Graph graph;
+
+  private final int windowDays;
+
+  private final ZoneId zoneId;
+
+  private ScheduledExecutorService scheduler;
+
+  public TransitLayerWindowUpdater(Graph graph, int windowDays) {
+    this.graph = graph;
+    this.windowDays = windowDays;
+    this.zoneId = graph.getTimeZone().toZoneId();
+  }
+
+  public void start() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("TransitLayerWindow-%d").setDaemon(true).build()
+    );
+    scheduleNext();
+  }
+
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Move the window of the transit layers to start the day before the given date.
+   */
+  void moveWindow(LocalDate today) {
+    long startTime = System.currentTimeMillis();
+    LocalDate first = TransitLayer.firstDateInWindow(today);
+    LocalDate last = TransitLayer.lastDateInWindow(today, windowDays);
+
+    graph.setTransitLayer(graph.getTransitLayer().withWindow(first, last));
+
+    if (graph.updaterManager != null) {
+      graph.updaterManager.execute(g -> moveRealtimeWindow(g, first, last));
+    }
+    else if (graph.hasRealtimeTransitLayer()) {
+      moveRealtimeWindow(graph, first, last);
+    }
+
+    LOG.info(
+        "Moved transit layer window to {} - {} in {} ms",
+        first,
+        last,
+        System.currentTimeMillis() - startTime
+    );
+  }
+
+  /**
+   * Move the window of the realtime transit layer, and drop the realtime updater caches for the
+   * dates before the window.
+   */
+  private static void moveRealtimeWindow(Graph graph, LocalDate first, LocalDate last) {
+    graph.setRealtimeTransitLayer(graph.getRealtimeTransitLayer().withWindow(first, last));
+    if (graph.transitLayerUpdater != null) {
+      graph.transitLayerUpdater.removeDatesBefore(first);
+    }
+  }
+
+  private void scheduleNext() {
+    ZonedDateTime now = ZonedDateTime.now(zoneId);
+    ZonedDateTime next = now.toLocalDate().plusDays(1).atStartOfDay(zoneId).plus(DELAY_AFTER_MIDNIGHT);
+
+    scheduler.schedule(
+        this::run,
+        Duration.between(now, next).toMillis(),
+        TimeUnit.MILLISECONDS
+    );
+  }
+
+  private void run() {
+    try {
+      moveWindow(LocalDate.now(zoneId));
+    }
+    catch (Exception e) {
+      LOG.error("Failed to move the transit layer window", e);
+    }
+    finally {
+      if (!scheduler.isShutdown()) {
+        scheduleNext();
+      }
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.mappers;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternForDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternWithRaptorStopIndexes;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map the {@link TripPatternForDate}s of the dates outside the window of a
+ * {@link org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer} when they are
+ * searched. The patterns are mapped for one service date at a time, and the service dates mapped
+ * are kept in a small cache, the least recently used service dates are evicted first.
+ * <p>
+ * A trip may run past midnight, and a trip with negative times may start on the day before its
+ * service date, so the patterns running on a date are found by mapping all the service dates
+ * with trips that may run on it. The number of days a trip may run before and after its
+ * service date is found from the scheduled timetables.
+ * <p>
+ * The patterns using each service code are indexed up front, so mapping a service date only visits
+ * the patterns with trips running on that date, not all patterns.
+ * <p>
+ * This class is THREAD SAFE.
+ */
+public class TripPatternForDateCache {
+
+    /** The maximum number of service dates to keep in the cache. */
+    private static final int MAX_CACHED_SERVICE_DATES = 14;
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /** The patterns with at least one scheduled trip using each service code. */
+    private final TIntObjectMap<List<TripPattern>> tripPatternsByServiceCode = new TIntObjectHashMap<>();
+
+    private final Map<ServiceDate, TIntSet> serviceCodesRunningForDate;
+
+    private final TripPatternForDateMapper tripPatternForDateMapper;
+
+    /** The number of days before its service date a trip may start running. */
+    private final int maxDaysBeforeServiceDate;
+
+    /** The number of days after its service date a trip may still be running. */
+    private final int maxDaysAfterServiceDate;
+
+    private final LoadingCache<LocalDate, List<TripPatternForDate>> tripPatternsByServiceDate;
+
+    /**
+     * @param tripPatterns               - READ ONLY
+     * @param serviceCodesRunningForDate - READ ONLY
+     * @param newTripPatternForOld       - READ ONLY
+     */
+    TripPatternForDateCache(
+            Collection<TripPattern> tripPatterns,
+            Map<ServiceDate, TIntSet> serviceCodesRunningForDate,
+            Map<TripPattern, TripPatternWithRaptorStopIndexes> newTripPatternForOld
+    ) {
+        this.serviceCodesRunningForDate = serviceCodesRunningForDate;
+        this.tripPatternForDateMapper = new TripPatternForDateMapper(
+                serviceCodesRunningForDate,
+                newTripPatternForOld
+        );
+
+        int firstDay = 0;
+        int lastDay = 0;
+        for (TripPattern tripPattern : tripPatterns) {
+            for (TripTimes tripTimes : tripPattern.scheduledTimetable.tripTimes) {
+                List<TripPattern> patternsForServiceCode = tripPatternsByServiceCode.get(tripTimes.serviceCode);
+                if (patternsForServiceCode == null) {
+                    patternsForServiceCode = new ArrayList<>();
+                    tripPatternsByServiceCode.put(tripTimes.serviceCode, patternsForServiceCode);
+                }
+                // The trips of a pattern are mostly grouped by service, so this avoids most duplicates
+                if (patternsForServiceCode.isEmpty()
+                        || patternsForServiceCode.get(patternsForServiceCode.size() - 1) != tripPattern
+                ) {
+                    patternsForServiceCode.add(tripPattern);
+                }
+                firstDay = Math.min(
+                        firstDay,
+                        Math.floorDiv(tripTimes.getDepartureTime(0), SECONDS_PER_DAY)
+                );
+                lastDay = Math.max(
+                        lastDay,
+                        Math.floorDiv(tripTimes.getArrivalTime(tripTimes.getNumStops() - 1), SECONDS_PER_DAY)
+                );
+            }
+        }
+        this.maxDaysBeforeServiceDate = -firstDay;
+        this.maxDaysAfterServiceDate = lastDay;
+
+        this.tripPatternsByServiceDate = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_SERVICE_DATES)
+                .build(CacheLoader.from(this::mapTripPatternsForServiceDate));
+    }
+
+    /**
+     * Map the patterns of all trips running on the given service date, without caching them.
+     * <p>
+     * This method is THREAD SAFE.
+     */
+    List<TripPatternForDate> mapTripPatternsForServiceDate(LocalDate date) {
+        List<TripPatternForDate> values = new ArrayList<>();
+        ServiceDate serviceDate = new ServiceDate(date);
+        TIntSet serviceCodesRunning = serviceCodesRunningForDate.get(serviceDate);
+
+        if (serviceCodesRunning == null) {
+            return values;
+        }
+
+        // Find the patterns with at least one trip running on the date
+        Set<TripPattern> tripPatternsRunning = new LinkedHashSet<>();
+        serviceCodesRunning.forEach(serviceCode -> {
+            List<TripPattern> patternsForServiceCode = tripPatternsByServiceCode.get(serviceCode);
+            if (patternsForServiceCode != null) {
+                tripPatternsRunning.addAll(patternsForServiceCode);
+            }
+            return true;
+        });
+
+        for (TripPattern tripPattern : tripPatternsRunning) {
+            TripPatternForDate tripPatternForDate = tripPatternForDateMapper.map(
+                    tripPattern.scheduledTimetable,
+                    serviceDate
+            );
+            if (tripPatternForDate != null) {
+                values.add(tripPatternForDate);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The first service date with trips that may run on the given date.
+     */
+    LocalDate firstServiceDateRunningOn(LocalDate date) {
+        return date.minusDays(maxDaysAfterServiceDate);
+    }
+
+    /**
+     * The last service date with trips that may run on the given date.
+     */
+    LocalDate lastServiceDateRunningOn(LocalDate date) {
+        return date.plusDays(maxDaysBeforeServiceDate);
+    }
+
+    /**
+     * Get the patterns running on the given date, mapping the service dates not in the cache.
+     * <p>
+     * This method is THREAD SAFE.
+     */
+    public Collection<TripPatternForDate> getTripPatternsRunningOnDate(LocalDate date) {
+        List<TripPatternForDate> result = new ArrayList<>();
+        LocalDate end = lastServiceDateRunningOn(date).plusDays(1);
+
+        for (LocalDate serviceDate = firstServiceDateRunningOn(date);
+             serviceDate.isBefore(end);
+             serviceDate = serviceDate.plusDays(1)
+        ) {
+            for (TripPatternForDate tripPatternForDate : tripPatternsByServiceDate.getUnchecked(serviceDate)) {
+                if (tripPatternForDate.getRunningPeriodDates().contains(date)) {
+                    result.add(tripPatternForDate);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import java.util.BitSet;
+
+
+/**
+ * The patterns in a shared {@link TripPatternForDatesIndex} allowed in a request. The patterns
+ * are masked with a bit set over the pattern index, so the index itself is never copied. Only
+ * the patterns with some of their trips filtered away get a filtered view, all other patterns
+ * are shared with the index.
+ * <p>
+ * THIS CLASS IS IMMUTABLE AND THREAD SAFE.
+ */
+class ActiveTripPatterns {
+
+  private final TripPatternForDatesIndex index;
+
+  /** The index of all patterns with at least one trip allowed in the request. */
+  private final BitSet active;
+
+  /**
+   * The patterns with some of their trips filtered away, by pattern index. This is {@code null}
+   * if no trips are filtered away, and the other elements are {@code null}.
+   */
+  private final TripPatternForDates[] tripFiltered;
+
+  private ActiveTripPatterns(
+      TripPatternForDatesIndex index,
+      BitSet active,
+      TripPatternForDates[] tripFiltered
+  ) {
+    this.index = index;
+    this.active = active;
+    this.tripFiltered = tripFiltered;
+  }
+
+  /**
+   * Mask the patterns in the given index with the request filter.
+   */
+  static ActiveTripPatterns create(TripPatternForDatesIndex index, TransitDataProviderFilter filter) {
+    int numberOfPatterns = index.numberOfPatterns();
+    BitSet active = new BitSet(numberOfPatterns);
+    TripPatternForDates[] tripFiltered = null;
+
+    for (int i = 0; i < numberOfPatterns; ++i) {
+      TripPatternForDates pattern = index.getPattern(i);
+      TripPatternForDates filtered = pattern.newWithFilter(filter);
+
+      if (filtered == null) { continue; }
+
+      active.set(i);
+      if (filtered != pattern) {
+        if (tripFiltered == null) {
+          tripFiltered = new TripPatternForDates[numberOfPatterns];
+        }
+        tripFiltered[i] = filtered;
+      }
+    }
+    return new ActiveTripPatterns(index, active, tripFiltered);
+  }
+
+  boolean isActive(int patternIndex) {
+    return active.get(patternIndex);
+  }
+
+  /**
+   * The pattern with the given index, filtered for the request. The pattern must be active.
+   */
+  TripPatternForDates get(int patternIndex) {
+    if (tripFiltered != null && tripFiltered[patternIndex] != null) {
+      return tripFiltered[patternIndex];
+    }
+    return index.getPattern(patternIndex);
+  }
+
+  /**
+   * Clear the patterns in the given set which are not active.
+   */
+  void retainActive(BitSet patternIndexes) {
+    patternIndexes.and(active);
+  }
+}
@@ -9,10 +9,10 @@ import org.opentripplanner.transit.raptor.api.transit.RaptorTransitDataProvider;
 
 import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.NoSuchElementException;
 
 
 /**
@@ -25,9 +25,20 @@ public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvide
   private final TransitLayer transitLayer;
 
   /**
-   * Active trip patterns by stop index
+   * Shared index of all trip patterns running in the search date range, by stop index
    */
-  private final List<List<TripPatternForDates>> activeTripPatternsPerStop;
+  private final TripPatternForDatesIndex tripPatternIndex;
+
+  /**
+   * The trip patterns in the {@link #tripPatternIndex} filtered for this request.
+   */
+  private final ActiveTripPatterns activeTripPatterns;
+
+  /**
+   * Reusable set of patterns marked in {@link #routeIterator(IntIterator)}, by pattern index.
+   * Each search get its own instance of this class, see {@link #forSearch()}.
+   */
+  private final BitSet markedPatterns = new BitSet();
 
   /**
    * Transfers by stop index
@@ -54,13 +65,30 @@ public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvide
 
     this.transitLayer = transitLayer;
     this.startOfTime = creator.getSearchStartTime();
-    this.activeTripPatternsPerStop = creator.createTripPatternsPerStop(
-        additionalFutureSearchDays,
+    this.tripPatternIndex = creator.getTripPatternForDatesIndex(additionalFutureSearchDays);
+    this.activeTripPatterns = RaptorRoutingRequestTransitDataCreator.filterActiveTripPatterns(
+        tripPatternIndex,
         filter
     );
     this.transfers = creator.calculateTransferDuration(walkSpeed);
   }
 
+  /**
+   * Create a new instance for a single search, sharing all data except the marked patterns.
+   */
+  private RaptorRoutingRequestTransitData(RaptorRoutingRequestTransitData original) {
+    this.transitLayer = original.transitLayer;
+    this.startOfTime = original.startOfTime;
+    this.tripPatternIndex = original.tripPatternIndex;
+    this.activeTripPatterns = original.activeTripPatterns;
+    this.transfers = original.transfers;
+  }
+
+  @Override
+  public RaptorTransitDataProvider<TripSchedule> forSearch() {
+    return new RaptorRoutingRequestTransitData(this);
+  }
+
   /**
    * Gets all the transfers starting at a given stop
    */
@@ -70,15 +98,22 @@ public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvide
   }
 
   /**
-   * Gets all the unique trip patterns touching a set of stops
+   * Gets all the unique trip patterns touching a set of stops. The patterns are returned in
+   * pattern index order, so the order is the same for every search.
+   * <p>
+   * The returned iterator reuses state and must be consumed before this method is called again.
    */
   @Override
   public Iterator<? extends RaptorRoute<TripSchedule>> routeIterator(IntIterator stops) {
-    Set<RaptorRoute<TripSchedule>> activeTripPatternsForGivenStops = new HashSet<>();
+    markedPatterns.clear();
+
     while (stops.hasNext()) {
-      activeTripPatternsForGivenStops.addAll(activeTripPatternsPerStop.get(stops.next()));
+      for (int patternIndex : tripPatternIndex.patternIndexesForStop(stops.next())) {
+        markedPatterns.set(patternIndex);
+      }
     }
-    return activeTripPatternsForGivenStops.iterator();
+    activeTripPatterns.retainActive(markedPatterns);
+    return new MarkedPatternIterator(markedPatterns);
   }
 
   @Override
@@ -94,4 +129,30 @@ public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvide
   public ZonedDateTime getStartOfTime() {
     return startOfTime;
   }
+
+  /**
+   * Iterate over the active patterns marked in the given set, in pattern index order.
+   */
+  private class MarkedPatternIterator implements Iterator<TripPatternForDates> {
+    private final BitSet marked;
+    private int nextIndex;
+
+    private MarkedPatternIterator(BitSet marked) {
+      this.marked = marked;
+      this.nextIndex = marked.nextSetBit(0);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextIndex != -1;
+    }
+
+    @Override
+    public TripPatternForDates next() {
+      if (nextIndex == -1) { throw new NoSuchElementException(); }
+      TripPatternForDates pattern = activeTripPatterns.get(nextIndex);
+      nextIndex = marked.nextSetBit(nextIndex + 1);
+      return pattern;
+    }
+  }
 }
@@ -13,9 +13,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
@@ -45,40 +43,24 @@ class RaptorRoutingRequestTransitDataCreator {
     return searchStartTime;
   }
 
-  List<List<TripPatternForDates>> createTripPatternsPerStop(
-      int additionalFutureSearchDays,
-      TransitDataProviderFilter filter
-  ) {
-
-    List<TripPatternForDate> tripPatternForDates = getTripPatternsForDateRange(
-        additionalFutureSearchDays,
-        filter
-    );
-
-    List<TripPatternForDates> tripPatternForDateList = merge(searchStartTime, tripPatternForDates);
-
-    return createTripPatternsPerStop(tripPatternForDateList, transitLayer.getStopCount());
+  /**
+   * Get the shared, unfiltered index of all patterns running in the search date range from
+   * the TransitLayer. The index is created the first time it is requested.
+   */
+  TripPatternForDatesIndex getTripPatternForDatesIndex(int additionalFutureSearchDays) {
+    return transitLayer.getTripPatternForDatesIndex(departureDate, additionalFutureSearchDays);
   }
 
-  private List<TripPatternForDate> getTripPatternsForDateRange(
-      int additionalFutureSearchDays,
+  /**
+   * Mask the patterns in the given index with the request filter. The index is shared, only the
+   * patterns with some of their trips filtered away get a filtered view. The result is cached in
+   * the index for filters with a {@link TransitDataProviderFilter#cacheKey()}.
+   */
+  static ActiveTripPatterns filterActiveTripPatterns(
+      TripPatternForDatesIndex index,
       TransitDataProviderFilter filter
   ) {
-    List<TripPatternForDate> tripPatternForDates = new ArrayList<>();
-
-    // This filters trips by the search date as well as additional dates before and after
-    for (int d = 0; d <= additionalFutureSearchDays; ++d) {
-      tripPatternForDates.addAll(
-        filterActiveTripPatterns(
-          transitLayer,
-          departureDate.plusDays(d),
-          d == 0,
-          filter
-        )
-      );
-    }
-
-    return tripPatternForDates;
+    return index.activeTripPatterns(filter);
   }
 
   /**
@@ -123,43 +105,6 @@ class RaptorRoutingRequestTransitDataCreator {
     return combinedList;
   }
 
-  private static List<List<TripPatternForDates>> createTripPatternsPerStop(
-      List<TripPatternForDates> tripPatternsForDate, int numberOfStops
-  ) {
-    List<List<TripPatternForDates>> result = Stream
-        .generate(ArrayList<TripPatternForDates>::new)
-        .limit(numberOfStops)
-        .collect(Collectors.toList());
-
-    for (TripPatternForDates tripPatternForDateList : tripPatternsForDate) {
-      for (int i : tripPatternForDateList.getTripPattern().getStopIndexes()) {
-        result.get(i).add(tripPatternForDateList);
-      }
-    }
-    return result;
-  }
-
-  private static List<TripPatternForDate> filterActiveTripPatterns(
-      TransitLayer transitLayer,
-      LocalDate date,
-      boolean firstDay,
-      TransitDataProviderFilter filter
-  ) {
-
-    // On the first search day we want to add both TripPatternsForDate objects that start that day
-    // and any previous day, while on subsequent search days we only want to add the
-    // TripPatternForDate objects that start on that particular day. This is to prevent duplicates.
-
-    return transitLayer
-        .getTripPatternsForDate(date)
-        .stream()
-        .filter(filter::tripPatternPredicate)
-        .filter(p -> firstDay || p.getStartOfRunningPeriod().toLocalDate().equals(date))
-        .map(p -> p.newWithFilteredTripTimes(filter::tripTimesPredicate))
-        .filter(Objects::nonNull)
-        .collect(Collectors.toList());
-  }
-
   List<List<RaptorTransfer>> calculateTransferDuration(double walkSpeed) {
     return transitLayer
         .getTransferByStopIndex()
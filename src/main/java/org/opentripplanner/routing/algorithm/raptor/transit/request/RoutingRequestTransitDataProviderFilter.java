@@ -9,6 +9,7 @@ import org.opentripplanner.routing.api.request.StreetMode;
 import org.opentripplanner.routing.trippattern.TripTimes;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 public class RoutingRequestTransitDataProviderFilter implements TransitDataProviderFilter {
@@ -71,6 +72,17 @@ public class RoutingRequestTransitDataProviderFilter implements TransitDataProvi
     return true;
   }
 
+  @Override
+  public Object cacheKey() {
+    return List.of(
+        requireBikesAllowed,
+        requireWheelchairAccessible,
+        includePlannedCancellations,
+        transitModes,
+        Set.copyOf(bannedRoutes)
+    );
+  }
+
   private boolean routeIsNotBanned(TripPatternForDate tripPatternForDate) {
     FeedScopedId routeId = tripPatternForDate.getTripPattern().getPattern().route.getId();
     return !bannedRoutes.contains(routeId);
@@ -18,4 +18,13 @@ public interface TransitDataProviderFilter {
   boolean tripPatternPredicate(TripPatternForDate tripPatternForDate);
 
   boolean tripTimesPredicate(TripTimes tripTimes);
+
+  /**
+   * A key identifying the patterns and trips accepted by this filter. The patterns active for a
+   * filter are cached by this key, so two filters with equal keys must accept the same patterns
+   * and trips. Return {@code null}, the default, if the result should not be cached.
+   */
+  default Object cacheKey() {
+    return null;
+  }
 }
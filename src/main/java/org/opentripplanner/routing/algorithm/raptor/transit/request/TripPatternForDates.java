@@ -7,6 +7,7 @@ import org.opentripplanner.transit.raptor.api.transit.RaptorRoute;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTimeTable;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripPattern;
 
+import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.List;
 
@@ -25,17 +26,96 @@ public class TripPatternForDates implements RaptorRoute<TripSchedule>,
 
     private final int numberOfTripSchedules;
 
+    /**
+     * The index in {@link #tripPatternForDates} of the day of each trip. The trips are sorted by
+     * day, and then in the order of the day.
+     */
+    private final int[] tripDay;
+
+    /**
+     * The index of each trip in the {@link TripPatternForDate} of its day. The times are looked up
+     * in the TripPatternForDate, so the times are NOT copied into this class. This allows the
+     * same times to be shared by all date ranges and requests.
+     */
+    private final int[] tripIndexInDay;
+
     TripPatternForDates(TripPatternWithRaptorStopIndexes tripPattern, List<TripPatternForDate> tripPatternForDates, List<Integer> offsets) {
         this.tripPattern = tripPattern;
         this.tripPatternForDates = tripPatternForDates.toArray(new TripPatternForDate[]{});
         this.offsets = offsets.stream().mapToInt(i -> i).toArray();
         this.numberOfTripSchedules = Arrays.stream(this.tripPatternForDates).mapToInt(TripPatternForDate::numberOfTripSchedules).sum();
+        this.tripDay = new int[numberOfTripSchedules];
+        this.tripIndexInDay = new int[numberOfTripSchedules];
+
+        int tripIndex = 0;
+        for (int d = 0; d < this.tripPatternForDates.length; d++) {
+            for (int t = 0; t < this.tripPatternForDates[d].numberOfTripSchedules(); t++, tripIndex++) {
+                tripDay[tripIndex] = d;
+                tripIndexInDay[tripIndex] = t;
+            }
+        }
+    }
+
+    /** Create a view of the given pattern including only the given trips. */
+    private TripPatternForDates(TripPatternForDates original, int[] tripDay, int[] tripIndexInDay) {
+        this.tripPattern = original.tripPattern;
+        this.tripPatternForDates = original.tripPatternForDates;
+        this.offsets = original.offsets;
+        this.numberOfTripSchedules = tripDay.length;
+        this.tripDay = tripDay;
+        this.tripIndexInDay = tripIndexInDay;
     }
 
     public TripPatternWithRaptorStopIndexes getTripPattern() {
         return tripPattern;
     }
 
+    /**
+     * Apply the given filter to the trips of this pattern. Days rejected by the
+     * {@link TransitDataProviderFilter#tripPatternPredicate(TripPatternForDate)} are removed. The
+     * trip times are NOT copied, the returned pattern is a view of this pattern.
+     *
+     * @return this instance if nothing is filtered away, or {@code null} if no trips remain.
+     */
+    @Nullable
+    TripPatternForDates newWithFilter(TransitDataProviderFilter filter) {
+        boolean[] dayAccepted = new boolean[tripPatternForDates.length];
+        for (int d = 0; d < tripPatternForDates.length; d++) {
+            dayAccepted[d] = filter.tripPatternPredicate(tripPatternForDates[d]);
+        }
+
+        int[] keptTripDay = null;
+        int[] keptTripIndexInDay = null;
+        int size = 0;
+
+        for (int i = 0; i < numberOfTripSchedules; i++) {
+            int d = tripDay[i];
+            boolean accepted = dayAccepted[d]
+                && filter.tripTimesPredicate(tripPatternForDates[d].getTripTimes(tripIndexInDay[i]));
+
+            // Only create a view if something is filtered away
+            if (!accepted && keptTripDay == null) {
+                keptTripDay = Arrays.copyOf(tripDay, numberOfTripSchedules);
+                keptTripIndexInDay = Arrays.copyOf(tripIndexInDay, numberOfTripSchedules);
+                size = i;
+            }
+            if (accepted && keptTripDay != null) {
+                keptTripDay[size] = d;
+                keptTripIndexInDay[size] = tripIndexInDay[i];
+                ++size;
+            }
+        }
+
+        if (keptTripDay == null) { return this; }
+        if (size == 0) { return null; }
+
+        return new TripPatternForDates(
+            this,
+            Arrays.copyOf(keptTripDay, size),
+            Arrays.copyOf(keptTripIndexInDay, size)
+        );
+    }
+
 
     // Implementing RaptorRoute
     @Override
@@ -76,16 +156,23 @@ public class TripPatternForDates implements RaptorRoute<TripSchedule>,
     // Implementing RaptorTimeTable
 
     @Override public TripSchedule getTripSchedule(int index) {
-        for (int i = 0; i < tripPatternForDates.length; i++) {
-            TripPatternForDate tripPatternForDate = tripPatternForDates[i];
-
-            if (index < tripPatternForDate.numberOfTripSchedules()) {
-                return new TripScheduleWithOffset(this, tripPatternForDate.getLocalDate(),
-                        tripPatternForDate.getTripTimes(index), offsets[i]);
-            }
-            index -= tripPatternForDate.numberOfTripSchedules();
+        if (index < 0 || index >= numberOfTripSchedules) {
+            throw new IndexOutOfBoundsException("Index out of bound: " + index);
         }
-        throw new IndexOutOfBoundsException("Index out of bound: " + index);
+        int d = tripDay[index];
+        TripPatternForDate tripPatternForDate = tripPatternForDates[d];
+        return new TripScheduleWithOffset(this, tripPatternForDate.getLocalDate(),
+                tripPatternForDate.getTripTimes(tripIndexInDay[index]), offsets[d]);
+    }
+
+    @Override public int departure(int tripIndex, int stopPosInPattern) {
+        int d = tripDay[tripIndex];
+        return tripPatternForDates[d].departure(tripIndexInDay[tripIndex], stopPosInPattern) + offsets[d];
+    }
+
+    @Override public int arrival(int tripIndex, int stopPosInPattern) {
+        int d = tripDay[tripIndex];
+        return tripPatternForDates[d].arrival(tripIndexInDay[tripIndex], stopPosInPattern) + offsets[d];
     }
 
     @Override public int numberOfTripSchedules() {
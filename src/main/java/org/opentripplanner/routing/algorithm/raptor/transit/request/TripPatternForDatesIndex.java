@@ -0,0 +1,197 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternForDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.mappers.DateMapper;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * An immutable index of all {@link TripPatternForDates} running in a range of consecutive
+ * service days, starting on a given departure date. The patterns are indexed by stop, so the
+ * patterns visiting a stop can be looked up without scanning the whole network.
+ * <p>
+ * The index is NOT filtered on any request parameters. It is created once for each
+ * {@link TransitLayer} and date range, and then shared between all requests searching that
+ * date range. Request specific filtering (modes, banned routes, wheelchair and so on) is done
+ * by masking the patterns in this index, see {@link RaptorRoutingRequestTransitDataCreator}.
+ * <p>
+ * THIS CLASS IS IMMUTABLE AND THREAD SAFE.
+ */
+public class TripPatternForDatesIndex {
+
+  /**
+   * The maximum number of request filters to cache the active patterns for. Most requests use
+   * one of a few combinations of modes and accessibility, while banned routes vary a lot.
+   */
+  private static final int MAX_CACHED_FILTERS = 16;
+
+  private final LocalDate departureDate;
+
+  private final int additionalFutureSearchDays;
+
+  private final ZonedDateTime searchStartTime;
+
+  /**
+   * All patterns running in the date range, sorted by pattern id. The position in this array is
+   * the dense pattern index used in {@link #patternIndexesByStop} and for marking patterns
+   * during the search.
+   */
+  private final TripPatternForDates[] patterns;
+
+  /**
+   * Index of outer array is the stop index, inner array contains the index of all patterns
+   * visiting the stop.
+   */
+  private final int[][] patternIndexesByStop;
+
+  /** The active patterns by {@link TransitDataProviderFilter#cacheKey()}. */
+  private final ConcurrentHashMap<Object, ActiveTripPatterns> activeTripPatternsByFilter =
+      new ConcurrentHashMap<>();
+
+  private TripPatternForDatesIndex(
+      LocalDate departureDate,
+      int additionalFutureSearchDays,
+      ZonedDateTime searchStartTime,
+      List<TripPatternForDates> patterns,
+      int numberOfStops
+  ) {
+    this.departureDate = departureDate;
+    this.additionalFutureSearchDays = additionalFutureSearchDays;
+    this.searchStartTime = searchStartTime;
+    this.patterns = patterns.toArray(new TripPatternForDates[0]);
+    this.patternIndexesByStop = indexPatternsByStop(this.patterns, numberOfStops);
+  }
+
+  /**
+   * Create a new index of all patterns running on the given departure date and the
+   * {@code additionalFutureSearchDays} following it.
+   */
+  public static TripPatternForDatesIndex create(
+      TransitLayer transitLayer,
+      LocalDate departureDate,
+      int additionalFutureSearchDays
+  ) {
+    ZonedDateTime searchStartTime = DateMapper.asStartOfService(
+        departureDate,
+        transitLayer.getTransitDataZoneId()
+    );
+    List<TripPatternForDate> tripPatternForDates = new ArrayList<>();
+
+    // On the first search day we want to add both TripPatternsForDate objects that start that day
+    // and any previous day, while on subsequent search days we only want to add the
+    // TripPatternForDate objects that start on that particular day. This is to prevent duplicates.
+    for (int d = 0; d <= additionalFutureSearchDays; ++d) {
+      LocalDate date = departureDate.plusDays(d);
+      for (TripPatternForDate p : transitLayer.getTripPatternsForDate(date)) {
+        if (d == 0 || p.getStartOfRunningPeriod().toLocalDate().equals(date)) {
+          tripPatternForDates.add(p);
+        }
+      }
+    }
+
+    List<TripPatternForDates> patterns = RaptorRoutingRequestTransitDataCreator.merge(
+        searchStartTime,
+        tripPatternForDates
+    );
+
+    // Sort the patterns to give them a stable index, this makes the order the patterns are
+    // visited in Raptor, and hence the Raptor results, reproducible.
+    patterns.sort(Comparator.comparing(p -> p.getTripPattern().getId()));
+
+    return new TripPatternForDatesIndex(
+        departureDate,
+        additionalFutureSearchDays,
+        searchStartTime,
+        patterns,
+        transitLayer.getStopCount()
+    );
+  }
+
+  public LocalDate getDepartureDate() {
+    return departureDate;
+  }
+
+  public int getAdditionalFutureSearchDays() {
+    return additionalFutureSearchDays;
+  }
+
+  /**
+   * Return {@code true} if the patterns running on the given date is part of this index. If the
+   * patterns for the date change, this index must be discarded.
+   */
+  public boolean includesDate(LocalDate date) {
+    return !date.isBefore(departureDate)
+        && !date.isAfter(departureDate.plusDays(additionalFutureSearchDays));
+  }
+
+  ZonedDateTime getSearchStartTime() {
+    return searchStartTime;
+  }
+
+  int numberOfPatterns() {
+    return patterns.length;
+  }
+
+  TripPatternForDates getPattern(int patternIndex) {
+    return patterns[patternIndex];
+  }
+
+  /**
+   * The patterns in this index allowed by the given filter. Filtering walks all trips of all
+   * patterns, so the result is cached by the filter key, and only the first request with a
+   * given filter pays for it.
+   */
+  ActiveTripPatterns activeTripPatterns(TransitDataProviderFilter filter) {
+    Object key = filter.cacheKey();
+    if (key == null) {
+      return ActiveTripPatterns.create(this, filter);
+    }
+    ActiveTripPatterns result = activeTripPatternsByFilter.get(key);
+    if (result != null) {
+      return result;
+    }
+    result = ActiveTripPatterns.create(this, filter);
+    // Stop caching when full, the common filters are usually among the first
+    if (activeTripPatternsByFilter.size() < MAX_CACHED_FILTERS) {
+      activeTripPatternsByFilter.putIfAbsent(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * The index of all patterns visiting the given stop. The returned array must not be modified.
+   */
+  int[] patternIndexesForStop(int stopIndex) {
+    return patternIndexesByStop[stopIndex];
+  }
+
+  private static int[][] indexPatternsByStop(TripPatternForDates[] patterns, int numberOfStops) {
+    int[] size = new int[numberOfStops];
+
+    for (TripPatternForDates pattern : patterns) {
+      for (int stopIndex : pattern.getTripPattern().getStopIndexes()) {
+        ++size[stopIndex];
+      }
+    }
+
+    int[][] result = new int[numberOfStops][];
+    for (int i = 0; i < numberOfStops; ++i) {
+      result[i] = new int[size[i]];
+      size[i] = 0;
+    }
+
+    for (int p = 0; p < patterns.length; ++p) {
+      for (int stopIndex : patterns[p].getTripPattern().getStopIndexes()) {
+        result[stopIndex][size[stopIndex]++] = p;
+      }
+    }
+    return result;
+  }
+}
@@ -593,6 +593,15 @@ public class RoutingRequest implements Cloneable, Serializable {
      */
     public boolean disableRemainingWeightHeuristic = false;
 
+    /**
+     * If true, a street search between one origin and one destination is done as a bidirectional
+     * A* search, from both ends at the same time. This settles fewer vertices on long walk and bike
+     * trips. The search falls back to the normal A* search for rental, parking and pickup modes.
+     *
+     * This is used by the Street search only.
+     */
+    public boolean bidirectionalStreetSearch = false;
+
     /**
      * The routing context used to actually carry out this search. It is important to build States from TraverseOptions
      * rather than RoutingContexts,and just keep a reference to the context in the TraverseOptions, rather than using
@@ -11,6 +11,7 @@ import org.opentripplanner.routing.api.response.InputField;
 import org.opentripplanner.routing.api.response.RoutingError;
 import org.opentripplanner.routing.api.response.RoutingErrorCode;
 import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetEdgeCostTables;
 import org.opentripplanner.routing.edgetype.TemporaryFreeEdge;
 import org.opentripplanner.routing.edgetype.TemporaryPartialStreetEdge;
 import org.opentripplanner.routing.error.GraphNotFoundException;
@@ -62,6 +63,12 @@ public class RoutingContext implements Cloneable {
 
     public RemainingWeightHeuristic remainingWeightHeuristic;
 
+    /**
+     * The precomputed street edge costs matching the street parameters of the request when the
+     * context was created, {@code null} if none.
+     */
+    public final StreetEdgeCostTables.RequestTables streetEdgeCosts;
+
     /** Indicates that the search timed out or was otherwise aborted. */
     public boolean aborted;
 
@@ -189,6 +196,9 @@ public class RoutingContext implements Cloneable {
         adjustForSameFromToEdge();
 
         remainingWeightHeuristic = new EuclideanRemainingWeightHeuristic();
+
+        StreetEdgeCostTables costTables = graph.getStreetEdgeCostTables();
+        this.streetEdgeCosts = costTables == null ? null : costTables.forRequest(routingRequest);
     }
 
     private RoutingContext(
@@ -207,6 +217,22 @@ public class RoutingContext implements Cloneable {
         );
     }
 
+    /**
+     * A context for a search in the opposite direction of this one, from the target to the origin,
+     * using the same vertices and temporary edges.
+     */
+    private RoutingContext(RoutingContext context, RoutingRequest reverseRequest) {
+        this.opt = reverseRequest;
+        this.graph = context.graph;
+        this.fromVertices = context.toVertices;
+        this.toVertices = context.fromVertices;
+        this.bannedRoutes = context.bannedRoutes;
+        this.remainingWeightHeuristic = new EuclideanRemainingWeightHeuristic();
+
+        StreetEdgeCostTables costTables = graph.getStreetEdgeCostTables();
+        this.streetEdgeCosts = costTables == null ? null : costTables.forRequest(reverseRequest);
+    }
+
     /**
      * If the from and to vertices are generated and lie along some of the same edges, we need to wire
      * them up along those edges so that we don't get odd circuitous routes for really short trips.
@@ -270,6 +296,15 @@ public class RoutingContext implements Cloneable {
 
     /* INSTANCE METHODS */
 
+    /**
+     * Create a context for a search from the target of this context to its origin, with a request
+     * searching in the opposite direction. No temporary vertices or edges are created, the ones
+     * of this context are used. The returned context must not be destroyed, only this one.
+     */
+    public RoutingContext createReverseContext(RoutingRequest reverseRequest) {
+        return new RoutingContext(this, reverseRequest);
+    }
+
     public void checkIfVerticesFound() {
         List<RoutingError> routingErrors = new ArrayList<>();
 
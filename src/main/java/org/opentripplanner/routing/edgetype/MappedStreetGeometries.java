@@ -0,0 +1,212 @@
+package org.opentripplanner.routing.edgetype;
+
+import gnu.trove.list.array.TLongArrayList;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.CompactLineString;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.MappedSectionFile;
+import org.opentripplanner.util.OtpAppException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compact geometries of the street edges, stored in a {@link MappedSectionFile} next to the
+ * graph file instead of inside it. The geometries are a large part of the graph, and they are
+ * only used to create the itineraries, link new locations and draw the map. Keeping them in a
+ * mapped file makes the graph file smaller and faster to load, keeps them out of the Java heap,
+ * and lets several OTP servers on the same host share them in the page cache.
+ * <p>
+ * Each street edge keeps a reference to its geometry in the file, and the geometry is decoded
+ * directly from the mapped file each time it is used. The geometries are stored in sections of
+ * at most {@link #CHUNK_SIZE} bytes, each geometry is prefixed with its length. Geometries shared
+ * between the two directions of a street are stored once.
+ * <p>
+ * The mapped geometries are owned by the {@link Graph}, and handed to its street edges when the
+ * file is mapped. The graph stores the id of the file, so a file written with another graph is
+ * rejected.
+ * <p>
+ * This class is THREAD-SAFE.
+ */
+public final class MappedStreetGeometries {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedStreetGeometries.class);
+
+    private static final String SECTION_PREFIX = "streetGeometry.";
+
+    static final int CHUNK_SIZE = 1 << 30;
+
+    private final long fileId;
+
+    /** The sections of the file, only read with absolute gets, so they can be shared. */
+    private final ByteBuffer[] chunks;
+
+    private MappedStreetGeometries(long fileId, ByteBuffer[] chunks) {
+        this.fileId = fileId;
+        this.chunks = chunks;
+    }
+
+    /** The geometry file of the given graph file. */
+    public static File fileFor(File graphFile) {
+        return new File(graphFile.getParentFile(), graphFile.getName() + ".geometry");
+    }
+
+    /**
+     * Write the geometries of the street edges in the graph to the given file, and move the edges
+     * over to read their geometries from it. The graph keeps the id of the file written. This is
+     * not thread-safe, the graph must not be used while this is running.
+     */
+    public static void write(File file, Graph graph) throws IOException {
+        long fileId = newFileId();
+        List<StreetEdge> streetEdges = new ArrayList<>();
+        TLongArrayList refs = new TLongArrayList();
+        Map<byte[], Long> written = new IdentityHashMap<>();
+        // Geometries read from the previous file are new arrays each time, find shared ones by ref
+        Map<Long, Long> writtenMapped = new HashMap<>();
+
+        try (MappedSectionFile.Writer writer = new MappedSectionFile.Writer(file, fileId)) {
+            int chunk = -1;
+            for (Edge e : graph.getEdges()) {
+                if (!(e instanceof StreetEdge)) { continue; }
+                StreetEdge se = (StreetEdge) e;
+                byte[] geometry = se.getCompactGeometry();
+                if (geometry == null) { continue; }
+
+                long oldRef = se.getMappedGeometry();
+                Long ref = oldRef >= 0 ? writtenMapped.get(oldRef) : written.get(geometry);
+                if (ref == null) {
+                    if (chunk < 0 || writer.sectionPosition() + 4 + geometry.length > CHUNK_SIZE) {
+                        writer.startSection(SECTION_PREFIX + ++chunk);
+                    }
+                    ref = ((long) chunk << 32) | writer.sectionPosition();
+                    writer.writeInt(geometry.length);
+                    writer.write(geometry);
+                    if (oldRef >= 0) {
+                        writtenMapped.put(oldRef, ref);
+                    } else {
+                        written.put(geometry, ref);
+                    }
+                }
+                streetEdges.add(se);
+                refs.add(ref);
+            }
+            writer.commit();
+        }
+        // Switch all edges over to the new file, the old mapping is used until the last is written
+        MappedStreetGeometries geometries = open(file, fileId);
+        for (int i = 0; i < streetEdges.size(); ++i) {
+            streetEdges.get(i).setMappedGeometry(geometries, refs.get(i));
+        }
+        graph.setStreetGeometries(geometries);
+        LOG.info("Wrote {} street geometries to {}", written.size() + writtenMapped.size(), file);
+    }
+
+    /**
+     * Move the geometries of all street edges back into the edges, so the graph can be saved
+     * without a geometry file. This is not thread-safe.
+     */
+    public static void detach(Graph graph) {
+        for (Edge e : graph.getEdges()) {
+            if (e instanceof StreetEdge) {
+                ((StreetEdge) e).inlineMappedGeometry();
+            }
+        }
+        graph.setStreetGeometries(null);
+    }
+
+    /**
+     * Map the geometry file written with the graph, and hand it to the street edges of the graph.
+     *
+     * @throws OtpAppException if the file is missing, or not the file written with the graph.
+     */
+    public static void attach(Graph graph, File file) {
+        MappedStreetGeometries geometries = open(file, graph.getStreetGeometryFileId());
+        for (Edge e : graph.getEdges()) {
+            if (e instanceof StreetEdge) {
+                ((StreetEdge) e).attachMappedGeometry(geometries);
+            }
+        }
+        graph.setStreetGeometries(geometries);
+        LOG.info("Mapped street geometries from {}", file);
+    }
+
+    public long fileId() {
+        return fileId;
+    }
+
+    /** Read the compact geometry with the given reference from the mapped file. */
+    byte[] read(long ref) {
+        ByteBuffer buffer = chunks[chunk(ref)].duplicate();
+        buffer.position(position(ref));
+        byte[] geometry = new byte[buffer.getInt()];
+        buffer.get(geometry);
+        return geometry;
+    }
+
+    /**
+     * Decode the geometry with the given reference directly from the mapped file, see
+     * {@link CompactLineString#uncompactLineString(double, double, double, double, byte[], boolean)}.
+     */
+    LineString uncompactLineString(
+            long ref,
+            double xa,
+            double ya,
+            double xb,
+            double yb,
+            boolean reverse
+    ) {
+        ByteBuffer buffer = chunks[chunk(ref)];
+        int position = position(ref);
+        int length = buffer.getInt(position);
+        return CompactLineString.uncompactLineString(
+            xa, ya, xb, yb, buffer, position + 4, length, reverse
+        );
+    }
+
+    private static MappedStreetGeometries open(File file, long expectedFileId) {
+        if (!file.exists()) {
+            throw new OtpAppException(
+                "The graph street geometries are stored in a separate file, which is missing: " + file
+            );
+        }
+        MappedSectionFile mappedFile = MappedSectionFile.open(file);
+        if (mappedFile.fileId() != expectedFileId) {
+            throw new OtpAppException(
+                "The street geometry file was not written together with the graph: " + file
+            );
+        }
+        List<ByteBuffer> chunks = new ArrayList<>();
+        while (mappedFile.hasSection(SECTION_PREFIX + chunks.size())) {
+            chunks.add(mappedFile.section(SECTION_PREFIX + chunks.size()));
+        }
+        return new MappedStreetGeometries(expectedFileId, chunks.toArray(new ByteBuffer[0]));
+    }
+
+    /** A random id, never 0, which is used for graphs without a geometry file. */
+    private static long newFileId() {
+        SecureRandom random = new SecureRandom();
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    private static int chunk(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int position(long ref) {
+        return (int) ref;
+    }
+}
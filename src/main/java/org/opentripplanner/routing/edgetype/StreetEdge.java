@@ -13,12 +13,12 @@ import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.common.model.P2;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.core.CarPickupState;
+import org.opentripplanner.routing.core.RoutingContext;
 import org.opentripplanner.routing.core.State;
 import org.opentripplanner.routing.core.StateEditor;
 import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.core.TraverseModeSet;
 import org.opentripplanner.routing.graph.Edge;
-import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.vertextype.BarrierVertex;
 import org.opentripplanner.routing.vertextype.IntersectionVertex;
 import org.opentripplanner.routing.vertextype.OsmVertex;
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -59,7 +60,7 @@ public class StreetEdge extends Edge implements Cloneable {
     public static final int CROSSING_CLASS_MASK = 7; // ignore platform
     public static final int CLASS_LINK = 32; // on/offramps; OSM calls them "links"
 
-    private static final double GREENWAY_SAFETY_FACTOR = 0.1;
+    public static final double GREENWAY_SAFETY_FACTOR = 0.1;
 
     // TODO(flamholz): do something smarter with the car speed here.
     public static final float DEFAULT_CAR_SPEED = 11.2f;
@@ -91,6 +92,15 @@ public class StreetEdge extends Edge implements Cloneable {
     protected float bicycleSafetyFactor;
 
     private byte[] compactGeometry;
+
+    /**
+     * The reference to the geometry in the mapped geometry file, if the geometry is not stored in
+     * the edge, see {@link MappedStreetGeometries}. -1 if not mapped.
+     */
+    private long mappedGeometry = -1;
+
+    /** The mapped geometry file of the graph, set when the file is mapped. */
+    private transient MappedStreetGeometries mappedGeometries;
     
     private I18NString name;
 
@@ -116,6 +126,13 @@ public class StreetEdge extends Edge implements Cloneable {
     /** The angle at the start of the edge geometry. Internal representation like that of inAngle. */
     private byte outAngle;
 
+    /**
+     * The turn restrictions from this edge, {@code null} if there are none, as for most edges.
+     * The array is replaced, not changed, when a restriction is added or removed, so it can be
+     * read by the searches without locking.
+     */
+    private TurnRestriction[] turnRestrictions;
+
     public StreetEdge(StreetVertex v1, StreetVertex v2, LineString geometry,
                       I18NString name, double length,
                       StreetTraversalPermission permission, boolean back) {
@@ -350,74 +367,17 @@ public class StreetEdge extends Edge implements Cloneable {
 
         // Automobiles have variable speeds depending on the edge type
         double speed = calculateSpeed(options, traverseMode, s0.getTimeInMillis());
-        
-        double time = getEffectiveWalkDistance() / speed;
-        double weight;
-        // TODO(flamholz): factor out this bike, wheelchair and walking specific logic to somewhere central.
-        if (options.wheelchairAccessible) {
-            weight = getEffectiveBikeDistance() / speed;
-        } else if (traverseMode.equals(TraverseMode.BICYCLE)) {
-            time = getEffectiveBikeDistance() / speed;
-            switch (options.optimize) {
-            case SAFE:
-                weight = bicycleSafetyFactor * getDistanceMeters() / speed;
-                break;
-            case GREENWAYS:
-                weight = bicycleSafetyFactor * getDistanceMeters() / speed;
-                if (bicycleSafetyFactor <= GREENWAY_SAFETY_FACTOR) {
-                    // greenways are treated as even safer than they really are
-                    weight *= 0.66;
-                }
-                break;
-            case FLAT:
-                /* see notes in StreetVertex on speed overhead */
-                weight = getDistanceMeters() / speed + getEffectiveBikeWorkCost();
-                break;
-            case QUICK:
-                weight = getEffectiveBikeDistance() / speed;
-                break;
-            case TRIANGLE:
-                double quick = getEffectiveBikeDistance();
-                double safety = bicycleSafetyFactor * getDistanceMeters();
-                // TODO This computation is not coherent with the one for FLAT
-                double slope = getEffectiveBikeWorkCost();
-                weight = quick * options.bikeTriangleTimeFactor + slope
-                        * options.bikeTriangleSlopeFactor + safety
-                        * options.bikeTriangleSafetyFactor;
-                weight /= speed;
-                break;
-            default:
-                weight = getDistanceMeters() / speed;
-            }
-        } else {
-            if (walkingBike) {
-                // take slopes into account when walking bikes
-                time = getEffectiveBikeDistance() / speed;
-            }
-            weight = time;
-            if (traverseMode.equals(TraverseMode.WALK)) {
-                // take slopes into account when walking
-                // FIXME: this causes steep stairs to be avoided. see #1297.
-                double distance = getEffectiveWalkDistance();
-                weight = distance / speed;
-                time = weight; //treat cost as time, as in the current model it actually is the same (this can be checked for maxSlope == 0)
-                /*
-                // debug code
-                if(weight > 100){
-                    double timeflat = length_mm / speed;
-
-
-                    System.out.format("line length: %.1f m, slope: %.3f ---> distance: %.1f , weight: %.1f , time (flat):  %.1f %n", getDistance(), getMaxSlope(), distance, weight, timeflat);
-                }
-                */
-            }
-        }
 
-        if (isStairs()) {
-            weight *= options.stairsReluctance;
+        double time;
+        double weight;
+        StreetEdgeCostTables.Table costs = costTable(s0, options, traverseMode);
+        int costIndex = costs == null ? -1 : costs.indexOf(this);
+        if (costIndex >= 0) {
+            time = costs.time(costIndex);
+            weight = costs.weight(costIndex);
         } else {
-            // TODO: this is being applied even when biking or driving.
-            weight *= options.walkReluctance;
+            time = computeTime(options, traverseMode, speed);
+            weight = computeWeight(options, traverseMode, speed);
         }
 
         StateEditor s1 = s0.edit(this);
@@ -517,6 +477,84 @@ public class StreetEdge extends Edge implements Cloneable {
         return s1;
     }
 
+    /** The precomputed costs to use for the traversal, {@code null} if there are none. */
+    private static StreetEdgeCostTables.Table costTable(
+            State s0, RoutingRequest options, TraverseMode traverseMode
+    ) {
+        RoutingContext rctx = s0.getOptions().rctx;
+        if (rctx == null || rctx.streetEdgeCosts == null) {
+            return null;
+        }
+        return rctx.streetEdgeCosts.table(options, traverseMode);
+    }
+
+    /**
+     * The time in seconds to traverse this edge with the given mode and speed, without turn
+     * costs. The time is rounded up to whole seconds by the traversal.
+     */
+    double computeTime(RoutingRequest options, TraverseMode traverseMode, double speed) {
+        if (traverseMode == TraverseMode.BICYCLE && !options.wheelchairAccessible) {
+            return getEffectiveBikeDistance() / speed;
+        }
+        // When walking, and when walking a bike, slopes are taken into account. We treat cost as
+        // time, as in the current model it actually is the same (this can be checked for
+        // maxSlope == 0).
+        return getEffectiveWalkDistance() / speed;
+    }
+
+    /** The weight of traversing this edge with the given mode and speed, without turn costs. */
+    double computeWeight(RoutingRequest options, TraverseMode traverseMode, double speed) {
+        double weight;
+        // TODO(flamholz): factor out this bike, wheelchair and walking specific logic to somewhere central.
+        if (options.wheelchairAccessible) {
+            weight = getEffectiveBikeDistance() / speed;
+        } else if (traverseMode.equals(TraverseMode.BICYCLE)) {
+            switch (options.optimize) {
+            case SAFE:
+                weight = bicycleSafetyFactor * getDistanceMeters() / speed;
+                break;
+            case GREENWAYS:
+                weight = bicycleSafetyFactor * getDistanceMeters() / speed;
+                if (bicycleSafetyFactor <= GREENWAY_SAFETY_FACTOR) {
+                    // greenways are treated as even safer than they really are
+                    weight *= 0.66;
+                }
+                break;
+            case FLAT:
+                /* see notes in StreetVertex on speed overhead */
+                weight = getDistanceMeters() / speed + getEffectiveBikeWorkCost();
+                break;
+            case QUICK:
+                weight = getEffectiveBikeDistance() / speed;
+                break;
+            case TRIANGLE:
+                double quick = getEffectiveBikeDistance();
+                double safety = bicycleSafetyFactor * getDistanceMeters();
+                // TODO This computation is not coherent with the one for FLAT
+                double slope = getEffectiveBikeWorkCost();
+                weight = quick * options.bikeTriangleTimeFactor + slope
+                        * options.bikeTriangleSlopeFactor + safety
+                        * options.bikeTriangleSafetyFactor;
+                weight /= speed;
+                break;
+            default:
+                weight = getDistanceMeters() / speed;
+            }
+        } else {
+            // take slopes into account when walking
+            // FIXME: this causes steep stairs to be avoided. see #1297.
+            weight = getEffectiveWalkDistance() / speed;
+        }
+
+        if (isStairs()) {
+            weight *= options.stairsReluctance;
+        } else {
+            // TODO: this is being applied even when biking or driving.
+            weight *= options.walkReluctance;
+        }
+        return weight;
+    }
+
     private double calculateOverageWeight(double firstValue, double secondValue, double maxValue,
             double softPenalty, double overageRate) {
         // apply penalty if we stepped over the limit on this traversal
@@ -617,7 +655,11 @@ public class StreetEdge extends Edge implements Cloneable {
     }
     
     public boolean canTurnOnto(Edge e, State state, TraverseMode mode) {
-        for (TurnRestriction turnRestriction : getTurnRestrictions(state.getOptions().rctx.graph)) {
+        TurnRestriction[] turnRestrictions = getTurnRestrictionArray();
+        if (turnRestrictions == null) {
+            return true;
+        }
+        for (TurnRestriction turnRestriction : turnRestrictions) {
             /* FIXME: This is wrong for trips that end in the middle of turnRestriction.to
              */
 
@@ -660,16 +702,66 @@ public class StreetEdge extends Edge implements Cloneable {
 	}
 
 	public LineString getGeometry() {
-		return CompactLineString.uncompactLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), compactGeometry, isBack());
+		if (compactGeometry == null && mappedGeometry >= 0) {
+			return mappedGeometries().uncompactLineString(mappedGeometry, fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), isBack());
+		}
+		return CompactLineString.uncompactLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), getCompactGeometry(), isBack());
+	}
+
+	/** The compact geometry, read from the mapped geometry file if it is not stored in the edge. */
+	byte[] getCompactGeometry() {
+		if (compactGeometry == null && mappedGeometry >= 0) {
+			return mappedGeometries().read(mappedGeometry);
+		}
+		return compactGeometry;
+	}
+
+	/** The reference to the geometry in the mapped geometry file, or -1. */
+	long getMappedGeometry() {
+		return mappedGeometry;
+	}
+
+	/** Read the geometry from the mapped geometry file from now on, see {@link MappedStreetGeometries}. */
+	void setMappedGeometry(MappedStreetGeometries geometries, long ref) {
+		this.mappedGeometries = geometries;
+		this.mappedGeometry = ref;
+		this.compactGeometry = null;
+	}
+
+	/** Read the geometry from the given mapped file, if the geometry is not stored in the edge. */
+	void attachMappedGeometry(MappedStreetGeometries geometries) {
+		if (mappedGeometry >= 0) {
+			this.mappedGeometries = geometries;
+		}
+	}
+
+	/** Store the geometry in the edge again, if it is read from the mapped geometry file. */
+	void inlineMappedGeometry() {
+		if (mappedGeometry >= 0) {
+			this.compactGeometry = getCompactGeometry();
+			this.mappedGeometry = -1;
+			this.mappedGeometries = null;
+		}
+	}
+
+	private MappedStreetGeometries mappedGeometries() {
+		if (mappedGeometries == null) {
+			throw new IllegalStateException("The street geometry file of the graph is not mapped: " + this);
+		}
+		return mappedGeometries;
 	}
 
 	private void setGeometry(LineString geometry) {
 		this.compactGeometry = CompactLineString.compactLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), isBack() ? (LineString)geometry.reverse() : geometry, isBack());
+		this.mappedGeometry = -1;
+		this.mappedGeometries = null;
 	}
 
 	public void shareData(StreetEdge reversedEdge) {
-	    if (Arrays.equals(compactGeometry, reversedEdge.compactGeometry)) {
+	    if (Arrays.equals(getCompactGeometry(), reversedEdge.getCompactGeometry())) {
 	        compactGeometry = reversedEdge.compactGeometry;
+	        mappedGeometry = reversedEdge.mappedGeometry;
+	        mappedGeometries = reversedEdge.mappedGeometries;
 	    } else {
 	        LOG.warn("Can't share geometry between {} and {}", this, reversedEdge);
 	    }
@@ -775,8 +867,43 @@ public class StreetEdge extends Edge implements Cloneable {
 		return (int) Math.round(this.outAngle * 180 / 128.0);
 	}
 
-    protected List<TurnRestriction> getTurnRestrictions(Graph graph) {
-        return graph.getTurnRestrictions(this);
+    /** Return the turn restrictions from this edge, an empty list if there are none. */
+    public List<TurnRestriction> getTurnRestrictions() {
+        TurnRestriction[] turnRestrictions = getTurnRestrictionArray();
+        return turnRestrictions == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(turnRestrictions));
+    }
+
+    public boolean hasTurnRestrictions() {
+        return getTurnRestrictionArray() != null;
+    }
+
+    /** The turn restrictions used when traversing this edge, {@code null} if there are none. */
+    protected TurnRestriction[] getTurnRestrictionArray() {
+        return turnRestrictions;
+    }
+
+    /** Add a turn restriction from this edge. This method is not thread-safe. */
+    public void addTurnRestriction(TurnRestriction turnRestriction) {
+        if (turnRestrictions == null) {
+            turnRestrictions = new TurnRestriction[] { turnRestriction };
+        } else {
+            TurnRestriction[] result = Arrays.copyOf(turnRestrictions, turnRestrictions.length + 1);
+            result[turnRestrictions.length] = turnRestriction;
+            turnRestrictions = result;
+        }
+    }
+
+    /** Remove a turn restriction from this edge. This method is not thread-safe. */
+    public void removeTurnRestriction(TurnRestriction turnRestriction) {
+        if (turnRestrictions == null) {
+            return;
+        }
+        TurnRestriction[] result = Arrays.stream(turnRestrictions)
+                .filter(it -> it != turnRestriction)
+                .toArray(TurnRestriction[]::new);
+        turnRestrictions = result.length == 0 ? null : result;
     }
 
     /** calculate the length of this street segement from its geometry */
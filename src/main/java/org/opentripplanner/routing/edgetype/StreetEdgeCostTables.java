@@ -0,0 +1,167 @@
+package org.opentripplanner.routing.edgetype;
+
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The time and weight of traversing each {@link StreetEdge}, computed in advance for the street
+ * parameters of the default request. Most requests use the default walking, cycling and driving
+ * parameters, and for these the street edge traversal looks up the time and weight here, instead
+ * of evaluating the cost model, see {@link StreetEdge#computeWeight}. The turn costs, turn
+ * restrictions and bike switch costs are still added by the traversal.
+ * <p>
+ * The tables are indexed by {@link Edge#getIndex()}, so they must be created after the graph is
+ * indexed. The edges created after that, like the temporary edges of a request, are not in the
+ * tables, and neither are changes to the edges made after the tables are created.
+ * <p>
+ * THIS CLASS IS THREAD-SAFE.
+ */
+public class StreetEdgeCostTables {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreetEdgeCostTables.class);
+
+    /** The edges by index, {@code null} for the edges which are not street edges. */
+    private final StreetEdge[] edges;
+
+    /** The street parameters of the default request. */
+    private final List<Object> parameters;
+
+    /** The street parameters of the default request when walking a bike. */
+    private final List<Object> bikeWalkingParameters;
+
+    private final Table walk;
+    private final Table bicycle;
+    private final Table car;
+    private final Table walkingBike;
+
+    public StreetEdgeCostTables(Graph graph) {
+        edges = new StreetEdge[graph.getEdgeIndexSize()];
+        for (Vertex v : graph.getVertices()) {
+            for (Edge e : v.getOutgoing()) {
+                int index = e.getIndex();
+                if (e instanceof StreetEdge && index >= 0 && index < edges.length) {
+                    edges[index] = (StreetEdge) e;
+                }
+            }
+        }
+
+        RoutingRequest request = new RoutingRequest(TraverseMode.BICYCLE);
+        parameters = parameters(request);
+        bikeWalkingParameters = parameters(request.bikeWalkingOptions);
+
+        walk = new Table(request, TraverseMode.WALK);
+        bicycle = new Table(request, TraverseMode.BICYCLE);
+        car = new Table(request, TraverseMode.CAR);
+        walkingBike = new Table(request.bikeWalkingOptions, TraverseMode.WALK);
+        LOG.info("Street edge cost tables created for {} edges.", edges.length);
+    }
+
+    /**
+     * Return the tables to use for the request, or {@code null} if the request does not use the
+     * default street parameters.
+     */
+    public RequestTables forRequest(RoutingRequest request) {
+        boolean matches = parameters.equals(parameters(request));
+        boolean bikeWalkingMatches = request.bikeWalkingOptions != null
+                && bikeWalkingParameters.equals(parameters(request.bikeWalkingOptions));
+        if (!matches && !bikeWalkingMatches) {
+            return null;
+        }
+        return new RequestTables(request, matches, bikeWalkingMatches);
+    }
+
+    /** The request parameters used to compute the time and weight of a street edge. */
+    private static List<Object> parameters(RoutingRequest rr) {
+        return Arrays.asList(
+            rr.wheelchairAccessible,
+            rr.walkingBike,
+            rr.walkSpeed,
+            rr.bikeSpeed,
+            rr.walkReluctance,
+            rr.stairsReluctance,
+            rr.optimize,
+            rr.bikeTriangleSafetyFactor,
+            rr.bikeTriangleSlopeFactor,
+            rr.bikeTriangleTimeFactor
+        );
+    }
+
+    /**
+     * The tables matching the parameters of a request, kept in its
+     * {@link org.opentripplanner.routing.core.RoutingContext}.
+     */
+    public class RequestTables {
+
+        private final RoutingRequest options;
+        private final RoutingRequest bikeWalkingOptions;
+        private final boolean matches;
+        private final boolean bikeWalkingMatches;
+
+        private RequestTables(RoutingRequest options, boolean matches, boolean bikeWalkingMatches) {
+            this.options = options;
+            this.bikeWalkingOptions = options.bikeWalkingOptions;
+            this.matches = matches;
+            this.bikeWalkingMatches = bikeWalkingMatches;
+        }
+
+        /**
+         * Return the table to use when traversing an edge with the given options and mode, or
+         * {@code null} if none of the tables match.
+         */
+        Table table(RoutingRequest traverseOptions, TraverseMode mode) {
+            if (traverseOptions == options && matches) {
+                switch (mode) {
+                    case WALK: return walk;
+                    case BICYCLE: return bicycle;
+                    case CAR: return car;
+                    default: return null;
+                }
+            }
+            if (traverseOptions == bikeWalkingOptions && bikeWalkingMatches && mode == TraverseMode.WALK) {
+                return walkingBike;
+            }
+            return null;
+        }
+    }
+
+    /** The time and weight of each edge for one set of parameters and one mode. */
+    class Table {
+
+        private final double[] time;
+        private final double[] weight;
+
+        private Table(RoutingRequest options, TraverseMode mode) {
+            time = new double[edges.length];
+            weight = new double[edges.length];
+            for (int i = 0; i < edges.length; ++i) {
+                StreetEdge e = edges[i];
+                if (e == null) continue;
+                double speed = e.calculateSpeed(options, mode, 0);
+                time[i] = e.computeTime(options, mode, speed);
+                weight[i] = e.computeWeight(options, mode, speed);
+            }
+        }
+
+        /** Return the position of the edge in the table, or -1 if it is not in the table. */
+        int indexOf(StreetEdge e) {
+            int index = e.getIndex();
+            return index >= 0 && index < edges.length && edges[index] == e ? index : -1;
+        }
+
+        double time(int index) {
+            return time[index];
+        }
+
+        double weight(int index) {
+            return weight[index];
+        }
+    }
+}
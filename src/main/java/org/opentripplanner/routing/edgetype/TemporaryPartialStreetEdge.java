@@ -4,14 +4,11 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineString;
 import org.opentripplanner.common.TurnRestriction;
 import org.opentripplanner.routing.graph.Edge;
-import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.util.ElevationUtils;
 import org.opentripplanner.routing.vertextype.StreetVertex;
 import org.opentripplanner.routing.vertextype.TemporaryVertex;
 import org.opentripplanner.util.I18NString;
 
-import java.util.List;
-
 
 final public class TemporaryPartialStreetEdge extends StreetWithElevationEdge implements TemporaryEdge {
 
@@ -88,8 +85,8 @@ final public class TemporaryPartialStreetEdge extends StreetWithElevationEdge im
      * Have the turn restrictions of  their parent.
      */
     @Override
-    protected List<TurnRestriction> getTurnRestrictions(Graph graph) {
-        return graph.getTurnRestrictions(parentEdge);
+    protected TurnRestriction[] getTurnRestrictionArray() {
+        return parentEdge.getTurnRestrictionArray();
     }
 
     /**
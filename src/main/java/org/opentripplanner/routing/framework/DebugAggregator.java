@@ -8,15 +8,23 @@ import org.slf4j.LoggerFactory;
 /**
  * Keeps account of timing information within the different parts of the routing process, and is
  * responsible of logging that information.
+ * <p>
+ * The direct street search, the direct flex search and the access/egress searches may run in
+ * parallel with the transit routing. The time recorded for each phase is the time from the phase
+ * started until it finished. The phases may overlap, so the times do not add up to the total
+ * time.
  */
 public class DebugAggregator {
   private static final Logger LOG = LoggerFactory.getLogger(DebugAggregator.class);
 
   private long startedCalculating;
   private long finishedPrecalculating;
+  private long startedDirectStreetRouter = Long.MAX_VALUE;
   private long finishedDirectStreetRouter;
 
+  private long startedTransitRouter;
   private long finishedPatternFiltering;
+  private long startedAccessEgress = Long.MAX_VALUE;
   private long finishedAccessEgress;
   private long finishedRaptorSearch;
 
@@ -51,28 +59,43 @@ public class DebugAggregator {
     LOG.debug("Routing initialization took {} ms", directStreetRouterTime);
   }
 
-  /** Record the time when we finished the direct street router search. */
-  public void finishedDirectStreetRouter() {
-    finishedDirectStreetRouter = System.currentTimeMillis();
-    directStreetRouterTime = finishedDirectStreetRouter - finishedPrecalculating;
+  /**
+   * Record the time when we finished the direct street router search, started at the given
+   * time. The direct street and direct flex searches may run in parallel, this is called once
+   * for each of them. The phase lasts from the first one started until the last one finished.
+   */
+  public synchronized void finishedDirectStreetRouter(long startedAt) {
+    startedDirectStreetRouter = Math.min(startedDirectStreetRouter, startedAt);
+    finishedDirectStreetRouter = Math.max(finishedDirectStreetRouter, System.currentTimeMillis());
+    directStreetRouterTime = finishedDirectStreetRouter - startedDirectStreetRouter;
     LOG.debug("Direct street routing took {} ms", directStreetRouterTime);
   }
 
+  /**
+   * Record the time when we started the transit router search.
+   */
+  public void startedTransitRouter() {
+    startedTransitRouter = System.currentTimeMillis();
+  }
+
   /**
    * Record the time when we are finished with the creation of the raptor data models.
    */
   public void finishedPatternFiltering() {
     finishedPatternFiltering = System.currentTimeMillis();
-    tripPatternFilterTime = finishedPatternFiltering - finishedDirectStreetRouter;
+    tripPatternFilterTime = finishedPatternFiltering - startedTransitRouter;
     LOG.debug("Filtering tripPatterns took {} ms", tripPatternFilterTime);
   }
 
   /**
-   * Record the time when we are finished with the access and egress routing.
+   * Record the time when we are finished with the access or egress routing, started at the
+   * given time. The access and egress searches may run in parallel, this is called once for each
+   * of them. The phase lasts from the first one started until the last one finished.
    */
-  public void finishedAccessEgress() {
-    finishedAccessEgress = System.currentTimeMillis();
-    accessEgressTime = finishedAccessEgress - finishedPatternFiltering;
+  public synchronized void finishedAccessEgress(long startedAt) {
+    startedAccessEgress = Math.min(startedAccessEgress, startedAt);
+    finishedAccessEgress = Math.max(finishedAccessEgress, System.currentTimeMillis());
+    accessEgressTime = finishedAccessEgress - startedAccessEgress;
     LOG.debug("Access/egress routing took {} ms", accessEgressTime);
   }
 
@@ -81,7 +104,8 @@ public class DebugAggregator {
    */
   public void finishedRaptorSearch() {
     finishedRaptorSearch = System.currentTimeMillis();
-    raptorSearchTime = finishedRaptorSearch - finishedAccessEgress;
+    // The search start when both the access/egress and the pattern filtering is done
+    raptorSearchTime = finishedRaptorSearch - Math.max(finishedAccessEgress, finishedPatternFiltering);
     LOG.debug("Main routing took {} ms", raptorSearchTime);
   }
 
@@ -96,14 +120,14 @@ public class DebugAggregator {
   /** Record the time when we finished the tranist router search */
   public void finishedTransitRouter() {
     finishedTransitRouter = System.currentTimeMillis();
-    transitRouterTime = finishedTransitRouter - finishedDirectStreetRouter;
+    transitRouterTime = finishedTransitRouter - startedTransitRouter;
     LOG.debug("Transit routing took total {} ms", transitRouterTime);
   }
 
   /** Record the time when we finished filtering the paths for this request. */
   public void finishedFiltering() {
     finishedFiltering = System.currentTimeMillis();
-    filteringTime = finishedFiltering - finishedTransitRouter;
+    filteringTime = finishedFiltering - Math.max(finishedTransitRouter, finishedDirectStreetRouter);
     LOG.debug("Filtering took {} ms", transitRouterTime);
   }
 
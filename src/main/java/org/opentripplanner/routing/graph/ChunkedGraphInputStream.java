@@ -0,0 +1,235 @@
+package org.opentripplanner.routing.graph;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.opentripplanner.routing.graph.ChunkedGraphOutputStream.CHUNK_SIZE;
+
+/**
+ * Read a graph written by {@link ChunkedGraphOutputStream}. The compressed chunks are read ahead
+ * of the deserialization by a reader thread, and decompressed and validated in parallel, so the
+ * thread reading this stream only waits for the next chunk. A chunk with a checksum that does not
+ * match, or a stream that ends before the end-of-stream chunk, is reported as an
+ * {@link IOException} when the chunk is read.
+ * <p>
+ * The reader thread is started by the first read, so the caller can read a file header from the
+ * underlying stream first.
+ * <p>
+ * This class is NOT THREAD-SAFE, it is read from one thread like any other input stream.
+ */
+class ChunkedGraphInputStream extends InputStream {
+
+    /** Put in the queue of pending chunks by the reader thread after the last chunk. */
+    private static final Future<byte[]> END_OF_STREAM = CompletableFuture.completedFuture(null);
+
+    private final DataInputStream in;
+
+    private final ExecutorService executor;
+
+    /** The chunks read, in the order of the stream. The reader waits when this is full. */
+    private final BlockingQueue<Future<byte[]>> pendingChunks;
+
+    private boolean readerStarted = false;
+
+    private boolean endOfStream = false;
+
+    private IOException failure = null;
+
+    private byte[] current = new byte[0];
+
+    private int position = 0;
+
+    private boolean closed = false;
+
+    ChunkedGraphInputStream(InputStream in, int nThreads) {
+        this.in = new DataInputStream(in);
+        // One thread reads the chunks, the others decompress them
+        this.executor = Executors.newFixedThreadPool(
+            nThreads + 1,
+            new ThreadFactoryBuilder().setNameFormat("GraphDecompress-%d").setDaemon(true).build()
+        );
+        this.pendingChunks = new ArrayBlockingQueue<>(2 * nThreads);
+    }
+
+    ChunkedGraphInputStream(InputStream in) {
+        this(in, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunkIfEmpty()) { return -1; }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) { return 0; }
+        if (!nextChunkIfEmpty()) { return -1; }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) { return; }
+        closed = true;
+        // This interrupts the reader thread, if it is waiting for the queue
+        executor.shutdownNow();
+        in.close();
+    }
+
+    /**
+     * Make sure there is data left in the current chunk.
+     *
+     * @return {@code false} if the end of the stream is reached.
+     */
+    private boolean nextChunkIfEmpty() throws IOException {
+        while (position == current.length) {
+            if (failure != null) { throw failure; }
+            if (endOfStream) { return false; }
+            if (!readerStarted) {
+                readerStarted = true;
+                executor.execute(this::readChunks);
+            }
+            Future<byte[]> chunk = takeNextChunk();
+            if (chunk == END_OF_STREAM) {
+                endOfStream = true;
+                return false;
+            }
+            current = get(chunk);
+            position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Read the compressed chunks and submit them for decompression, until the end-of-stream
+     * chunk or an error. This is run on the reader thread.
+     */
+    private void readChunks() {
+        try {
+            for (int index = 0; ; ++index) {
+                Future<byte[]> chunk = readChunk(index);
+                pendingChunks.put(chunk);
+                if (chunk == END_OF_STREAM) { return; }
+            }
+        }
+        catch (IOException e) {
+            try {
+                pendingChunks.put(CompletableFuture.failedFuture(e));
+            }
+            catch (InterruptedException ie) {
+                // The stream is closed
+            }
+        }
+        catch (InterruptedException e) {
+            // The stream is closed
+        }
+    }
+
+    private Future<byte[]> readChunk(int index) throws IOException {
+        final int size;
+        final byte[] compressed;
+        final long checksum;
+        try {
+            size = in.readInt();
+            int compressedSize = in.readInt();
+            checksum = in.readInt() & 0xFFFFFFFFL;
+            if (size < 0 || size > CHUNK_SIZE || compressedSize < 0 || compressedSize > 2 * CHUNK_SIZE) {
+                throw new IOException("The graph file is corrupt, chunk " + index + " has an invalid header.");
+            }
+            compressed = new byte[compressedSize];
+            in.readFully(compressed);
+        }
+        catch (EOFException e) {
+            throw new IOException("The graph file is truncated, chunk " + index + " is incomplete.");
+        }
+        if (size == 0) {
+            return END_OF_STREAM;
+        }
+        return executor.submit(() -> decompress(index, compressed, size, checksum));
+    }
+
+    private Future<byte[]> takeNextChunk() throws IOException {
+        try {
+            return pendingChunks.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the graph.", e);
+        }
+    }
+
+    private byte[] get(Future<byte[]> chunk) throws IOException {
+        try {
+            return chunk.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing the graph.", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                failure = (IOException) e.getCause();
+            }
+            else {
+                failure = new IOException("Failed to decompress the graph: " + e.getCause().getMessage(), e.getCause());
+            }
+            throw failure;
+        }
+    }
+
+    private static byte[] decompress(int index, byte[] compressed, int size, long checksum)
+            throws IOException {
+        byte[] data = new byte[size];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < size && !inflater.finished()) {
+                int read = inflater.inflate(data, n, size - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != size) {
+                throw new IOException("The graph file is corrupt, chunk " + index + " has the wrong size.");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException("The graph file is corrupt, chunk " + index + " can not be decompressed.", e);
+        }
+        finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, size);
+        if (crc.getValue() != checksum) {
+            throw new IOException("The graph file is corrupt, the checksum of chunk " + index + " do not match.");
+        }
+        return data;
+    }
+}
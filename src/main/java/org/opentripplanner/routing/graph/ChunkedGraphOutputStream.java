@@ -0,0 +1,187 @@
+package org.opentripplanner.routing.graph;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Split the serialized graph into chunks, and compress the chunks in parallel. Each chunk is
+ * written with a small header: the uncompressed size, the compressed size and a CRC32 checksum
+ * of the uncompressed data. The stream ends with an empty chunk, so a truncated file can be
+ * detected when it is read, see {@link ChunkedGraphInputStream}.
+ * <p>
+ * The chunks are written in order. At most two chunks for each thread are compressed or waiting
+ * to be written at any time, so the memory used do not depend on the size of the graph: up to
+ * {@code 2 * nThreads} pending chunks of {@link #CHUNK_SIZE} (4 MB) uncompressed data, each with
+ * its compressed copy once done, and the chunk being filled. With 8 threads this is about 70 MB
+ * of uncompressed data, on top of the memory used to serialize the graph.
+ * <p>
+ * This class is NOT THREAD-SAFE, it is written from one thread like any other output stream.
+ */
+class ChunkedGraphOutputStream extends OutputStream {
+
+    /** The size of the uncompressed chunks. */
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /** Fast compression, the graph is decompressed every time a server starts. */
+    private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    private final DataOutputStream out;
+
+    private final ExecutorService executor;
+
+    private final int maxPendingChunks;
+
+    private final Deque<Future<Chunk>> pendingChunks = new ArrayDeque<>();
+
+    private byte[] buffer = new byte[CHUNK_SIZE];
+
+    private int bufferSize = 0;
+
+    private boolean closed = false;
+
+    ChunkedGraphOutputStream(OutputStream out, int nThreads) {
+        this.out = new DataOutputStream(out);
+        this.executor = Executors.newFixedThreadPool(
+            nThreads,
+            new ThreadFactoryBuilder().setNameFormat("GraphCompress-%d").setDaemon(true).build()
+        );
+        this.maxPendingChunks = 2 * nThreads;
+    }
+
+    ChunkedGraphOutputStream(OutputStream out) {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[bufferSize++] = (byte) b;
+        if (bufferSize == CHUNK_SIZE) {
+            submitChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, CHUNK_SIZE - bufferSize);
+            System.arraycopy(b, off, buffer, bufferSize, n);
+            bufferSize += n;
+            off += n;
+            len -= n;
+            if (bufferSize == CHUNK_SIZE) {
+                submitChunk();
+            }
+        }
+    }
+
+    /** Write the chunks compressed so far, the buffered data is not written until it is full. */
+    @Override
+    public void flush() throws IOException {
+        while (!pendingChunks.isEmpty()) {
+            writeNextChunk();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) { return; }
+        closed = true;
+        try {
+            if (bufferSize > 0) {
+                submitChunk();
+            }
+            flush();
+            // The empty end-of-stream chunk
+            new Chunk(new byte[0], 0, 0).writeTo(out);
+        }
+        finally {
+            try {
+                out.close();
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void submitChunk() throws IOException {
+        final byte[] data = buffer;
+        final int size = bufferSize;
+        pendingChunks.add(executor.submit(() -> compress(data, size)));
+        buffer = new byte[CHUNK_SIZE];
+        bufferSize = 0;
+
+        while (pendingChunks.size() > maxPendingChunks) {
+            writeNextChunk();
+        }
+    }
+
+    private void writeNextChunk() throws IOException {
+        try {
+            pendingChunks.removeFirst().get().writeTo(out);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing the graph.", e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Failed to compress the graph: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static Chunk compress(byte[] data, int size) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, size);
+
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL);
+        try {
+            deflater.setInput(data, 0, size);
+            deflater.finish();
+            // Incompressible data can grow a little, leave some room for that
+            byte[] compressed = new byte[size + size / 100 + 64];
+            int compressedSize = 0;
+            while (!deflater.finished()) {
+                if (compressedSize == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedSize += deflater.deflate(compressed, compressedSize, compressed.length - compressedSize);
+            }
+            return new Chunk(Arrays.copyOf(compressed, compressedSize), size, crc.getValue());
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private static class Chunk {
+        private final byte[] compressed;
+        private final int size;
+        private final long checksum;
+
+        Chunk(byte[] compressed, int size, long checksum) {
+            this.compressed = compressed;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            out.writeInt(compressed.length);
+            out.writeInt((int) checksum);
+            out.write(compressed);
+        }
+    }
+}
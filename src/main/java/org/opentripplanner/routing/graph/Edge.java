@@ -23,6 +23,12 @@ public abstract class Edge implements Serializable {
 
     protected Vertex tov;
 
+    /**
+     * Dense index of the edge in the graph, set when the graph is indexed. Edges created after
+     * that, including all temporary edges, have the index -1.
+     */
+    private transient int index = -1;
+
     protected Edge(Vertex v1, Vertex v2) {
         if (v1 == null || v2 == null) {
             String err = String.format("%s constructed with null vertex : %s %s", this.getClass(),
@@ -42,6 +48,18 @@ public abstract class Edge implements Serializable {
     public Vertex getToVertex() {
         return tov;
     }
+
+    /**
+     * A dense index in {@code [0, graph.getEdgeIndexSize())}, or -1 if the edge was created after
+     * the graph was indexed.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
     
     /**
      * Returns true if this edge is partial - overriden by subclasses.
@@ -4,7 +4,6 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -23,6 +22,7 @@ import org.opentripplanner.common.model.T2;
 import org.opentripplanner.ext.flex.trip.FlexTrip;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.graph_builder.issues.NoFutureDates;
+import org.opentripplanner.graph_builder.linking.SnappingCache;
 import org.opentripplanner.model.Agency;
 import org.opentripplanner.model.FeedInfo;
 import org.opentripplanner.model.FeedScopedId;
@@ -49,12 +49,18 @@ import org.opentripplanner.model.calendar.CalendarServiceData;
 import org.opentripplanner.model.calendar.ServiceDate;
 import org.opentripplanner.model.calendar.impl.CalendarServiceImpl;
 import org.opentripplanner.model.projectinfo.OtpProjectInfo;
+import org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables;
+import org.opentripplanner.routing.algorithm.csr.CompactStreetGraph;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchies;
+import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache;
 import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerUpdater;
 import org.opentripplanner.routing.bike_rental.BikeRentalStationService;
 import org.opentripplanner.routing.core.TransferTable;
 import org.opentripplanner.routing.edgetype.EdgeWithCleanup;
+import org.opentripplanner.routing.edgetype.MappedStreetGeometries;
 import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetEdgeCostTables;
 import org.opentripplanner.routing.impl.DelegatingTransitAlertServiceImpl;
 import org.opentripplanner.routing.impl.StreetVertexIndex;
 import org.opentripplanner.routing.services.TransitAlertService;
@@ -76,6 +82,7 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -106,8 +113,6 @@ public class Graph implements Serializable {
     // TODO Remove this field, use Router.routerId ?
     public String routerId;
 
-    private final Map<Edge, List<TurnRestriction>> turnRestrictions = Maps.newHashMap();
-
     public final StreetNotesService streetNotesService = new StreetNotesService();
 
     /**
@@ -260,6 +265,38 @@ public class Graph implements Serializable {
 
     private transient TransitAlertService transitAlertService;
 
+    /** Cache of access/egress street search results, {@code null} if caching is turned off. */
+    private transient AccessEgressCache accessEgressCache;
+
+    /** Cache of where origins and destinations link to the streets, {@code null} if turned off. */
+    private transient SnappingCache snappingCache;
+
+    /** Landmark distances for the street A* heuristic, {@code null} if not created. */
+    private LandmarkTables landmarkTables;
+
+    /** Contraction hierarchies for direct street routing, {@code null} if not created. */
+    private ContractionHierarchies contractionHierarchies;
+
+    /** Compact view of the street network for nearby stop searches, {@code null} if not created. */
+    private transient CompactStreetGraph compactStreetGraph;
+
+    /**
+     * The id of the street geometry file written with this graph, or 0 if the geometries are
+     * stored in the street edges. See {@link MappedStreetGeometries}.
+     */
+    private long streetGeometryFileId = 0;
+
+    /** The mapped street geometry file, {@code null} if the geometries are stored in the edges. */
+    private transient MappedStreetGeometries streetGeometries;
+
+    /** Precomputed street edge costs for the default requests, {@code null} if not created. */
+    private transient StreetEdgeCostTables streetEdgeCostTables;
+
+    /** All vertex indices are smaller than this, see {@link Vertex#getIndex()}. */
+    private transient volatile int vertexIndexSize = 0;
+
+    /** All edge indices are smaller than this, see {@link Edge#getIndex()}. */
+    private transient int edgeIndexSize = 0;
 
     /**
      * Hack. I've tried three different ways of generating unique labels.
@@ -315,11 +352,30 @@ public class Graph implements Serializable {
     public void addVertex(Vertex v) {
         Vertex old = vertices.put(v.getLabel(), v);
         if (old != null) {
-            if (old == v)
+            if (old == v) {
                 LOG.error("repeatedly added the same vertex: {}", v);
-            else
-                LOG.error("duplicate vertex label in graph (added vertex to graph anyway): {}", v);
+                return;
+            }
+            LOG.error("duplicate vertex label in graph (added vertex to graph anyway): {}", v);
         }
+        v.setIndex(nextVertexIndex());
+    }
+
+    private synchronized int nextVertexIndex() {
+        return vertexIndexSize++;
+    }
+
+    /**
+     * All vertex indices are smaller than this. Vertices added to the graph after it is indexed
+     * get new indices, so the size may grow, but indices are never reused.
+     */
+    public int getVertexIndexSize() {
+        return vertexIndexSize;
+    }
+
+    /** All edge indices are smaller than this. */
+    public int getEdgeIndexSize() {
+        return edgeIndexSize;
     }
 
     /**
@@ -328,7 +384,6 @@ public class Graph implements Serializable {
      */
     public void removeEdge(Edge e) {
         if (e != null) {
-            turnRestrictions.remove(e);
             streetNotesService.removeStaticNotes(e);
 
             if (e instanceof EdgeWithCleanup) ((EdgeWithCleanup) e).detach();
@@ -379,47 +434,34 @@ public class Graph implements Serializable {
     }
 
     /**
-     * Add a {@link TurnRestriction} to the {@link TurnRestriction} {@link List} belonging to an
-     * {@link Edge}. This method is not thread-safe.
+     * Add a {@link TurnRestriction} from a {@link StreetEdge}. The turn restrictions are stored
+     * in the edge, only street edges can have turn restrictions. This method is not thread-safe.
      */
     public void addTurnRestriction(Edge edge, TurnRestriction turnRestriction) {
         if (edge == null || turnRestriction == null) return;
-        List<TurnRestriction> turnRestrictions = this.turnRestrictions.get(edge);
-        if (turnRestrictions == null) {
-            turnRestrictions = Lists.newArrayList();
-            this.turnRestrictions.put(edge, turnRestrictions);
+        if (!(edge instanceof StreetEdge)) {
+            throw new IllegalArgumentException("Only street edges can have turn restrictions: " + edge);
         }
-        turnRestrictions.add(turnRestriction);
+        ((StreetEdge) edge).addTurnRestriction(turnRestriction);
     }
 
     /**
-     * Remove a {@link TurnRestriction} from the {@link TurnRestriction} {@link List} belonging to
-     * an {@link Edge}. This method is not thread-safe.
+     * Remove a {@link TurnRestriction} from an {@link Edge}. This method is not thread-safe.
      */
     public void removeTurnRestriction(Edge edge, TurnRestriction turnRestriction) {
-        if (edge == null || turnRestriction == null) return;
-        List<TurnRestriction> turnRestrictions = this.turnRestrictions.get(edge);
-        if (turnRestrictions != null && turnRestrictions.contains(turnRestriction)) {
-            if (turnRestrictions.size() < 2) {
-                this.turnRestrictions.remove(edge);
-            } else {
-                turnRestrictions.remove(turnRestriction);
-            }
+        if (edge instanceof StreetEdge && turnRestriction != null) {
+            ((StreetEdge) edge).removeTurnRestriction(turnRestriction);
         }
     }
 
     /**
-     * Get the {@link TurnRestriction} {@link List} that belongs to an {@link Edge} and return an
-     * immutable copy. This method is thread-safe when used by itself, but not if addTurnRestriction
-     * or removeTurnRestriction is called concurrently.
-     * @return The {@link TurnRestriction} {@link List} that belongs to the {@link Edge}
+     * Get the {@link TurnRestriction}s from an {@link Edge}, see
+     * {@link StreetEdge#getTurnRestrictions()}.
+     * @return The immutable {@link TurnRestriction} {@link List} that belongs to the {@link Edge}
      */
     public List<TurnRestriction> getTurnRestrictions(Edge edge) {
-        if (edge != null) {
-            List<TurnRestriction> turnRestrictions = this.turnRestrictions.get(edge);
-            if (turnRestrictions != null) {
-                return ImmutableList.copyOf(turnRestrictions);
-            }
+        if (edge instanceof StreetEdge) {
+            return ((StreetEdge) edge).getTurnRestrictions();
         }
         return Collections.emptyList();
     }
@@ -440,6 +482,80 @@ public class Graph implements Serializable {
         TransitLayer transitLayer
     ) {
         this.transitLayer = transitLayer;
+        clearAccessEgressCache();
+    }
+
+    public AccessEgressCache getAccessEgressCache() {
+        return accessEgressCache;
+    }
+
+    public void setAccessEgressCache(AccessEgressCache accessEgressCache) {
+        this.accessEgressCache = accessEgressCache;
+    }
+
+    /**
+     * Drop all cached access/egress stops. This is called when the transit layers are replaced,
+     * and after each change of the graph by the realtime updaters, since the stops reachable
+     * may have changed.
+     */
+    public void clearAccessEgressCache() {
+        if (accessEgressCache != null) {
+            accessEgressCache.invalidateAll();
+        }
+    }
+
+    public SnappingCache getSnappingCache() {
+        return snappingCache;
+    }
+
+    public void setSnappingCache(SnappingCache snappingCache) {
+        this.snappingCache = snappingCache;
+    }
+
+    public CompactStreetGraph getCompactStreetGraph() {
+        return compactStreetGraph;
+    }
+
+    public void setCompactStreetGraph(CompactStreetGraph compactStreetGraph) {
+        this.compactStreetGraph = compactStreetGraph;
+    }
+
+    public StreetEdgeCostTables getStreetEdgeCostTables() {
+        return streetEdgeCostTables;
+    }
+
+    public void setStreetEdgeCostTables(StreetEdgeCostTables streetEdgeCostTables) {
+        this.streetEdgeCostTables = streetEdgeCostTables;
+    }
+
+    public LandmarkTables getLandmarkTables() {
+        return landmarkTables;
+    }
+
+    public void setLandmarkTables(LandmarkTables landmarkTables) {
+        this.landmarkTables = landmarkTables;
+    }
+
+    public ContractionHierarchies getContractionHierarchies() {
+        return contractionHierarchies;
+    }
+
+    public void setContractionHierarchies(ContractionHierarchies contractionHierarchies) {
+        this.contractionHierarchies = contractionHierarchies;
+    }
+
+    public long getStreetGeometryFileId() {
+        return streetGeometryFileId;
+    }
+
+    public MappedStreetGeometries getStreetGeometries() {
+        return streetGeometries;
+    }
+
+    /** Set the mapped street geometries, and the id of the mapped file. */
+    public void setStreetGeometries(MappedStreetGeometries streetGeometries) {
+        this.streetGeometries = streetGeometries;
+        this.streetGeometryFileId = streetGeometries == null ? 0 : streetGeometries.fileId();
     }
 
     public TransitLayer getRealtimeTransitLayer() {
@@ -454,6 +570,7 @@ public class Graph implements Serializable {
         TransitLayer realtimeTransitLayer
     ) {
         this.realtimeTransitLayer.publish(realtimeTransitLayer);
+        clearAccessEgressCache();
     }
 
     public boolean containsVertex(Vertex v) {
@@ -610,6 +727,7 @@ public class Graph implements Serializable {
      */
     public void index () {
         LOG.info("Index graph...");
+        indexVerticesAndEdges();
         streetIndex = new StreetVertexIndex(this);
         LOG.debug("Rebuilding edge and vertex indices.");
         for (TripPattern tp : tripPatternForId.values()) {
@@ -618,9 +736,53 @@ public class Graph implements Serializable {
         }
         // TODO: Move this ^ stuff into the graph index
         this.index = new GraphIndex(this);
+        if (landmarkTables != null) {
+            landmarkTables.index();
+        }
+        if (contractionHierarchies != null) {
+            contractionHierarchies.index();
+        }
         LOG.info("Index graph complete.");
     }
     
+    /**
+     * Give all vertices and edges a dense index, used by the searches to keep their data in arrays.
+     * The vertices are sorted along a Z-order curve, so vertices close to each other usually get
+     * indices close to each other, and a local search touches only a small part of the arrays.
+     * The edges are numbered in the order of their from vertex. The order only depends on the
+     * graph, so the indices are the same each time the same graph is loaded.
+     */
+    private synchronized void indexVerticesAndEdges() {
+        List<Vertex> sorted = new ArrayList<>(vertices.values());
+        sorted.sort(
+            Comparator.comparingLong((Vertex v) -> zOrder(v.getX(), v.getY()))
+                .thenComparing(Vertex::getLabel)
+        );
+        int edgeIndex = 0;
+        for (int i = 0; i < sorted.size(); ++i) {
+            Vertex v = sorted.get(i);
+            v.setIndex(i);
+            for (Edge e : v.getOutgoing()) {
+                e.setIndex(edgeIndex++);
+            }
+        }
+        vertexIndexSize = sorted.size();
+        edgeIndexSize = edgeIndex;
+        LOG.info("Indexed {} vertices and {} edges.", vertexIndexSize, edgeIndexSize);
+    }
+
+    /** Interleave the bits of the coordinates rounded to 16 bits, the key of the Z-order curve. */
+    private static long zOrder(double lon, double lat) {
+        long x = (long) ((lon + 180) / 360 * 0xFFFF) & 0xFFFF;
+        long y = (long) ((lat + 90) / 180 * 0xFFFF) & 0xFFFF;
+        long key = 0;
+        for (int bit = 0; bit < 16; ++bit) {
+            key |= ((x >> bit) & 1) << (2 * bit);
+            key |= ((y >> bit) & 1) << (2 * bit + 1);
+        }
+        return key;
+    }
+
     public CalendarService getCalendarService() {
         if (calendarService == null) {
             CalendarServiceData data = this.getService(CalendarServiceData.class);
@@ -0,0 +1,267 @@
+package org.opentripplanner.routing.graph;
+
+import org.opentripplanner.util.OtpAppException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.opentripplanner.model.projectinfo.OtpProjectInfo.projectInfo;
+
+/**
+ * A file of named, flat binary sections, which are memory-mapped when the file is opened. The
+ * data is read directly from the mapped sections, so it is not copied to the Java heap, it is
+ * paged in by the operating system when used, and the page cache is shared by all processes
+ * mapping the same file.
+ * <p>
+ * The file starts with a fixed size header: an 8 byte magic number, the format version, a file
+ * id and the position of the section table. The sections follow, each aligned to 8 bytes. The
+ * section table at the end lists the OTP serialization version id, and the name, position and
+ * size of each section. A file written by another format version or OTP serialization version
+ * is rejected when opened.
+ * <p>
+ * The file id is chosen when the file is written, and should be stored in the graph, so the graph
+ * can check that the file was written together with it. All numbers are big-endian, and a
+ * section can not be larger than 2 GB.
+ */
+public class MappedSectionFile {
+
+    private static final byte[] MAGIC = { 'O', 'T', 'P', 'M', 'A', 'P', 'P', 'D' };
+
+    /** Increase this when the layout of the header or section table changes. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Magic, format version, file id and table position */
+    private static final int HEADER_SIZE = MAGIC.length + 4 + 8 + 8;
+
+    private final long fileId;
+
+    private final Map<String, ByteBuffer> sections;
+
+    private MappedSectionFile(long fileId, Map<String, ByteBuffer> sections) {
+        this.fileId = fileId;
+        this.sections = sections;
+    }
+
+    /**
+     * Open and map all sections of the file.
+     *
+     * @throws OtpAppException if the file can not be read, or is written by another format or
+     *                         OTP serialization version.
+     */
+    public static MappedSectionFile open(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+
+            byte[] magic = new byte[MAGIC.length];
+            raf.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new OtpAppException("The file is not a mapped graph file: " + file);
+            }
+            int formatVersion = raf.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new OtpAppException(
+                    "The mapped graph file format version %d do not match the version %d in %s.",
+                    FORMAT_VERSION,
+                    formatVersion,
+                    file
+                );
+            }
+            long fileId = raf.readLong();
+            long tablePosition = raf.readLong();
+
+            raf.seek(tablePosition);
+            DataInputStream table = new DataInputStream(Channels.newInputStream(channel));
+            String serializationVersionId = table.readUTF();
+            String expectedVersionId = projectInfo().getOtpSerializationVersionId();
+            if (!expectedVersionId.equals(serializationVersionId)) {
+                throw new OtpAppException(
+                    "The mapped graph file is incompatible with this version of OTP. The OTP "
+                        + "serialization version id '%s' do not match the id '%s' in '%s'.",
+                    expectedVersionId,
+                    serializationVersionId,
+                    file
+                );
+            }
+
+            Map<String, ByteBuffer> sections = new LinkedHashMap<>();
+            int n = table.readInt();
+            for (int i = 0; i < n; ++i) {
+                String name = table.readUTF();
+                long position = table.readLong();
+                long size = table.readLong();
+                sections.put(name, channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+            }
+            // The mapped buffers stay valid after the channel is closed
+            return new MappedSectionFile(fileId, sections);
+        }
+        catch (IOException e) {
+            throw new OtpAppException("Unable to read the mapped graph file " + file + ": " + e.getMessage());
+        }
+    }
+
+    public long fileId() {
+        return fileId;
+    }
+
+    public Set<String> sectionNames() {
+        return sections.keySet();
+    }
+
+    public boolean hasSection(String name) {
+        return sections.containsKey(name);
+    }
+
+    /**
+     * Return a read-only view of the section, with its own position and limit. The returned buffer
+     * is not thread-safe, but each thread can get its own view.
+     */
+    public ByteBuffer section(String name) {
+        ByteBuffer section = sections.get(name);
+        if (section == null) {
+            throw new IllegalArgumentException("No section named " + name);
+        }
+        return section.asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Write a mapped section file. The sections are written one at a time: start a section,
+     * write its content, and start the next section or commit the file.
+     * <p>
+     * The file is written to a temporary file in the same directory, and moved in place when
+     * committed. A file mapped by this or another process is never changed, so it stays valid
+     * until it is unmapped, and a file is never left half-written. Closing the writer without
+     * committing deletes the temporary file.
+     */
+    public static class Writer implements Closeable {
+
+        private final File file;
+
+        private final File tempFile;
+
+        private final long fileId;
+
+        private final DataOutputStream out;
+
+        private final Map<String, long[]> table = new LinkedHashMap<>();
+
+        private long position;
+
+        private String section = null;
+
+        private long sectionStart;
+
+        private boolean committed = false;
+
+        public Writer(File file, long fileId) throws IOException {
+            this.file = file;
+            this.tempFile = File.createTempFile(
+                file.getName() + ".",
+                ".tmp",
+                file.getAbsoluteFile().getParentFile()
+            );
+            this.fileId = fileId;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16));
+            // The table position is written when the file is committed
+            out.write(new byte[HEADER_SIZE]);
+            this.position = HEADER_SIZE;
+        }
+
+        public void startSection(String name) throws IOException {
+            if (table.containsKey(name) || name.equals(section)) {
+                throw new IllegalArgumentException("Duplicate section " + name);
+            }
+            endSection();
+            section = name;
+            sectionStart = position;
+        }
+
+        /** The position of the next byte written, relative to the start of the current section. */
+        public long sectionPosition() {
+            return position - sectionStart;
+        }
+
+        public void write(byte[] bytes) throws IOException {
+            checkSectionStarted();
+            out.write(bytes);
+            position += bytes.length;
+        }
+
+        public void writeInt(int value) throws IOException {
+            checkSectionStarted();
+            out.writeInt(value);
+            position += 4;
+        }
+
+        /**
+         * Write the section table and the header, and move the file in place. This replaces the
+         * existing file atomically.
+         */
+        public void commit() throws IOException {
+            endSection();
+            long tablePosition = position;
+            out.writeUTF(projectInfo().getOtpSerializationVersionId());
+            out.writeInt(table.size());
+            for (Map.Entry<String, long[]> it : table.entrySet()) {
+                out.writeUTF(it.getKey());
+                out.writeLong(it.getValue()[0]);
+                out.writeLong(it.getValue()[1]);
+            }
+            out.close();
+
+            try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+                raf.write(MAGIC);
+                raf.writeInt(FORMAT_VERSION);
+                raf.writeLong(fileId);
+                raf.writeLong(tablePosition);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        /** Delete the temporary file, unless the file is committed. */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        }
+
+        private void endSection() throws IOException {
+            if (section == null) { return; }
+            long size = position - sectionStart;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The section " + section + " is larger than 2 GB.");
+            }
+            table.put(section, new long[] { sectionStart, size });
+            section = null;
+            // Align the next section to 8 bytes
+            while (position % 8 != 0) {
+                out.write(0);
+                ++position;
+            }
+        }
+
+        private void checkSectionStarted() {
+            if (section == null) {
+                throw new IllegalStateException("No section started");
+            }
+        }
+    }
+}
@@ -19,11 +19,13 @@ import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntIntHashMap;
 import org.objenesis.strategy.SerializingInstantiatorStrategy;
 import org.opentripplanner.datastore.DataSource;
+import org.opentripplanner.datastore.file.FileDataSource;
 import org.opentripplanner.kryo.BuildConfigSerializer;
 import org.opentripplanner.kryo.HashBiMapSerializer;
 import org.opentripplanner.kryo.RouterConfigSerializer;
 import org.opentripplanner.model.projectinfo.GraphFileHeader;
 import org.opentripplanner.model.projectinfo.OtpProjectInfo;
+import org.opentripplanner.routing.edgetype.MappedStreetGeometries;
 import org.opentripplanner.standalone.config.BuildConfig;
 import org.opentripplanner.standalone.config.RouterConfig;
 import org.opentripplanner.util.OtpAppException;
@@ -55,6 +57,10 @@ import static org.opentripplanner.model.projectinfo.OtpProjectInfo.projectInfo;
  * serializer to know that vertices referenced by the edges are the same vertices stored in the
  * graph itself. The easiest way to do this is to make only one serialization call, serializing a
  * single object that contains both the graph and the edge collection.
+ * <p>
+ * The file starts with the {@link GraphFileHeader}, followed by the serialized object split in
+ * compressed chunks with checksums. The chunks are compressed and decompressed in parallel, see
+ * {@link ChunkedGraphOutputStream} and {@link ChunkedGraphInputStream}.
  */
 public class SerializedGraphObject implements Serializable {
     private static final Logger LOG = LoggerFactory.getLogger(SerializedGraphObject.class);
@@ -90,14 +96,16 @@ public class SerializedGraphObject implements Serializable {
     }
 
     public static SerializedGraphObject load(DataSource source) {
-        return load(source.asInputStream(), source.path());
+        return load(source.asInputStream(), source.path(), source.size(), localFile(source));
     }
 
     public static Graph load(File file) {
         try {
             SerializedGraphObject serObj = load(
                     new FileInputStream(file),
-                    file.getAbsolutePath()
+                    file.getAbsolutePath(),
+                    file.length(),
+                    file
             );
             return serObj == null ? null : serObj.graph;
         } catch (FileNotFoundException e) {
@@ -128,6 +136,7 @@ public class SerializedGraphObject implements Serializable {
      */
     public void save(@Nullable DataSource target) {
         if (target != null) {
+            saveStreetGeometries(localFile(target));
             save(target.asOutputStream(), target.name(), target.size());
         } else {
             LOG.info("Not saving graph to disk, as requested.");
@@ -140,6 +149,7 @@ public class SerializedGraphObject implements Serializable {
      */
     public void saveToFile(File file) throws IOException {
         try {
+            saveStreetGeometries(file);
             save(new FileOutputStream(file), file.getName(), file.length());
         } catch (Exception e) {
             // remove half-written file
@@ -203,23 +213,76 @@ public class SerializedGraphObject implements Serializable {
 
     /* private methods */
 
-    private static SerializedGraphObject load(InputStream inputStream, String sourceDescription) {
-        // TODO store version information, halt load if versions mismatch
-        try(inputStream) {
+    /**
+     * Write the street geometries to a mapped file next to the graph file, if configured. The
+     * geometries are then no longer stored in the edges, and are not written to the graph file.
+     */
+    private void saveStreetGeometries(@Nullable File graphFile) {
+        boolean mapped = buildConfig != null && buildConfig.mappedStreetGeometry;
+
+        if (mapped && graphFile == null) {
+            LOG.warn("The street geometries can only be mapped from the local file system, they are saved in the graph.");
+        }
+        if (!mapped || graphFile == null) {
+            if (graph.getStreetGeometries() != null) {
+                MappedStreetGeometries.detach(graph);
+            }
+            return;
+        }
+        File geometryFile = MappedStreetGeometries.fileFor(graphFile);
+        try {
+            MappedStreetGeometries.write(geometryFile, graph);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Cannot write street geometries to: " + geometryFile, e);
+        }
+    }
+
+    /** The file of a data source on the local file system, or null. */
+    @Nullable
+    private static File localFile(DataSource source) {
+        return source instanceof FileDataSource ? new File(source.path()) : null;
+    }
+
+    private static SerializedGraphObject load(
+            InputStream inputStream,
+            String sourceDescription,
+            long size,
+            @Nullable File graphFile
+    ) {
+        InputStream in = wrapInputStreamWithProgressTracker(inputStream, size);
+        // The graph is decompressed in parallel, ahead of the deserialization
+        try(ChunkedGraphInputStream chunked = new ChunkedGraphInputStream(in)) {
             LOG.info("Reading graph from '{}'", sourceDescription);
-            Input input = new Input(inputStream);
+            long startTime = System.currentTimeMillis();
 
             validateGraphSerializationId(
-                input.readBytes(GraphFileHeader.headerLength()),
+                in.readNBytes(GraphFileHeader.headerLength()),
                 sourceDescription
             );
 
             Kryo kryo = makeKryo();
-            SerializedGraphObject serObj = (SerializedGraphObject) kryo.readClassAndObject(input);
+            SerializedGraphObject serObj = (SerializedGraphObject) kryo.readClassAndObject(
+                new Input(chunked, 1 << 16)
+            );
             Graph graph = serObj.graph;
             LOG.debug("Graph read.");
             serObj.reconstructEdgeLists();
-            LOG.info("Graph read. |V|={} |E|={}", graph.countVertices(), graph.countEdges());
+            if (graph.getStreetGeometryFileId() != 0) {
+                if (graphFile == null) {
+                    throw new OtpAppException(
+                        "The graph street geometries are stored in a separate file, the graph "
+                            + "must be loaded from the local file system: " + sourceDescription
+                    );
+                }
+                MappedStreetGeometries.attach(graph, MappedStreetGeometries.fileFor(graphFile));
+            }
+            LOG.info(
+                "Graph read in {} ms. |V|={} |E|={}",
+                System.currentTimeMillis() - startTime,
+                graph.countVertices(),
+                graph.countEdges()
+            );
             return serObj;
         }
         catch (IOException e) {
@@ -227,6 +290,13 @@ public class SerializedGraphObject implements Serializable {
             return null;
         }
         catch (KryoException ke) {
+            if (ke.getCause() instanceof IOException) {
+                // A corrupt or truncated graph file is reported by the chunked input stream
+                LOG.warn("Exception while loading graph: {}\n{}", sourceDescription, ke.getCause().getMessage());
+                throw new OtpAppException(
+                    "Unable to load graph: " + ke.getCause().getMessage() + " Graph: " + sourceDescription
+                );
+            }
             LOG.warn("Exception while loading graph: {}\n{}", sourceDescription, ke.getLocalizedMessage());
             throw new OtpAppException("Unable to load graph. The deserialization failed. Is the "
                     + "loaded graph build with the same OTP version as you are using to load it? "
@@ -238,10 +308,19 @@ public class SerializedGraphObject implements Serializable {
         LOG.info("Writing graph " + graphName + " ...");
         outputStream = wrapOutputStreamWithProgressTracker(outputStream, size);
         Kryo kryo = makeKryo();
-        Output output = new Output(outputStream);
-        output.write(OtpProjectInfo.projectInfo().graphFileHeaderInfo.header());
-        kryo.writeClassAndObject(output, this);
-        output.close();
+        try {
+            outputStream.write(OtpProjectInfo.projectInfo().graphFileHeaderInfo.header());
+            // The graph is written in chunks, which are compressed in parallel. The chunked stream
+            // is closed here, because Kryo ignores exceptions thrown when closing the stream.
+            try (ChunkedGraphOutputStream chunked = new ChunkedGraphOutputStream(outputStream)) {
+                Output output = new Output(chunked, 1 << 16);
+                kryo.writeClassAndObject(output, this);
+                output.flush();
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Failed to write graph " + graphName + ": " + e.getMessage(), e);
+        }
         LOG.info("Graph written: {}", graphName);
         // Summarize serialized classes and associated serializers to stdout:
         // ((InstanceCountingClassResolver) kryo.getClassResolver()).summarize();
@@ -259,6 +338,18 @@ public class SerializedGraphObject implements Serializable {
         );
     }
 
+    @SuppressWarnings("Convert2MethodRef")
+    private static InputStream wrapInputStreamWithProgressTracker(InputStream inputStream, long size) {
+        return ProgressTracker.track(
+                "Load graph",
+                500_000,
+                size,
+                inputStream,
+                // Keep this to get correct logging info for class and line number
+                msg -> LOG.info(msg)
+        );
+    }
+
     private static void validateGraphSerializationId(byte[] header, String sourceName) {
         var expFileHeader = projectInfo().graphFileHeaderInfo;
         var graphFileHeader = GraphFileHeader.parse(header);
@@ -46,6 +46,12 @@ public abstract class Vertex implements Serializable, Cloneable {
 
     private transient Edge[] outgoing = new Edge[0];
 
+    /**
+     * Dense index of the vertex in the graph, set by the graph when the vertex is added and when
+     * the graph is indexed. Temporary vertices are not in the graph and have the index -1.
+     */
+    private transient int index = -1;
+
     /* CONSTRUCTORS */
 
     protected Vertex(Graph g, String label, double x, double y) {
@@ -222,6 +228,18 @@ public abstract class Vertex implements Serializable, Cloneable {
 
     /* FIELD ACCESSOR METHODS : READ ONLY */
 
+    /**
+     * A dense index in {@code [0, graph.getVertexIndexSize())} for permanent vertices, or -1 for
+     * temporary vertices. The index can be used to store search data in arrays instead of maps.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     /** Every vertex has a label which is globally unique. */
     public String getLabel() {
         return label;
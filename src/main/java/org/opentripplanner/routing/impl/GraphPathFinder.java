@@ -1,9 +1,14 @@
 package org.opentripplanner.routing.impl;
 
 import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.astar.BidirectionalAStar;
 import org.opentripplanner.routing.algorithm.astar.strategies.EuclideanRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.astar.strategies.LandmarkRemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.astar.strategies.RemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchies;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchy;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchyPathFinder;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.api.response.RoutingErrorCode;
 import org.opentripplanner.routing.error.PathNotFoundException;
@@ -80,14 +85,7 @@ public class GraphPathFinder {
         options.dominanceFunction = new DominanceFunction.MinimumWeight(); // FORCING the dominance function to weight only
         LOG.debug("rreq={}", options);
 
-        // Choose an appropriate heuristic for goal direction.
-        RemainingWeightHeuristic heuristic;
-        if (options.disableRemainingWeightHeuristic || options.oneToMany) {
-            heuristic = new TrivialRemainingWeightHeuristic();
-        } else {
-            heuristic = new EuclideanRemainingWeightHeuristic();
-        }
-        options.rctx.remainingWeightHeuristic = heuristic;
+        options.rctx.remainingWeightHeuristic = createHeuristic(options);
 
         /* maxWalk has a different meaning than it used to. It's the radius around the origin or destination within
          * which you can walk on the streets. An unlimited value would cause the bidi heuristic to do unbounded street
@@ -111,10 +109,21 @@ public class GraphPathFinder {
             options.rctx.aborted = true;
             return null;
         }
-        // Don't dig through the SPT object, just ask the A star algorithm for the states that reached the target.
-        aStar.getShortestPathTree(options, timeout);
+        List<GraphPath> paths = findPathWithContractionHierarchy(options);
+        if (paths == null && useBidirectionalSearch(options)) {
+            BidirectionalAStar bidirectionalAStar = new BidirectionalAStar(options, createHeuristic(options));
+            GraphPath path = bidirectionalAStar.findPath(timeout);
+            LOG.debug("Bidirectional search settled {} vertices", bidirectionalAStar.getSettledVertexCount());
+            paths = path == null ? Collections.emptyList() : List.of(path);
+        }
+        if (paths == null) {
+            // Don't dig through the SPT object, just ask the A star algorithm for the states that reached the target.
+            aStar.getShortestPathTree(options, timeout);
+            paths = aStar.getPathsToTarget();
+            LOG.debug("A* search settled {} vertices", aStar.getSettledVertexCount());
+        }
 
-        List<GraphPath> paths = aStar.getPathsToTarget().stream()
+        paths = paths.stream()
                 .filter(path -> {
                     double duration = options.useRequestedDateTimeInMaxHours
                         ? options.arriveBy
@@ -131,6 +140,46 @@ public class GraphPathFinder {
         return paths;
     }
 
+    /** Choose an appropriate heuristic for goal direction. */
+    private RemainingWeightHeuristic createHeuristic(RoutingRequest options) {
+        if (options.disableRemainingWeightHeuristic || options.oneToMany) {
+            return new TrivialRemainingWeightHeuristic();
+        } else if (router.graph.getLandmarkTables() != null) {
+            // Falls back to the Euclidean heuristic if there is no table for the modes
+            return new LandmarkRemainingWeightHeuristic(router.graph.getLandmarkTables());
+        } else {
+            return new EuclideanRemainingWeightHeuristic();
+        }
+    }
+
+    /**
+     * Use the bidirectional search if the request asks for it and has one origin and one
+     * destination. The graph visualizer shows the A* search.
+     */
+    private boolean useBidirectionalSearch(RoutingRequest options) {
+        return options.bidirectionalStreetSearch
+                && router.graphVisualizer == null
+                && BidirectionalAStar.supports(options);
+    }
+
+    /**
+     * Use the contraction hierarchy fast path if the graph has a hierarchy for the request
+     * modes and parameters. Return {@code null} if the A* search should be used.
+     */
+    private List<GraphPath> findPathWithContractionHierarchy(RoutingRequest options) {
+        ContractionHierarchies hierarchies = router.graph.getContractionHierarchies();
+        // The graph visualizer shows the A* search
+        if (hierarchies == null || router.graphVisualizer != null) {
+            return null;
+        }
+        ContractionHierarchy ch = hierarchies.forRequest(options);
+        if (ch == null) {
+            return null;
+        }
+        GraphPath path = new ContractionHierarchyPathFinder(ch, options).findPath();
+        return path == null ? null : List.of(path);
+    }
+
     /**
      *  Try to find N paths through the Graph
      * @throws RoutingValidationException
@@ -0,0 +1,154 @@
+package org.opentripplanner.routing.spt;
+
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.util.PagedArrays;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A shortest path tree keeping a single state per vertex in an array indexed by
+ * {@link Vertex#getIndex()}, for dominance functions where one state always wins over another
+ * comparable state, like {@link DominanceFunction.MinimumWeight}.
+ * <p>
+ * States which are not comparable (bike rental, parking and turn restrictions) can still exist at
+ * the same vertex. When this happens the states of the vertex are moved to the map of the
+ * {@link ShortestPathTree}, which is also used for the temporary vertices and the vertices added
+ * to the graph after the tree was created.
+ * <p>
+ * The array is a {@link PagedArrays.OfObject}, so a small search, like most access and egress
+ * searches, only allocates the pages around the origin.
+ */
+public class ArrayShortestPathTree extends ShortestPathTree {
+
+    private final int size;
+
+    private final PagedArrays.OfObject<State> states;
+
+    /** The vertices with their states in the map of the parent class. */
+    private final BitSet multiStateVertices = new BitSet();
+
+    /** The number of vertices with a state in the array. */
+    private int arrayVertexCount = 0;
+
+    /**
+     * @param vertexIndexSize all vertices with an index smaller than this are kept in the array,
+     *                        usually {@link org.opentripplanner.routing.graph.Graph#getVertexIndexSize()}.
+     */
+    public ArrayShortestPathTree(
+            RoutingRequest options,
+            DominanceFunction dominanceFunction,
+            int vertexIndexSize
+    ) {
+        super(options, dominanceFunction);
+        this.size = vertexIndexSize;
+        this.states = new PagedArrays.OfObject<>(vertexIndexSize);
+    }
+
+    @Override
+    public boolean add(State newState) {
+        int index = newState.getVertex().getIndex();
+        if (!inArray(index)) {
+            return super.add(newState);
+        }
+        State oldState = states.get(index);
+
+        if (oldState == null) {
+            states.set(index, newState);
+            ++arrayVertexCount;
+            return true;
+        }
+        // order is important, because in the case of a tie we want to reject the new state
+        if (dominanceFunction.betterOrEqualAndComparable(oldState, newState)) {
+            return false;
+        }
+        if (dominanceFunction.betterOrEqualAndComparable(newState, oldState)) {
+            states.set(index, newState);
+            return true;
+        }
+        // The states are not comparable, keep both in the map from now on
+        states.set(index, null);
+        --arrayVertexCount;
+        multiStateVertices.set(index);
+        super.add(oldState);
+        return super.add(newState);
+    }
+
+    @Override
+    public boolean visit(State state) {
+        int index = state.getVertex().getIndex();
+        if (!inArray(index)) {
+            return super.visit(state);
+        }
+        return states.get(index) == state;
+    }
+
+    @Override
+    public State getState(Vertex dest) {
+        int index = dest.getIndex();
+        if (!inArray(index)) {
+            return super.getState(dest);
+        }
+        State state = states.get(index);
+        return state != null && state.isFinal() ? state : null;
+    }
+
+    @Override
+    public List<State> getStates(Vertex dest) {
+        int index = dest.getIndex();
+        if (!inArray(index)) {
+            return super.getStates(dest);
+        }
+        State state = states.get(index);
+        return state == null ? null : Collections.singletonList(state);
+    }
+
+    @Override
+    public Set<Vertex> getVertices() {
+        Set<Vertex> vertices = Collections.newSetFromMap(new IdentityHashMap<>());
+        vertices.addAll(super.getVertices());
+        for (State state : arrayStates()) {
+            vertices.add(state.getVertex());
+        }
+        return vertices;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return super.getVertexCount() + arrayVertexCount;
+    }
+
+    @Override
+    public Collection<State> getAllStates() {
+        Collection<State> allStates = super.getAllStates();
+        allStates.addAll(arrayStates());
+        return allStates;
+    }
+
+    /**
+     * The index of the state in an {@link org.opentripplanner.common.pqueue.IndexedFourAryHeap}.
+     * A state replacing another state at the same vertex gets the same index, so it replaces the
+     * dominated state in the queue too. Return -1 if the vertex may have more than one state.
+     */
+    public int getQueueIndex(State state) {
+        int index = state.getVertex().getIndex();
+        return inArray(index) ? index : -1;
+    }
+
+    private boolean inArray(int index) {
+        return index >= 0 && index < size && !multiStateVertices.get(index);
+    }
+
+    private List<State> arrayStates() {
+        List<State> result = new ArrayList<>(arrayVertexCount);
+        states.forEach(result::add);
+        return result;
+    }
+}
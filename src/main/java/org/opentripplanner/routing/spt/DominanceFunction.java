@@ -1,6 +1,11 @@
 package org.opentripplanner.routing.spt;
 
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.common.pqueue.IndexedFourAryHeap;
+import org.opentripplanner.common.pqueue.OTPPriorityQueue;
+import org.opentripplanner.common.pqueue.RadixHeap;
 import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.RoutingContext;
 import org.opentripplanner.routing.core.State;
 import org.opentripplanner.routing.edgetype.StreetEdge;
 
@@ -66,7 +71,7 @@ public abstract class DominanceFunction implements Serializable {
 
         // Are the two states arriving at a vertex from two different directions where turn restrictions apply?
         if (a.backEdge != b.getBackEdge() && (a.backEdge instanceof StreetEdge)) {
-            if (! a.getOptions().getRoutingContext().graph.getTurnRestrictions(a.backEdge).isEmpty()) {
+            if (((StreetEdge) a.backEdge).hasTurnRestrictions()) {
                 return false;
             }
         }
@@ -84,10 +89,40 @@ public abstract class DominanceFunction implements Serializable {
         return new ShortestPathTree(routingRequest, this);
      }
 
+    /**
+     * Create the priority queue for a search using this function and the given shortest path tree. A state replacing a
+     * dominated state in an {@link ArrayShortestPathTree} also replaces it in the queue, so the queue does not fill up
+     * with dominated states. {@code monotoneKeys} is set if a key inserted is never lower than the last key extracted,
+     * which is the case for a search without a remaining weight heuristic.
+     */
+    public OTPPriorityQueue<State> getNewPriorityQueue(ShortestPathTree spt, boolean monotoneKeys, int initialSize) {
+        if (spt instanceof ArrayShortestPathTree) {
+            return new IndexedFourAryHeap<>(initialSize, ((ArrayShortestPathTree) spt)::getQueueIndex);
+        }
+        return monotoneKeys ? new RadixHeap<>() : new BinHeap<>(initialSize);
+    }
+
+    /**
+     * Create an {@link ArrayShortestPathTree}, for functions where one of two comparable states always wins. Fall back
+     * to the general tree if the vertices of the graph are not indexed.
+     */
+    protected ShortestPathTree getNewArrayShortestPathTree(RoutingRequest routingRequest) {
+        RoutingContext rctx = routingRequest.getRoutingContext();
+        if (rctx == null || rctx.graph == null || rctx.graph.getVertexIndexSize() == 0) {
+            return new ShortestPathTree(routingRequest, this);
+        }
+        return new ArrayShortestPathTree(routingRequest, this, rctx.graph.getVertexIndexSize());
+    }
+
     public static class MinimumWeight extends DominanceFunction {
         /** Return true if the first state has lower weight than the second state. */
         @Override
         public boolean betterOrEqual (State a, State b) { return a.weight <= b.weight; }
+
+        @Override
+        public ShortestPathTree getNewShortestPathTree(RoutingRequest routingRequest) {
+            return getNewArrayShortestPathTree(routingRequest);
+        }
     }
 
     /**
@@ -98,6 +133,11 @@ public abstract class DominanceFunction implements Serializable {
         /** Return true if the first state has lower elapsed time than the second state. */
         @Override
         public boolean betterOrEqual (State a, State b) { return a.getElapsedTimeSeconds() <= b.getElapsedTimeSeconds(); }
+
+        @Override
+        public ShortestPathTree getNewShortestPathTree(RoutingRequest routingRequest) {
+            return getNewArrayShortestPathTree(routingRequest);
+        }
     }
     
     /**
@@ -113,6 +153,11 @@ public abstract class DominanceFunction implements Serializable {
             return a.getWalkDistance() <= b.getWalkDistance(); 
         }
 
+        @Override
+        public ShortestPathTree getNewShortestPathTree(RoutingRequest routingRequest) {
+            return getNewArrayShortestPathTree(routingRequest);
+        }
+
     }
 
     /** In this implementation the relation is not symmetric. There are sets of mutually co-dominant states. */
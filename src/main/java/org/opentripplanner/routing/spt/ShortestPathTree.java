@@ -15,9 +15,10 @@ import java.util.*;
  * so that decisions can be made about whether new states should be enqueued for later exploration.
  * It also allows states to be retrieved for a given target vertex.
  * 
- * We no longer have different implementations of ShortestPathTree because the label-setting (multi-state) approach
- * used in public transit routing, turn restrictions, bike rental, etc. is a generalization of the basic Dijkstra 
- * (single-state) approach. It is much more straightforward to use the more general SPT implementation in all cases.
+ * The label-setting (multi-state) approach used in public transit routing, turn restrictions, bike rental, etc. is a
+ * generalization of the basic Dijkstra (single-state) approach, so this implementation works in all cases. For
+ * dominance functions where one state usually wins, {@link ArrayShortestPathTree} keeps the states in arrays indexed
+ * by vertex instead, which is faster and uses less memory.
  *
  * Note that turn restrictions make all searches multi-state; however turn restrictions do not apply when walking.
  * The turn restriction handling is done in the base dominance function implementation, and applies to all subclasses.
@@ -82,18 +83,18 @@ public class ShortestPathTree {
         Multiset<Integer> histogram = HashMultiset.create();
         int statesCount = 0;
         int maxSize = 0;
-        for (Map.Entry<Vertex, List<State>> kv : stateSets.entrySet()) {
-            List<State> states = kv.getValue();
-            int size = states.size();
+        Set<Vertex> vertices = getVertices();
+        for (Vertex vertex : vertices) {
+            int size = getStates(vertex).size();
             histogram.add(size);
             statesCount += size;
             if (size > maxSize) {
                 maxSize = size;
             }
         }
-        LOG.info("SPT: vertices: " + stateSets.size() + " states: total: "
+        LOG.info("SPT: vertices: " + vertices.size() + " states: total: "
                 + statesCount + " per vertex max: " + maxSize + " avg: "
-                + (statesCount * 1.0 / stateSets.size()));
+                + (statesCount * 1.0 / vertices.size()));
         List<Integer> nStates = new ArrayList<Integer>(histogram.elementSet());
         Collections.sort(nStates);
         for (Integer nState : nStates) {
@@ -227,7 +228,7 @@ public class ShortestPathTree {
     }
 
     public String toString() {
-        return "ShortestPathTree(" + this.stateSets.size() + " vertices)";
+        return getClass().getSimpleName() + "(" + getVertexCount() + " vertices)";
     }
 
 }
\ No newline at end of file
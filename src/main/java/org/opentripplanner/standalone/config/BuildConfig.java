@@ -111,6 +111,19 @@ public class BuildConfig {
      */
     public final boolean areaVisibility;
 
+    /**
+     * Create contraction hierarchies for car and bicycle direct street routing with the default
+     * request parameters. The hierarchy weights do not include turn costs, so the paths found are
+     * only optimal without turn costs.
+     */
+    public final boolean contractionHierarchies;
+
+    /**
+     * Store the street geometries in a memory-mapped file next to the graph file, instead of in
+     * the graph. See {@link org.opentripplanner.routing.edgetype.MappedStreetGeometries}.
+     */
+    public final boolean mappedStreetGeometry;
+
     /**
      * Link unconnected entries to public transport platforms.
      */
@@ -157,6 +170,12 @@ public class BuildConfig {
      */
     public final boolean osmCacheDataInMem;
 
+    /**
+     * The number of threads used to decompress and parse the blocks of the OSM PBF files. The
+     * default is the number of available processors.
+     */
+    public final int osmParserThreads;
+
     /**
      * Whether bike rental stations should be loaded from OSM, rather than periodically dynamically pulled from APIs.
      */
@@ -177,6 +196,13 @@ public class BuildConfig {
      */
     public int maxInterlineDistance;
 
+    /**
+     * The number of landmarks used by the street A* heuristic. The distances to and from each
+     * landmark are stored for each street vertex and mode. The default is 0, no landmarks are
+     * created and the street searches use the plain A* heuristic.
+     */
+    public final int landmarks;
+
     /**
      * This field indicates the pruning threshold for islands without stops.
      * Any such island under this size will be pruned.
@@ -315,6 +341,7 @@ public class BuildConfig {
         banDiscouragedWalking = c.asBoolean("banDiscouragedWalking", false);
         banDiscouragedBiking = c.asBoolean("banDiscouragedBiking", false);
         configVersion = c.asText("configVersion", null);
+        contractionHierarchies = c.asBoolean("contractionHierarchies", false);
         dataImportReport = c.asBoolean("dataImportReport", false);
         distanceBetweenElevationSamples = c.asDouble("distanceBetweenElevationSamples",
             CompactElevationProfile.DEFAULT_DISTANCE_BETWEEN_SAMPLES_METERS
@@ -326,12 +353,18 @@ public class BuildConfig {
         includeEllipsoidToGeoidDifference = c.asBoolean("includeEllipsoidToGeoidDifference", false);
         pruningThresholdIslandWithStops = c.asInt("islandWithStopsMaxSize", 5);
         pruningThresholdIslandWithoutStops = c.asInt("islandWithoutStopsMaxSize", 40);
+        landmarks = c.asInt("landmarks", 0);
+        mappedStreetGeometry = c.asBoolean("mappedStreetGeometry", false);
         matchBusRoutesToStreets = c.asBoolean("matchBusRoutesToStreets", false);
         maxDataImportIssuesPerFile = c.asInt("maxDataImportIssuesPerFile", 1000);
         maxInterlineDistance = c.asInt("maxInterlineDistance", 200);
         maxTransferDistance = c.asDouble("maxTransferDistance", 2000d);
         multiThreadElevationCalculations = c.asBoolean("multiThreadElevationCalculations", false);
         osmCacheDataInMem = c.asBoolean("osmCacheDataInMem", false);
+        osmParserThreads = Math.max(
+            1,
+            c.asInt("osmParserThreads", Runtime.getRuntime().availableProcessors())
+        );
         osmWayPropertySet = WayPropertySetSource.fromConfig(c.asText("osmWayPropertySet", "default"));
         parentStopLinking = c.asBoolean("parentStopLinking", false);
         platformEntriesLinking = c.asBoolean("platformEntriesLinking", false);
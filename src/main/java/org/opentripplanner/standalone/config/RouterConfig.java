@@ -19,6 +19,8 @@ import static org.opentripplanner.standalone.config.RoutingRequestMapper.mapRout
 public class RouterConfig implements Serializable {
 
     private static final double DEFAULT_STREET_ROUTING_TIMEOUT = 5.0;
+    private static final int DEFAULT_ACCESS_EGRESS_CACHE_SIZE = 0;
+    private static final int DEFAULT_ACCESS_EGRESS_CACHE_TTL_SECONDS = 600;
     private static final Logger LOG = LoggerFactory.getLogger(RouterConfig.class);
 
     public static final RouterConfig DEFAULT = new RouterConfig(
@@ -33,6 +35,13 @@ public class RouterConfig implements Serializable {
     private final String requestLogFile;
     private final boolean transmodelApiHideFeedId;
     private final double streetRoutingTimeoutSeconds;
+    private final int streetRoutingThreadPoolSize;
+    private final int accessEgressCacheSize;
+    private final int accessEgressCacheTtlSeconds;
+    private final int snappingCacheSize;
+    private final boolean compactStreetGraph;
+    private final boolean streetEdgeCostTables;
+    private final boolean bidirectionalDirectStreetSearch;
     private final RoutingRequest routingRequestDefaults;
     private final TransitRoutingConfig transitConfig;
     private final UpdatersParameters updatersParameters;
@@ -47,6 +56,17 @@ public class RouterConfig implements Serializable {
         this.streetRoutingTimeoutSeconds = adapter.asDouble(
                 "streetRoutingTimeout", DEFAULT_STREET_ROUTING_TIMEOUT
         );
+        this.streetRoutingThreadPoolSize = adapter.asInt("streetRoutingThreadPoolSize", 0);
+        this.accessEgressCacheSize = adapter.asInt(
+                "accessEgressCacheSize", DEFAULT_ACCESS_EGRESS_CACHE_SIZE
+        );
+        this.accessEgressCacheTtlSeconds = adapter.asInt(
+                "accessEgressCacheTtlSeconds", DEFAULT_ACCESS_EGRESS_CACHE_TTL_SECONDS
+        );
+        this.snappingCacheSize = adapter.asInt("snappingCacheSize", 0);
+        this.compactStreetGraph = adapter.asBoolean("compactStreetGraph", false);
+        this.streetEdgeCostTables = adapter.asBoolean("streetEdgeCostTables", false);
+        this.bidirectionalDirectStreetSearch = adapter.asBoolean("bidirectionalDirectStreetSearch", false);
         this.transitConfig = new TransitRoutingConfig(adapter.path("transit"));
         this.routingRequestDefaults = mapRoutingRequest(adapter.path("routingDefaults"));
         this.updatersParameters = new UpdatersConfig(adapter);
@@ -88,6 +108,73 @@ public class RouterConfig implements Serializable {
         return streetRoutingTimeoutSeconds;
     }
 
+    /**
+     * The direct street search, the direct flex search and the access and egress searches of a
+     * routing request are independent of each other, and can run in parallel using a thread pool
+     * shared by all requests. This is the number of threads in the pool. The pool queue is
+     * bounded, when it is full the searches run in the request thread.
+     * <p>
+     * If 0, no thread pool is created, and the searches run one after the other in the request
+     * thread. This is the default, since the extra threads only help when the server has idle
+     * processors under the expected request load.
+     */
+    public int streetRoutingThreadPoolSize() {
+        return streetRoutingThreadPoolSize;
+    }
+
+    /**
+     * The maximum number of access/egress street search results to cache. The stops found by the
+     * street search from popular origins and destinations are cached and reused by later
+     * requests with the same street mode and street parameters. If 0, nothing is cached, this is
+     * the default.
+     */
+    public int accessEgressCacheSize() {
+        return accessEgressCacheSize;
+    }
+
+    /**
+     * The number of seconds a cached access/egress street search result is kept, before it is
+     * dropped and a new search is done.
+     */
+    public int accessEgressCacheTtlSeconds() {
+        return accessEgressCacheTtlSeconds;
+    }
+
+    /**
+     * The maximum number of origin and destination coordinates for which the street edges they are
+     * linked to are cached. 0 turns the cache off.
+     */
+    public int snappingCacheSize() {
+        return snappingCacheSize;
+    }
+
+    /**
+     * If true, a compact copy of the street network is created at startup, and used to find the
+     * stops near the origin and destination of the requests, and the stops near each stop for
+     * flex. This makes these searches faster, but uses more memory.
+     */
+    public boolean compactStreetGraph() {
+        return compactStreetGraph;
+    }
+
+    /**
+     * If true, the time and weight of each street edge is computed at startup for the default
+     * walk, bicycle and car parameters, and looked up during the street searches of requests
+     * using these parameters. This makes these searches faster, but uses more memory.
+     */
+    public boolean streetEdgeCostTables() {
+        return streetEdgeCostTables;
+    }
+
+    /**
+     * If true, the direct street search of a request between one origin and one destination
+     * vertex is always done as a bidirectional A* search, see
+     * {@link RoutingRequest#bidirectionalStreetSearch}.
+     */
+    public boolean bidirectionalDirectStreetSearch() {
+        return bidirectionalDirectStreetSearch;
+    }
+
     public boolean transmodelApiHideFeedId() { return transmodelApiHideFeedId; }
 
     public RoutingRequest routingRequestDefaults() {
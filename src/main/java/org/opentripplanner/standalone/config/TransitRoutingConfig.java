@@ -20,6 +20,8 @@ public final class TransitRoutingConfig
     private final int scheduledTripBinarySearchThreshold;
     private final int iterationDepartureStepInSeconds;
     private final int searchThreadPoolSize;
+    private final int searchWindowSplitCount;
+    private final int transitLayerWindowDays;
     private final Map<TransferPriority, Integer> stopTransferCost;
     private final DynamicSearchWindowCoefficients dynamicSearchWindowCoefficients;
 
@@ -42,6 +44,11 @@ public final class TransitRoutingConfig
             "searchThreadPoolSize",
             dft.searchThreadPoolSize()
         );
+        this.searchWindowSplitCount = c.asInt(
+            "searchWindowSplitCount",
+            dft.searchWindowSplitCount()
+        );
+        this.transitLayerWindowDays = c.asInt("transitLayerWindowDays", 0);
         // Dynamic Search Window
         this.dynamicSearchWindowCoefficients = new DynamicSearchWindowConfig(
             c.path("dynamicSearchWindow")
@@ -73,6 +80,16 @@ public final class TransitRoutingConfig
         return searchThreadPoolSize;
     }
 
+    @Override
+    public int searchWindowSplitCount() {
+        return searchWindowSplitCount;
+    }
+
+    @Override
+    public int transitLayerWindowDays() {
+        return transitLayerWindowDays;
+    }
+
     @Override
     public DynamicSearchWindowCoefficients dynamicSearchWindowCoefficients() {
         return dynamicSearchWindowCoefficients;
@@ -5,13 +5,19 @@ import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.FileAppender;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.opentripplanner.ext.transmodelapi.TransmodelAPI;
+import org.opentripplanner.graph_builder.linking.SnappingCache;
 import org.opentripplanner.inspector.TileRendererManager;
+import org.opentripplanner.routing.algorithm.csr.CompactStreetGraph;
+import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache;
 import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerMapper;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerUpdater;
+import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerWindowUpdater;
 import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.edgetype.StreetEdgeCostTables;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.standalone.config.RouterConfig;
 import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
@@ -22,6 +28,11 @@ import org.opentripplanner.util.WorldEnvelope;
 import org.opentripplanner.visualizer.GraphVisualizer;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Represents the configuration of a single router (a single graph for a specific geographic area)
  * in an OTP server.
@@ -29,10 +40,21 @@ import org.slf4j.LoggerFactory;
 public class Router {
 
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(Router.class);
+
+    /** The number of street searches queued in the street routing pool, for each thread. */
+    private static final int STREET_ROUTING_QUEUE_SIZE_PER_THREAD = 4;
+
     public final Graph graph;
     public final RouterConfig routerConfig;
     public final RaptorConfig<TripSchedule> raptorConfig;
 
+    /**
+     * Thread pool used to run the street searches of a routing request in parallel, or
+     * {@code null} if the searches should run in the request thread. See
+     * {@link RouterConfig#streetRoutingThreadPoolSize()}.
+     */
+    public final ExecutorService streetRoutingThreadPool;
+
     /**
      *  Separate logger for incoming requests. This should be handled with a Logback logger
      *  rather than something simple like a PrintStream because requests come in multi-threaded.
@@ -54,10 +76,19 @@ public class Router {
     /** A graphical window that is used for visualizing search progress (debugging). */
     public GraphVisualizer graphVisualizer = null;
 
+    /**
+     * Moves the window of dates mapped in the transit layers forward every night, or {@code null}
+     * if all dates are mapped.
+     */
+    private TransitLayerWindowUpdater transitLayerWindowUpdater = null;
+
     public Router(Graph graph, RouterConfig routerConfig) {
         this.graph = graph;
         this.routerConfig = routerConfig;
         this.raptorConfig = new RaptorConfig<>(routerConfig.raptorTuningParameters());
+        this.streetRoutingThreadPool = createStreetRoutingThreadPool(
+            routerConfig.streetRoutingThreadPoolSize()
+        );
     }
 
     /*
@@ -90,10 +121,36 @@ public class Router {
                 graph,
                 graph.index.getServiceCodesRunningForDate()
             );
+            if (routerConfig.transitTuningParameters().transitLayerWindowDays() > 0) {
+                transitLayerWindowUpdater = new TransitLayerWindowUpdater(
+                    graph,
+                    routerConfig.transitTuningParameters().transitLayerWindowDays()
+                );
+                transitLayerWindowUpdater.start();
+            }
         } else {
             LOG.warn("Cannot create Raptor data, that requires the graph to have transit data and be indexed.");
         }
 
+        if (routerConfig.accessEgressCacheSize() > 0) {
+            graph.setAccessEgressCache(new AccessEgressCache(
+                routerConfig.accessEgressCacheSize(),
+                routerConfig.accessEgressCacheTtlSeconds()
+            ));
+        }
+
+        if (routerConfig.snappingCacheSize() > 0) {
+            graph.setSnappingCache(new SnappingCache(routerConfig.snappingCacheSize()));
+        }
+
+        if (routerConfig.compactStreetGraph()) {
+            graph.setCompactStreetGraph(new CompactStreetGraph(graph));
+        }
+
+        if (routerConfig.streetEdgeCostTables()) {
+            graph.setStreetEdgeCostTables(new StreetEdgeCostTables(graph));
+        }
+
         /* Create Graph updater modules from JSON config. */
         GraphUpdaterConfigurator.setupGraph(
             this.graph,
@@ -123,6 +180,30 @@ public class Router {
     /** Shut down this router when evicted or (auto-)reloaded. Stop any real-time updater threads. */
     public void shutdown() {
         GraphUpdaterConfigurator.shutdownGraph(this.graph);
+        if (transitLayerWindowUpdater != null) {
+            transitLayerWindowUpdater.stop();
+        }
+        if (streetRoutingThreadPool != null) {
+            streetRoutingThreadPool.shutdown();
+        }
+    }
+
+    /**
+     * The queue of the pool is bounded, so a burst of requests do not pile up searches in the
+     * pool. When the queue is full, or the pool is shut down, the search runs in the request
+     * thread.
+     */
+    private static ExecutorService createStreetRoutingThreadPool(int size) {
+        if (size <= 0) { return null; }
+        return new ThreadPoolExecutor(
+            size,
+            size,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(STREET_ROUTING_QUEUE_SIZE_PER_THREAD * size),
+            new ThreadFactoryBuilder().setNameFormat("StreetRouting-%d").setDaemon(true).build(),
+            (task, executor) -> task.run()
+        );
     }
 
     /**
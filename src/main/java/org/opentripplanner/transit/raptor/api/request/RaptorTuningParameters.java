@@ -58,6 +58,22 @@ public interface RaptorTuningParameters {
         return 0;
     }
 
+    /**
+     * Split the search window of a multi-criteria search into this number of sub-windows and
+     * search them in parallel. Each sub-window is searched by a separate worker with its own
+     * state, and the paths found are merged into one pareto set at the end. This reduce the
+     * wall-clock time for long search windows, but increase the total amount of work; The
+     * sub-windows can not reuse the state from later departure minutes. Use this only if there
+     * are more cores available than concurrent requests.
+     * <p/>
+     * This has no effect unless {@link #searchThreadPoolSize()} is set.
+     * <p/>
+     * Default value is 1 - the search window is not split.
+     */
+    default int searchWindowSplitCount() {
+        return 1;
+    }
+
 
     /**
      * Coefficients used to calculate raptor-search-window parameters dynamically  from heuristics.
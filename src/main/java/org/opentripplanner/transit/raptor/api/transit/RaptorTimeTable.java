@@ -20,6 +20,27 @@ public interface RaptorTimeTable<T extends RaptorTripSchedule> {
      */
     T getTripSchedule(int index);
 
+    /**
+     * The departure time for the trip with the given index at the given stop position in
+     * pattern. This is the same as {@code getTripSchedule(tripIndex).departure(stopPosInPattern)}.
+     * The trip search calls this for every trip it inspects, and only ask for the trip
+     * schedule when a trip is found; Implementations should override this to avoid creating
+     * a trip schedule instance for each call.
+     * <p/>
+     * This method needs to be FAST - it is in the most critical line of execution in Raptor.
+     */
+    default int departure(int tripIndex, int stopPosInPattern) {
+        return getTripSchedule(tripIndex).departure(stopPosInPattern);
+    }
+
+    /**
+     * The arrival time for the trip with the given index at the given stop position in
+     * pattern. See {@link #departure(int, int)}.
+     */
+    default int arrival(int tripIndex, int stopPosInPattern) {
+        return getTripSchedule(tripIndex).arrival(stopPosInPattern);
+    }
+
     /**
      * Number of trips in time-table.
      */
@@ -23,6 +23,19 @@ public interface RaptorTransitDataProvider<T extends RaptorTripSchedule> {
      */
     default void setup() {}
 
+    /**
+     * Return a provider to use in a single search. Raptor may run several searches in parallel
+     * on the same transit data, like the forward and reverse heuristic searches, and each search
+     * get its own instance by calling this method.
+     * <p>
+     * An implementation with state reused between the rounds of a search, must return a new
+     * instance sharing the immutable data. Stateless implementations can return {@code this},
+     * which is the default.
+     */
+    default RaptorTransitDataProvider<T> forSearch() {
+        return this;
+    }
+
     /**
      * This method is responsible for providing all transfers from a given stop to all
      * possible stops around that stop.
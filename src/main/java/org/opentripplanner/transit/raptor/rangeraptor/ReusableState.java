@@ -0,0 +1,23 @@
+package org.opentripplanner.transit.raptor.rangeraptor;
+
+/**
+ * State with one element for each stop, witch can be reset and reused by another search
+ * instead of allocating new arrays for every search. The state keep track of the stops touched
+ * by the search, so resetting it only cost O(touched stops), not O(number of stops).
+ * <p>
+ * A reusable state is only used by one search at the time, and is NOT THREAD-SAFE.
+ */
+public interface ReusableState {
+
+    /**
+     * The number of stops this state is allocated for. The state can only be reused by a search
+     * with the same number of stops.
+     */
+    int nStops();
+
+    /**
+     * Reset all stops touched by the previous search, so the state is ready to be used by a
+     * new search.
+     */
+    void reset();
+}
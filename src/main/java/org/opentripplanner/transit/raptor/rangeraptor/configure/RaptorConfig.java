@@ -7,15 +7,23 @@ import org.opentripplanner.transit.raptor.api.transit.RaptorTransitDataProvider;
 import org.opentripplanner.transit.raptor.api.view.Heuristics;
 import org.opentripplanner.transit.raptor.api.view.Worker;
 import org.opentripplanner.transit.raptor.rangeraptor.RangeRaptorWorker;
+import org.opentripplanner.transit.raptor.rangeraptor.ReusableState;
 import org.opentripplanner.transit.raptor.rangeraptor.RoutingStrategy;
 import org.opentripplanner.transit.raptor.rangeraptor.WorkerState;
+import org.opentripplanner.transit.raptor.rangeraptor.debug.WorkerPerformanceTimers;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.StopArrivalParetoSetArray;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.configure.McRangeRaptorConfig;
+import org.opentripplanner.transit.raptor.rangeraptor.path.configure.PathConfig;
+import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.BestTimesArrays;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.configure.StdRangeRaptorConfig;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.heuristics.HeuristicSearch;
+import org.opentripplanner.transit.raptor.service.ParallelSearchWindowWorker;
 import org.opentripplanner.transit.raptor.service.RaptorSearchWindowCalculator;
 import org.opentripplanner.transit.raptor.rangeraptor.transit.SearchContext;
 import org.opentripplanner.transit.raptor.service.WorkerPerformanceTimersCache;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -26,19 +34,34 @@ import java.util.concurrent.Executors;
  * <p/>
  * This class should have APPLICATION scope. It manage a threadPool,
  * and hold a reference to the application tuning parameters.
+ * <p/>
+ * It also keep a pool of reusable worker state for the main (not heuristic) searches, so the
+ * arrays with one element pr stop is not allocated for every request. The heuristics are read
+ * after the heuristic search is complete, so their state is not pooled.
  *
  * @param <T> The TripSchedule type defined by the user of the raptor API.
  */
 public class RaptorConfig<T extends RaptorTripSchedule> {
+
+    /** The max number of reusable states kept in each pool. */
+    private static final int MAX_POOLED_STATES = 16;
+
     private final ExecutorService threadPool;
     private final RaptorTuningParameters tuningParameters;
     private final WorkerPerformanceTimersCache timers;
 
+    private final WorkerStatePool<BestTimesArrays> stdForwardStates;
+    private final WorkerStatePool<BestTimesArrays> stdReverseStates;
+    private final WorkerStatePool<StopArrivalParetoSetArray<T>> mcStates;
+
 
     public RaptorConfig(RaptorTuningParameters tuningParameters) {
         this.tuningParameters = tuningParameters;
         this.threadPool = createNewThreadPool(tuningParameters.searchThreadPoolSize());
         this.timers = new WorkerPerformanceTimersCache(isMultiThreaded());
+        this.stdForwardStates = new WorkerStatePool<>(MAX_POOLED_STATES);
+        this.stdReverseStates = new WorkerStatePool<>(MAX_POOLED_STATES);
+        this.mcStates = new WorkerStatePool<>(MAX_POOLED_STATES);
     }
 
     public static <T extends RaptorTripSchedule> RaptorConfig<T> defaultConfigForTest() {
@@ -46,17 +69,29 @@ public class RaptorConfig<T extends RaptorTripSchedule> {
     }
 
     public SearchContext<T> context(RaptorTransitDataProvider<T> transit, RaptorRequest<T> request) {
-        return new SearchContext<>(request, tuningParameters, transit, timers.get(request));
+        return new SearchContext<>(request, tuningParameters, transit.forSearch(), timers.get(request));
     }
 
     public Worker<T> createStdWorker(RaptorTransitDataProvider<T> transitData, RaptorRequest<T> request) {
         SearchContext<T> context = context(transitData, request);
-        return new StdRangeRaptorConfig<>(context).createSearch((s, w) -> createWorker(context, s, w));
+        WorkerStatePool<BestTimesArrays> pool = request.searchDirection().isForward()
+                ? stdForwardStates
+                : stdReverseStates;
+        BestTimesArrays state = pool.acquire(
+                context.nStops(),
+                nStops -> new BestTimesArrays(nStops, context.calculator().unreachedTime()),
+                context.timers()
+        );
+        Worker<T> worker = new StdRangeRaptorConfig<>(context, state)
+                .createSearch((s, w) -> createWorker(context, s, w));
+        return releaseStateAfterRoute(worker, pool, state, context.timers());
     }
 
     public Worker<T> createMcWorker(RaptorTransitDataProvider<T> transitData, RaptorRequest<T> request, Heuristics heuristics) {
-        final SearchContext<T> context = context(transitData, request);
-        return new McRangeRaptorConfig<>(context).createWorker(heuristics, (s, w) -> createWorker(context, s, w));
+        if(isSearchWindowSplitEnabled(request)) {
+            return createParallelSearchWindowMcWorker(transitData, request, heuristics);
+        }
+        return createPooledMcWorker(transitData, request, heuristics);
     }
 
     public HeuristicSearch<T> createHeuristicSearch(
@@ -88,6 +123,75 @@ public class RaptorConfig<T extends RaptorTripSchedule> {
 
     /* private factory methods */
 
+    /**
+     * The search window is split only for forward searches with more than one iteration, and
+     * only if the request allow it to run in parallel.
+     */
+    private boolean isSearchWindowSplitEnabled(RaptorRequest<T> request) {
+        return isMultiThreaded()
+                && tuningParameters.searchWindowSplitCount() > 1
+                && request.runInParallel()
+                && request.searchDirection().isForward()
+                && request.searchParams().searchWindowInSeconds() > tuningParameters.iterationDepartureStepInSeconds();
+    }
+
+    private Worker<T> createParallelSearchWindowMcWorker(
+            RaptorTransitDataProvider<T> transitData,
+            RaptorRequest<T> request,
+            Heuristics heuristics
+    ) {
+        List<Worker<T>> workers = new ArrayList<>();
+        List<RaptorRequest<T>> subRequests = ParallelSearchWindowWorker.splitSearchWindow(
+                request,
+                tuningParameters.searchWindowSplitCount(),
+                tuningParameters.iterationDepartureStepInSeconds()
+        );
+        for (RaptorRequest<T> subRequest : subRequests) {
+            workers.add(createPooledMcWorker(transitData, subRequest, heuristics));
+        }
+        return new ParallelSearchWindowWorker<>(
+                threadPool,
+                workers,
+                PathConfig.paretoComparator(request.searchParams(), true)
+        );
+    }
+
+    private Worker<T> createPooledMcWorker(
+            RaptorTransitDataProvider<T> transitData,
+            RaptorRequest<T> request,
+            Heuristics heuristics
+    ) {
+        final SearchContext<T> context = context(transitData, request);
+        StopArrivalParetoSetArray<T> state = mcStates.acquire(
+                context.nStops(),
+                StopArrivalParetoSetArray::new,
+                context.timers()
+        );
+        Worker<T> worker = new McRangeRaptorConfig<>(context, state)
+                .createWorker(heuristics, (s, w) -> createWorker(context, s, w));
+        return releaseStateAfterRoute(worker, mcStates, state, context.timers());
+    }
+
+    /**
+     * Return the state to the pool when the search is done. The paths are created before the
+     * worker returns, so the state is not used after this.
+     */
+    private <S extends ReusableState> Worker<T> releaseStateAfterRoute(
+            Worker<T> worker,
+            WorkerStatePool<S> pool,
+            S state,
+            WorkerPerformanceTimers timers
+    ) {
+        return () -> {
+            try {
+                return worker.route();
+            }
+            finally {
+                pool.release(state, timers);
+            }
+        };
+    }
+
     private Worker<T> createWorker(
             SearchContext<T> ctx,
             WorkerState<T> workerState,
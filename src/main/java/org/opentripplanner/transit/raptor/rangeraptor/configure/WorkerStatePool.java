@@ -0,0 +1,91 @@
+package org.opentripplanner.transit.raptor.rangeraptor.configure;
+
+import org.opentripplanner.transit.raptor.rangeraptor.ReusableState;
+import org.opentripplanner.transit.raptor.rangeraptor.debug.WorkerPerformanceTimers;
+import org.opentripplanner.transit.raptor.util.AvgTimer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.IntFunction;
+
+
+/**
+ * A bounded pool of {@link ReusableState}s. A search acquire a state from the pool when the
+ * worker is created, and the state is released back to the pool when the search is done. If
+ * the pool is empty a new state is created, and if the pool is full a released state is
+ * dropped and left to the garbage collector.
+ * <p>
+ * The pool is shared by all threads. States are usually acquired by the request thread and
+ * released by the thread running the search, so one pool pr thread would not work.
+ * <p>
+ * THIS CLASS IS THREAD-SAFE.
+ *
+ * @param <S> The type of state pooled.
+ */
+public final class WorkerStatePool<S extends ReusableState> {
+
+    private final int maxSize;
+    private final Deque<S> states = new ArrayDeque<>();
+
+    /**
+     * @param maxSize the maximum number of states kept in the pool.
+     */
+    public WorkerStatePool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Take a state out of the pool, or create a new one using the given factory if the pool is
+     * empty. The number of stops is passed to the factory. The state must be
+     * {@link #release(ReusableState, WorkerPerformanceTimers)}d when the search is done.
+     * <p>
+     * The pool hit rate is reported with the {@link WorkerPerformanceTimers#timerAcquireState()}
+     * timer, a pool hit is counted as a success and a miss as a failure.
+     */
+    public S acquire(int nStops, IntFunction<S> factory, WorkerPerformanceTimers timers) {
+        AvgTimer timer = timers.timerAcquireState();
+        timer.start();
+        S state = poll(nStops);
+        if(state != null) {
+            timer.stop();
+            return state;
+        }
+        state = factory.apply(nStops);
+        timer.failIfStarted();
+        return state;
+    }
+
+    /**
+     * Reset the given state and return it to the pool.
+     */
+    public void release(S state, WorkerPerformanceTimers timers) {
+        timers.timerResetState().time(state::reset);
+        synchronized (states) {
+            if(states.size() < maxSize) {
+                states.push(state);
+            }
+        }
+    }
+
+    int size() {
+        synchronized (states) {
+            return states.size();
+        }
+    }
+
+    /**
+     * Return a pooled state with the given number of stops. States with another size are
+     * dropped, they are left over from before the transit data was replaced.
+     */
+    private S poll(int nStops) {
+        synchronized (states) {
+            while (!states.isEmpty()) {
+                S state = states.pop();
+                if(state.nStops() == nStops) {
+                    return state;
+                }
+            }
+            return null;
+        }
+    }
+}
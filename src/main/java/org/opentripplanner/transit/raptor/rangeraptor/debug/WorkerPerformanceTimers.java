@@ -10,11 +10,15 @@ public class WorkerPerformanceTimers {
     private final AvgTimer timerRoute;
     private final AvgTimer timerByMinuteScheduleSearch;
     private final AvgTimer timerByMinuteTransfers;
+    private final AvgTimer timerAcquireState;
+    private final AvgTimer timerResetState;
 
     public WorkerPerformanceTimers(String namePrefix) {
         timerRoute = AvgTimer.timerMilliSec(namePrefix + ":route");
         timerByMinuteScheduleSearch = AvgTimer.timerMicroSec(namePrefix + ":runRaptorForMinute Transit");
         timerByMinuteTransfers = AvgTimer.timerMicroSec(namePrefix + ":runRaptorForMinute Transfers");
+        timerAcquireState = AvgTimer.timerMicroSec(namePrefix + ":acquire state (hit/miss)");
+        timerResetState = AvgTimer.timerMicroSec(namePrefix + ":reset state");
     }
 
     public AvgTimer timerRoute() {
@@ -28,4 +32,17 @@ public class WorkerPerformanceTimers {
     public AvgTimer timerByMinuteTransfers() {
         return timerByMinuteTransfers;
     }
+
+    /**
+     * Time spent acquiring a reusable state from the state pool. The success count is the
+     * number of pool hits, and the failure count is the number of misses(new state allocated).
+     */
+    public AvgTimer timerAcquireState() {
+        return timerAcquireState;
+    }
+
+    /** Time spent resetting a reusable state before it is returned to the state pool. */
+    public AvgTimer timerResetState() {
+        return timerResetState;
+    }
 }
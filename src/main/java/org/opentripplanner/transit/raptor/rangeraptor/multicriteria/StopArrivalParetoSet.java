@@ -11,15 +11,24 @@ import org.opentripplanner.transit.raptor.util.paretoset.ParetoSetEventListener;
 import org.opentripplanner.transit.raptor.util.paretoset.ParetoSetEventListenerComposite;
 import org.opentripplanner.transit.raptor.util.paretoset.ParetoSetWithMarker;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 /**
  * A pareto optimal set of stop arrivals for a given stop.
+ * <p/>
+ * The criteria values (arrival-time, pareto-round and cost) are copied into parallel {@code int}
+ * arrays when an arrival is set, so the dominance checks read the values from consecutive memory,
+ * and do not need to dereference each arrival in the set. The pareto algorithm itself is
+ * inherited from the {@link ParetoSetWithMarker}.
  *
  * @param <T> The TripSchedule type defined by the user of the raptor API.
  */
 class StopArrivalParetoSet<T extends RaptorTripSchedule> extends ParetoSetWithMarker<AbstractStopArrival<T>> {
+    private int[] arrivalTimes = new int[16];
+    private int[] paretoRounds = new int[16];
+    private int[] costs = new int[16];
 
     /**
      * Use the factory methods in this class to create a new instance.
@@ -61,4 +70,31 @@ class StopArrivalParetoSet<T extends RaptorTripSchedule> extends ParetoSetWithMa
 
         return new StopArrivalParetoSet<>(listener);
     }
+
+    @Override
+    protected boolean leftDominanceExist(AbstractStopArrival<T> newValue, int index) {
+        return newValue.arrivalTime() < arrivalTimes[index]
+                || newValue.paretoRound() < paretoRounds[index]
+                || newValue.cost() < costs[index];
+    }
+
+    @Override
+    protected boolean rightDominanceExist(AbstractStopArrival<T> newValue, int index) {
+        return arrivalTimes[index] < newValue.arrivalTime()
+                || paretoRounds[index] < newValue.paretoRound()
+                || costs[index] < newValue.cost();
+    }
+
+    @Override
+    protected void notifyElementSet(int index, AbstractStopArrival<T> element) {
+        if (index >= arrivalTimes.length) {
+            int newLength = arrivalTimes.length * 2;
+            arrivalTimes = Arrays.copyOf(arrivalTimes, newLength);
+            paretoRounds = Arrays.copyOf(paretoRounds, newLength);
+            costs = Arrays.copyOf(costs, newLength);
+        }
+        arrivalTimes[index] = element.arrivalTime();
+        paretoRounds[index] = element.paretoRound();
+        costs[index] = element.cost();
+    }
 }
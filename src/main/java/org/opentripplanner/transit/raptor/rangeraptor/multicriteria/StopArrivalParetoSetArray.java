@@ -0,0 +1,51 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria;
+
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.rangeraptor.ReusableState;
+
+import java.util.BitSet;
+
+
+/**
+ * The stop arrival pareto sets used by {@link Stops}, one element for each stop. The sets are
+ * created on demand; The array and the bit sets are kept in a separate class so they can be
+ * pooled and reused by the next search, see {@link ReusableState}.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+public final class StopArrivalParetoSetArray<T extends RaptorTripSchedule> implements ReusableState {
+
+    final StopArrivalParetoSet<T>[] stops;
+
+    /** Stops touched since "last mark", see {@link Stops}. */
+    final BitSet touchedStops;
+
+    /** All stops with a pareto set, used to reset the array before it is reused. */
+    private final BitSet stopsWithSet;
+
+    public StopArrivalParetoSetArray(int nStops) {
+        //noinspection unchecked
+        this.stops = (StopArrivalParetoSet<T>[]) new StopArrivalParetoSet[nStops];
+        this.touchedStops = new BitSet(nStops);
+        this.stopsWithSet = new BitSet(nStops);
+    }
+
+    void set(int stop, StopArrivalParetoSet<T> set) {
+        stops[stop] = set;
+        stopsWithSet.set(stop);
+    }
+
+    @Override
+    public int nStops() {
+        return stops.length;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = stopsWithSet.nextSetBit(0); i >= 0; i = stopsWithSet.nextSetBit(i + 1)) {
+            stops[i] = null;
+        }
+        stopsWithSet.clear();
+        touchedStops.clear();
+    }
+}
@@ -34,6 +34,8 @@ public final class Stops<T extends RaptorTripSchedule> {
     private final DebugHandlerFactory<T> debugHandlerFactory;
     private final DebugStopArrivalsStatistics debugStats;
 
+    private final StopArrivalParetoSetArray<T> array;
+
     /**
      * Set the time at a transit index iff it is optimal. This sets both the best time and the transfer time
      */
@@ -45,9 +47,31 @@ public final class Stops<T extends RaptorTripSchedule> {
             DebugHandlerFactory<T> debugHandlerFactory,
             DebugLogger debugLogger
     ) {
-        //noinspection unchecked
-        this.stops = (StopArrivalParetoSet<T>[]) new StopArrivalParetoSet[nStops];
-        this.touchedStops = new BitSet(nStops);
+        this(
+                new StopArrivalParetoSetArray<>(nStops),
+                egressPath,
+                paths,
+                costCalculator,
+                debugHandlerFactory,
+                debugLogger
+        );
+    }
+
+    /**
+     * Create stops backed by the given array. The array must be newly created or
+     * {@link StopArrivalParetoSetArray#reset()}.
+     */
+    public Stops(
+            StopArrivalParetoSetArray<T> array,
+            Collection<RaptorTransfer> egressPath,
+            DestinationArrivalPaths<T> paths,
+            CostCalculator<T> costCalculator,
+            DebugHandlerFactory<T> debugHandlerFactory,
+            DebugLogger debugLogger
+    ) {
+        this.array = array;
+        this.stops = array.stops;
+        this.touchedStops = array.touchedStops;
         this.debugHandlerFactory = debugHandlerFactory;
         this.debugStats = new DebugStopArrivalsStatistics(debugLogger);
 
@@ -102,7 +126,7 @@ public final class Stops<T extends RaptorTripSchedule> {
 
     private StopArrivalParetoSet<T> findOrCreateSet(final int stop) {
         if(stops[stop] == null) {
-            stops[stop] = StopArrivalParetoSet.createStopArrivalSet(stop, debugHandlerFactory);
+            array.set(stop, StopArrivalParetoSet.createStopArrivalSet(stop, debugHandlerFactory));
         }
         return stops[stop];
     }
@@ -118,11 +142,11 @@ public final class Stops<T extends RaptorTripSchedule> {
     ) {
         int stop = egressPaths.getKey();
         // The factory is creating the actual "glue"
-        this.stops[stop] = StopArrivalParetoSet.createEgressStopArrivalSet(
+        array.set(stop, StopArrivalParetoSet.createEgressStopArrivalSet(
                 egressPaths,
                 costCalculator,
                 paths,
                 debugHandlerFactory
-        );
+        ));
     }
 }
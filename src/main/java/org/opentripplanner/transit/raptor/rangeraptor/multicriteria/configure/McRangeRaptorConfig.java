@@ -7,6 +7,7 @@ import org.opentripplanner.transit.raptor.rangeraptor.RoutingStrategy;
 import org.opentripplanner.transit.raptor.rangeraptor.WorkerState;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.McRangeRaptorWorkerState;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.McTransitWorker;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.StopArrivalParetoSetArray;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.Stops;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.heuristic.HeuristicsProvider;
 import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
@@ -24,12 +25,21 @@ import java.util.function.BiFunction;
 public class McRangeRaptorConfig<T extends RaptorTripSchedule> {
     private final SearchContext<T> context;
     private final PathConfig<T> pathConfig;
+    private final StopArrivalParetoSetArray<T> stopArrivals;
 
     private DestinationArrivalPaths<T> paths;
 
     public McRangeRaptorConfig(SearchContext<T> context) {
+        this(context, new StopArrivalParetoSetArray<>(context.nStops()));
+    }
+
+    /**
+     * Create a config using the given (pooled) stop arrivals array for the worker state.
+     */
+    public McRangeRaptorConfig(SearchContext<T> context, StopArrivalParetoSetArray<T> stopArrivals) {
         this.context = context;
         this.pathConfig = new PathConfig<>(context);
+        this.stopArrivals = stopArrivals;
     }
 
     /**
@@ -69,7 +79,7 @@ public class McRangeRaptorConfig<T extends RaptorTripSchedule> {
 
     private Stops<T> createStops() {
         return new Stops<>(
-                context.nStops(),
+                stopArrivals,
                 context.egressPaths(),
                 createDestinationArrivalPaths(),
                 context.costCalculator(),
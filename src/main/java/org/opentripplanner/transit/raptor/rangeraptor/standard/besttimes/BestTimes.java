@@ -6,9 +6,6 @@ import org.opentripplanner.transit.raptor.util.BitSetIterator;
 
 import java.util.BitSet;
 
-import static org.opentripplanner.transit.raptor.util.IntUtils.intArray;
-
-
 /**
  * This class is responsible for keeping track of the overall best times and
  * the best transit times. In addition it keeps track of times updated
@@ -41,17 +38,29 @@ public final class BestTimes {
     /** Stops touched by transit or transfers in LAST round. */
     private BitSet reachedLastRound;
 
+    /** All stops with a new time, used to reset the arrays before they are reused. */
+    private final BitSet touchedStops;
+
     private final TransitCalculator calculator;
 
 
     public BestTimes(int nStops, TransitCalculator calculator, WorkerLifeCycle lifeCycle) {
+        this(new BestTimesArrays(nStops, calculator.unreachedTime()), calculator, lifeCycle);
+    }
+
+    /**
+     * Create best times backed by the given arrays. The arrays must be newly created or
+     * {@link BestTimesArrays#reset()}, and created for the same search direction.
+     */
+    public BestTimes(BestTimesArrays arrays, TransitCalculator calculator, WorkerLifeCycle lifeCycle) {
         this.calculator = calculator;
-        this.times = intArray(nStops, calculator.unreachedTime());
-        this.reachedCurrentRound = new BitSet(nStops);
-        this.reachedLastRound = new BitSet(nStops);
+        this.times = arrays.times;
+        this.reachedCurrentRound = arrays.reachedCurrentRound;
+        this.reachedLastRound = arrays.reachedLastRound;
 
-        this.transitTimes = intArray(nStops, calculator.unreachedTime());
-        this.transitReachedCurrentRound = new BitSet(nStops);
+        this.transitTimes = arrays.transitTimes;
+        this.transitReachedCurrentRound = arrays.transitReachedCurrentRound;
+        this.touchedStops = arrays.touchedStops;
 
         // Attach to Worker life cycle
         lifeCycle.onSetupIteration((ignore) -> setupIteration());
@@ -175,6 +184,7 @@ public final class BestTimes {
     private void setTime(final int stop, final int time) {
         times[stop] = time;
         reachedCurrentRound.set(stop);
+        touchedStops.set(stop);
     }
 
     private boolean isBestTime(int stop, int time) {
@@ -188,6 +198,7 @@ public final class BestTimes {
     private void setTransitTime(int stop, int time) {
         transitTimes[stop] = time;
         transitReachedCurrentRound.set(stop);
+        touchedStops.set(stop);
     }
 
     private void swapReachedCurrentAndLastRound() {
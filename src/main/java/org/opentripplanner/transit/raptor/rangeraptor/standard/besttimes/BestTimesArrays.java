@@ -0,0 +1,55 @@
+package org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes;
+
+import org.opentripplanner.transit.raptor.rangeraptor.ReusableState;
+
+import java.util.BitSet;
+
+import static org.opentripplanner.transit.raptor.util.IntUtils.intArray;
+
+
+/**
+ * The arrays and bit sets used by {@link BestTimes}. They are kept in a separate class so they
+ * can be pooled and reused by the next search, see {@link ReusableState}.
+ * <p>
+ * The {@code unreachedTime} is different for forward and reverse searches, so a state can only
+ * be reused by a search in the same direction.
+ */
+public final class BestTimesArrays implements ReusableState {
+    private final int unreachedTime;
+
+    final int[] times;
+    final int[] transitTimes;
+    final BitSet reachedCurrentRound;
+    final BitSet reachedLastRound;
+    final BitSet transitReachedCurrentRound;
+
+    /** All stops with a time set, across rounds and iterations. */
+    final BitSet touchedStops;
+
+    public BestTimesArrays(int nStops, int unreachedTime) {
+        this.unreachedTime = unreachedTime;
+        this.times = intArray(nStops, unreachedTime);
+        this.transitTimes = intArray(nStops, unreachedTime);
+        this.reachedCurrentRound = new BitSet(nStops);
+        this.reachedLastRound = new BitSet(nStops);
+        this.transitReachedCurrentRound = new BitSet(nStops);
+        this.touchedStops = new BitSet(nStops);
+    }
+
+    @Override
+    public int nStops() {
+        return times.length;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = touchedStops.nextSetBit(0); i >= 0; i = touchedStops.nextSetBit(i + 1)) {
+            times[i] = unreachedTime;
+            transitTimes[i] = unreachedTime;
+        }
+        touchedStops.clear();
+        reachedCurrentRound.clear();
+        reachedLastRound.clear();
+        transitReachedCurrentRound.clear();
+    }
+}
@@ -15,6 +15,7 @@ import org.opentripplanner.transit.raptor.rangeraptor.standard.StdTransitWorker;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.StdWorkerState;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.StopArrivalsState;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.BestTimes;
+import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.BestTimesArrays;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.BestTimesOnlyStopArrivalsState;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.SimpleArrivedAtDestinationCheck;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.SimpleBestNumberOfTransfers;
@@ -41,6 +42,7 @@ public class StdRangeRaptorConfig<T extends RaptorTripSchedule> {
 
     private final SearchContext<T> ctx;
     private final PathConfig<T> pathConfig;
+    private final BestTimesArrays bestTimesArrays;
 
     private boolean workerCreated = false;
     private BestTimes bestTimes = null;
@@ -50,8 +52,16 @@ public class StdRangeRaptorConfig<T extends RaptorTripSchedule> {
 
 
     public StdRangeRaptorConfig(SearchContext<T> context) {
+        this(context, new BestTimesArrays(context.nStops(), context.calculator().unreachedTime()));
+    }
+
+    /**
+     * Create a config using the given (pooled) arrays for the best times.
+     */
+    public StdRangeRaptorConfig(SearchContext<T> context, BestTimesArrays bestTimesArrays) {
         this.ctx = context;
         this.pathConfig = new PathConfig<>(context);
+        this.bestTimesArrays = bestTimesArrays;
     }
 
     /**
@@ -196,7 +206,7 @@ public class StdRangeRaptorConfig<T extends RaptorTripSchedule> {
     private BestTimes bestTimes() {
         // Cache best times; request scope
         if (bestTimes == null) {
-            bestTimes = new BestTimes(ctx.nStops(), ctx.calculator(), ctx.lifeCycle());
+            bestTimes = new BestTimes(bestTimesArrays, ctx.calculator(), ctx.lifeCycle());
         }
         return bestTimes;
     }
@@ -40,6 +40,10 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
 
     @Override
     public T getCandidateTrip() {
+        // The trip schedule is only created when requested, not for every trip we inspect
+        if (candidateTrip == null && candidateTripIndex != NOT_SET) {
+            candidateTrip = timeTable.getTripSchedule(candidateTripIndex);
+        }
         return candidateTrip;
     }
 
@@ -50,7 +54,7 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
 
     @Override
     public int getCandidateTripTime() {
-        return candidateTrip.departure(stopPositionInPattern);
+        return timeTable.departure(candidateTripIndex, stopPositionInPattern);
     }
 
     /**
@@ -124,20 +128,18 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
      */
     private boolean findBoardingBySteppingBackwardsInTime(int tripIndexUpperBound) {
         for (int i = tripIndexUpperBound-1; i >= 0; --i) {
-            T trip = timeTable.getTripSchedule(i);
-            final int boardTime = trip.departure(stopPositionInPattern);
+            final int boardTime = timeTable.departure(i, stopPositionInPattern);
 
             if (boardTime >= earliestBoardTime) {
-                candidateTrip = trip;
                 candidateTripIndex = i;
             } else {
                 // this trip arrives too early. We can break out of the loop since
                 // trips are sorted by departure time (trips in given schedule)
                 // Trips passing another trip is not accounted for if both are in service.
-                return candidateTrip != null;
+                return candidateTripIndex != NOT_SET;
             }
         }
-        return candidateTrip != null;
+        return candidateTripIndex != NOT_SET;
     }
 
     /**
@@ -148,11 +150,9 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
      */
     private boolean findBoardingBySteppingForwardInTime(final int tripIndexLowerBound) {
         for (int i = tripIndexLowerBound; i < nTrips; ++i) {
-            T trip = timeTable.getTripSchedule(i);
-            final int boardTime = trip.departure(stopPositionInPattern);
+            final int boardTime = timeTable.departure(i, stopPositionInPattern);
 
             if (boardTime >= earliestBoardTime) {
-                candidateTrip = trip;
                 candidateTripIndex = i;
                 return true;
             }
@@ -175,9 +175,7 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
         while (upper - lower > nTripsBinarySearchThreshold) {
             int m = (lower + upper) / 2;
 
-            RaptorTripSchedule trip = timeTable.getTripSchedule(m);
-
-            int departure = trip.departure(stopPositionInPattern);
+            int departure = timeTable.departure(m, stopPositionInPattern);
 
             if (departure >= earliestBoardTime) {
                 upper = m;
@@ -0,0 +1,124 @@
+package org.opentripplanner.transit.raptor.service;
+
+import org.opentripplanner.transit.raptor.api.path.Path;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.SearchParams;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.view.Worker;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoComparator;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoSet;
+import org.opentripplanner.util.OtpAppException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/**
+ * This worker split the search window into sub-windows and search them in parallel. Each
+ * sub-window is searched by its own worker with its own state. The paths found are merged into
+ * one pareto set at the end, using the same pareto comparator as the workers.
+ * <p>
+ * Range Raptor iterates over the departure minutes from the end of the search window and down,
+ * and reuse the state from later departure minutes to prune the search for earlier minutes. The
+ * sub-windows are aligned from the end of the search window, so together they iterate over
+ * exactly the same departure minutes as one search over the entire window. The state is not
+ * shared across the sub-window boundaries, so the total amount of work increase, and paths the
+ * sequential search would have pruned may be found. These are dominated by a path found in
+ * another sub-window, and dropped by the merge.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+public class ParallelSearchWindowWorker<T extends RaptorTripSchedule> implements Worker<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelSearchWindowWorker.class);
+
+    private final ExecutorService threadPool;
+    private final List<Worker<T>> workers;
+    private final ParetoComparator<Path<T>> paretoComparator;
+
+    public ParallelSearchWindowWorker(
+            ExecutorService threadPool,
+            List<Worker<T>> workers,
+            ParetoComparator<Path<T>> paretoComparator
+    ) {
+        this.threadPool = threadPool;
+        this.workers = workers;
+        this.paretoComparator = paretoComparator;
+    }
+
+    /**
+     * Split the search window of the given request into at most {@code nSubWindows} requests.
+     * Range Raptor iterates from {@code earliestDepartureTime + searchWindow} and down in steps
+     * of the given iteration step, so the sub-windows are aligned with the step from the end of
+     * the search window. If the search window is not a multiple of the step, the remainder is
+     * added to the start of the first sub-window, where no departure minute is searched. This
+     * way the sub-windows together cover the same window and iterate over the same departure
+     * minutes as the original request.
+     */
+    public static <T extends RaptorTripSchedule> List<RaptorRequest<T>> splitSearchWindow(
+            RaptorRequest<T> request,
+            int nSubWindows,
+            int iterationStep
+    ) {
+        SearchParams s = request.searchParams();
+        int nIterations = s.searchWindowInSeconds() / iterationStep;
+
+        if (nIterations < 2 || nSubWindows < 2) {
+            return List.of(request);
+        }
+
+        int nIterationsPerSubWindow = (nIterations + nSubWindows - 1) / nSubWindows;
+        int edt = s.earliestDepartureTime();
+        int end = edt + s.searchWindowInSeconds();
+
+        List<RaptorRequest<T>> requests = new ArrayList<>();
+
+        while (nIterations > 0) {
+            int n = Math.min(nIterationsPerSubWindow, nIterations);
+            nIterations -= n;
+            int start = nIterations == 0 ? edt : end - n * iterationStep;
+            requests.add(
+                0,
+                request.mutate().searchParams()
+                    .earliestDepartureTime(start)
+                    .searchWindowInSeconds(end - start)
+                    .build()
+            );
+            end = start;
+        }
+        return requests;
+    }
+
+    @Override
+    public Collection<Path<T>> route() {
+        List<Future<Collection<Path<T>>>> results = new ArrayList<>();
+
+        try {
+            // Search the first sub-window in the calling thread, and the rest in the thread pool
+            for (int i = 1; i < workers.size(); ++i) {
+                results.add(threadPool.submit(workers.get(i)::route));
+            }
+
+            ParetoSet<Path<T>> paths = new ParetoSet<>(paretoComparator);
+            paths.addAll(workers.get(0).route());
+
+            for (Future<Collection<Path<T>>> result : results) {
+                paths.addAll(result.get());
+            }
+            LOG.debug("Route using RangeRaptor - {} sub-windows searched in parallel.", workers.size());
+            return paths;
+        }
+        catch (ExecutionException | InterruptedException e) {
+            results.forEach(it -> it.cancel(true));
+            LOG.error(e.getMessage(), e);
+            throw new OtpAppException(
+                    "Failed to search the Raptor search-window in parallel. Details: "
+                            + e.getMessage());
+        }
+    }
+}
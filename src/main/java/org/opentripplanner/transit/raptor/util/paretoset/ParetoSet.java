@@ -100,10 +100,8 @@ public class ParetoSet<T> extends AbstractCollection<T> {
         boolean equivalentVectorExist = false;
 
         for (int i = 0; i < size; ++i) {
-            T it = elements[i];
-
-            boolean leftDominance = leftDominanceExist(newValue, it);
-            boolean rightDominance = rightDominanceExist(newValue, it);
+            boolean leftDominance = leftDominanceExist(newValue, i);
+            boolean rightDominance = rightDominanceExist(newValue, i);
 
             if (leftDominance && rightDominance) {
                 mutualDominanceExist = true;
@@ -113,7 +111,7 @@ public class ParetoSet<T> extends AbstractCollection<T> {
                 return true;
             }
             else if (rightDominance) {
-                notifyElementRejected(newValue, it);
+                notifyElementRejected(newValue, elements[i]);
                 return false;
             }
             else {
@@ -147,9 +145,8 @@ public class ParetoSet<T> extends AbstractCollection<T> {
         boolean equivalentVectorExist = false;
 
         for (int i = 0; i < size; ++i) {
-            boolean leftDominance = leftDominanceExist(newValue, elements[i]);
-            boolean rightDominance = rightDominanceExist(newValue, elements[i]);
-
+            boolean leftDominance = leftDominanceExist(newValue, i);
+            boolean rightDominance = rightDominanceExist(newValue, i);
 
             if (leftDominance && rightDominance) {
                 if(equivalentVectorExist) {
@@ -198,6 +195,23 @@ public class ParetoSet<T> extends AbstractCollection<T> {
                 .collect(Collectors.joining(", ")) + "}";
     }
 
+    /**
+     * Return {@code true} if the new value is better than the element at the given index for at
+     * least one criteria. Subclasses may override this and {@link #rightDominanceExist(Object, int)}
+     * to compare with values they keep for each element, see {@link #notifyElementSet(int, Object)}.
+     */
+    protected boolean leftDominanceExist(T newValue, int index) {
+        return comparator.leftDominanceExist(newValue, elements[index]);
+    }
+
+    /**
+     * Return {@code true} if the element at the given index is better than the new value for at
+     * least one criteria.
+     */
+    protected boolean rightDominanceExist(T newValue, int index) {
+        return comparator.leftDominanceExist(elements[index], newValue);
+    }
+
     /**
      * Notify subclasses about reindexing. This method is empty,
      * and only exist for subclasses to override it.
@@ -206,6 +220,15 @@ public class ParetoSet<T> extends AbstractCollection<T> {
         // Noop
     }
 
+    /**
+     * Notify subclasses that the element at the given index is set, when it is added or moved.
+     * The index may be larger than the capacity of any arrays kept by the subclass. This method
+     * is empty, and only exist for subclasses to override it.
+     */
+    protected void notifyElementSet(int index, T element) {
+        // Noop
+    }
+
     /**
      * This tail iterator is made to be FAST, it is NOT thread-safe and it the
      * underlying collection is changed the returned values of the iterator also
@@ -234,8 +257,8 @@ public class ParetoSet<T> extends AbstractCollection<T> {
         while (j < size) {
             notifyElementMoved(j, i);
             // Move next element(j) forward if it is not dominated by the new value
-            if (!leftVectorDominatesRightVector(newValue, elements[j])) {
-                elements[i] = elements[j];
+            if (!leftDominanceExist(newValue, j) || rightDominanceExist(newValue, j)) {
+                set(i, elements[j]);
                 ++i;
             }
             else {
@@ -246,17 +269,18 @@ public class ParetoSet<T> extends AbstractCollection<T> {
         }
         notifyElementMoved(j, i);
         notifyElementAccepted(newValue);
-        elements[i] = newValue;
+        set(i, newValue);
         size = i+1;
     }
 
-    private boolean leftVectorDominatesRightVector(T left, T right) {
-        return leftDominanceExist(left, right) && !rightDominanceExist(left, right);
-    }
-
     private void acceptAndAppendValue(T newValue) {
         notifyElementAccepted(newValue);
-        elements[size++] = newValue;
+        set(size++, newValue);
+    }
+
+    private void set(int index, T element) {
+        elements[index] = element;
+        notifyElementSet(index, element);
     }
 
     private void assertEnoughSpaceInSet() {
@@ -265,14 +289,6 @@ public class ParetoSet<T> extends AbstractCollection<T> {
         }
     }
 
-    private boolean leftDominanceExist(T left, T right) {
-        return comparator.leftDominanceExist(left, right);
-    }
-
-    private boolean rightDominanceExist(T left, T right) {
-        return comparator.leftDominanceExist(right, left);
-    }
-
     private void notifyElementAccepted(T newElement) {
         if(eventListener != null) {
             eventListener.notifyElementAccepted(newElement);
@@ -151,6 +151,9 @@ public class GraphUpdaterManager {
                 runnable.run(graph);
             } catch (Exception e) {
                 LOG.error("Error while running graph writer {}:", runnable.getClass().getName(), e);
+            } finally {
+                // The access/egress stops cached may depend on the graph changed
+                graph.clearAccessEgressCache();
             }
         });
     }
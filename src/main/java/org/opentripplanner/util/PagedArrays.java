@@ -0,0 +1,126 @@
+package org.opentripplanner.util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Arrays indexed by vertex or edge index, split into pages allocated when first written to. A
+ * search only allocates the pages of the vertices it reaches, so a small search, like most
+ * access and egress searches, does not allocate arrays as large as the graph.
+ * <p>
+ * The arrays grow when an index larger than the initial capacity is written to. Reading an index
+ * which is not written to returns the default value of the array. Negative indices are not
+ * allowed.
+ */
+public final class PagedArrays {
+
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private PagedArrays() {}
+
+    public static final class OfObject<T> {
+        private Object[][] pages;
+
+        public OfObject(int capacity) {
+            this.pages = new Object[numberOfPages(capacity)][];
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            int p = index >> PAGE_BITS;
+            return p < pages.length && pages[p] != null ? (T) pages[p][index & PAGE_MASK] : null;
+        }
+
+        public void set(int index, T value) {
+            int p = index >> PAGE_BITS;
+            if (p >= pages.length) {
+                if (value == null) { return; }
+                pages = Arrays.copyOf(pages, grownLength(p, pages.length));
+            }
+            if (pages[p] == null) {
+                if (value == null) { return; }
+                pages[p] = new Object[PAGE_SIZE];
+            }
+            pages[p][index & PAGE_MASK] = value;
+        }
+
+        /** Call the action for each element which is not {@code null}, in index order. */
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super T> action) {
+            for (Object[] page : pages) {
+                if (page == null) { continue; }
+                for (Object value : page) {
+                    if (value != null) { action.accept((T) value); }
+                }
+            }
+        }
+    }
+
+    public static final class OfInt {
+        private final int defaultValue;
+        private int[][] pages;
+
+        public OfInt(int capacity, int defaultValue) {
+            this.defaultValue = defaultValue;
+            this.pages = new int[numberOfPages(capacity)][];
+        }
+
+        public int get(int index) {
+            int p = index >> PAGE_BITS;
+            return p < pages.length && pages[p] != null ? pages[p][index & PAGE_MASK] : defaultValue;
+        }
+
+        public void set(int index, int value) {
+            int p = index >> PAGE_BITS;
+            if (p >= pages.length) {
+                if (value == defaultValue) { return; }
+                pages = Arrays.copyOf(pages, grownLength(p, pages.length));
+            }
+            if (pages[p] == null) {
+                if (value == defaultValue) { return; }
+                pages[p] = new int[PAGE_SIZE];
+                if (defaultValue != 0) { Arrays.fill(pages[p], defaultValue); }
+            }
+            pages[p][index & PAGE_MASK] = value;
+        }
+    }
+
+    public static final class OfDouble {
+        private final double defaultValue;
+        private double[][] pages;
+
+        public OfDouble(int capacity, double defaultValue) {
+            this.defaultValue = defaultValue;
+            this.pages = new double[numberOfPages(capacity)][];
+        }
+
+        public double get(int index) {
+            int p = index >> PAGE_BITS;
+            return p < pages.length && pages[p] != null ? pages[p][index & PAGE_MASK] : defaultValue;
+        }
+
+        public void set(int index, double value) {
+            int p = index >> PAGE_BITS;
+            if (p >= pages.length) {
+                if (value == defaultValue) { return; }
+                pages = Arrays.copyOf(pages, grownLength(p, pages.length));
+            }
+            if (pages[p] == null) {
+                if (value == defaultValue) { return; }
+                pages[p] = new double[PAGE_SIZE];
+                if (defaultValue != 0) { Arrays.fill(pages[p], defaultValue); }
+            }
+            pages[p][index & PAGE_MASK] = value;
+        }
+    }
+
+    private static int numberOfPages(int capacity) {
+        return Math.max(1, (capacity + PAGE_MASK) >> PAGE_BITS);
+    }
+
+    private static int grownLength(int page, int length) {
+        return Math.max(page + 1, length * 2);
+    }
+}
@@ -12,7 +12,7 @@ import junit.framework.TestCase;
 public class TestPQueues extends TestCase { 
     private static final int N = 50000;
 
-    public void doQueue(BinHeap<Integer> q,
+    public void doQueue(OTPPriorityQueue<Integer> q,
                         List<Integer> input, List<Integer> expected) {
         List<Integer> result = new ArrayList<Integer>(N);
         int expectedSum = 0;
@@ -45,7 +45,7 @@ public class TestPQueues extends TestCase {
         assertTrue(sum == expectedSum);
     }
     
-    public void fillQueue(BinHeap<Integer> q, List<Integer> input) {
+    public void fillQueue(OTPPriorityQueue<Integer> q, List<Integer> input) {
         for (Integer i : input) {
             q.insert(i, i * 0.5);
         }
@@ -77,6 +77,91 @@ public class TestPQueues extends TestCase {
         }
         doQueue(new BinHeap<Integer>(), input, expected);
         fillQueue(new BinHeap<Integer>(), input);
+        doQueue(new IndexedFourAryHeap<Integer>(20, i -> -1), input, expected);
+        fillQueue(new IndexedFourAryHeap<Integer>(20, i -> -1), input);
+        // The radix heap only accepts keys higher than the last key extracted
+        doQueue(new RadixHeap<Integer>(), input, expected);
+    }
+
+    /*
+     * Inserting an element with the same index as an element in the queue
+     * replaces that element, with a lower or higher key.
+     */
+    public void testIndexedHeapReplacesElements() {
+        final int N = 5000;
+        // The index of the element is the element divided by N
+        IndexedFourAryHeap<Integer> q = new IndexedFourAryHeap<Integer>(20, i -> i / N);
+        int[] current = new int[N];
+        double[] keys = new double[N];
+        for (int i = 0; i < N; i++) {
+            keys[i] = Math.random() * 10000;
+            q.insert(i * N, keys[i]);
+            current[i] = i * N;
+        }
+        for (int iter = 0; iter < 3 * N; iter++) {
+            int i = (int) (Math.random() * N);
+            current[i] += 1;
+            keys[i] = Math.random() * 10000;
+            q.insert(current[i], keys[i]);
+        }
+        assertEquals(N, q.size());
+
+        double last = Double.NEGATIVE_INFINITY;
+        int count = 0;
+        while (!q.empty()) {
+            double key = q.peek_min_key();
+            Integer e = q.extract_min();
+            assertTrue(key >= last);
+            assertEquals(current[e / N], (int) e);
+            assertEquals(keys[e / N], key);
+            last = key;
+            count++;
+        }
+        assertEquals(N, count);
+
+        // An extracted element is inserted again as a new element
+        q.insert(N, 1.0);
+        q.insert(N + 1, 2.0);
+        assertEquals(1, q.size());
+        assertEquals(2.0, q.peek_min_key());
+        q.reset();
+        assertTrue(q.empty());
+        q.insert(N, 1.0);
+        assertEquals(1, q.size());
+    }
+
+    /*
+     * Simulate a Dijkstra search, where the keys inserted are never lower
+     * than the last key extracted.
+     */
+    public void testRadixHeapMonotoneKeys() {
+        RadixHeap<Integer> rh = new RadixHeap<Integer>();
+        PriorityQueue<Double> expected = new PriorityQueue<Double>();
+        rh.insert(0, 0);
+        expected.add(0.0);
+        int inserted = 1;
+        while (!rh.empty()) {
+            double key = rh.peek_min_key();
+            assertEquals(expected.remove(), key);
+            rh.extract_min();
+            for (int i = 0; i < 3 && inserted < N; i++, inserted++) {
+                double next = key + (i == 0 ? 0 : Math.random() * 100);
+                rh.insert(inserted, next);
+                expected.add(next);
+            }
+        }
+        assertTrue(expected.isEmpty());
+        assertEquals(N, inserted);
+
+        rh.insert(1, 10);
+        rh.insert(2, 20);
+        rh.extract_min();
+        try {
+            rh.insert(3, 5);
+            fail("A key lower than the last key extracted should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
     }
 
     /*
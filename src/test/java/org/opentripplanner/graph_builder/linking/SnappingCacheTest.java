@@ -0,0 +1,71 @@
+package org.opentripplanner.graph_builder.linking;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.linearref.LinearLocation;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class SnappingCacheTest {
+
+  @Test
+  public void nearbyCoordinatesHaveTheSameKey() {
+    var a = SnappingCache.key(new Coordinate(10.0, 60.0), TraverseMode.WALK);
+
+    assertEquals(a, SnappingCache.key(new Coordinate(10.00000002, 59.99999998), TraverseMode.WALK));
+    assertNotEquals(a, SnappingCache.key(new Coordinate(10.000002, 60.0), TraverseMode.WALK));
+    assertNotEquals(a, SnappingCache.key(new Coordinate(10.0, 60.0), TraverseMode.CAR));
+  }
+
+  @Test
+  public void countHitsAndMisses() {
+    var subject = new SnappingCache(10);
+    var key = SnappingCache.key(new Coordinate(10.0, 60.0), TraverseMode.WALK);
+    var edge = edge(new Graph());
+
+    assertNull(subject.get(key));
+    subject.put(key, List.of(SnappingCache.Link.toEdge(edge, new LinearLocation(0, 0.5))));
+    List<SnappingCache.Link> links = subject.get(key);
+    assertEquals(1, links.size());
+    assertEquals(edge, links.get(0).edge);
+
+    assertEquals(1, subject.stats().hitCount());
+    assertEquals(1, subject.stats().missCount());
+    assertEquals(1, subject.size());
+  }
+
+  @Test
+  public void entriesWithEdgesRemovedFromTheGraphAreDropped() {
+    var subject = new SnappingCache(10);
+    var key = SnappingCache.key(new Coordinate(10.0, 60.0), TraverseMode.WALK);
+    var edge = edge(new Graph());
+
+    subject.put(key, List.of(SnappingCache.Link.toEdge(edge, new LinearLocation(0, 0.5))));
+    edge.getFromVertex().removeOutgoing(edge);
+    edge.getToVertex().removeIncoming(edge);
+
+    assertNull(subject.get(key));
+    assertEquals(0, subject.size());
+  }
+
+  private static StreetEdge edge(Graph graph) {
+    StreetVertex a = new IntersectionVertex(graph, "A", 10.0, 60.0);
+    StreetVertex b = new IntersectionVertex(graph, "B", 10.001, 60.0);
+    LineString geometry = GeometryUtils.getGeometryFactory().createLineString(
+        new Coordinate[] { a.getCoordinate(), b.getCoordinate() }
+    );
+    return new StreetEdge(a, b, geometry, "A_B", 55.0, StreetTraversalPermission.ALL, false);
+  }
+}
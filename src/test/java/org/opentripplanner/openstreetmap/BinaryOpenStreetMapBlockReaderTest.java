@@ -0,0 +1,104 @@
+package org.opentripplanner.openstreetmap;
+
+import org.junit.Test;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+import org.opentripplanner.openstreetmap.model.OSMRelation;
+import org.opentripplanner.openstreetmap.model.OSMWay;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryOpenStreetMapBlockReaderTest {
+
+    private static final String OSM_FILE = "/portland-central-filtered.osm.pbf";
+
+    @Test
+    public void laterPhasesSkipBlocksWithoutEntitiesOfThePhase() throws IOException {
+        OSMDatabase osmdb = new OSMDatabase(new DataImportIssueStore(false));
+
+        try (BinaryOpenStreetMapBlockReader reader = new BinaryOpenStreetMapBlockReader(3)) {
+            int allBlocks = readPhase(reader, OsmParserPhase.Relations, osmdb);
+            osmdb.doneFirstPhaseRelations();
+            int wayBlocks = readPhase(reader, OsmParserPhase.Ways, osmdb);
+            osmdb.doneSecondPhaseWays();
+            int nodeBlocks = readPhase(reader, OsmParserPhase.Nodes, osmdb);
+
+            assertTrue(wayBlocks > 0);
+            assertTrue(nodeBlocks > 0);
+            assertTrue(wayBlocks + nodeBlocks < allBlocks);
+        }
+
+        assertEquals(7047, osmdb.wayCount());
+        assertEquals(41222, osmdb.nodeCount());
+    }
+
+    @Test
+    public void entitiesAreAddedInFileOrderWithAnyNumberOfThreads() throws IOException {
+        List<String> oneThread = readAllPhases(1);
+        List<String> manyThreads = readAllPhases(4);
+
+        assertTrue(oneThread.size() > 0);
+        assertEquals(oneThread, manyThreads);
+    }
+
+    /** Read all phases, and return the entities in the order they are added to the database. */
+    private List<String> readAllPhases(int nThreads) throws IOException {
+        RecordingOSMDatabase osmdb = new RecordingOSMDatabase();
+
+        try (BinaryOpenStreetMapBlockReader reader = new BinaryOpenStreetMapBlockReader(nThreads)) {
+            readPhase(reader, OsmParserPhase.Relations, osmdb);
+            osmdb.doneFirstPhaseRelations();
+            readPhase(reader, OsmParserPhase.Ways, osmdb);
+            osmdb.doneSecondPhaseWays();
+            readPhase(reader, OsmParserPhase.Nodes, osmdb);
+        }
+        return osmdb.added;
+    }
+
+    private int readPhase(
+            BinaryOpenStreetMapBlockReader reader,
+            OsmParserPhase phase,
+            OSMDatabase osmdb
+    ) throws IOException {
+        String path = URLDecoder.decode(getClass().getResource(OSM_FILE).getPath(), StandardCharsets.UTF_8);
+        try (InputStream in = new FileInputStream(path)) {
+            return reader.readPhase(in, phase, osmdb);
+        }
+    }
+
+    private static class RecordingOSMDatabase extends OSMDatabase {
+        private final List<String> added = new ArrayList<>();
+
+        private RecordingOSMDatabase() {
+            super(new DataImportIssueStore(false));
+        }
+
+        @Override
+        public void addNode(OSMNode node) {
+            added.add("node " + node.getId());
+            super.addNode(node);
+        }
+
+        @Override
+        public void addWay(OSMWay way) {
+            added.add("way " + way.getId());
+            super.addWay(way);
+        }
+
+        @Override
+        public void addRelation(OSMRelation relation) {
+            added.add("relation " + relation.getId());
+            super.addRelation(relation);
+        }
+    }
+}
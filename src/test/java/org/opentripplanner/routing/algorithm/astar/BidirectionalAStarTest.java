@@ -0,0 +1,253 @@
+package org.opentripplanner.routing.algorithm.astar;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.common.TurnRestriction;
+import org.opentripplanner.common.TurnRestrictionType;
+import org.opentripplanner.routing.algorithm.astar.strategies.EuclideanRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.astar.strategies.RemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.ConstantIntersectionTraversalCostModel;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.StreetGridGraph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.opentripplanner.routing.graph.StreetGridGraph.street;
+
+public class BidirectionalAStarTest {
+
+    private static final int SIZE = 5;
+
+    private Graph graph;
+
+    private List<StreetVertex> vertices;
+
+    private StreetVertex[][] grid;
+
+    /** Some one-way streets, detours and streets closed for cars. */
+    @Before
+    public void before() {
+        StreetGridGraph streets = StreetGridGraph.of(SIZE)
+                .withPermissions((row, column, horizontal) -> horizontal && (row + column) % 4 == 1
+                        ? StreetTraversalPermission.PEDESTRIAN_AND_BICYCLE
+                        : StreetTraversalPermission.ALL)
+                .withOneWayRows(row -> row == 2)
+                .build();
+        graph = streets.graph;
+        vertices = streets.vertices;
+        grid = streets.grid;
+    }
+
+    /** Without turn costs the paths found must have the same weight as the paths found by the A* search. */
+    @Test
+    public void testSameWeightAsAStar() {
+        for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR }) {
+            for (boolean arriveBy : new boolean[] { false, true }) {
+                for (boolean heuristic : new boolean[] { false, true }) {
+                    assertWeightComparedToAStar(mode, arriveBy, heuristic, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * With turn costs the A* search keeps only the best state at each vertex, and may miss a path
+     * where a cheaper turn makes up for a more expensive approach. The paths found by joining the
+     * two searches on edges must never be worse.
+     */
+    @Test
+    public void testNotWorseThanAStarWithTurnCosts() {
+        for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.CAR }) {
+            for (boolean arriveBy : new boolean[] { false, true }) {
+                assertWeightComparedToAStar(mode, arriveBy, true, true);
+            }
+        }
+    }
+
+    /** The searches meet on edges, so a path through a restricted turn is never returned. */
+    @Test
+    public void testTurnRestrictions() {
+        // No left turn from the street into the middle vertex onto the street north of it
+        StreetEdge from = street(grid[2][1], grid[2][2]);
+        StreetEdge to = street(grid[2][2], grid[3][2]);
+        graph.addTurnRestriction(from, new TurnRestriction(
+                from, to, TurnRestrictionType.NO_TURN, new TraverseModeSet(TraverseMode.CAR)
+        ));
+        StreetEdge onlyFrom = street(grid[1][3], grid[2][3]);
+        StreetEdge onlyTo = street(grid[2][3], grid[3][3]);
+        graph.addTurnRestriction(onlyFrom, new TurnRestriction(
+                onlyFrom, onlyTo, TurnRestrictionType.ONLY_TURN, new TraverseModeSet(TraverseMode.CAR)
+        ));
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            assertWeightComparedToAStar(TraverseMode.CAR, arriveBy, true, true);
+
+            GraphPath path = bidirectional(request(TraverseMode.CAR, grid[2][1], grid[3][2], arriveBy, true, true));
+            assertNotNull(path);
+            for (int i = 1; i < path.edges.size(); ++i) {
+                assertFalse(path.edges.get(i - 1) == from && path.edges.get(i) == to);
+            }
+        }
+    }
+
+    @Test
+    public void testSettledVertexCount() {
+        RoutingRequest options = request(TraverseMode.WALK, grid[0][0], grid[SIZE - 1][SIZE - 1], false, false);
+        BidirectionalAStar search = new BidirectionalAStar(options, new TrivialRemainingWeightHeuristic());
+        assertNotNull(search.findPath(-1));
+        assertTrue(search.getForwardSettledVertexCount() > 0);
+        assertTrue(search.getReverseSettledVertexCount() > 0);
+        assertEquals(
+                search.getForwardSettledVertexCount() + search.getReverseSettledVertexCount(),
+                search.getSettledVertexCount()
+        );
+
+        AStar aStar = new AStar();
+        aStar.getShortestPathTree(request(TraverseMode.WALK, grid[0][0], grid[SIZE - 1][SIZE - 1], false, false));
+        assertTrue(search.getSettledVertexCount() <= aStar.getSettledVertexCount());
+    }
+
+    @Test
+    public void testSupports() {
+        RoutingRequest options = request(TraverseMode.BICYCLE, grid[0][0], grid[1][1], false, true);
+        assertTrue(BidirectionalAStar.supports(options));
+
+        options.bikeRental = true;
+        assertFalse(BidirectionalAStar.supports(options));
+
+        options = request(TraverseMode.WALK, grid[0][0], grid[1][1], false, true);
+        options.dominanceFunction = new DominanceFunction.Pareto();
+        assertFalse(BidirectionalAStar.supports(options));
+
+        options = request(TraverseMode.WALK, grid[0][0], grid[1][1], false, true);
+        options.setRoutingContext(graph, Collections.singleton(grid[0][0]), Collections.emptySet());
+        assertFalse(BidirectionalAStar.supports(options));
+    }
+
+    /** The path against the direction of a one-way street leaves the street. */
+    @Test
+    public void testOneWayStreets() {
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            GraphPath east = bidirectional(request(TraverseMode.BICYCLE, grid[2][0], grid[2][SIZE - 1], arriveBy, true));
+            GraphPath west = bidirectional(request(TraverseMode.BICYCLE, grid[2][SIZE - 1], grid[2][0], arriveBy, true));
+
+            assertEquals(SIZE - 1, east.edges.size());
+            assertTrue(west.getWeight() > east.getWeight());
+            assertTrue(west.edges.stream().anyMatch(e -> !e.getToVertex().getLabel().startsWith("v_2_")));
+        }
+    }
+
+    @Test
+    public void testUnreachableDestination() {
+        StreetVertex island = new IntersectionVertex(graph, "island", 10.02, 59.02);
+        StreetVertex shore = new IntersectionVertex(graph, "shore", 10.021, 59.02);
+        StreetGridGraph.edges(island, shore, StreetTraversalPermission.ALL);
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            for (boolean heuristic : new boolean[] { false, true }) {
+                RoutingRequest options = request(TraverseMode.WALK, grid[0][0], island, arriveBy, heuristic);
+                BidirectionalAStar search = new BidirectionalAStar(options, new TrivialRemainingWeightHeuristic());
+                assertNull(search.findPath(-1));
+                assertNull(bidirectional(request(TraverseMode.WALK, island, grid[0][0], arriveBy, heuristic)));
+            }
+        }
+    }
+
+    @Test
+    public void testOriginIsDestination() {
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            GraphPath path = bidirectional(request(TraverseMode.BICYCLE, grid[1][1], grid[1][1], arriveBy, true));
+            assertNotNull(path);
+            assertEquals(0.0, path.getWeight(), 0.0);
+            assertTrue(path.edges.isEmpty());
+            assertEquals(grid[1][1], path.states.getFirst().getVertex());
+        }
+    }
+
+    private void assertWeightComparedToAStar(
+            TraverseMode mode,
+            boolean arriveBy,
+            boolean heuristic,
+            boolean turnCosts
+    ) {
+        for (Vertex origin : vertices) {
+            for (Vertex destination : vertices) {
+                AStar aStar = new AStar();
+                aStar.getShortestPathTree(request(mode, origin, destination, arriveBy, heuristic, turnCosts));
+                List<GraphPath> expected = aStar.getPathsToTarget();
+
+                GraphPath path = bidirectional(request(mode, origin, destination, arriveBy, heuristic, turnCosts));
+                String message = mode + " " + origin + " -> " + destination + " arriveBy=" + arriveBy;
+                if (expected.isEmpty()) {
+                    assertNull(message, path);
+                    continue;
+                }
+                assertNotNull(message, path);
+                if (turnCosts) {
+                    assertTrue(message, path.getWeight() <= expected.get(0).getWeight() + 1e-6);
+                } else {
+                    assertEquals(message, expected.get(0).getWeight(), path.getWeight(), 1e-6);
+                }
+                assertEquals(message, origin, path.states.getFirst().getVertex());
+                assertEquals(message, destination, path.states.getLast().getVertex());
+            }
+        }
+    }
+
+    private GraphPath bidirectional(RoutingRequest options) {
+        RemainingWeightHeuristic reverseHeuristic = options.rctx.remainingWeightHeuristic instanceof TrivialRemainingWeightHeuristic
+                ? new TrivialRemainingWeightHeuristic()
+                : new EuclideanRemainingWeightHeuristic();
+        BidirectionalAStar search = new BidirectionalAStar(options, reverseHeuristic);
+        return search.findPath(-1);
+    }
+
+    private RoutingRequest request(
+            TraverseMode mode,
+            Vertex from,
+            Vertex to,
+            boolean arriveBy,
+            boolean heuristic
+    ) {
+        return request(mode, from, to, arriveBy, heuristic, false);
+    }
+
+    private RoutingRequest request(
+            TraverseMode mode,
+            Vertex from,
+            Vertex to,
+            boolean arriveBy,
+            boolean heuristic,
+            boolean turnCosts
+    ) {
+        RoutingRequest options = new RoutingRequest(mode);
+        options.setArriveBy(arriveBy);
+        if (!turnCosts) {
+            options.traversalCostModel = new ConstantIntersectionTraversalCostModel(0.0);
+        }
+        options.setRoutingContext(graph, Collections.singleton(from), Collections.singleton(to));
+        options.dominanceFunction = new DominanceFunction.MinimumWeight();
+        options.disableRemainingWeightHeuristic = !heuristic;
+        options.rctx.remainingWeightHeuristic = heuristic
+                ? new EuclideanRemainingWeightHeuristic()
+                : new TrivialRemainingWeightHeuristic();
+        return options;
+    }
+}
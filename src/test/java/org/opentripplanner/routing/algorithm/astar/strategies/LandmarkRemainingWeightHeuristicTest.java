@@ -0,0 +1,216 @@
+package org.opentripplanner.routing.algorithm.astar.strategies;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTables;
+import org.opentripplanner.routing.algorithm.astar.landmark.LandmarkTablesBuilder;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.StreetGridGraph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LandmarkRemainingWeightHeuristicTest {
+
+    private static final int SIZE = 6;
+
+    private Graph graph;
+
+    private StreetVertex[][] grid;
+
+    private LandmarkTables landmarks;
+
+    /** Targets in the tables, and one vertex added after the tables are created. */
+    private final List<Vertex> targets = new ArrayList<>();
+
+    @Before
+    public void before() {
+        setUp(StreetGridGraph.of(SIZE).build());
+    }
+
+    private void setUp(StreetGridGraph streets) {
+        graph = streets.graph;
+        grid = streets.grid;
+        landmarks = new LandmarkTablesBuilder(graph, 3).build();
+        graph.setLandmarkTables(landmarks);
+
+        targets.clear();
+        targets.add(grid[0][0]);
+        targets.add(grid[2][3]);
+        targets.add(grid[SIZE - 1][SIZE - 1]);
+
+        StreetVertex late = new IntersectionVertex(graph, "late", 10.0025, 59.003);
+        StreetGridGraph.edges(grid[3][2], late, StreetTraversalPermission.ALL);
+        StreetGridGraph.edges(late, grid[3][3], StreetTraversalPermission.ALL);
+        targets.add(late);
+    }
+
+    @Test
+    public void testTables() {
+        assertEquals(SIZE * SIZE, landmarks.numberOfVertices());
+        for (LandmarkTables.Profile profile : LandmarkTables.Profile.values()) {
+            LandmarkTables.Table table = landmarks.table(profile);
+            assertNotNull(table);
+            assertEquals(3, table.numberOfLandmarks());
+            for (int l = 0; l < 3; ++l) {
+                int index = landmarks.indexOf(table.landmark(l));
+                assertEquals(0, table.fromLandmark(index, l));
+                assertEquals(0, table.toLandmark(index, l));
+            }
+        }
+        assertEquals(-1, landmarks.indexOf(graph.getVertex("late")));
+    }
+
+    @Test
+    public void testTableForModes() {
+        assertEquals(
+                LandmarkTables.Profile.WALK,
+                landmarks.tableFor(new TraverseModeSet(TraverseMode.WALK)).profile()
+        );
+        assertEquals(
+                LandmarkTables.Profile.BICYCLE,
+                landmarks.tableFor(new TraverseModeSet(TraverseMode.BICYCLE, TraverseMode.WALK)).profile()
+        );
+        assertEquals(
+                LandmarkTables.Profile.CAR,
+                landmarks.tableFor(new TraverseModeSet(TraverseMode.CAR)).profile()
+        );
+        assertNull(landmarks.tableFor(new TraverseModeSet(TraverseMode.CAR, TraverseMode.WALK)));
+    }
+
+    @Test
+    public void testDepartAfterEstimateIsALowerBound() {
+        for (TraverseMode mode : List.of(TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR)) {
+            assertLowerBound(mode, false);
+        }
+    }
+
+    @Test
+    public void testArriveByEstimateIsALowerBound() {
+        for (TraverseMode mode : List.of(TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR)) {
+            assertLowerBound(mode, true);
+        }
+    }
+
+    @Test
+    public void testEstimateIsALowerBoundWithOneWayStreets() {
+        setUp(StreetGridGraph.of(SIZE).withOneWayRows(row -> row % 2 == 1).build());
+        for (TraverseMode mode : List.of(TraverseMode.WALK, TraverseMode.CAR)) {
+            assertLowerBound(mode, false);
+            assertLowerBound(mode, true);
+        }
+    }
+
+    /** The landmarks give no better bound than the straight line distance to an unreachable target. */
+    @Test
+    public void testUnreachableTarget() {
+        StreetGridGraph streets = StreetGridGraph.of(SIZE).build();
+        StreetVertex island = new IntersectionVertex(streets.graph, "island", 10.02, 59.02);
+        StreetVertex shore = new IntersectionVertex(streets.graph, "shore", 10.021, 59.02);
+        StreetGridGraph.edges(island, shore, StreetTraversalPermission.ALL);
+        setUp(streets);
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            Vertex from = arriveBy ? island : grid[0][0];
+            Vertex to = arriveBy ? grid[0][0] : island;
+
+            RoutingRequest options = request(TraverseMode.WALK, arriveBy, from, to);
+            options.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
+            ShortestPathTree tree = new AStar().getShortestPathTree(options);
+            assertNull(tree.getPath(options.rctx.toVertices.iterator().next(), false));
+
+            options = request(TraverseMode.WALK, arriveBy, from, to);
+            State start = new State(options);
+            RemainingWeightHeuristic heuristic = new LandmarkRemainingWeightHeuristic(landmarks);
+            heuristic.initialize(options, Long.MAX_VALUE);
+            RemainingWeightHeuristic euclidean = new EuclideanRemainingWeightHeuristic();
+            euclidean.initialize(options, Long.MAX_VALUE);
+
+            assertEquals(
+                    euclidean.estimateRemainingWeight(start),
+                    heuristic.estimateRemainingWeight(start),
+                    0.0
+            );
+        }
+    }
+
+    @Test
+    public void testOriginIsTarget() {
+        for (Vertex target : targets) {
+            for (boolean arriveBy : new boolean[] { false, true }) {
+                RoutingRequest options = request(TraverseMode.BICYCLE, arriveBy, target, target);
+                RemainingWeightHeuristic heuristic = new LandmarkRemainingWeightHeuristic(landmarks);
+                heuristic.initialize(options, Long.MAX_VALUE);
+                assertEquals(0.0, heuristic.estimateRemainingWeight(new State(options)), 1e-6);
+            }
+        }
+    }
+
+    /**
+     * Compare the estimate at the start of the search with the weight of the path found, and
+     * check that the landmarks give a better estimate than the straight line distance.
+     */
+    private void assertLowerBound(TraverseMode mode, boolean arriveBy) {
+        double sumLandmarkEstimates = 0;
+        double sumEuclideanEstimates = 0;
+
+        for (Vertex target : targets) {
+            for (StreetVertex[] row : grid) {
+                for (StreetVertex origin : row) {
+                    if (origin == target) { continue; }
+
+                    Vertex from = arriveBy ? target : origin;
+                    Vertex to = arriveBy ? origin : target;
+
+                    RoutingRequest options = request(mode, arriveBy, from, to);
+                    options.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
+                    ShortestPathTree tree = new AStar().getShortestPathTree(options);
+                    GraphPath path = tree.getPath(options.rctx.toVertices.iterator().next(), false);
+                    if (path == null) { continue; }
+
+                    options = request(mode, arriveBy, from, to);
+                    State start = new State(options);
+
+                    RemainingWeightHeuristic heuristic = new LandmarkRemainingWeightHeuristic(landmarks);
+                    heuristic.initialize(options, Long.MAX_VALUE);
+                    double estimate = heuristic.estimateRemainingWeight(start);
+
+                    RemainingWeightHeuristic euclidean = new EuclideanRemainingWeightHeuristic();
+                    euclidean.initialize(options, Long.MAX_VALUE);
+
+                    assertTrue(
+                            mode + " " + from + " -> " + to,
+                            estimate <= path.getWeight() + 1e-6
+                    );
+                    sumLandmarkEstimates += estimate;
+                    sumEuclideanEstimates += euclidean.estimateRemainingWeight(start);
+                }
+            }
+        }
+        assertTrue(mode.toString(), sumLandmarkEstimates > sumEuclideanEstimates);
+    }
+
+    private RoutingRequest request(TraverseMode mode, boolean arriveBy, Vertex from, Vertex to) {
+        RoutingRequest options = new RoutingRequest();
+        options.streetSubRequestModes = new TraverseModeSet(mode);
+        options.setArriveBy(arriveBy);
+        options.setRoutingContext(graph, from, to);
+        return options;
+    }
+}
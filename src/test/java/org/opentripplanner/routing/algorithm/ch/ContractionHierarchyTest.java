@@ -0,0 +1,242 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchies.Profile;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.ConstantIntersectionTraversalCostModel;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.StreetGridGraph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ContractionHierarchyTest {
+
+    private static final int SIZE = 7;
+
+    private Graph graph;
+
+    private StreetVertex[][] grid;
+
+    private List<StreetVertex> vertices;
+
+    private ContractionHierarchies hierarchies;
+
+    /** Some one-way streets, detours and streets closed for cars or bicycles. */
+    @Before
+    public void before() {
+        setUp(StreetGridGraph.of(SIZE).withOneWayRows(row -> row % 4 == 1).build());
+    }
+
+    private void setUp(StreetGridGraph streets) {
+        graph = streets.graph;
+        grid = streets.grid;
+        vertices = streets.vertices;
+
+        ContractionHierarchy[] chs = new ContractionHierarchy[Profile.values().length];
+        for (Profile profile : Profile.values()) {
+            chs[profile.ordinal()] = new ContractionHierarchyBuilder(graph, profile).build();
+        }
+        hierarchies = new ContractionHierarchies(chs);
+        graph.setContractionHierarchies(hierarchies);
+    }
+
+    @Test
+    public void testShortcutsAreCreated() {
+        for (Profile profile : Profile.values()) {
+            ContractionHierarchy ch = hierarchies.get(profile);
+            assertEquals(SIZE * SIZE, ch.numberOfVertices());
+            assertTrue(ch.numberOfShortcuts() > 0);
+        }
+    }
+
+    @Test
+    public void testForRequest() {
+        for (Profile profile : Profile.values()) {
+            assertSame(hierarchies.get(profile), hierarchies.forRequest(profile.defaultRequest()));
+
+            RoutingRequest request = profile.defaultRequest();
+            request.stairsReluctance = 10.0;
+            assertNull(hierarchies.forRequest(request));
+
+            request = profile.defaultRequest();
+            request.streetSubRequestModes.setWalk(true);
+            assertNull(hierarchies.forRequest(request));
+        }
+    }
+
+    /**
+     * Compare the weight of the paths found in the hierarchy with the weight of the A* search
+     * without turn costs, for all pairs of vertices.
+     */
+    @Test
+    public void testSameWeightAsAStar() {
+        for (Profile profile : Profile.values()) {
+            ContractionHierarchy ch = hierarchies.get(profile);
+            for (Vertex from : vertices) {
+                for (Vertex to : vertices) {
+                    if (from == to) { continue; }
+                    GraphPath expected = aStar(profile, from, to, false);
+                    ContractionHierarchy.Path path = ch.route(single(ch, from), single(ch, to));
+                    if (expected == null) {
+                        assertNull(path);
+                        continue;
+                    }
+                    assertNotNull(path);
+                    assertEquals(expected.getWeight(), path.weight, 1e-6);
+                    assertSame(from, path.edges.get(0).getFromVertex());
+                    assertSame(to, path.edges.get(path.edges.size() - 1).getToVertex());
+                    for (int i = 1; i < path.edges.size(); ++i) {
+                        assertSame(
+                                path.edges.get(i - 1).getToVertex(),
+                                path.edges.get(i).getFromVertex()
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPathFinder() {
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            for (Profile profile : Profile.values()) {
+                Vertex from = vertices.get(1);
+                Vertex to = vertices.get(vertices.size() - 3);
+                GraphPath expected = aStar(profile, from, to, arriveBy);
+
+                RoutingRequest options = request(profile, from, to, arriveBy);
+                GraphPath path = new ContractionHierarchyPathFinder(
+                        hierarchies.forRequest(options), options
+                ).findPath();
+
+                assertNotNull(path);
+                assertEquals(expected.getWeight(), path.getWeight(), 1e-6);
+                assertEquals(expected.getDuration(), path.getDuration());
+                assertSame(from, path.states.getFirst().getVertex());
+                assertSame(to, path.states.getLast().getVertex());
+            }
+        }
+    }
+
+    /** Vertices added after the hierarchy is built are reached through their neighbours. */
+    @Test
+    public void testPathFinderWithVerticesNotInHierarchy() {
+        StreetVertex a = vertices.get(SIZE + 2);
+        StreetVertex b = vertices.get(SIZE + 3);
+        StreetVertex late = new IntersectionVertex(graph, "late", 10.0025, 59.001);
+        StreetGridGraph.edges(a, late, StreetTraversalPermission.ALL);
+        StreetGridGraph.edges(late, b, StreetTraversalPermission.ALL);
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            for (Profile profile : Profile.values()) {
+                Vertex to = vertices.get(vertices.size() - 1);
+                GraphPath expected = aStar(profile, late, to, arriveBy);
+
+                RoutingRequest options = request(profile, late, to, arriveBy);
+                GraphPath path = new ContractionHierarchyPathFinder(
+                        hierarchies.forRequest(options), options
+                ).findPath();
+
+                assertNotNull(path);
+                assertEquals(expected.getWeight(), path.getWeight(), 1e-6);
+                assertSame(late, path.states.getFirst().getVertex());
+                assertSame(to, path.states.getLast().getVertex());
+            }
+        }
+    }
+
+    /** The street in the other direction of a one-way street is not used. */
+    @Test
+    public void testOneWayStreets() {
+        setUp(StreetGridGraph.of(SIZE)
+                .withPermissions((row, column, horizontal) -> StreetTraversalPermission.ALL)
+                .withOneWayRows(row -> row == 1)
+                .build());
+
+        for (Profile profile : Profile.values()) {
+            ContractionHierarchy ch = hierarchies.get(profile);
+            ContractionHierarchy.Path east = ch.route(single(ch, grid[1][0]), single(ch, grid[1][SIZE - 1]));
+            ContractionHierarchy.Path west = ch.route(single(ch, grid[1][SIZE - 1]), single(ch, grid[1][0]));
+
+            assertEquals(SIZE - 1, east.edges.size());
+            for (StreetEdge e : east.edges) {
+                assertTrue(e.getName(), e.getToVertex().getLabel().startsWith("v_1_"));
+            }
+            assertTrue(west.weight > east.weight);
+            assertEquals(aStar(profile, grid[1][SIZE - 1], grid[1][0], false).getWeight(), west.weight, 1e-6);
+        }
+    }
+
+    @Test
+    public void testUnreachableTarget() {
+        StreetGridGraph streets = StreetGridGraph.of(SIZE).build();
+        StreetVertex island = new IntersectionVertex(streets.graph, "island", 10.02, 59.02);
+        StreetVertex shore = new IntersectionVertex(streets.graph, "shore", 10.021, 59.02);
+        StreetGridGraph.edges(island, shore, StreetTraversalPermission.ALL);
+        setUp(streets);
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            for (Profile profile : Profile.values()) {
+                ContractionHierarchy ch = hierarchies.get(profile);
+                assertNull(ch.route(single(ch, grid[0][0]), single(ch, island)));
+
+                RoutingRequest options = request(profile, grid[0][0], island, arriveBy);
+                assertNull(new ContractionHierarchyPathFinder(ch, options).findPath());
+            }
+        }
+    }
+
+    /** The origin is the destination, the path finder leaves this to the A* search. */
+    @Test
+    public void testOriginIsDestination() {
+        for (Profile profile : Profile.values()) {
+            ContractionHierarchy ch = hierarchies.get(profile);
+            Vertex v = grid[2][3];
+            ContractionHierarchy.Path path = ch.route(single(ch, v), single(ch, v));
+            assertNotNull(path);
+            assertEquals(0.0, path.weight, 0.0);
+            assertTrue(path.edges.isEmpty());
+
+            RoutingRequest options = request(profile, v, v, false);
+            assertNull(new ContractionHierarchyPathFinder(ch, options).findPath());
+        }
+    }
+
+    private GraphPath aStar(Profile profile, Vertex from, Vertex to, boolean arriveBy) {
+        RoutingRequest options = request(profile, from, to, arriveBy);
+        AStar aStar = new AStar();
+        aStar.getShortestPathTree(options);
+        List<GraphPath> paths = aStar.getPathsToTarget();
+        return paths.isEmpty() ? null : paths.get(0);
+    }
+
+    private RoutingRequest request(Profile profile, Vertex from, Vertex to, boolean arriveBy) {
+        RoutingRequest options = profile.defaultRequest();
+        options.setArriveBy(arriveBy);
+        options.traversalCostModel = new ConstantIntersectionTraversalCostModel(0.0);
+        options.setRoutingContext(graph, from, to);
+        return options;
+    }
+
+    private static TIntDoubleMap single(ContractionHierarchy ch, Vertex v) {
+        TIntDoubleMap result = new TIntDoubleHashMap();
+        result.put(ch.indexOf(v), 0);
+        return result;
+    }
+}
@@ -0,0 +1,280 @@
+package org.opentripplanner.routing.algorithm.csr;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.bike_rental.BikeRentalStation;
+import org.opentripplanner.routing.core.ConstantIntersectionTraversalCostModel;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.RentABikeOffEdge;
+import org.opentripplanner.routing.edgetype.RentABikeOnEdge;
+import org.opentripplanner.routing.edgetype.StreetBikeRentalLink;
+import org.opentripplanner.routing.edgetype.StreetTransitLink;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SimpleConcreteEdge;
+import org.opentripplanner.routing.graph.StreetGridGraph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.vertextype.BikeRentalStationVertex;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+import org.opentripplanner.util.NonLocalizedString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactStreetSearchTest {
+
+    private static final int SIZE = 6;
+
+    private Graph graph;
+
+    private StreetVertex[][] grid;
+
+    private List<StreetVertex> vertices;
+
+    private Vertex stopB;
+
+    /** Some one-way streets, detours and streets closed for cars or bicycles. */
+    @Before
+    public void before() {
+        setUp(StreetGridGraph.of(SIZE).withSpacing(0.002).withOneWayRows(row -> row % 4 == 1).build());
+        stop("A", grid[0][3]);
+        stopB = stop("B", grid[2][2]);
+        stop("C", grid[4][5]);
+        stop("D", grid[5][0]);
+    }
+
+    private void setUp(StreetGridGraph streets) {
+        graph = streets.graph;
+        grid = streets.grid;
+        vertices = streets.vertices;
+    }
+
+    /**
+     * Without turn costs the states found must have the same weight as the states found by the
+     * A* search, in both directions and for all supported modes.
+     */
+    @Test
+    public void testSameStatesAsAStar() {
+        CompactStreetGraph compactGraph = new CompactStreetGraph(graph);
+        assertEquals(SIZE * SIZE + 4, compactGraph.numberOfVertices());
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.BICYCLE }) {
+                for (Vertex origin : vertices) {
+                    Map<Vertex, Double> expected = stopWeights(aStar(request(mode, origin, arriveBy)));
+
+                    RoutingRequest options = request(mode, origin, arriveBy);
+                    assertTrue(CompactStreetSearch.supports(options));
+                    List<State> states = new CompactStreetSearch(compactGraph, options)
+                            .findStates(v -> v instanceof TransitStopVertex);
+                    assertNotNull(states);
+                    assertSameWeights(expected, stopWeights(states));
+                }
+            }
+        }
+    }
+
+    /** Cars can not enter the stops, and the time limit is respected. */
+    @Test
+    public void testCarAndTimeLimit() {
+        CompactStreetGraph compactGraph = new CompactStreetGraph(graph);
+
+        RoutingRequest options = request(TraverseMode.CAR, vertices.get(0), false);
+        List<State> states = new CompactStreetSearch(compactGraph, options)
+                .findStates(v -> v instanceof TransitStopVertex);
+        assertNotNull(states);
+        assertTrue(states.isEmpty());
+
+        options = request(TraverseMode.WALK, vertices.get(0), false);
+        options.worstTime = options.dateTime + 100;
+        states = new CompactStreetSearch(compactGraph, options)
+                .findStates(v -> v instanceof TransitStopVertex);
+        assertNotNull(states);
+        assertEquals(stopWeights(aStar(request(TraverseMode.WALK, vertices.get(0), false, 100))).keySet(),
+                stopWeights(states).keySet());
+        for (State state : states) {
+            assertTrue(state.getElapsedTimeSeconds() <= 100);
+        }
+    }
+
+    /** The search gives up when it reaches edges which are not in the compact graph. */
+    @Test
+    public void testOtherEdgesAreNotSupported() {
+        new SimpleConcreteEdge(vertices.get(1), vertices.get(2));
+        CompactStreetGraph compactGraph = new CompactStreetGraph(graph);
+
+        RoutingRequest options = request(TraverseMode.WALK, vertices.get(0), false);
+        assertNull(new CompactStreetSearch(compactGraph, options).findStates(v -> true));
+
+        options = request(TraverseMode.WALK, vertices.get(0), false);
+        options.bikeRental = true;
+        assertFalse(CompactStreetSearch.supports(options));
+
+        options = request(TraverseMode.WALK, vertices.get(0), false);
+        options.dominanceFunction = new DominanceFunction.Pareto();
+        assertFalse(CompactStreetSearch.supports(options));
+    }
+
+    /**
+     * The links to bike rental stations can not be traversed without bike rental, so the search
+     * does not fall back to the A* search at the streets next to the stations.
+     */
+    @Test
+    public void testBikeRentalStationsAreNotTraversed() {
+        for (int i = 0; i < SIZE; i += 2) {
+            bikeRentalStation("station_" + i, grid[i][i]);
+        }
+        CompactStreetGraph compactGraph = new CompactStreetGraph(graph);
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.BICYCLE }) {
+                Vertex origin = grid[0][0];
+                List<State> states = new CompactStreetSearch(compactGraph, request(mode, origin, arriveBy))
+                        .findStates(v -> v instanceof TransitStopVertex);
+                assertNotNull(states);
+                assertSameWeights(stopWeights(aStar(request(mode, origin, arriveBy))), stopWeights(states));
+            }
+        }
+    }
+
+    /** The street in the other direction of a one-way street is not used. */
+    @Test
+    public void testOneWayStreets() {
+        setUp(StreetGridGraph.of(SIZE)
+                .withPermissions((row, column, horizontal) -> StreetTraversalPermission.ALL)
+                .withOneWayRows(row -> row == 1)
+                .build());
+        Vertex west = stop("west", grid[1][0]);
+        Vertex east = stop("east", grid[1][SIZE - 1]);
+        CompactStreetGraph compactGraph = new CompactStreetGraph(graph);
+
+        Map<Vertex, Double> fromWest = stopWeights(new CompactStreetSearch(
+                compactGraph, request(TraverseMode.BICYCLE, grid[1][0], false)
+        ).findStates(v -> v instanceof TransitStopVertex));
+        Map<Vertex, Double> fromEast = stopWeights(new CompactStreetSearch(
+                compactGraph, request(TraverseMode.BICYCLE, grid[1][SIZE - 1], false)
+        ).findStates(v -> v instanceof TransitStopVertex));
+
+        assertTrue(fromEast.get(west) > fromWest.get(east));
+        assertEquals(
+                stopWeights(aStar(request(TraverseMode.BICYCLE, grid[1][SIZE - 1], false))).get(west),
+                fromEast.get(west),
+                1e-3
+        );
+    }
+
+    @Test
+    public void testUnreachableStop() {
+        StreetVertex island = new IntersectionVertex(graph, "island", 10.02, 59.02);
+        StreetVertex shore = new IntersectionVertex(graph, "shore", 10.021, 59.02);
+        StreetGridGraph.edges(island, shore, StreetTraversalPermission.ALL);
+        Vertex unreachable = stop("E", island);
+        CompactStreetGraph compactGraph = new CompactStreetGraph(graph);
+
+        List<State> states = new CompactStreetSearch(compactGraph, request(TraverseMode.WALK, grid[0][0], false))
+                .findStates(v -> v instanceof TransitStopVertex);
+        assertNotNull(states);
+        assertEquals(4, stopWeights(states).size());
+        assertFalse(stopWeights(states).containsKey(unreachable));
+    }
+
+    /** The origin is a stop, like in the search for the transfers from a stop. */
+    @Test
+    public void testOriginIsStop() {
+        CompactStreetGraph compactGraph = new CompactStreetGraph(graph);
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            List<State> states = new CompactStreetSearch(compactGraph, request(TraverseMode.WALK, stopB, arriveBy))
+                    .findStates(v -> v instanceof TransitStopVertex);
+            assertNotNull(states);
+            Map<Vertex, Double> weights = stopWeights(states);
+            assertEquals(0.0, weights.get(stopB), 0.0);
+            assertSameWeights(stopWeights(aStar(request(TraverseMode.WALK, stopB, arriveBy))), weights);
+        }
+    }
+
+    private List<State> aStar(RoutingRequest options) {
+        return new ArrayList<>(new AStar().getShortestPathTree(options).getAllStates());
+    }
+
+    private RoutingRequest request(TraverseMode mode, Vertex origin, boolean arriveBy) {
+        return request(mode, origin, arriveBy, 3600);
+    }
+
+    private RoutingRequest request(TraverseMode mode, Vertex origin, boolean arriveBy, int seconds) {
+        RoutingRequest options = new RoutingRequest(mode);
+        options.arriveBy = arriveBy;
+        options.traversalCostModel = new ConstantIntersectionTraversalCostModel(0.0);
+        if (arriveBy) {
+            options.setRoutingContext(graph, null, Collections.singleton(origin));
+        } else {
+            options.setRoutingContext(graph, Collections.singleton(origin), null);
+        }
+        options.worstTime = options.dateTime + (arriveBy ? -seconds : seconds);
+        options.disableRemainingWeightHeuristic = true;
+        options.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
+        options.dominanceFunction = new DominanceFunction.MinimumWeight();
+        return options;
+    }
+
+    private static void assertSameWeights(Map<Vertex, Double> expected, Map<Vertex, Double> weights) {
+        assertEquals(expected.keySet(), weights.keySet());
+        for (Vertex stop : expected.keySet()) {
+            assertEquals(expected.get(stop), weights.get(stop), 1e-3);
+        }
+    }
+
+    private static Map<Vertex, Double> stopWeights(List<State> states) {
+        Map<Vertex, Double> weights = new HashMap<>();
+        for (State state : states) {
+            if (state.getVertex() instanceof TransitStopVertex) {
+                weights.merge(state.getVertex(), state.getWeight(), Math::min);
+            }
+        }
+        return weights;
+    }
+
+    private TransitStopVertex stop(String id, StreetVertex street) {
+        Coordinate c = street.getCoordinate();
+        TransitStopVertex stop = new TransitStopVertex(
+                graph, Stop.stopForTest(id, c.y + 0.0001, c.x), null
+        );
+        new StreetTransitLink(street, stop, true);
+        new StreetTransitLink(stop, street, true);
+        return stop;
+    }
+
+    private void bikeRentalStation(String id, StreetVertex street) {
+        BikeRentalStation station = new BikeRentalStation();
+        station.id = id;
+        station.name = new NonLocalizedString(id);
+        station.x = street.getX() + 0.0001;
+        station.y = street.getY();
+        station.bikesAvailable = 5;
+        station.spacesAvailable = 5;
+        BikeRentalStationVertex stationVertex = new BikeRentalStationVertex(graph, station);
+        new StreetBikeRentalLink(stationVertex, street);
+        new StreetBikeRentalLink(street, stationVertex);
+        Set<String> networks = Collections.singleton("default");
+        new RentABikeOnEdge(stationVertex, stationVertex, networks);
+        new RentABikeOffEdge(stationVertex, stationVertex, networks);
+    }
+}
@@ -0,0 +1,98 @@
+package org.opentripplanner.routing.algorithm.raptor.router.street;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graphfinder.NearbyStop;
+import org.opentripplanner.routing.location.TemporaryStreetLocation;
+import org.opentripplanner.util.NonLocalizedString;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AccessEgressCacheTest {
+
+  private final RoutingRequest request = new RoutingRequest();
+
+  @Test
+  public void temporaryVerticesAtTheSamePlaceHaveTheSameKey() {
+    var a = key(origin("A", 10.0, 60.0), StreetMode.WALK, false);
+    var b = key(origin("B", 10.0, 60.0), StreetMode.WALK, false);
+
+    assertEquals(a, b);
+    assertEquals(a.hashCode(), b.hashCode());
+  }
+
+  @Test
+  public void keyDependsOnPlaceModeDirectionAndStreetParameters() {
+    var a = key(origin("A", 10.0, 60.0), StreetMode.WALK, false);
+
+    assertNotEquals(a, key(origin("A", 10.1, 60.0), StreetMode.WALK, false));
+    assertNotEquals(a, key(origin("A", 10.0, 60.0), StreetMode.BIKE, false));
+    assertNotEquals(a, key(origin("A", 10.0, 60.0), StreetMode.WALK, true));
+
+    request.walkSpeed = request.walkSpeed + 0.1;
+    assertNotEquals(a, key(origin("A", 10.0, 60.0), StreetMode.WALK, false));
+  }
+
+  @Test
+  public void realtimeDependentModesAreNotCached() {
+    assertTrue(AccessEgressCache.isCacheable(StreetMode.WALK));
+    assertTrue(AccessEgressCache.isCacheable(StreetMode.CAR));
+    assertFalse(AccessEgressCache.isCacheable(StreetMode.BIKE_RENTAL));
+    assertFalse(AccessEgressCache.isCacheable(StreetMode.CAR_TO_PARK));
+  }
+
+  @Test
+  public void countHitsAndMisses() {
+    var subject = new AccessEgressCache(10, 60);
+    var key = key(origin("A", 10.0, 60.0), StreetMode.WALK, false);
+
+    assertNull(subject.get(key));
+    subject.put(key, List.of());
+    assertEquals(List.of(), subject.get(key(origin("B", 10.0, 60.0), StreetMode.WALK, false)));
+
+    assertEquals(1, subject.stats().hitCount());
+    assertEquals(1, subject.stats().missCount());
+    assertEquals(1, subject.size());
+  }
+
+  @Test
+  public void cacheStopAndDurationWithoutTheState() {
+    var subject = new AccessEgressCache(10, 60);
+    var key = key(origin("A", 10.0, 60.0), StreetMode.WALK, false);
+    var stop = Stop.stopForTest("S1", 60.0, 10.0);
+    var state = new State(origin("A", 10.0, 60.0), request);
+
+    subject.put(key, List.of(new NearbyStop(stop, 100.0, List.of(), null, state)));
+
+    var cached = subject.get(key);
+    assertEquals(1, cached.size());
+    assertSame(stop, cached.get(0).stop);
+    assertEquals(0, cached.get(0).durationSeconds);
+
+    subject.invalidateAll();
+    assertNull(subject.get(key));
+  }
+
+  private List<Object> key(Vertex origin, StreetMode mode, boolean fromTarget) {
+    return AccessEgressCache.key(request, Set.of(origin), mode, fromTarget, 2000);
+  }
+
+  private static Vertex origin(String id, double x, double y) {
+    return new TemporaryStreetLocation(
+        id, new Coordinate(x, y), new NonLocalizedString("Origin"), false
+    );
+  }
+}
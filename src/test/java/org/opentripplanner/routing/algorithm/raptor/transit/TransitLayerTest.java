@@ -0,0 +1,128 @@
+package org.opentripplanner.routing.algorithm.raptor.transit;
+
+import org.junit.Test;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TransitLayerTest {
+
+  private static final LocalDate FIRST = LocalDate.of(2020, 10, 1);
+  private static final LocalDate SECOND = LocalDate.of(2020, 10, 2);
+  private static final LocalDate THIRD = LocalDate.of(2020, 10, 3);
+  private static final LocalDate FOURTH = LocalDate.of(2020, 10, 4);
+
+  private static final List<Stop> STOPS = List.of(
+      Stop.stopForTest("S0", 0, 0),
+      Stop.stopForTest("S1", 0, 0)
+  );
+
+  private final TripTimes tripTimes = createTripTimesForTest();
+
+  private final TripPatternWithRaptorStopIndexes pattern = new TripPatternWithRaptorStopIndexes(
+      new int[] { 0, 1 }, null
+  );
+
+  /** The dates mapped on demand, in the order they are mapped. */
+  private final List<LocalDate> mappedDates = new ArrayList<>();
+
+  private final TransitLayer subject = new TransitLayer(
+      Map.of(FIRST, List.of(patternForDate(FIRST)), SECOND, List.of(patternForDate(SECOND))),
+      List.of(),
+      new StopIndexForRaptor(STOPS, TransitTuningParameters.FOR_TEST),
+      ZoneId.of("Europe/Oslo"),
+      this::mapOnDemand,
+      FIRST,
+      SECOND
+  );
+
+  @Test
+  public void datesOutsideWindowAreMappedOnDemand() {
+    assertEquals(FIRST, subject.getTripPatternsForDate(FIRST).iterator().next().getLocalDate());
+    assertTrue(mappedDates.isEmpty());
+
+    Collection<TripPatternForDate> third = subject.getTripPatternsForDate(THIRD);
+    assertEquals(1, third.size());
+    assertEquals(THIRD, third.iterator().next().getLocalDate());
+    assertEquals(List.of(THIRD), mappedDates);
+  }
+
+  @Test
+  public void realtimeUpdatesOutsideWindowAreKept() {
+    List<TripPatternForDate> updated = List.of();
+    subject.replaceTripPatternsForDate(FOURTH, updated);
+
+    assertSame(updated, subject.getTripPatternsForDate(FOURTH));
+    assertTrue(mappedDates.isEmpty());
+  }
+
+  @Test
+  public void moveWindow() {
+    Collection<TripPatternForDate> second = subject.getTripPatternsForDate(SECOND);
+    TransitLayer moved = subject.withWindow(SECOND, THIRD);
+
+    // The third is mapped when the window is moved, the second is kept
+    assertEquals(List.of(THIRD), mappedDates);
+    assertSame(second, moved.getTripPatternsForDate(SECOND));
+    assertEquals(THIRD, moved.getTripPatternsForDate(THIRD).iterator().next().getLocalDate());
+    assertEquals(List.of(THIRD), mappedDates);
+
+    // The first is now outside the window
+    assertEquals(FIRST, moved.getTripPatternsForDate(FIRST).iterator().next().getLocalDate());
+    assertEquals(List.of(THIRD, FIRST), mappedDates);
+
+    // The original is not changed
+    assertEquals(FIRST, subject.getTripPatternsForDate(FIRST).iterator().next().getLocalDate());
+    assertEquals(List.of(THIRD, FIRST), mappedDates);
+  }
+
+  @Test
+  public void withWindowReturnsSameInstanceIfAllDatesAreMapped() {
+    TransitLayer transitLayer = new TransitLayer(
+        Map.of(FIRST, List.of(patternForDate(FIRST))),
+        List.of(),
+        new StopIndexForRaptor(STOPS, TransitTuningParameters.FOR_TEST),
+        ZoneId.of("Europe/Oslo")
+    );
+    assertSame(transitLayer, transitLayer.withWindow(SECOND, THIRD));
+    assertTrue(transitLayer.getTripPatternsForDate(SECOND).isEmpty());
+  }
+
+  private Collection<TripPatternForDate> mapOnDemand(LocalDate date) {
+    mappedDates.add(date);
+    return List.of(patternForDate(date));
+  }
+
+  private TripPatternForDate patternForDate(LocalDate date) {
+    return new TripPatternForDate(pattern, List.of(tripTimes), date);
+  }
+
+  private static TripTimes createTripTimesForTest() {
+    StopTime stopTime1 = new StopTime();
+    StopTime stopTime2 = new StopTime();
+
+    stopTime1.setDepartureTime(0);
+    stopTime2.setArrivalTime(7200);
+
+    return new TripTimes(
+        new Trip(new FeedScopedId("Test", "Test")),
+        Arrays.asList(stopTime1, stopTime2),
+        new Deduplicator()
+    );
+  }
+}
@@ -0,0 +1,145 @@
+package org.opentripplanner.routing.algorithm.raptor.transit;
+
+import org.junit.Test;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.opentripplanner.routing.algorithm.raptor.transit.TripPatternsRunningOnDate.CHUNK_SIZE;
+
+public class TripPatternsRunningOnDateTest {
+
+  private static final LocalDate DATE = LocalDate.of(2020, 10, 1);
+  private static final int N = 3 * CHUNK_SIZE + 7;
+
+  private final TripTimes tripTimes = createTripTimesForTest();
+  private final TripPatternWithRaptorStopIndexes pattern = new TripPatternWithRaptorStopIndexes(
+      new int[] { 0, 1 }, null
+  );
+  private final List<TripPatternForDate> elements = createElements(N);
+
+  @Test
+  public void createFromCollection() {
+    TripPatternsRunningOnDate subject = TripPatternsRunningOnDate.of(elements);
+
+    assertEquals(N, subject.size());
+    assertEquals(4, subject.numberOfChunks());
+    assertEquals(identitySet(elements), identitySet(subject));
+    assertSame(subject, TripPatternsRunningOnDate.of(subject));
+  }
+
+  @Test
+  public void updateOnlyCopyChangedChunks() {
+    TripPatternsRunningOnDate v1 = TripPatternsRunningOnDate.of(elements);
+    TripPatternsRunningOnDate.Editor editor = new TripPatternsRunningOnDate.Editor(v1);
+    TripPatternForDate replacement = createElements(1).get(0);
+
+    assertTrue(editor.remove(elements.get(1)));
+    editor.add(replacement);
+    TripPatternsRunningOnDate v2 = editor.publish();
+
+    // The removed slot in the first chunk is reused, the other chunks are shared
+    assertNotSame(v1.chunk(0), v2.chunk(0));
+    for (int i = 1; i < v1.numberOfChunks(); ++i) {
+      assertSame(v1.chunk(i), v2.chunk(i));
+    }
+
+    // The first version is not changed
+    assertEquals(identitySet(elements), identitySet(v1));
+
+    List<TripPatternForDate> expected = new ArrayList<>(elements);
+    expected.set(1, replacement);
+    assertEquals(N, v2.size());
+    assertEquals(identitySet(expected), identitySet(v2));
+  }
+
+  @Test
+  public void removeAndAddAcrossVersions() {
+    TripPatternsRunningOnDate.Editor editor = new TripPatternsRunningOnDate.Editor(
+        TripPatternsRunningOnDate.of(List.of())
+    );
+    elements.forEach(editor::add);
+    TripPatternsRunningOnDate v1 = editor.publish();
+
+    for (int i = 0; i < CHUNK_SIZE; ++i) {
+      editor.remove(elements.get(i));
+    }
+    assertFalse(editor.remove(elements.get(0)));
+    TripPatternsRunningOnDate v2 = editor.publish();
+
+    List<TripPatternForDate> extra = createElements(CHUNK_SIZE + 1);
+    extra.forEach(editor::add);
+    TripPatternsRunningOnDate v3 = editor.publish();
+
+    assertEquals(N, v1.size());
+    assertEquals(N - CHUNK_SIZE, v2.size());
+    assertEquals(identitySet(elements.subList(CHUNK_SIZE, N)), identitySet(v2));
+
+    List<TripPatternForDate> expected = new ArrayList<>(elements.subList(CHUNK_SIZE, N));
+    expected.addAll(extra);
+    assertEquals(expected.size(), v3.size());
+    assertEquals(identitySet(expected), identitySet(v3));
+    assertEquals(N, identitySet(v1).size());
+  }
+
+  @Test
+  public void removeSameTripPatternAndDate() {
+    TripPatternForDate today = new TripPatternForDate(pattern, List.of(tripTimes), DATE);
+    TripPatternForDate tomorrow = new TripPatternForDate(pattern, List.of(tripTimes), DATE.plusDays(1));
+    TripPatternsRunningOnDate.Editor editor = new TripPatternsRunningOnDate.Editor(
+        TripPatternsRunningOnDate.of(List.of(today, tomorrow))
+    );
+
+    // Another instance, as if the date was mapped again after being evicted from the cache
+    TripPatternForDate remapped = new TripPatternForDate(pattern, List.of(tripTimes), DATE);
+
+    assertFalse(editor.remove(remapped));
+    assertTrue(editor.removeSameTripPatternAndDate(remapped));
+    assertFalse(editor.removeSameTripPatternAndDate(remapped));
+    assertEquals(identitySet(List.of(tomorrow)), identitySet(editor.publish()));
+  }
+
+  private List<TripPatternForDate> createElements(int n) {
+    List<TripPatternForDate> list = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      list.add(new TripPatternForDate(pattern, List.of(tripTimes), DATE));
+    }
+    return list;
+  }
+
+  /** TripPatternForDate equals() is value based, so compare by identity */
+  private static Set<TripPatternForDate> identitySet(Iterable<TripPatternForDate> elements) {
+    Set<TripPatternForDate> set = Collections.newSetFromMap(new IdentityHashMap<>());
+    elements.forEach(set::add);
+    return set;
+  }
+
+  private static TripTimes createTripTimesForTest() {
+    StopTime stopTime1 = new StopTime();
+    StopTime stopTime2 = new StopTime();
+
+    stopTime1.setDepartureTime(0);
+    stopTime2.setArrivalTime(7200);
+
+    return new TripTimes(
+        new Trip(new FeedScopedId("Test", "Test")),
+        Arrays.asList(stopTime1, stopTime2),
+        new Deduplicator()
+    );
+  }
+}
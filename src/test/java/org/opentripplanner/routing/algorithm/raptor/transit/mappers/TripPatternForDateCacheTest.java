@@ -0,0 +1,108 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.mappers;
+
+import gnu.trove.set.hash.TIntHashSet;
+import org.junit.Test;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.Route;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopPattern;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternForDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternWithRaptorStopIndexes;
+import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TripPatternForDateCacheTest {
+
+  private static final LocalDate FIRST = LocalDate.of(2020, 10, 1);
+  private static final LocalDate SECOND = LocalDate.of(2020, 10, 2);
+  private static final LocalDate THIRD = LocalDate.of(2020, 10, 3);
+
+  private static final Stop STOP_A = Stop.stopForTest("A", 0, 0);
+  private static final Stop STOP_B = Stop.stopForTest("B", 0, 0);
+
+  private final Route route = new Route(new FeedScopedId("F", "R"));
+
+  /** Runs on the first with service code 0 */
+  private final TripPattern day = pattern("DAY", 0, 8 * 3600, 9 * 3600);
+
+  /** Runs from 23:00 to 01:00 on the second with service code 1 */
+  private final TripPattern night = pattern("NIGHT", 1, 23 * 3600, 25 * 3600);
+
+  private final TripPatternForDateCache subject = new TripPatternForDateCache(
+      List.of(day, night),
+      Map.of(
+          new ServiceDate(FIRST), new TIntHashSet(new int[] { 0 }),
+          new ServiceDate(SECOND), new TIntHashSet(new int[] { 1 }),
+          new ServiceDate(THIRD), new TIntHashSet(new int[] { 2 })
+      ),
+      Map.of(
+          day, new TripPatternWithRaptorStopIndexes(new int[] { 0, 1 }, day),
+          night, new TripPatternWithRaptorStopIndexes(new int[] { 0, 1 }, night)
+      )
+  );
+
+  @Test
+  public void mapOnlyPatternsRunningOnServiceDate() {
+    assertEquals(List.of(day), patterns(subject.mapTripPatternsForServiceDate(FIRST)));
+    assertEquals(List.of(night), patterns(subject.mapTripPatternsForServiceDate(SECOND)));
+    assertTrue(subject.mapTripPatternsForServiceDate(THIRD).isEmpty());
+    assertTrue(subject.mapTripPatternsForServiceDate(THIRD.plusDays(1)).isEmpty());
+  }
+
+  @Test
+  public void includeTripsRunningPastMidnight() {
+    assertEquals(SECOND, subject.firstServiceDateRunningOn(THIRD));
+    assertEquals(THIRD, subject.lastServiceDateRunningOn(THIRD));
+
+    Collection<TripPatternForDate> third = subject.getTripPatternsRunningOnDate(THIRD);
+    assertEquals(List.of(night), patterns(third));
+    assertEquals(SECOND, third.iterator().next().getLocalDate());
+
+    assertEquals(List.of(day), patterns(subject.getTripPatternsRunningOnDate(FIRST)));
+  }
+
+  private List<TripPattern> patterns(Collection<TripPatternForDate> tripPatternForDates) {
+    return tripPatternForDates
+        .stream()
+        .map(it -> it.getTripPattern().getPattern())
+        .collect(Collectors.toList());
+  }
+
+  private TripPattern pattern(String id, int serviceCode, int departureTime, int arrivalTime) {
+    StopTime departure = new StopTime();
+    departure.setStop(STOP_A);
+    departure.setArrivalTime(departureTime);
+    departure.setDepartureTime(departureTime);
+    departure.setStopSequence(0);
+
+    StopTime arrival = new StopTime();
+    arrival.setStop(STOP_B);
+    arrival.setArrivalTime(arrivalTime);
+    arrival.setDepartureTime(arrivalTime);
+    arrival.setStopSequence(1);
+
+    Trip trip = new Trip(new FeedScopedId("F", id));
+    trip.setRoute(route);
+
+    TripPattern pattern = new TripPattern(
+        new FeedScopedId("F", id), route, new StopPattern(List.of(departure, arrival))
+    );
+    TripTimes tripTimes = new TripTimes(trip, List.of(departure, arrival), new Deduplicator());
+    tripTimes.serviceCode = serviceCode;
+    pattern.add(tripTimes);
+    return pattern;
+  }
+}
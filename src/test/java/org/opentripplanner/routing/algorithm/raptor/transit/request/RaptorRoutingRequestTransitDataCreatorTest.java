@@ -76,6 +76,12 @@ public class RaptorRoutingRequestTransitDataCreatorTest {
     assertEquals(-82800, ((TripScheduleWithOffset) r3.getTripSchedule(0)).getSecondsOffset());
     assertEquals(0, ((TripScheduleWithOffset) r3.getTripSchedule(1)).getSecondsOffset());
     assertEquals(86400, ((TripScheduleWithOffset) r3.getTripSchedule(2)).getSecondsOffset());
+
+    // Verify that the flattened timetable have the offsets applied
+    assertEquals(-82800, r3.departure(0, 0));
+    assertEquals(7200, r3.arrival(1, 1));
+    assertEquals(86400 + 7200, r3.arrival(2, 1));
+    assertEquals(r3.getTripSchedule(2).departure(0), r3.departure(2, 0));
   }
 
   private static TripPatternForDates findTripPatternForDate(
@@ -12,7 +12,9 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -199,4 +201,24 @@ public class RoutingRequestTransitDataProviderFilterTest {
     // Then
     assertFalse(valid4);
   }
+
+  @Test
+  public void filtersWithTheSameParametersHaveTheSameCacheKey() {
+    var filter = new RoutingRequestTransitDataProviderFilter(
+        false, true, false, Set.of(TransitMode.BUS), Set.of(TEST_ROUTE_ID)
+    );
+    var same = new RoutingRequestTransitDataProviderFilter(
+        false, true, false, Set.of(TransitMode.BUS), Set.of(TEST_ROUTE_ID)
+    );
+    var otherRoutes = new RoutingRequestTransitDataProviderFilter(
+        false, true, false, Set.of(TransitMode.BUS), Set.of()
+    );
+    var otherModes = new RoutingRequestTransitDataProviderFilter(
+        false, true, false, Set.of(TransitMode.RAIL), Set.of(TEST_ROUTE_ID)
+    );
+
+    assertEquals(filter.cacheKey(), same.cacheKey());
+    assertNotEquals(filter.cacheKey(), otherRoutes.cacheKey());
+    assertNotEquals(filter.cacheKey(), otherModes.cacheKey());
+  }
 }
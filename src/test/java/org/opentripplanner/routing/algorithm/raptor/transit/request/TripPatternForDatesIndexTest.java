@@ -0,0 +1,220 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import org.junit.Test;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.routing.algorithm.raptor.transit.StopIndexForRaptor;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitTuningParameters;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternForDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternWithRaptorStopIndexes;
+import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TripPatternForDatesIndexTest {
+
+  private static final LocalDate FIRST = LocalDate.of(2020, 10, 1);
+  private static final LocalDate SECOND = LocalDate.of(2020, 10, 2);
+  private static final LocalDate THIRD = LocalDate.of(2020, 10, 3);
+
+  private static final List<Stop> STOPS = List.of(
+      Stop.stopForTest("S0", 0, 0),
+      Stop.stopForTest("S1", 0, 0),
+      Stop.stopForTest("S2", 0, 0)
+  );
+
+  private final TripTimes tripTimes = createTripTimesForTest();
+
+  private final TripPatternWithRaptorStopIndexes pattern1 = new TripPatternWithId(
+      new FeedScopedId("F", "1"), new int[] { 0, 1 }, null
+  );
+  private final TripPatternWithRaptorStopIndexes pattern2 = new TripPatternWithId(
+      new FeedScopedId("F", "2"), new int[] { 1, 2 }, null
+  );
+
+  private final TripPatternForDate p1First = new TripPatternForDate(
+      pattern1, List.of(tripTimes), FIRST
+  );
+  private final TripPatternForDate p2Second = new TripPatternForDate(
+      pattern2, List.of(tripTimes), SECOND
+  );
+
+  private final TransitLayer transitLayer = new TransitLayer(
+      Map.of(FIRST, List.of(p1First), SECOND, List.of(p2Second)),
+      List.of(),
+      new StopIndexForRaptor(STOPS, TransitTuningParameters.FOR_TEST),
+      ZoneId.of("Europe/Oslo")
+  );
+
+  @Test
+  public void indexPatternsByStop() {
+    TripPatternForDatesIndex subject = TripPatternForDatesIndex.create(transitLayer, FIRST, 1);
+
+    assertEquals(2, subject.numberOfPatterns());
+    assertEquals(1, subject.patternIndexesForStop(0).length);
+    assertEquals(2, subject.patternIndexesForStop(1).length);
+    assertEquals(1, subject.patternIndexesForStop(2).length);
+
+    TripPatternForDates stop0Pattern = subject.getPattern(subject.patternIndexesForStop(0)[0]);
+    assertSame(pattern1, stop0Pattern.getTripPattern());
+  }
+
+  @Test
+  public void patternsAreIndexedInPatternIdOrder() {
+    TripPatternForDatesIndex subject = TripPatternForDatesIndex.create(transitLayer, FIRST, 1);
+
+    assertSame(pattern1, subject.getPattern(0).getTripPattern());
+    assertSame(pattern2, subject.getPattern(1).getTripPattern());
+    assertArrayEquals(new int[] { 0, 1 }, subject.patternIndexesForStop(1));
+  }
+
+  @Test
+  public void indexOnlyIncludesDatesInSearchRange() {
+    TripPatternForDatesIndex subject = TripPatternForDatesIndex.create(transitLayer, FIRST, 0);
+
+    assertEquals(1, subject.numberOfPatterns());
+    assertArrayEquals(new int[0], subject.patternIndexesForStop(2));
+
+    assertTrue(subject.includesDate(FIRST));
+    assertFalse(subject.includesDate(SECOND));
+  }
+
+  @Test
+  public void indexIsCachedUntilDateIsReplaced() {
+    TripPatternForDatesIndex index = transitLayer.getTripPatternForDatesIndex(FIRST, 1);
+    assertSame(index, transitLayer.getTripPatternForDatesIndex(FIRST, 1));
+
+    TransitLayer copy = new TransitLayer(transitLayer);
+    assertSame(index, copy.getTripPatternForDatesIndex(FIRST, 1));
+
+    copy.replaceTripPatternsForDate(THIRD, List.of());
+    assertSame(index, copy.getTripPatternForDatesIndex(FIRST, 1));
+
+    copy.replaceTripPatternsForDate(SECOND, List.of());
+    assertNotSame(index, copy.getTripPatternForDatesIndex(FIRST, 1));
+    assertSame(index, transitLayer.getTripPatternForDatesIndex(FIRST, 1));
+  }
+
+  @Test
+  public void maskPatternsWithRequestFilter() {
+    TripPatternForDatesIndex index = TripPatternForDatesIndex.create(transitLayer, FIRST, 1);
+
+    ActiveTripPatterns result = RaptorRoutingRequestTransitDataCreator.filterActiveTripPatterns(
+        index,
+        new TransitDataProviderFilter() {
+          @Override public boolean tripPatternPredicate(TripPatternForDate p) {
+            return p.getTripPattern() == pattern2;
+          }
+          @Override public boolean tripTimesPredicate(TripTimes tripTimes) { return true; }
+        }
+    );
+
+    for (int i = 0; i < index.numberOfPatterns(); ++i) {
+      if (index.getPattern(i).getTripPattern() == pattern2) {
+        assertTrue(result.isActive(i));
+        assertSame(index.getPattern(i), result.get(i));
+      }
+      else {
+        assertFalse(result.isActive(i));
+      }
+    }
+
+    BitSet marked = new BitSet();
+    marked.set(0, index.numberOfPatterns());
+    result.retainActive(marked);
+    assertEquals(1, marked.cardinality());
+  }
+
+  @Test
+  public void activePatternsAreCachedByFilterKey() {
+    TripPatternForDatesIndex index = TripPatternForDatesIndex.create(transitLayer, FIRST, 1);
+    CountingFilter filter = new CountingFilter("key");
+
+    ActiveTripPatterns first = RaptorRoutingRequestTransitDataCreator.filterActiveTripPatterns(index, filter);
+    int calls = filter.calls;
+    ActiveTripPatterns second = RaptorRoutingRequestTransitDataCreator.filterActiveTripPatterns(
+        index, new CountingFilter("key")
+    );
+
+    assertSame(first, second);
+    assertTrue(calls > 0);
+    assertEquals(calls, filter.calls);
+
+    // Filters without a key are not cached
+    CountingFilter noKey = new CountingFilter(null);
+    RaptorRoutingRequestTransitDataCreator.filterActiveTripPatterns(index, noKey);
+    RaptorRoutingRequestTransitDataCreator.filterActiveTripPatterns(index, noKey);
+    assertEquals(2 * calls, noKey.calls);
+  }
+
+  @Test
+  public void filterDaysWithoutCopyingTimes() {
+    TripPatternForDate p1Second = new TripPatternForDate(pattern1, List.of(tripTimes), SECOND);
+    TripPatternForDates pattern = new TripPatternForDates(
+        pattern1, List.of(p1First, p1Second), List.of(0, 86400)
+    );
+    assertEquals(2, pattern.numberOfTripSchedules());
+    assertEquals(86400, pattern.departure(1, 0));
+    assertEquals(86400 + 7200, pattern.arrival(1, 1));
+
+    TripPatternForDates result = pattern.newWithFilter(new TransitDataProviderFilter() {
+      @Override public boolean tripPatternPredicate(TripPatternForDate p) {
+        return p.getLocalDate().equals(SECOND);
+      }
+      @Override public boolean tripTimesPredicate(TripTimes tripTimes) { return true; }
+    });
+
+    assertEquals(1, result.numberOfTripSchedules());
+    assertEquals(86400, result.departure(0, 0));
+    assertEquals(86400 + 7200, result.arrival(0, 1));
+    assertEquals(SECOND, result.getTripSchedule(0).getServiceDate());
+  }
+
+  private static class CountingFilter implements TransitDataProviderFilter {
+    private final Object key;
+    private int calls = 0;
+
+    private CountingFilter(Object key) {
+      this.key = key;
+    }
+
+    @Override public boolean tripPatternPredicate(TripPatternForDate p) {
+      ++calls;
+      return true;
+    }
+
+    @Override public boolean tripTimesPredicate(TripTimes tripTimes) { return true; }
+
+    @Override public Object cacheKey() { return key; }
+  }
+
+  private static TripTimes createTripTimesForTest() {
+    StopTime stopTime1 = new StopTime();
+    StopTime stopTime2 = new StopTime();
+
+    stopTime1.setDepartureTime(0);
+    stopTime2.setArrivalTime(7200);
+
+    return new TripTimes(
+        new Trip(new FeedScopedId("Test", "Test")),
+        Arrays.asList(stopTime1, stopTime2),
+        new Deduplicator()
+    );
+  }
+}
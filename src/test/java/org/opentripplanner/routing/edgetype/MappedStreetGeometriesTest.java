@@ -0,0 +1,133 @@
+package org.opentripplanner.routing.edgetype;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.util.OtpAppException;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedStreetGeometriesTest {
+
+    private Graph graph;
+
+    private StreetEdge forward;
+
+    private StreetEdge back;
+
+    private LineString geometry;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        graph = new Graph();
+        StreetVertex a = new IntersectionVertex(graph, "A", 10.0, 60.0);
+        StreetVertex b = new IntersectionVertex(graph, "B", 10.002, 60.0);
+        geometry = GeometryUtils.getGeometryFactory().createLineString(new Coordinate[] {
+            a.getCoordinate(), new Coordinate(10.001, 60.001), b.getCoordinate()
+        });
+        forward = new StreetEdge(a, b, geometry, "A_B", 200, StreetTraversalPermission.ALL, false);
+        back = new StreetEdge(b, a, (LineString) geometry.reverse(), "B_A", 200, StreetTraversalPermission.ALL, true);
+        back.shareData(forward);
+        file = File.createTempFile("graph", ".obj.geometry");
+    }
+
+    @After
+    public void tearDown() {
+        MappedStreetGeometries.detach(graph);
+        file.delete();
+    }
+
+    @Test
+    public void readGeometriesFromMappedFile() throws IOException {
+        MappedStreetGeometries.write(file, graph);
+
+        assertNotNull(graph.getStreetGeometries());
+        assertEquals(graph.getStreetGeometries().fileId(), graph.getStreetGeometryFileId());
+        assertTrue(forward.getMappedGeometry() >= 0);
+        assertEquals(forward.getMappedGeometry(), back.getMappedGeometry());
+        assertEquals(geometry, forward.getGeometry());
+        assertEquals(geometry.reverse(), back.getGeometry());
+    }
+
+    @Test
+    public void detachMovesGeometriesBackIntoTheEdges() throws IOException {
+        MappedStreetGeometries.write(file, graph);
+        MappedStreetGeometries.detach(graph);
+
+        assertNull(graph.getStreetGeometries());
+        assertEquals(0, graph.getStreetGeometryFileId());
+        assertEquals(-1, forward.getMappedGeometry());
+        assertEquals(geometry, forward.getGeometry());
+    }
+
+    @Test
+    public void rewriteFromMappedFile() throws IOException {
+        MappedStreetGeometries.write(file, graph);
+
+        File other = File.createTempFile("graph2", ".obj.geometry");
+        try {
+            MappedStreetGeometries.write(other, graph);
+            assertEquals(forward.getMappedGeometry(), back.getMappedGeometry());
+            assertEquals(geometry, forward.getGeometry());
+        }
+        finally {
+            MappedStreetGeometries.detach(graph);
+            other.delete();
+        }
+    }
+
+    @Test
+    public void rewriteTheMappedFileInPlace() throws IOException {
+        MappedStreetGeometries.write(file, graph);
+        long firstFileId = graph.getStreetGeometryFileId();
+
+        // The geometries are read from the file while it is written again
+        MappedStreetGeometries.write(file, graph);
+
+        assertNotEquals(firstFileId, graph.getStreetGeometryFileId());
+        assertEquals(geometry, forward.getGeometry());
+        assertEquals(geometry.reverse(), back.getGeometry());
+    }
+
+    @Test
+    public void attachTheFileToALoadedGraph() throws IOException {
+        MappedStreetGeometries.write(file, graph);
+        // The mapped file is not serialized with the edges
+        forward.attachMappedGeometry(null);
+
+        MappedStreetGeometries.attach(graph, file);
+
+        assertEquals(geometry, forward.getGeometry());
+    }
+
+    @Test(expected = OtpAppException.class)
+    public void rejectFileWrittenWithAnotherGraph() throws IOException {
+        MappedStreetGeometries.write(file, graph);
+
+        Graph other = new Graph();
+        MappedStreetGeometries.attach(other, file);
+    }
+
+    @Test
+    public void geometryFileIsNextToGraphFile() {
+        assertEquals(
+            new File("/tmp/graph.obj.geometry"),
+            MappedStreetGeometries.fileFor(new File("/tmp/graph.obj"))
+        );
+    }
+}
@@ -14,6 +14,9 @@ import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.vertextype.IntersectionVertex;
 import org.opentripplanner.routing.vertextype.StreetVertex;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -254,6 +257,28 @@ public class PlainStreetEdgeTest {
         assertNotNull(e0.traverse(e1.traverse(state)));
     }
 
+    @Test
+    public void testTurnRestrictionsAreStoredInEdge() {
+        StreetEdge e0 = edge(v0, v1, 50.0, StreetTraversalPermission.ALL);
+        StreetEdge e1 = edge(v1, v2, 18.4, StreetTraversalPermission.ALL);
+        StreetEdge e2 = edge(v1, v0, 50.0, StreetTraversalPermission.ALL);
+        TurnRestriction r1 = new TurnRestriction(e0, e1, null, TraverseModeSet.allModes());
+        TurnRestriction r2 = new TurnRestriction(e0, e2, null, TraverseModeSet.allModes());
+
+        assertFalse(e0.hasTurnRestrictions());
+        graph.addTurnRestriction(e0, r1);
+        graph.addTurnRestriction(e0, r2);
+        assertTrue(e0.hasTurnRestrictions());
+        assertEquals(Arrays.asList(r1, r2), graph.getTurnRestrictions(e0));
+        assertTrue(graph.getTurnRestrictions(e1).isEmpty());
+
+        // Removing an edge removes the turn restrictions to it
+        graph.removeEdge(e2);
+        assertEquals(Collections.singletonList(r1), e0.getTurnRestrictions());
+        graph.removeTurnRestriction(e0, r1);
+        assertFalse(e0.hasTurnRestrictions());
+    }
+
     /****
      * Private Methods
      ****/
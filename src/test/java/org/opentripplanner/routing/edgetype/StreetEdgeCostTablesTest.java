@@ -0,0 +1,181 @@
+package org.opentripplanner.routing.edgetype;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.StreetGridGraph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreetEdgeCostTablesTest {
+
+    private static final int SIZE = 5;
+
+    private Graph graph;
+
+    private List<StreetVertex> vertices;
+
+    @Before
+    public void before() {
+        setUp(StreetGridGraph.of(SIZE));
+        graph.index();
+    }
+
+    /** Some detours, stairs and streets closed for cars or bicycles. */
+    private void setUp(StreetGridGraph.Builder builder) {
+        StreetGridGraph streets = builder
+                .withPermissions((row, column, horizontal) -> horizontal && (row + column) % 3 == 1
+                        ? StreetTraversalPermission.PEDESTRIAN
+                        : StreetTraversalPermission.ALL)
+                .build();
+        graph = streets.graph;
+        vertices = streets.vertices;
+        for (int i = 0; i + 1 < SIZE; ++i) {
+            StreetGridGraph.street(streets.grid[i][2], streets.grid[i + 1][2]).setStairs(true);
+            StreetGridGraph.street(streets.grid[i + 1][2], streets.grid[i][2]).setStairs(true);
+        }
+    }
+
+    @Test
+    public void testForRequest() {
+        StreetEdgeCostTables tables = new StreetEdgeCostTables(graph);
+
+        for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR }) {
+            RoutingRequest request = new RoutingRequest(mode);
+            StreetEdgeCostTables.RequestTables requestTables = tables.forRequest(request);
+            assertNotNull(requestTables);
+            assertNotNull(requestTables.table(request, mode));
+        }
+
+        RoutingRequest bicycle = new RoutingRequest(TraverseMode.BICYCLE);
+        StreetEdgeCostTables.RequestTables requestTables = tables.forRequest(bicycle);
+        assertNotNull(requestTables.table(bicycle.bikeWalkingOptions, TraverseMode.WALK));
+        assertNull(requestTables.table(bicycle.bikeWalkingOptions, TraverseMode.BICYCLE));
+
+        RoutingRequest request = new RoutingRequest(TraverseMode.WALK);
+        request.walkReluctance = 3.0;
+        assertNull(tables.forRequest(request));
+    }
+
+    /** The searches must find the same states with and without the tables. */
+    @Test
+    public void testSameWeightsAsCostModel() {
+        assertSameWeightsAsCostModel();
+    }
+
+    @Test
+    public void testSameWeightsAsCostModelWithOneWayStreets() {
+        setUp(StreetGridGraph.of(SIZE).withOneWayRows(row -> row % 2 == 0));
+        graph.index();
+        assertSameWeightsAsCostModel();
+    }
+
+    /** The vertices which can not be reached have no state, with and without the tables. */
+    @Test
+    public void testUnreachableVertices() {
+        setUp(StreetGridGraph.of(SIZE));
+        StreetVertex island = new IntersectionVertex(graph, "island", 10.02, 59.02);
+        StreetVertex shore = new IntersectionVertex(graph, "shore", 10.021, 59.02);
+        StreetGridGraph.edges(island, shore, StreetTraversalPermission.ALL);
+        graph.index();
+
+        StreetEdgeCostTables tables = new StreetEdgeCostTables(graph);
+        RoutingRequest request = new RoutingRequest(TraverseMode.WALK);
+        StreetEdge e = StreetGridGraph.street(island, shore);
+        assertEquals(e.getIndex(), tables.forRequest(request).table(request, TraverseMode.WALK).indexOf(e));
+
+        for (StreetEdgeCostTables t : new StreetEdgeCostTables[] { null, tables }) {
+            graph.setStreetEdgeCostTables(t);
+            ShortestPathTree spt = search(TraverseMode.WALK, vertices.get(0), false);
+            assertNull(spt.getState(island));
+            assertNull(spt.getState(shore));
+            assertNotNull(search(TraverseMode.WALK, island, false).getState(shore));
+        }
+    }
+
+    @Test
+    public void testOriginIsDestination() {
+        graph.setStreetEdgeCostTables(new StreetEdgeCostTables(graph));
+        Vertex v = vertices.get(SIZE + 2);
+
+        for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR }) {
+            RoutingRequest options = new RoutingRequest(mode);
+            options.setRoutingContext(graph, v, v);
+            AStar aStar = new AStar();
+            aStar.getShortestPathTree(options);
+            assertNotNull(options.rctx.streetEdgeCosts);
+
+            List<GraphPath> paths = aStar.getPathsToTarget();
+            assertEquals(1, paths.size());
+            assertEquals(0.0, paths.get(0).getWeight(), 0.0);
+            assertTrue(paths.get(0).edges.isEmpty());
+        }
+    }
+
+    @Test
+    public void testEdgesCreatedLaterAreNotInTables() {
+        StreetEdgeCostTables tables = new StreetEdgeCostTables(graph);
+        RoutingRequest request = new RoutingRequest(TraverseMode.WALK);
+        StreetEdgeCostTables.Table table = tables.forRequest(request).table(request, TraverseMode.WALK);
+
+        StreetEdge e = (StreetEdge) vertices.get(0).getOutgoing().iterator().next();
+        assertEquals(e.getIndex(), table.indexOf(e));
+        StreetEdge late = StreetGridGraph.edge(vertices.get(0), vertices.get(SIZE + 1), 1.0, StreetTraversalPermission.ALL, false);
+        assertEquals(-1, table.indexOf(late));
+    }
+
+    private void assertSameWeightsAsCostModel() {
+        for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR }) {
+            for (boolean arriveBy : new boolean[] { false, true }) {
+                Vertex from = vertices.get(arriveBy ? vertices.size() - 1 : 0);
+
+                graph.setStreetEdgeCostTables(null);
+                ShortestPathTree expected = search(mode, from, arriveBy);
+                assertNull(expected.getOptions().rctx.streetEdgeCosts);
+
+                graph.setStreetEdgeCostTables(new StreetEdgeCostTables(graph));
+                ShortestPathTree spt = search(mode, from, arriveBy);
+                assertNotNull(spt.getOptions().rctx.streetEdgeCosts);
+
+                for (Vertex v : vertices) {
+                    State state = expected.getState(v);
+                    if (state == null) {
+                        assertNull(spt.getState(v));
+                        continue;
+                    }
+                    assertEquals(state.getWeight(), spt.getState(v).getWeight(), 1e-9);
+                    assertEquals(state.getElapsedTimeSeconds(), spt.getState(v).getElapsedTimeSeconds());
+                }
+            }
+        }
+    }
+
+    private ShortestPathTree search(TraverseMode mode, Vertex from, boolean arriveBy) {
+        RoutingRequest options = new RoutingRequest(mode);
+        options.setArriveBy(arriveBy);
+        if (arriveBy) {
+            options.setRoutingContext(graph, null, Collections.singleton(from));
+        } else {
+            options.setRoutingContext(graph, Collections.singleton(from), null);
+        }
+        options.disableRemainingWeightHeuristic = true;
+        options.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
+        return new AStar().getShortestPathTree(options);
+    }
+}
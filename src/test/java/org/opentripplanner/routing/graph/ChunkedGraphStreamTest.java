@@ -0,0 +1,128 @@
+package org.opentripplanner.routing.graph;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.opentripplanner.routing.graph.ChunkedGraphOutputStream.CHUNK_SIZE;
+
+public class ChunkedGraphStreamTest {
+
+    /** A little more than 3 chunks, half of it random, so some chunks compress and some do not. */
+    private final byte[] data = createData(3 * CHUNK_SIZE + 1234);
+
+    @Test
+    public void writeAndReadChunks() throws IOException {
+        byte[] chunked = write(data);
+
+        assertArrayEquals(data, read(chunked));
+        assertTrue(chunked.length < data.length);
+    }
+
+    @Test
+    public void writeAndReadEmptyStream() throws IOException {
+        assertArrayEquals(new byte[0], read(write(new byte[0])));
+    }
+
+    @Test
+    public void corruptChunkIsDetected() throws IOException {
+        byte[] chunked = write(data);
+        // Flip a byte in the compressed data of the first chunk
+        chunked[100] ^= 0x55;
+
+        assertReadFails(chunked, "chunk 0");
+    }
+
+    @Test
+    public void truncatedStreamIsDetected() throws IOException {
+        byte[] chunked = write(data);
+
+        // The stream ends before the end-of-stream chunk
+        assertReadFails(Arrays.copyOf(chunked, chunked.length - 12), "truncated");
+    }
+
+    @Test
+    public void underlyingStreamIsClosedWhenWriteFails() {
+        FailingOutputStream out = new FailingOutputStream();
+        try {
+            ChunkedGraphOutputStream chunked = new ChunkedGraphOutputStream(out, 2);
+            chunked.write(data, 0, 100);
+            chunked.close();
+            fail("Expected the close to fail");
+        }
+        catch (IOException e) {
+            assertEquals("Disk full", e.getMessage());
+        }
+        assertTrue(out.closed);
+    }
+
+    private static void assertReadFails(byte[] chunked, String expectedMessage) {
+        try {
+            read(chunked);
+            fail("Expected the read to fail");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    private static byte[] write(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ChunkedGraphOutputStream chunked = new ChunkedGraphOutputStream(out, 3)) {
+            // Write a single byte and an odd sized block to cross the chunk boundaries
+            if (data.length > 0) {
+                chunked.write(data[0]);
+                chunked.write(data, 1, data.length - 1);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] read(byte[] chunked) throws IOException {
+        try (InputStream in = new ChunkedGraphInputStream(new ByteArrayInputStream(chunked), 2)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            // Read a single byte, and the rest in blocks
+            int first = in.read();
+            if (first == -1) {
+                return out.toByteArray();
+            }
+            out.write(first);
+            in.transferTo(out);
+            assertEquals(-1, in.read());
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; ++i) {
+            data[i] = i < size / 2 ? (byte) (i % 7) : (byte) random.nextInt();
+        }
+        return data;
+    }
+
+    private static class FailingOutputStream extends OutputStream {
+        boolean closed = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            throw new IOException("Disk full");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.opentripplanner.routing.graph;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.util.OtpAppException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedSectionFileTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("sections", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void writeAndMapSections() throws IOException {
+        try (MappedSectionFile.Writer writer = new MappedSectionFile.Writer(file, 42L)) {
+            writer.startSection("a");
+            writer.write(new byte[] { 1, 2, 3 });
+            assertEquals(3, writer.sectionPosition());
+            writer.startSection("b");
+            assertEquals(0, writer.sectionPosition());
+            writer.writeInt(7);
+            writer.writeInt(-1);
+            writer.commit();
+        }
+
+        MappedSectionFile subject = MappedSectionFile.open(file);
+        assertEquals(42L, subject.fileId());
+        assertEquals(List.of("a", "b"), List.copyOf(subject.sectionNames()));
+        assertFalse(subject.hasSection("c"));
+
+        ByteBuffer a = subject.section("a");
+        assertEquals(3, a.remaining());
+        assertEquals(3, a.get(2));
+        assertTrue(a.isReadOnly());
+
+        ByteBuffer b = subject.section("b");
+        assertEquals(8, b.remaining());
+        assertEquals(7, b.getInt());
+        assertEquals(-1, b.getInt());
+
+        // Each call returns a separate view
+        assertEquals(7, subject.section("b").getInt());
+    }
+
+    @Test
+    public void replaceMappedFile() throws IOException {
+        write(1L, 7);
+        MappedSectionFile first = MappedSectionFile.open(file);
+
+        write(2L, 8);
+        MappedSectionFile second = MappedSectionFile.open(file);
+
+        // The file mapped first is not changed by writing the new file
+        assertEquals(1L, first.fileId());
+        assertEquals(7, first.section("a").getInt());
+        assertEquals(2L, second.fileId());
+        assertEquals(8, second.section("a").getInt());
+        assertTempFilesDeleted();
+    }
+
+    @Test
+    public void fileIsNotReplacedUnlessCommitted() throws IOException {
+        write(1L, 7);
+
+        try (MappedSectionFile.Writer writer = new MappedSectionFile.Writer(file, 2L)) {
+            writer.startSection("a");
+            writer.writeInt(8);
+        }
+
+        MappedSectionFile subject = MappedSectionFile.open(file);
+        assertEquals(1L, subject.fileId());
+        assertEquals(7, subject.section("a").getInt());
+        assertTempFilesDeleted();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateSectionsAreRejected() throws IOException {
+        try (MappedSectionFile.Writer writer = new MappedSectionFile.Writer(file, 1L)) {
+            writer.startSection("a");
+            writer.startSection("a");
+        }
+    }
+
+    @Test(expected = OtpAppException.class)
+    public void otherFilesAreRejected() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(new byte[64]);
+        }
+        MappedSectionFile.open(file);
+    }
+
+    private void write(long fileId, int value) throws IOException {
+        try (MappedSectionFile.Writer writer = new MappedSectionFile.Writer(file, fileId)) {
+            writer.startSection("a");
+            writer.writeInt(value);
+            writer.commit();
+        }
+    }
+
+    private void assertTempFilesDeleted() {
+        String[] tempFiles = file.getParentFile().list(
+            (dir, name) -> name.startsWith(file.getName() + ".") && name.endsWith(".tmp")
+        );
+        assertEquals(0, tempFiles.length);
+    }
+}
@@ -0,0 +1,178 @@
+package org.opentripplanner.routing.graph;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * A square grid of streets used to compare the street routing algorithms. The streets in a row
+ * are {@code 1.0 + (row % 3) * 0.4} times longer than the straight line distance, and the streets
+ * in a column {@code 1.0 + (column % 2) * 0.7} times longer, so the street distance and the
+ * straight line distance differ. The permissions and one-way rows are set with the {@link Builder}.
+ * <p/>
+ * The vertex {@code v_i_j} is in row {@code i} and column {@code j}, with the first row in the
+ * south and the first column in the west.
+ */
+public class StreetGridGraph {
+
+    public interface Permissions {
+        /**
+         * @param horizontal {@code true} for the street from column {@code column} to
+         *                   {@code column + 1} in the row, {@code false} for the street from row
+         *                   {@code row} to {@code row + 1} in the column.
+         */
+        StreetTraversalPermission permission(int row, int column, boolean horizontal);
+    }
+
+    public final Graph graph;
+
+    /** The vertices indexed by row and column. */
+    public final StreetVertex[][] grid;
+
+    /** All vertices, row by row. */
+    public final List<StreetVertex> vertices;
+
+    private StreetGridGraph(Builder builder) {
+        int size = builder.size;
+        List<StreetVertex> vertices = new ArrayList<>();
+
+        this.graph = new Graph();
+        this.grid = new StreetVertex[size][size];
+
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                grid[i][j] = new IntersectionVertex(
+                        graph,
+                        "v_" + i + "_" + j,
+                        10.0 + builder.spacing * j,
+                        59.0 + builder.spacing * i
+                );
+                vertices.add(grid[i][j]);
+            }
+        }
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                if (j + 1 < size) {
+                    StreetTraversalPermission perm = builder.permissions.permission(i, j, true);
+                    edge(grid[i][j], grid[i][j + 1], rowDetour(i), perm, false);
+                    if (!builder.oneWayRows.test(i)) {
+                        edge(grid[i][j + 1], grid[i][j], rowDetour(i), perm, true);
+                    }
+                }
+                if (i + 1 < size) {
+                    StreetTraversalPermission perm = builder.permissions.permission(i, j, false);
+                    edge(grid[i][j], grid[i + 1][j], columnDetour(j), perm, false);
+                    edge(grid[i + 1][j], grid[i][j], columnDetour(j), perm, true);
+                }
+            }
+        }
+        this.vertices = Collections.unmodifiableList(vertices);
+    }
+
+    public static Builder of(int size) {
+        return new Builder(size);
+    }
+
+    /**
+     * Some streets are closed for bicycles and cars, and some for pedestrians and bicycles.
+     * All modes can reach all vertices.
+     */
+    public static StreetTraversalPermission mixedPermission(int row, int column, boolean horizontal) {
+        int i = horizontal ? row : column;
+        int j = horizontal ? column : row;
+        if ((i + 2 * j) % 7 == 3) { return StreetTraversalPermission.PEDESTRIAN; }
+        if ((i + 2 * j) % 7 == 5) { return StreetTraversalPermission.CAR; }
+        return StreetTraversalPermission.ALL;
+    }
+
+    public StreetVertex vertex(int row, int column) {
+        return grid[row][column];
+    }
+
+    /** Return the street from {@code a} to {@code b}. */
+    public static StreetEdge street(Vertex a, Vertex b) {
+        for (Edge e : a.getOutgoing()) {
+            if (e.getToVertex() == b && e instanceof StreetEdge) {
+                return (StreetEdge) e;
+            }
+        }
+        throw new IllegalArgumentException("No street from " + a + " to " + b);
+    }
+
+    /**
+     * Create a street from {@code a} to {@code b} which is {@code detour} times longer than the
+     * straight line distance.
+     */
+    public static StreetEdge edge(
+            StreetVertex a,
+            StreetVertex b,
+            double detour,
+            StreetTraversalPermission perm,
+            boolean back
+    ) {
+        Coordinate[] coords = { a.getCoordinate(), b.getCoordinate() };
+        LineString geometry = GeometryUtils.getGeometryFactory().createLineString(coords);
+        double length = detour * SphericalDistanceLibrary.distance(a.getCoordinate(), b.getCoordinate());
+        return new StreetEdge(a, b, geometry, a.getLabel() + "_" + b.getLabel(), length, perm, back);
+    }
+
+    /** Create a street in both directions between {@code a} and {@code b}, without detour. */
+    public static void edges(StreetVertex a, StreetVertex b, StreetTraversalPermission perm) {
+        edge(a, b, 1.0, perm, false);
+        edge(b, a, 1.0, perm, true);
+    }
+
+    private static double rowDetour(int row) {
+        return 1.0 + (row % 3) * 0.4;
+    }
+
+    private static double columnDetour(int column) {
+        return 1.0 + (column % 2) * 0.7;
+    }
+
+    public static class Builder {
+        private final int size;
+        private double spacing = 0.001;
+        private Permissions permissions = StreetGridGraph::mixedPermission;
+        private IntPredicate oneWayRows = row -> false;
+
+        private Builder(int size) {
+            this.size = size;
+        }
+
+        /** The distance between the rows and columns in degrees, 0.001 by default. */
+        public Builder withSpacing(double spacing) {
+            this.spacing = spacing;
+            return this;
+        }
+
+        /** The permissions of each street, {@link #mixedPermission} by default. */
+        public Builder withPermissions(Permissions permissions) {
+            this.permissions = permissions;
+            return this;
+        }
+
+        /**
+         * The streets in these rows can only be traversed from west to east. All streets are
+         * two-way by default.
+         */
+        public Builder withOneWayRows(IntPredicate oneWayRows) {
+            this.oneWayRows = oneWayRows;
+            return this;
+        }
+
+        public StreetGridGraph build() {
+            return new StreetGridGraph(this);
+        }
+    }
+}
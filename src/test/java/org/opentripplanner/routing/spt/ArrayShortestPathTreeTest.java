@@ -0,0 +1,163 @@
+package org.opentripplanner.routing.spt;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.StateEditor;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SimpleConcreteEdge;
+import org.opentripplanner.routing.graph.SimpleConcreteVertex;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ArrayShortestPathTreeTest {
+
+    private static final int SIZE = 6;
+
+    private Graph graph;
+
+    private final List<Vertex> vertices = new ArrayList<>();
+
+    @Before
+    public void before() {
+        graph = new Graph();
+        Vertex[][] grid = new Vertex[SIZE][SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            for (int j = 0; j < SIZE; ++j) {
+                grid[i][j] = new SimpleConcreteVertex(graph, "v_" + i + "_" + j, 59.0 + 0.001 * i, 10.0 + 0.001 * j);
+                vertices.add(grid[i][j]);
+            }
+        }
+        for (int i = 0; i < SIZE; ++i) {
+            for (int j = 0; j < SIZE; ++j) {
+                if (j + 1 < SIZE) {
+                    new SimpleConcreteEdge(grid[i][j], grid[i][j + 1]);
+                    new SimpleConcreteEdge(grid[i][j + 1], grid[i][j]);
+                }
+                if (i + 1 < SIZE) {
+                    new SimpleConcreteEdge(grid[i][j], grid[i + 1][j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGraphIndicesAreDense() {
+        graph.index();
+
+        int n = SIZE * SIZE;
+        assertEquals(n, graph.getVertexIndexSize());
+        assertEquals(graph.countEdges(), graph.getEdgeIndexSize());
+
+        BitSet vertexIndices = new BitSet();
+        BitSet edgeIndices = new BitSet();
+        for (Vertex v : graph.getVertices()) {
+            assertFalse(vertexIndices.get(v.getIndex()));
+            vertexIndices.set(v.getIndex());
+            for (Edge e : v.getOutgoing()) {
+                assertFalse(edgeIndices.get(e.getIndex()));
+                edgeIndices.set(e.getIndex());
+            }
+        }
+        assertEquals(n, vertexIndices.cardinality());
+        assertEquals(n, vertexIndices.nextClearBit(0));
+        assertEquals(graph.getEdgeIndexSize(), edgeIndices.nextClearBit(0));
+
+        // Vertices added later get new indices, temporary vertices have no index
+        Vertex late = new SimpleConcreteVertex(graph, "late", 59.0, 10.0);
+        assertEquals(n, late.getIndex());
+        assertEquals(n + 1, graph.getVertexIndexSize());
+        assertEquals(-1, new SimpleConcreteVertex(null, "temporary", 59.0, 10.0).getIndex());
+    }
+
+    @Test
+    public void testSameTreeAsMapBasedTree() {
+        graph.index();
+        Vertex from = vertices.get(2);
+
+        ShortestPathTree expected = search(from, new DominanceFunction.MinimumWeight() {
+            @Override
+            public ShortestPathTree getNewShortestPathTree(RoutingRequest routingRequest) {
+                return new ShortestPathTree(routingRequest, this);
+            }
+        });
+        ShortestPathTree spt = search(from, new DominanceFunction.MinimumWeight());
+
+        assertTrue(spt instanceof ArrayShortestPathTree);
+        assertEquals(expected.getVertexCount(), spt.getVertexCount());
+        assertEquals(expected.getVertices(), spt.getVertices());
+        assertEquals(expected.getAllStates().size(), spt.getAllStates().size());
+        for (Vertex v : vertices) {
+            State state = expected.getState(v);
+            if (state == null) {
+                assertNull(spt.getState(v));
+                continue;
+            }
+            assertEquals(state.getWeight(), spt.getState(v).getWeight(), 0.0);
+            assertEquals(1, spt.getStates(v).size());
+        }
+    }
+
+    @Test
+    public void testIncomparableStatesAreKept() {
+        RoutingRequest options = new RoutingRequest();
+        options.setRoutingContext(graph, vertices.get(0), vertices.get(1));
+        ShortestPathTree spt = new ArrayShortestPathTree(
+            options, new DominanceFunction.Pareto(), graph.getVertexIndexSize()
+        );
+        Vertex v = vertices.get(1);
+        State start = new State(vertices.get(0), options);
+        Edge edge = vertices.get(0).getOutgoing().iterator().next();
+
+        State fast = state(start, edge, 10, 100);
+        State cheap = state(start, edge, 100, 10);
+        State dominated = state(start, edge, 200, 200);
+
+        assertTrue(spt.add(fast));
+        assertTrue(spt.add(cheap));
+        assertFalse(spt.add(dominated));
+        assertEquals(2, spt.getStates(v).size());
+        assertTrue(spt.visit(fast));
+        assertTrue(spt.visit(cheap));
+        assertFalse(spt.visit(dominated));
+        assertEquals(1, spt.getVertexCount());
+
+        // Temporary vertices are kept in the map
+        Vertex temporary = new SimpleConcreteVertex(null, "temporary", 59.0, 10.0);
+        State temporaryState = new State(temporary, options);
+        assertTrue(spt.add(temporaryState));
+        assertSame(temporaryState, spt.getState(temporary));
+        assertEquals(2, spt.getVertexCount());
+        assertEquals(3, spt.getAllStates().size());
+    }
+
+    private ShortestPathTree search(Vertex from, DominanceFunction dominanceFunction) {
+        RoutingRequest options = new RoutingRequest();
+        options.dominanceFunction = dominanceFunction;
+        options.setRoutingContext(graph, Collections.singleton(from), null);
+        options.disableRemainingWeightHeuristic = true;
+        options.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
+        return new AStar().getShortestPathTree(options);
+    }
+
+    private static State state(State start, Edge edge, int seconds, double weight) {
+        StateEditor editor = start.edit(edge);
+        editor.incrementTimeInSeconds(seconds);
+        editor.incrementWeight(weight);
+        return editor.makeState();
+    }
+}
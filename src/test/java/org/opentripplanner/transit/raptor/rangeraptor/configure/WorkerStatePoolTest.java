@@ -0,0 +1,65 @@
+package org.opentripplanner.transit.raptor.rangeraptor.configure;
+
+import org.junit.Test;
+import org.opentripplanner.transit.raptor.rangeraptor.debug.WorkerPerformanceTimers;
+import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.BestTimes;
+import org.opentripplanner.transit.raptor.rangeraptor.standard.besttimes.BestTimesArrays;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TransitCalculator;
+import org.opentripplanner.transit.raptor.rangeraptor.workerlifecycle.LifeCycleSubscriptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class WorkerStatePoolTest {
+    private static final int N_STOPS = 10;
+    private static final WorkerPerformanceTimers TIMERS = WorkerPerformanceTimers.NOOP;
+    private final TransitCalculator calculator = TransitCalculator.testDummyCalculator(true);
+
+    private final WorkerStatePool<BestTimesArrays> subject = new WorkerStatePool<>(1);
+
+    @Test
+    public void releasedStateIsReusedAfterReset() {
+        BestTimesArrays state = acquire(N_STOPS);
+        BestTimes bestTimes = new BestTimes(state, calculator, new LifeCycleSubscriptions());
+        bestTimes.updateNewBestTime(3, 100);
+        bestTimes.transitUpdateNewBestTime(5, 200);
+
+        subject.release(state, TIMERS);
+        assertSame(state, acquire(N_STOPS));
+
+        bestTimes = new BestTimes(state, calculator, new LifeCycleSubscriptions());
+        assertFalse(bestTimes.isStopReached(3));
+        assertEquals(calculator.unreachedTime(), bestTimes.transitTime(5));
+        assertFalse(bestTimes.isCurrentRoundUpdated());
+    }
+
+    @Test
+    public void poolIsBounded() {
+        BestTimesArrays s1 = acquire(N_STOPS);
+        BestTimesArrays s2 = acquire(N_STOPS);
+        subject.release(s1, TIMERS);
+        subject.release(s2, TIMERS);
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void stateWithAnotherNumberOfStopsIsDropped() {
+        BestTimesArrays state = acquire(N_STOPS);
+        subject.release(state, TIMERS);
+
+        BestTimesArrays other = acquire(N_STOPS + 1);
+        assertNotSame(state, other);
+        assertEquals(N_STOPS + 1, other.nStops());
+        assertEquals(0, subject.size());
+    }
+
+    private BestTimesArrays acquire(int nStops) {
+        return subject.acquire(
+                nStops,
+                n -> new BestTimesArrays(n, calculator.unreachedTime()),
+                TIMERS
+        );
+    }
+}
@@ -107,6 +107,26 @@ public class StopArrivalStateParetoSetTest {
         assertStopsInSet(STOP_1, STOP_4);
     }
 
+    @Test
+    public void testElementsAfterMarkerWhenDominatedElementsAreDropped() {
+        subject.add(newTransferStopState(ROUND_1, STOP_1, 10, 10));
+        subject.add(newTransferStopState(ROUND_1, STOP_2, 12, 5));
+        subject.markAtEndOfSet();
+
+        subject.add(newTransferStopState(ROUND_1, STOP_3, 14, 1));
+        // Dominates STOP_1, but not STOP_2 and STOP_3
+        subject.add(newTransferStopState(ROUND_1, STOP_4, 9, 9));
+
+        assertStopsInSet(STOP_2, STOP_3, STOP_4);
+
+        int[] afterMarker = new int[2];
+        int i = 0;
+        for (AbstractStopArrival<RaptorTripSchedule> it : subject.elementsAfterMarker()) {
+            afterMarker[i++] = it.stop();
+        }
+        Assert.assertEquals("[3, 4]", Arrays.toString(afterMarker));
+    }
+
     private void assertStopsInSet(int ... expStopIndexes) {
         int[] result = subject.stream().mapToInt(AbstractStopArrival::stop).sorted().toArray();
         Assert.assertEquals("Stop indexes", Arrays.toString(expStopIndexes), Arrays.toString(result));
@@ -0,0 +1,137 @@
+package org.opentripplanner.transit.raptor.service;
+
+import org.junit.Test;
+import org.opentripplanner.transit.raptor._data.transit.TestTripSchedule;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelSearchWindowWorkerTest {
+
+    private static final int EDT = 10_000;
+    private static final int STEP = 60;
+
+    @Test
+    public void splitSearchWindowInEqualSubWindows() {
+        List<RaptorRequest<TestTripSchedule>> result = ParallelSearchWindowWorker.splitSearchWindow(
+                request(3_600), 3, STEP
+        );
+
+        assertEquals(3, result.size());
+        assertSubWindow(EDT, 1_200, result.get(0));
+        assertSubWindow(EDT + 1_200, 1_200, result.get(1));
+        assertSubWindow(EDT + 2_400, 1_200, result.get(2));
+    }
+
+    @Test
+    public void subWindowsAreAlignedWithIterationStep() {
+        // 11 iterations split in 4 gives 3 iterations per sub-window, aligned from the end of
+        // the search window, so the first one is shorter
+        List<RaptorRequest<TestTripSchedule>> result = ParallelSearchWindowWorker.splitSearchWindow(
+                request(660), 4, STEP
+        );
+
+        assertEquals(4, result.size());
+        assertSubWindow(EDT, 120, result.get(0));
+        assertSubWindow(EDT + 120, 180, result.get(1));
+        assertSubWindow(EDT + 300, 180, result.get(2));
+        assertSubWindow(EDT + 480, 180, result.get(3));
+    }
+
+    @Test
+    public void searchWindowNotAMultipleOfTheIterationStep() {
+        // 10 iterations and 50 seconds split in 3, the remainder is added to the first sub-window
+        List<RaptorRequest<TestTripSchedule>> result = ParallelSearchWindowWorker.splitSearchWindow(
+                request(650), 3, STEP
+        );
+
+        assertEquals(3, result.size());
+        assertSubWindow(EDT, 170, result.get(0));
+        assertSubWindow(EDT + 170, 240, result.get(1));
+        assertSubWindow(EDT + 410, 240, result.get(2));
+
+        assertEquals(departureMinutes(request(650)), departureMinutes(result));
+    }
+
+    @Test
+    public void subWindowsSearchTheSameDepartureMinutes() {
+        for (int searchWindow = 2 * STEP; searchWindow < 20 * STEP; searchWindow += 7) {
+            for (int nSubWindows = 2; nSubWindows < 6; ++nSubWindows) {
+                RaptorRequest<TestTripSchedule> request = request(searchWindow);
+                assertEquals(
+                        "Search window: " + searchWindow + ", sub-windows: " + nSubWindows,
+                        departureMinutes(request),
+                        departureMinutes(
+                            ParallelSearchWindowWorker.splitSearchWindow(request, nSubWindows, STEP)
+                        )
+                );
+            }
+        }
+    }
+
+    @Test
+    public void doNotSplitInMoreSubWindowsThanIterations() {
+        List<RaptorRequest<TestTripSchedule>> result = ParallelSearchWindowWorker.splitSearchWindow(
+                request(120), 8, STEP
+        );
+
+        assertEquals(2, result.size());
+        assertSubWindow(EDT, STEP, result.get(0));
+        assertSubWindow(EDT + STEP, STEP, result.get(1));
+    }
+
+    /**
+     * The departure minutes Range Raptor iterates over, the same way as the
+     * {@code ForwardTransitCalculator}.
+     */
+    private static List<Integer> departureMinutes(RaptorRequest<?> request) {
+        int edt = request.searchParams().earliestDepartureTime();
+        int searchWindow = request.searchParams().searchWindowInSeconds();
+        if (searchWindow <= STEP) {
+            return List.of(edt);
+        }
+        List<Integer> minutes = new ArrayList<>();
+        for (int t = edt + searchWindow - STEP; t >= edt; t -= STEP) {
+            minutes.add(t);
+        }
+        return minutes;
+    }
+
+    private static List<Integer> departureMinutes(List<? extends RaptorRequest<?>> requests) {
+        List<Integer> minutes = new ArrayList<>();
+        for (RaptorRequest<?> request : requests) {
+            minutes.addAll(departureMinutes(request));
+        }
+        minutes.sort(Comparator.reverseOrder());
+        return minutes;
+    }
+
+    private static void assertSubWindow(int edt, int window, RaptorRequest<?> request) {
+        assertEquals(edt, request.searchParams().earliestDepartureTime());
+        assertEquals(window, request.searchParams().searchWindowInSeconds());
+    }
+
+    private static RaptorRequest<TestTripSchedule> request(int searchWindow) {
+        RaptorRequestBuilder<TestTripSchedule> b = new RaptorRequestBuilder<>();
+        b.profile(RaptorProfile.MULTI_CRITERIA);
+        b.searchParams().accessPaths().add(dummyPath());
+        b.searchParams().egressPaths().add(dummyPath());
+        b.searchParams().earliestDepartureTime(EDT);
+        b.searchParams().searchWindowInSeconds(searchWindow);
+        return b.build();
+    }
+
+    private static RaptorTransfer dummyPath() {
+        return new RaptorTransfer() {
+            @Override public int stop() { return 1; }
+            @Override public int durationInSeconds() { return 10; }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package org.opentripplanner.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PagedArraysTest {
+
+    @Test
+    public void testOfObject() {
+        PagedArrays.OfObject<String> array = new PagedArrays.OfObject<>(10);
+        assertNull(array.get(5));
+        assertNull(array.get(100_000));
+
+        array.set(5, "a");
+        array.set(5_000, "b");
+        array.set(2, "c");
+        array.set(5, null);
+        array.set(200_000, null);
+
+        assertNull(array.get(5));
+        assertEquals("b", array.get(5_000));
+
+        List<String> values = new ArrayList<>();
+        array.forEach(values::add);
+        assertEquals(List.of("c", "b"), values);
+    }
+
+    @Test
+    public void testOfInt() {
+        PagedArrays.OfInt array = new PagedArrays.OfInt(0, -1);
+        assertEquals(-1, array.get(0));
+        assertEquals(-1, array.get(3_000));
+
+        array.set(3_000, 7);
+        array.set(3_001, 0);
+        assertEquals(7, array.get(3_000));
+        assertEquals(0, array.get(3_001));
+        assertEquals(-1, array.get(3_002));
+        assertEquals(-1, array.get(1_000_000));
+    }
+
+    @Test
+    public void testOfDouble() {
+        PagedArrays.OfDouble array = new PagedArrays.OfDouble(2_000, Double.POSITIVE_INFINITY);
+        assertEquals(Double.POSITIVE_INFINITY, array.get(1_999), 0.0);
+
+        array.set(1_999, 2.5);
+        array.set(10_000, 0.0);
+        assertEquals(2.5, array.get(1_999), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, array.get(1_998), 0.0);
+        assertEquals(0.0, array.get(10_000), 0.0);
+    }
+}